@@ -25,8 +25,14 @@ public final class AndroidNfcConnection extends AbstractApduConnectionIso7816 {
     /** <i>Version Code</i> de Android P. */
     private static final int ANDROID_P = 28;
 
+    /** Tama&ntilde;o m&aacute;ximo de APDU sin longitud extendida. */
+    private static final int MAX_SHORT_APDU_SIZE = 0xff;
+
     private final IsoDep mIsoDep;
 
+    /** Tama&ntilde;o m&aacute;ximo de APDU de comando que declara la tarjeta, o <code>0</code> si no lo declara. */
+    private int cardMaxApduSize = 0;
+
     /** Constructor de la clase para la gesti&oacute;n de la conexi&oacute;n por NFC.
      * @param tag <code>Tag</code> para obtener el objeto <code>IsoDep</code> y establecer la
      *            conexi&oacute;n.
@@ -180,8 +186,26 @@ public final class AndroidNfcConnection extends AbstractApduConnectionIso7816 {
 		return null; // Esta es la conexion de mas bajo nivel
 	}
 
+	@Override
+	public void setCardMaxApduSize(final int length) {
+		this.cardMaxApduSize = length;
+	}
+
+	/** {@inheritDoc}
+	 * Si la tarjeta declara admitir APDU extendidas y el dispositivo tambi&eacute;n las admite
+	 * se devuelve el menor de los tama&ntilde;os m&aacute;ximos de ambos. */
 	@Override
 	public int getMaxApduSize() {
-		return 0xff;
+		if (
+			this.cardMaxApduSize > MAX_SHORT_APDU_SIZE &&
+			android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.JELLY_BEAN &&
+			this.mIsoDep.isExtendedLengthApduSupported()
+		) {
+			return Math.max(
+				MAX_SHORT_APDU_SIZE,
+				Math.min(this.cardMaxApduSize, this.mIsoDep.getMaxTransceiveLength())
+			);
+		}
+		return MAX_SHORT_APDU_SIZE;
 	}
 }
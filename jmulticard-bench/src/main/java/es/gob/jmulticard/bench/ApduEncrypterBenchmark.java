@@ -0,0 +1,125 @@
+package es.gob.jmulticard.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.apdu.CommandApdu;
+import es.gob.jmulticard.apdu.ResponseApdu;
+import es.gob.jmulticard.connection.AbstractApduEncrypter;
+import es.gob.jmulticard.connection.ApduEncrypterAes;
+import es.gob.jmulticard.connection.ApduEncrypterDes;
+import es.gob.jmulticard.connection.ApduEncrypterDesMac8;
+import es.gob.jmulticard.connection.CipheredApdu;
+import es.gob.jmulticard.crypto.BcCryptoHelper;
+
+/** Rendimiento de la protecci&oacute;n de comandos y la desprotecci&oacute;n de respuestas
+ * de los canales CWA-14890, que se ejecutan en cada APDU.
+ * La desprotecci&oacute;n de <code>ApduEncrypterAes</code> no se mide porque no est&aacute;
+ * implementada.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApduEncrypterBenchmark {
+
+	private static final int AES_SSC_LENGTH = 16;
+
+	/** Tama&ntilde;o de los datos del comando y de la respuesta. */
+	@Param({ "0", "32", "240" })
+	public int size;
+
+	private final CryptoHelper cryptoHelper = new BcCryptoHelper();
+
+	private final AbstractApduEncrypter des = new ApduEncrypterDes();
+	private final AbstractApduEncrypter desMac8 = new ApduEncrypterDesMac8();
+	private final AbstractApduEncrypter aes = new ApduEncrypterAes();
+
+	private byte[] kenc;
+	private byte[] kmac;
+	private byte[] ssc;
+	private byte[] aesSsc;
+	private CommandApdu command;
+	private ResponseApdu desResponse;
+	private ResponseApdu desMac8Response;
+
+	/** Prepara las claves, el comando en claro y las respuestas protegidas.
+	 * @throws IOException Si no se pueden construir las respuestas. */
+	@Setup
+	public void setup() throws IOException {
+		kenc = BenchUtil.getData(16);
+		kmac = BenchUtil.getData(16);
+		ssc = BenchUtil.getData(8);
+		aesSsc = BenchUtil.getData(AES_SSC_LENGTH);
+		command = new CommandApdu(
+			(byte) 0x00,
+			(byte) 0xD6, // UPDATE BINARY, o READ BINARY si no lleva datos
+			(byte) 0x00,
+			(byte) 0x00,
+			size > 0 ? BenchUtil.getData(size) : null,
+			size > 0 ? null : Integer.valueOf(0xEF)
+		);
+		final byte[] responseData = size > 0 ? BenchUtil.getData(size) : new byte[0];
+		desResponse = new ResponseApdu(
+			CardResponses.protectCwa14890(responseData, kenc, kmac, ssc, 4, cryptoHelper)
+		);
+		desMac8Response = new ResponseApdu(
+			CardResponses.protectCwa14890(responseData, kenc, kmac, ssc, 8, cryptoHelper)
+		);
+	}
+
+	/** Protecci&oacute;n de un comando con 3DES y MAC de 4 octetos (DNIe 2&#46;0 y 3&#46;0).
+	 * @return Comando protegido.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public CipheredApdu protectDes() throws IOException {
+		return des.protectAPDU(command, kenc, kmac, ssc, cryptoHelper);
+	}
+
+	/** Protecci&oacute;n de un comando con 3DES y MAC de 8 octetos (CERES 4&#46;30 y otras).
+	 * @return Comando protegido.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public CipheredApdu protectDesMac8() throws IOException {
+		return desMac8.protectAPDU(command, kenc, kmac, ssc, cryptoHelper);
+	}
+
+	/** Protecci&oacute;n de un comando con AES y CMAC.
+	 * @return Comando protegido.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public CipheredApdu protectAes() throws IOException {
+		return aes.protectAPDU(command, kenc, kmac, aesSsc, cryptoHelper);
+	}
+
+	/** Desprotecci&oacute;n de una respuesta con 3DES y MAC de 4 octetos.
+	 * @return Respuesta en claro.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public ResponseApdu decryptDes() throws IOException {
+		return des.decryptResponseApdu(desResponse, kenc, ssc, kmac, cryptoHelper);
+	}
+
+	/** Desprotecci&oacute;n de una respuesta con 3DES y MAC de 8 octetos.
+	 * @return Respuesta en claro.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public ResponseApdu decryptDesMac8() throws IOException {
+		return desMac8.decryptResponseApdu(desMac8Response, kenc, ssc, kmac, cryptoHelper);
+	}
+}
@@ -0,0 +1,126 @@
+package es.gob.jmulticard.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.asn1.Asn1Exception;
+import es.gob.jmulticard.asn1.Tlv;
+import es.gob.jmulticard.asn1.TlvException;
+import es.gob.jmulticard.asn1.bertlv.BerTlv;
+import es.gob.jmulticard.asn1.der.pkcs15.Cdf;
+import es.gob.jmulticard.asn1.der.pkcs15.PrKdf;
+import es.gob.jmulticard.asn1.icao.LdsSecurityObject;
+import es.gob.jmulticard.asn1.icao.Sod;
+import es.gob.jmulticard.crypto.BcCryptoHelper;
+
+/** Rendimiento del an&aacute;lisis de las estructuras ASN&#46;1 que se leen de la tarjeta
+ * (PKCS#15 al abrirla y SOD al comprobar los datos ICAO).
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Asn1Benchmark {
+
+	private final CryptoHelper cryptoHelper = new BcCryptoHelper();
+
+	private byte[] cdf;
+	private byte[] prkdf;
+	private byte[] sod;
+	private byte[] ldsSecurityObject;
+
+	/** Carga las estructuras de ejemplo.
+	 * @throws Exception Si no se pueden cargar o analizar los ejemplos. */
+	@Setup
+	public void setup() throws Exception {
+		cdf = BenchUtil.getResource("CDF_ESPECIMEN.ber"); //$NON-NLS-1$
+		prkdf = BenchUtil.getResource("PRKDF_ESPECIMEN.ber"); //$NON-NLS-1$
+		sod = BenchUtil.getResource("SOD_ESPECIMEN.der"); //$NON-NLS-1$
+		final Sod sodObject = new Sod(cryptoHelper);
+		sodObject.setDerValue(sod);
+		ldsSecurityObject = sodObject.getLdsSecurityObjectBytes();
+	}
+
+	/** TLV simple sobre un CDF completo.
+	 * @return TLV.
+	 * @throws TlvException En cualquier error. */
+	@Benchmark
+	public Tlv tlv() throws TlvException {
+		return new Tlv(cdf);
+	}
+
+	/** TLV BER sobre un CDF completo.
+	 * @return TLV. */
+	@Benchmark
+	public BerTlv berTlv() {
+		return BerTlv.createInstance(cdf);
+	}
+
+	/** CDF de PKCS#15.
+	 * @return CDF analizado.
+	 * @throws Asn1Exception En cualquier error.
+	 * @throws TlvException En cualquier error. */
+	@Benchmark
+	public Cdf cdf() throws Asn1Exception, TlvException {
+		final Cdf ret = new Cdf();
+		ret.setDerValue(cdf);
+		return ret;
+	}
+
+	/** PrKDF de PKCS#15.
+	 * @return PrKDF analizado.
+	 * @throws Asn1Exception En cualquier error.
+	 * @throws TlvException En cualquier error. */
+	@Benchmark
+	public PrKdf prkdf() throws Asn1Exception, TlvException {
+		final PrKdf ret = new PrKdf();
+		ret.setDerValue(prkdf);
+		return ret;
+	}
+
+	/** EF&#46;SOD de ICAO (solo su estructura externa).
+	 * @return SOD analizado.
+	 * @throws Asn1Exception En cualquier error.
+	 * @throws TlvException En cualquier error. */
+	@Benchmark
+	public Sod sod() throws Asn1Exception, TlvException {
+		final Sod ret = new Sod(cryptoHelper);
+		ret.setDerValue(sod);
+		return ret;
+	}
+
+	/** Extracci&oacute;n del contenido firmado del SOD (CMS) y an&aacute;lisis del
+	 * <code>LDSSecurityObject</code>.
+	 * @return <code>LDSSecurityObject</code> analizado.
+	 * @throws Exception En cualquier error. */
+	@Benchmark
+	public LdsSecurityObject sodLdsSecurityObject() throws Exception {
+		final Sod ret = new Sod(cryptoHelper);
+		ret.setDerValue(sod);
+		return ret.getLdsSecurityObject();
+	}
+
+	/** <code>LDSSecurityObject</code> (huellas de los grupos de datos).
+	 * @return <code>LDSSecurityObject</code> analizado.
+	 * @throws Asn1Exception En cualquier error.
+	 * @throws TlvException En cualquier error. */
+	@Benchmark
+	public LdsSecurityObject ldsSecurityObject() throws Asn1Exception, TlvException {
+		final LdsSecurityObject ret = new LdsSecurityObject();
+		ret.setDerValue(ldsSecurityObject);
+		return ret;
+	}
+}
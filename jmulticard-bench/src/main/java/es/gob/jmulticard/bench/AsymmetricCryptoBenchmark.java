@@ -0,0 +1,84 @@
+package es.gob.jmulticard.bench;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.CryptoHelper.EcCurve;
+import es.gob.jmulticard.crypto.BcCryptoHelper;
+
+/** Rendimiento de las operaciones criptogr&aacute;ficas asim&eacute;tricas de <code>BcCryptoHelper</code>
+ * que se usan al establecer los canales seguros (CWA-14890 y PACE).
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsymmetricCryptoBenchmark {
+
+	private static final int RSA_KEY_SIZE = 2048;
+	private static final int EC_FIELD_SIZE = 32;
+
+	private final CryptoHelper cryptoHelper = new BcCryptoHelper();
+
+	private RSAPrivateKey rsaKey;
+	private byte[] rsaBlock;
+	private byte[] nonce;
+	private byte[] sharedSecretH;
+
+	/** Prepara las claves y los datos de la prueba.
+	 * @throws GeneralSecurityException Si no se pueden generar las claves.
+	 * @throws IOException Si no se puede preparar el bloque RSA. */
+	@Setup
+	public void setup() throws GeneralSecurityException, IOException {
+		final KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA"); //$NON-NLS-1$
+		kpg.initialize(RSA_KEY_SIZE);
+		rsaKey = (RSAPrivateKey) kpg.generateKeyPair().getPrivate();
+		rsaBlock = CryptoHelper.addPkcs1PaddingForPrivateKeyOperation(BenchUtil.getData(51), RSA_KEY_SIZE);
+
+		// El punto H del mapeo generico de PACE es un punto cualquiera de la curva
+		nonce = BenchUtil.getData(16);
+		final BigInteger x = ((ECPublicKey) cryptoHelper.generateEcKeyPair(EcCurve.BRAINPOOL_P256_R1).getPublic())
+			.getW().getAffineX();
+		final byte[] xBytes = x.toByteArray();
+		sharedSecretH = new byte[EC_FIELD_SIZE];
+		final int len = Math.min(xBytes.length, EC_FIELD_SIZE);
+		System.arraycopy(xBytes, xBytes.length - len, sharedSecretH, EC_FIELD_SIZE - len, len);
+	}
+
+	/** Operaci&oacute;n RSA de 2048 bits con clave privada (como la de la autenticaci&oacute;n
+	 * interna y la firma en tarjeta).
+	 * @return Resultado de la operaci&oacute;n.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public byte[] rsaPrivate() throws IOException {
+		return cryptoHelper.rsaDecrypt(rsaBlock, rsaKey);
+	}
+
+	/** Mapeo gen&eacute;rico del nonce de PACE sobre BrainpoolP256r1
+	 * (<code>getEcPoint</code>, que incluye <code>mapNonceGmWithEcdh</code>).
+	 * @return Par&aacute;metros del nuevo dominio. */
+	@Benchmark
+	public AlgorithmParameterSpec getEcPoint() {
+		return cryptoHelper.getEcPoint(nonce, sharedSecretH, EcCurve.BRAINPOOL_P256_R1);
+	}
+}
@@ -0,0 +1,48 @@
+package es.gob.jmulticard.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/** Utilidades comunes a las pruebas de rendimiento.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class BenchUtil {
+
+	/** Generador con semilla fija para que los datos de prueba sean los mismos en todas las ejecuciones. */
+	private static final Random RANDOM = new Random(0x4A4D43L);
+
+	private static final int BUFFER_SIZE = 4096;
+
+	private BenchUtil() {
+		// No instanciable
+	}
+
+	/** Carga un recurso del m&oacute;dulo de pruebas de rendimiento.
+	 * @param name Nombre del recurso.
+	 * @return Contenido del recurso.
+	 * @throws IOException Si el recurso no existe o no se puede leer. */
+	static byte[] getResource(final String name) throws IOException {
+		try (InputStream is = BenchUtil.class.getResourceAsStream('/' + name)) {
+			if (is == null) {
+				throw new IOException("No se encuentra el recurso: " + name); //$NON-NLS-1$
+			}
+			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			int n;
+			while ((n = is.read(buffer)) > 0) {
+				baos.write(buffer, 0, n);
+			}
+			return baos.toByteArray();
+		}
+	}
+
+	/** Genera datos pseudoaleatorios deterministas.
+	 * @param length Longitud de los datos.
+	 * @return Datos generados. */
+	static synchronized byte[] getData(final int length) {
+		final byte[] data = new byte[length];
+		RANDOM.nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,33 @@
+package es.gob.jmulticard.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Lanzador de las pruebas de rendimiento.
+ * Acepta las mismas opciones de l&iacute;nea de comandos que JMH, pero a&ntilde;ade siempre el
+ * perfilador de recolecci&oacute;n de basura para informar de la tasa de asignaci&oacute;n
+ * de memoria (<code>gc.alloc.rate.norm</code>) junto al rendimiento.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+		// No instanciable
+	}
+
+	/** Ejecuta las pruebas de rendimiento.
+	 * @param args Opciones de JMH (por ejemplo, una expresi&oacute;n regular con las pruebas a ejecutar).
+	 * @throws RunnerException Si falla la ejecuci&oacute;n de alguna prueba.
+	 * @throws CommandLineOptionException Si las opciones no son v&aacute;lidas. */
+	public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+		final Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
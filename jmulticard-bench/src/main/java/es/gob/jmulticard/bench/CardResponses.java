@@ -0,0 +1,125 @@
+package es.gob.jmulticard.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.CryptoHelper.BlockMode;
+import es.gob.jmulticard.CryptoHelper.Padding;
+import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.asn1.Tlv;
+import es.gob.jmulticard.connection.ApduEncrypterDes;
+
+/** Construye respuestas protegidas como las que env&iacute;a la tarjeta, para poder medir
+ * su desprotecci&oacute;n sin tarjeta.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class CardResponses {
+
+	private static final byte TAG_DATA_TLV = (byte) 0x87;
+	private static final byte TAG_SW_TLV = (byte) 0x99;
+	private static final byte TAG_MAC_TLV = (byte) 0x8E;
+	private static final byte PADDING_INDICATOR = (byte) 0x01;
+	private static final byte[] SW_OK = { (byte) 0x90, (byte) 0x00 };
+	private static final int AES_BLOCK_SIZE = 16;
+	private static final int PACE_MAC_LENGTH = 8;
+
+	private CardResponses() {
+		// No instanciable
+	}
+
+	/** Protege una respuesta correcta por un canal CWA-14890 con 3DES.
+	 * @param data Datos de la respuesta (sin palabra de estado).
+	 * @param kenc Clave de cifrado.
+	 * @param kmac Clave de MAC.
+	 * @param ssc Contador de secuencia de la respuesta.
+	 * @param macLength Longitud del MAC (4 u 8).
+	 * @param cryptoHelper Operador criptogr&aacute;fico.
+	 * @return Respuesta protegida (con palabra de estado).
+	 * @throws IOException Si falla el cifrado. */
+	static byte[] protectCwa14890(final byte[] data,
+			                      final byte[] kenc,
+			                      final byte[] kmac,
+			                      final byte[] ssc,
+			                      final int macLength,
+			                      final CryptoHelper cryptoHelper) throws IOException {
+		return new CwaCardEncrypter(macLength).protect(data, kenc, kmac, ssc, cryptoHelper);
+	}
+
+	/** Protege una respuesta correcta por un canal PACE (AES-CBC y AES-CMAC).
+	 * @param data Datos de la respuesta (sin palabra de estado).
+	 * @param kenc Clave de cifrado.
+	 * @param kmac Clave de MAC.
+	 * @param ssc Contador de secuencia de la respuesta.
+	 * @param cryptoHelper Operador criptogr&aacute;fico.
+	 * @return Respuesta protegida (con palabra de estado).
+	 * @throws IOException Si falla el cifrado.
+	 * @throws GeneralSecurityException Si falla el c&aacute;lculo del MAC. */
+	static byte[] protectPace(final byte[] data,
+			                  final byte[] kenc,
+			                  final byte[] kmac,
+			                  final byte[] ssc,
+			                  final CryptoHelper cryptoHelper) throws IOException, GeneralSecurityException {
+		final ByteArrayOutputStream tlvs = new ByteArrayOutputStream();
+		if (data.length > 0) {
+			final byte[] iv = cryptoHelper.aesEncrypt(ssc, null, kenc, BlockMode.ECB, Padding.NOPADDING);
+			tlvs.write(
+				new Tlv(
+					TAG_DATA_TLV,
+					HexUtils.concatenateByteArrays(
+						new byte[] { PADDING_INDICATOR },
+						cryptoHelper.aesEncrypt(data, iv, kenc, BlockMode.CBC, Padding.ISO7816_4PADDING)
+					)
+				).getBytes()
+			);
+		}
+		tlvs.write(new Tlv(TAG_SW_TLV, SW_OK).getBytes());
+		final byte[] macData = HexUtils.concatenateByteArrays(ssc, tlvs.toByteArray());
+		final byte[] paddedMacData = Arrays.copyOf(macData, (macData.length / AES_BLOCK_SIZE + 1) * AES_BLOCK_SIZE);
+		paddedMacData[macData.length] = (byte) 0x80;
+		final byte[] mac = Arrays.copyOf(cryptoHelper.doAesCmac(paddedMacData, kmac), PACE_MAC_LENGTH);
+		tlvs.write(new Tlv(TAG_MAC_TLV, mac).getBytes());
+		tlvs.write(SW_OK);
+		return tlvs.toByteArray();
+	}
+
+	/** Reutiliza el cifrado y el MAC del canal CWA-14890 para construir las respuestas. */
+	private static final class CwaCardEncrypter extends ApduEncrypterDes {
+
+		private final int macLength;
+
+		CwaCardEncrypter(final int macLen) {
+			macLength = macLen;
+		}
+
+		@Override
+		protected int getMacLength() {
+			return macLength;
+		}
+
+		byte[] protect(final byte[] data,
+				       final byte[] kenc,
+				       final byte[] kmac,
+				       final byte[] ssc,
+				       final CryptoHelper cryptoHelper) throws IOException {
+			final ByteArrayOutputStream tlvs = new ByteArrayOutputStream();
+			if (data.length > 0) {
+				tlvs.write(
+					new Tlv(
+						TAG_DATA_TLV,
+						HexUtils.concatenateByteArrays(
+							new byte[] { PADDING_INDICATOR },
+							encryptData(addPadding7816(data, paddingLength), kenc, ssc, cryptoHelper)
+						)
+					).getBytes()
+				);
+			}
+			tlvs.write(new Tlv(TAG_SW_TLV, SW_OK).getBytes());
+			final byte[] mac = generateMac(addPadding7816(tlvs.toByteArray(), paddingLength), ssc, kmac, cryptoHelper);
+			tlvs.write(new Tlv(TAG_MAC_TLV, mac).getBytes());
+			tlvs.write(SW_OK);
+			return tlvs.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package es.gob.jmulticard.bench;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.CryptoHelper.BlockMode;
+import es.gob.jmulticard.CryptoHelper.Padding;
+import es.gob.jmulticard.DigestAlgorithm;
+import es.gob.jmulticard.crypto.BcCryptoHelper;
+
+/** Rendimiento de las operaciones criptogr&aacute;ficas sim&eacute;tricas de <code>BcCryptoHelper</code>
+ * que se usan en cada APDU de un canal seguro.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoHelperBenchmark {
+
+	/** Tama&ntilde;o de los datos: un bloque, una APDU corta completa y una lectura extendida. */
+	@Param({ "16", "240", "1024" })
+	public int size;
+
+	private final CryptoHelper cryptoHelper = new BcCryptoHelper();
+
+	private byte[] data;
+	private byte[] desedeKey;
+	private byte[] aesKey;
+	private byte[] aesIv;
+
+	/** Prepara las claves y los datos de la prueba. */
+	@Setup
+	public void setup() {
+		data = BenchUtil.getData(size);
+		desedeKey = BenchUtil.getData(16);
+		aesKey = BenchUtil.getData(16);
+		aesIv = new byte[16];
+	}
+
+	/** Huella SHA-1 (derivaci&oacute;n de claves y canales CWA-14890).
+	 * @return Huella.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public byte[] sha1() throws IOException {
+		return cryptoHelper.digest(DigestAlgorithm.SHA1, data);
+	}
+
+	/** Huella SHA-256 (comprobaci&oacute;n de los DG contra el SOD y firma).
+	 * @return Huella.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public byte[] sha256() throws IOException {
+		return cryptoHelper.digest(DigestAlgorithm.SHA256, data);
+	}
+
+	/** Cifrado 3DES (canal CWA-14890 v1).
+	 * @return Datos cifrados.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public byte[] desedeEncrypt() throws IOException {
+		return cryptoHelper.desedeEncrypt(data, desedeKey);
+	}
+
+	/** Cifrado AES-CBC con relleno ISO 7816-4 (canal PACE).
+	 * @return Datos cifrados.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public byte[] aesEncrypt() throws IOException {
+		return cryptoHelper.aesEncrypt(data, aesIv, aesKey, BlockMode.CBC, Padding.ISO7816_4PADDING);
+	}
+
+	/** AES-CMAC (MAC de cada APDU del canal PACE).
+	 * @return MAC.
+	 * @throws GeneralSecurityException En cualquier error. */
+	@Benchmark
+	public byte[] aesCmac() throws GeneralSecurityException {
+		return cryptoHelper.doAesCmac(data, aesKey);
+	}
+}
@@ -0,0 +1,112 @@
+package es.gob.jmulticard.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.asn1.Asn1Exception;
+import es.gob.jmulticard.asn1.Tlv;
+import es.gob.jmulticard.asn1.TlvException;
+import es.gob.jmulticard.asn1.icao.SubjectFacePhoto;
+import es.gob.jmulticard.card.icao.Mrz;
+import es.gob.jmulticard.card.icao.vdsned.Vdsned;
+
+/** Rendimiento del tratamiento de los datos ICAO: extracci&oacute;n de la foto del DG2 y
+ * an&aacute;lisis de la MRZ y de los sellos digitales visibles (VDS-NED).
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IcaoBenchmark {
+
+	/** MRZ de un DNIe (TD1). */
+	private static final String MRZ_TD1 =
+		"IDESPBKS116519811830960J<<<<<<" + //$NON-NLS-1$
+		"7501045M2909233ESP<<<<<<<<<<<9" + //$NON-NLS-1$
+		"GARCIA<MERAS<CAPOTE<<TOMAS<<<<"; //$NON-NLS-1$
+
+	/** MRZ de un pasaporte (TD3). */
+	private static final String MRZ_TD3 =
+		"P<ESPGARCIA<MERAS<CAPOTE<<TOMAS<<<<<<<<<<<<<" + //$NON-NLS-1$
+		"PAK1670410ESP7501045M2909233A1183096000<<<02"; //$NON-NLS-1$
+
+	/** Tama&ntilde;o de la foto del DG2, similar al de un DNIe real. */
+	private static final int PHOTO_LENGTH = 15000;
+
+	/** Cabecera de una imagen JPEG2000 (firma y tipo de fichero). */
+	private static final byte[] JPEG2000_HEADER = {
+		0x00, 0x00, 0x00, 0x0C, 0x6A, 0x50, 0x20, 0x20, 0x0D, 0x0A, (byte) 0x87, 0x0A
+	};
+
+	/** Cabecera biom&eacute;trica (CBEFF) que precede a la foto en el DG2. */
+	private static final int BIOMETRIC_HEADER_LENGTH = 46;
+
+	private byte[] dg2;
+	private byte[] vdsned;
+
+	/** Prepara un DG2 sint&eacute;tico y carga el sello de ejemplo.
+	 * @throws IOException Si no se puede cargar el sello. */
+	@Setup
+	public void setup() throws IOException {
+		dg2 = new Tlv(
+			(byte) 0x75,
+			HexUtils.concatenateByteArrays(
+				BenchUtil.getData(BIOMETRIC_HEADER_LENGTH),
+				JPEG2000_HEADER,
+				BenchUtil.getData(PHOTO_LENGTH - JPEG2000_HEADER.length)
+			)
+		).getBytes();
+		vdsned = BenchUtil.getResource("VDSNED_UTOPIA.bin"); //$NON-NLS-1$
+	}
+
+	/** An&aacute;lisis del DG2 y extracci&oacute;n de la foto en JPEG2000.
+	 * @return Foto.
+	 * @throws Asn1Exception En cualquier error.
+	 * @throws TlvException En cualquier error.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public byte[] extractImage() throws Asn1Exception, TlvException, IOException {
+		final SubjectFacePhoto photo = new SubjectFacePhoto();
+		photo.setDerValue(dg2);
+		return photo.getSubjectPhotoAsJpeg2k();
+	}
+
+	/** An&aacute;lisis de la MRZ de un DNIe.
+	 * @return MRZ analizada.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public Mrz mrzTd1() throws IOException {
+		return new Mrz(MRZ_TD1);
+	}
+
+	/** An&aacute;lisis de la MRZ de un pasaporte.
+	 * @return MRZ analizada.
+	 * @throws IOException En cualquier error. */
+	@Benchmark
+	public Mrz mrzTd3() throws IOException {
+		return new Mrz(MRZ_TD3);
+	}
+
+	/** An&aacute;lisis de un sello VDS-NED.
+	 * @return Sello analizado.
+	 * @throws IOException En cualquier error.
+	 * @throws TlvException En cualquier error. */
+	@Benchmark
+	public Vdsned vdsned() throws IOException, TlvException {
+		return new Vdsned(vdsned);
+	}
+}
@@ -0,0 +1,98 @@
+package es.gob.jmulticard.bench;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.apdu.CommandApdu;
+import es.gob.jmulticard.apdu.ResponseApdu;
+import es.gob.jmulticard.connection.pace.SecureMessaging;
+import es.gob.jmulticard.connection.pace.SecureMessagingException;
+import es.gob.jmulticard.crypto.BcCryptoHelper;
+
+/** Rendimiento de la mensajer&iacute;a segura del canal PACE, que se ejecuta en cada APDU
+ * de una lectura sin contacto.
+ * Cada medida usa un <code>SecureMessaging</code> nuevo (su construcci&oacute;n solo copia las
+ * claves y el contador), para que el contador de secuencia de la respuesta coincida siempre.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecureMessagingBenchmark {
+
+	private static final int SSC_LENGTH = 16;
+
+	/** Tama&ntilde;o de los datos del comando y de la respuesta (el mayor necesita APDU extendida). */
+	@Param({ "0", "32", "240", "1024" })
+	public int size;
+
+	private final CryptoHelper cryptoHelper = new BcCryptoHelper();
+
+	private byte[] kenc;
+	private byte[] kmac;
+	private final byte[] ssc = new byte[SSC_LENGTH];
+	private CommandApdu command;
+	private ResponseApdu response;
+
+	/** Prepara las claves, el comando en claro y la respuesta protegida.
+	 * @throws IOException Si no se puede cifrar la respuesta.
+	 * @throws GeneralSecurityException Si no se puede calcular el MAC de la respuesta. */
+	@Setup
+	public void setup() throws IOException, GeneralSecurityException {
+		kenc = BenchUtil.getData(16);
+		kmac = BenchUtil.getData(16);
+		command = new CommandApdu(
+			(byte) 0x00,
+			(byte) 0xD6, // UPDATE BINARY, o READ BINARY si no lleva datos
+			(byte) 0x00,
+			(byte) 0x00,
+			size > 0 ? BenchUtil.getData(size) : null,
+			size > 0 ? null : Integer.valueOf(0xEF)
+		);
+
+		// La respuesta se protege con el contador ya incrementado, como hace la tarjeta
+		final byte[] responseSsc = ssc.clone();
+		responseSsc[SSC_LENGTH - 1] = 1;
+		response = new ResponseApdu(
+			CardResponses.protectPace(
+				size > 0 ? BenchUtil.getData(size) : new byte[0],
+				kenc,
+				kmac,
+				responseSsc,
+				cryptoHelper
+			)
+		);
+	}
+
+	/** Protecci&oacute;n de un comando.
+	 * @return Comando protegido.
+	 * @throws SecureMessagingException En cualquier error. */
+	@Benchmark
+	public CommandApdu wrap() throws SecureMessagingException {
+		return new SecureMessaging(kenc, kmac, ssc, cryptoHelper).wrap(command);
+	}
+
+	/** Desprotecci&oacute;n de una respuesta.
+	 * @return Respuesta en claro.
+	 * @throws SecureMessagingException En cualquier error. */
+	@Benchmark
+	public ResponseApdu unwrap() throws SecureMessagingException {
+		return new SecureMessaging(kenc, kmac, ssc, cryptoHelper).unwrap(response);
+	}
+}
@@ -0,0 +1,4 @@
+/** Pruebas de rendimiento (JMH) de las rutas que se ejecutan en cada APDU o en cada lectura
+ * de estructuras de la tarjeta.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+package es.gob.jmulticard.bench;
@@ -9,12 +9,14 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.security.SignatureException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateCrtKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.AlgorithmParameterSpec;
@@ -53,6 +55,7 @@ import org.bouncycastle.crypto.digests.SHA512Digest;
 import org.bouncycastle.crypto.engines.AESEngine;
 import org.bouncycastle.crypto.engines.DESEngine;
 import org.bouncycastle.crypto.engines.DESedeEngine;
+import org.bouncycastle.crypto.engines.RSABlindedEngine;
 import org.bouncycastle.crypto.engines.RSAEngine;
 import org.bouncycastle.crypto.macs.CMac;
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
@@ -63,12 +66,13 @@ import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.crypto.params.RSAKeyParameters;
-import org.bouncycastle.crypto.prng.DigestRandomGenerator;
-import org.bouncycastle.crypto.prng.RandomGenerator;
+import org.bouncycastle.crypto.params.RSAPrivateCrtKeyParameters;
 import org.bouncycastle.jcajce.provider.asymmetric.ec.KeyPairGeneratorSpi;
+import org.bouncycastle.jcajce.provider.asymmetric.util.EC5Util;
 import org.bouncycastle.jce.ECNamedCurveTable;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.jce.spec.ECNamedCurveGenParameterSpec;
+import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
 import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.ECFieldElement;
 import org.bouncycastle.operator.DefaultSignatureAlgorithmIdentifierFinder;
@@ -92,6 +96,31 @@ public final class BcCryptoHelper extends CryptoHelper {
 
 	private PaceChannelHelper paceChannelHelper = null;
 
+	/** Algoritmo PACE con el que se cre&oacute; <code>paceChannelHelper</code>. */
+	private CardAccess paceHelperCardAccess = null;
+
+	/** PACE CHAT con el que se cre&oacute; <code>paceChannelHelper</code>. */
+	private PaceChat paceHelperChat = null;
+
+	/** Fuente de aleatorios para los retos, las claves de sesi&oacute;n y las claves ef&iacute;meras PACE. */
+	private final SecureRandom random;
+
+	/** Construye unas utilidades criptogr&aacute;ficas que usan un generador de aleatorios seguro por defecto. */
+	public BcCryptoHelper() {
+		this(new SecureRandom());
+	}
+
+	/** Construye unas utilidades criptogr&aacute;ficas con una fuente de aleatorios concreta.
+	 * Permite, por ejemplo, reproducir exactamente una sesi&oacute;n grabada con
+	 * <code>RecordingApduConnection</code> proporcionando la misma secuencia de aleatorios.
+	 * @param rnd Fuente de aleatorios para <code>generateRandomBytes(int)</code>. */
+	public BcCryptoHelper(final SecureRandom rnd) {
+		if (rnd == null) {
+			throw new IllegalArgumentException("La fuente de aleatorios no puede ser nula"); //$NON-NLS-1$
+		}
+		random = rnd;
+	}
+
     @Override
     public byte[] digest(final DigestAlgorithm algorithm, final byte[] data) throws IOException {
         if (algorithm == null) {
@@ -222,16 +251,36 @@ public final class BcCryptoHelper extends CryptoHelper {
     		                    final RSAKey key,
     		                    final boolean forEncryption) throws IOException {
 
-    	final boolean isPrivateKey = key instanceof RSAPrivateKey;
-
-    	final AsymmetricKeyParameter akp = new RSAKeyParameters(
-			isPrivateKey,
-			key.getModulus(),
-			isPrivateKey ?
-				((RSAPrivateKey)key).getPrivateExponent() :
-					((RSAPublicKey)key).getPublicExponent()
-		);
-    	final AsymmetricBlockCipher cipher = new RSAEngine();
+    	final AsymmetricKeyParameter akp;
+    	final AsymmetricBlockCipher cipher;
+
+    	// Si la clave privada proporciona sus parametros CRT se usan (con cegado)
+    	// para evitar la exponenciacion modular completa
+    	if (key instanceof RSAPrivateCrtKey && ((RSAPrivateCrtKey)key).getPrimeP() != null) {
+    		final RSAPrivateCrtKey crtKey = (RSAPrivateCrtKey) key;
+    		akp = new RSAPrivateCrtKeyParameters(
+				crtKey.getModulus(),
+				crtKey.getPublicExponent(),
+				crtKey.getPrivateExponent(),
+				crtKey.getPrimeP(),
+				crtKey.getPrimeQ(),
+				crtKey.getPrimeExponentP(),
+				crtKey.getPrimeExponentQ(),
+				crtKey.getCrtCoefficient()
+			);
+    		cipher = new RSABlindedEngine();
+    	}
+    	else {
+	    	final boolean isPrivateKey = key instanceof RSAPrivateKey;
+	    	akp = new RSAKeyParameters(
+				isPrivateKey,
+				key.getModulus(),
+				isPrivateKey ?
+					((RSAPrivateKey)key).getPrivateExponent() :
+						((RSAPublicKey)key).getPublicExponent()
+			);
+	    	cipher = new RSAEngine();
+    	}
     	cipher.init(forEncryption, akp);
 
     	try {
@@ -254,9 +303,8 @@ public final class BcCryptoHelper extends CryptoHelper {
 
     @Override
     public byte[] generateRandomBytes(final int numBytes) {
-    	final RandomGenerator sr = new DigestRandomGenerator(new SHA1Digest());
     	final byte[] ret = new byte[numBytes];
-    	sr.nextBytes(ret);
+    	random.nextBytes(ret);
     	return ret;
     }
 
@@ -438,11 +486,16 @@ public final class BcCryptoHelper extends CryptoHelper {
 	public AlgorithmParameterSpec getEcPoint(final byte[] nonceS,
 			                                 final byte[] sharedSecretH,
 			                                 final EcCurve curveName) {
-		final AlgorithmParameterSpec ecParams = ECNamedCurveTable.getParameterSpec(curveName.toString());
+		// La tabla de BouncyCastle devuelve sus propios parametros, que hay que pasar a los de JCA
+		final ECNamedCurveParameterSpec bcParams = ECNamedCurveTable.getParameterSpec(curveName.toString());
+		final ECParameterSpec ecParams = EC5Util.convertSpec(
+			EC5Util.convertCurve(bcParams.getCurve(), bcParams.getSeed()),
+			bcParams
+		);
 		final BigInteger affineX = os2i(sharedSecretH);
-		final BigInteger affineY = computeAffineY(affineX, (ECParameterSpec) ecParams);
+		final BigInteger affineY = computeAffineY(affineX, ecParams);
 		final ECPoint sharedSecretPointH = new ECPoint(affineX, affineY);
-		return mapNonceGmWithEcdh(os2i(nonceS), sharedSecretPointH, (ECParameterSpec) ecParams);
+		return mapNonceGmWithEcdh(os2i(nonceS), sharedSecretPointH, ecParams);
 	}
 
 	/** Convierte un <code>Octet String</code> de ASN&#46;1 en un entero
@@ -668,8 +721,11 @@ public final class BcCryptoHelper extends CryptoHelper {
 	@Override
 	public PaceChannelHelper getPaceChannelHelper(final CardAccess cardAccess, final PaceChat paceChat) {
 		// Solo creamos el PaceChannelHelper si nos lo piden, asi evitamos crearlo en uso con contactos si no es necesario.
-		if (paceChannelHelper == null) {
+		// Se reutiliza mientras no cambie el algoritmo, que se negocia con cada tarjeta
+		if (paceChannelHelper == null || paceHelperCardAccess != cardAccess || paceHelperChat != paceChat) {
 			paceChannelHelper = new BcPaceChannelHelper(this, cardAccess, paceChat);
+			paceHelperCardAccess = cardAccess;
+			paceHelperChat = paceChat;
 		}
 		return paceChannelHelper;
 	}
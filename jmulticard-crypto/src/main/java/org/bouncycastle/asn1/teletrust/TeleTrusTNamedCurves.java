@@ -10,6 +10,7 @@ import org.bouncycastle.asn1.x9.X9ECParametersHolder;
 import org.bouncycastle.asn1.x9.X9ECPoint;
 import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.WNafUtil;
+import org.bouncycastle.math.ec.custom.brainpool.BrainpoolP256R1Curve;
 import org.bouncycastle.util.Strings;
 import org.bouncycastle.util.encoders.Hex;
 
@@ -212,14 +213,8 @@ public class TeleTrusTNamedCurves
         @Override
 		protected ECCurve createCurve()
         {
-            final BigInteger n = fromHex("A9FB57DBA1EEA9BC3E660A909D838D718C397AA3B561A6F7901E0E82974856A7"); //$NON-NLS-1$
-            final BigInteger h = BigInteger.valueOf(1);
-
-            return configureCurve(new ECCurve.Fp(
-                fromHex("A9FB57DBA1EEA9BC3E660A909D838D726E3BF623D52620282013481D1F6E5377"), // q //$NON-NLS-1$
-                fromHex("7D5A0975FC2C3057EEF67530417AFFE7FB8055C126DC5C6CE94A4B44F330B5D9"), // a //$NON-NLS-1$
-                fromHex("26DC5C6CE94A4B44F330B5D9BBD77CBF958416295CF7E1CE6BCCDC18FF8C07B6"), // b //$NON-NLS-1$
-                n, h, true));
+            // Dedicated Nat256 (Montgomery) arithmetic instead of the generic BigInteger based ECCurve.Fp
+            return configureCurve(new BrainpoolP256R1Curve());
         }
 
         @Override
@@ -0,0 +1,180 @@
+package org.bouncycastle.math.ec.custom.brainpool;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import org.bouncycastle.math.ec.AbstractECLookupTable;
+import org.bouncycastle.math.ec.ECConstants;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.ec.ECLookupTable;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.raw.Nat256;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * brainpoolP256r1 (RFC 5639) on top of {@link Nat256} Montgomery arithmetic, instead of the
+ * generic <code>BigInteger</code> based {@link ECCurve.Fp}.
+ */
+public class BrainpoolP256R1Curve extends ECCurve.AbstractFp
+{
+    public static final BigInteger q = BrainpoolP256R1FieldElement.Q;
+
+    private static final int BRAINPOOLP256R1_DEFAULT_COORDS = COORD_JACOBIAN;
+    private static final ECFieldElement[] BRAINPOOLP256R1_AFFINE_ZS = new ECFieldElement[] { new BrainpoolP256R1FieldElement(ECConstants.ONE) };
+
+    protected BrainpoolP256R1Point infinity;
+
+    public BrainpoolP256R1Curve()
+    {
+        super(q);
+
+        this.infinity = new BrainpoolP256R1Point(this, null, null);
+
+        this.a = fromBigInteger(new BigInteger(1,
+            Hex.decodeStrict("7D5A0975FC2C3057EEF67530417AFFE7FB8055C126DC5C6CE94A4B44F330B5D9")));
+        this.b = fromBigInteger(new BigInteger(1,
+            Hex.decodeStrict("26DC5C6CE94A4B44F330B5D9BBD77CBF958416295CF7E1CE6BCCDC18FF8C07B6")));
+        this.order = new BigInteger(1, Hex.decodeStrict("A9FB57DBA1EEA9BC3E660A909D838D718C397AA3B561A6F7901E0E82974856A7"));
+        this.cofactor = BigInteger.valueOf(1);
+
+        this.coord = BRAINPOOLP256R1_DEFAULT_COORDS;
+    }
+
+    @Override
+	protected ECCurve cloneCurve()
+    {
+        return new BrainpoolP256R1Curve();
+    }
+
+    @Override
+	public boolean supportsCoordinateSystem(int coord)
+    {
+        switch (coord)
+        {
+        case COORD_JACOBIAN:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    public BigInteger getQ()
+    {
+        return q;
+    }
+
+    @Override
+	public int getFieldSize()
+    {
+        return q.bitLength();
+    }
+
+    @Override
+	public ECFieldElement fromBigInteger(BigInteger x)
+    {
+        return new BrainpoolP256R1FieldElement(x);
+    }
+
+    @Override
+	protected ECPoint createRawPoint(ECFieldElement x, ECFieldElement y)
+    {
+        return new BrainpoolP256R1Point(this, x, y);
+    }
+
+    @Override
+	protected ECPoint createRawPoint(ECFieldElement x, ECFieldElement y, ECFieldElement[] zs)
+    {
+        return new BrainpoolP256R1Point(this, x, y, zs);
+    }
+
+    @Override
+	public ECPoint getInfinity()
+    {
+        return infinity;
+    }
+
+    @Override
+	public ECLookupTable createCacheSafeLookupTable(ECPoint[] points, int off, final int len)
+    {
+        final int FE_INTS = 8;
+
+        final int[] table = new int[len * FE_INTS * 2];
+        {
+            int pos = 0;
+            for (int i = 0; i < len; ++i)
+            {
+                ECPoint p = points[off + i];
+                Nat256.copy(((BrainpoolP256R1FieldElement)p.getRawXCoord()).x, 0, table, pos); pos += FE_INTS;
+                Nat256.copy(((BrainpoolP256R1FieldElement)p.getRawYCoord()).x, 0, table, pos); pos += FE_INTS;
+            }
+        }
+
+        return new AbstractECLookupTable()
+        {
+            @Override
+			public int getSize()
+            {
+                return len;
+            }
+
+            @Override
+			public ECPoint lookup(int index)
+            {
+                int[] x = Nat256.create(), y = Nat256.create();
+                int pos = 0;
+
+                for (int i = 0; i < len; ++i)
+                {
+                    int MASK = ((i ^ index) - 1) >> 31;
+
+                    for (int j = 0; j < FE_INTS; ++j)
+                    {
+                        x[j] ^= table[pos + j] & MASK;
+                        y[j] ^= table[pos + FE_INTS + j] & MASK;
+                    }
+
+                    pos += (FE_INTS * 2);
+                }
+
+                return createPoint(x, y);
+            }
+
+            @Override
+			public ECPoint lookupVar(int index)
+            {
+                int[] x = Nat256.create(), y = Nat256.create();
+                int pos = index * FE_INTS * 2;
+
+                for (int j = 0; j < FE_INTS; ++j)
+                {
+                    x[j] = table[pos + j];
+                    y[j] = table[pos + FE_INTS + j];
+                }
+
+                return createPoint(x, y);
+            }
+
+            private ECPoint createPoint(int[] x, int[] y)
+            {
+                return createRawPoint(new BrainpoolP256R1FieldElement(x), new BrainpoolP256R1FieldElement(y), BRAINPOOLP256R1_AFFINE_ZS);
+            }
+        };
+    }
+
+    @Override
+	public ECFieldElement randomFieldElement(SecureRandom r)
+    {
+        int[] x = Nat256.create();
+        BrainpoolP256R1Field.random(r, x);
+        return new BrainpoolP256R1FieldElement(x);
+    }
+
+    @Override
+	public ECFieldElement randomFieldElementMult(SecureRandom r)
+    {
+        int[] x = Nat256.create();
+        BrainpoolP256R1Field.randomMult(r, x);
+        return new BrainpoolP256R1FieldElement(x);
+    }
+}
@@ -0,0 +1,215 @@
+package org.bouncycastle.math.ec.custom.brainpool;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import org.bouncycastle.math.raw.Mod;
+import org.bouncycastle.math.raw.Nat;
+import org.bouncycastle.math.raw.Nat256;
+import org.bouncycastle.util.Pack;
+
+/**
+ * Arithmetic modulo the brainpoolP256r1 prime. The prime has no special form, so elements are
+ * kept in Montgomery representation (x.R mod p, with R = 2^256) and products are reduced word by
+ * word (Montgomery reduction) instead of with <code>BigInteger</code> divisions.
+ */
+public class BrainpoolP256R1Field
+{
+    // A9FB57DBA1EEA9BC3E660A909D838D726E3BF623D52620282013481D1F6E5377
+    static final int[] P = new int[]{ 0x1F6E5377, 0x2013481D, 0xD5262028, 0x6E3BF623, 0x9D838D72, 0x3E660A90,
+        0xA1EEA9BC, 0xA9FB57DB };
+
+    // R mod p, i.e. the representation of 1
+    static final int[] ONE = new int[]{ 0xE091AC89, 0xDFECB7E2, 0x2AD9DFD7, 0x91C409DC, 0x627C728D, 0xC199F56F,
+        0x5E115643, 0x5604A824 };
+
+    // R^2 mod p, to convert into Montgomery representation
+    private static final int[] R2 = new int[]{ 0xA6465B6C, 0x8CFEDF7B, 0x614D4F4D, 0x5CCE4C26, 0x6B1AC807,
+        0xA1ECDACD, 0xE5957FA8, 0x4717AA21 };
+
+    // R^3 mod p, to fix the representation after a plain modular inversion
+    private static final int[] R3 = new int[]{ 0xD7A31F68, 0x6C45FF6F, 0xCDAE4DAB, 0x0FF3D758, 0x4A6DFE87,
+        0x84E004C0, 0x87DCD4A7, 0x1AADC549 };
+
+    // (p + 1) / 4, as p = 3 mod 4
+    private static final int[] SQRT_EXP = new int[]{ 0x47DB94DE, 0x0804D207, 0xF549880A, 0x9B8EFD88, 0x2760E35C,
+        0x0F9982A4, 0xE87BAA6F, 0x2A7ED5F6 };
+
+    // -p^-1 mod 2^32
+    private static final int P_INV = -Mod.inverse32(P[0]);
+
+    public static void add(int[] x, int[] y, int[] z)
+    {
+        int c = Nat256.add(x, y, z);
+        if (c != 0 || Nat256.gte(z, P))
+        {
+            Nat256.subFrom(P, z);
+        }
+    }
+
+    public static void addOne(int[] x, int[] z)
+    {
+        add(x, ONE, z);
+    }
+
+    public static int[] fromBigInteger(BigInteger x)
+    {
+        int[] z = Nat256.fromBigInteger(x);
+        if (Nat256.gte(z, P))
+        {
+            Nat256.subFrom(P, z);
+        }
+        multiply(z, R2, z);
+        return z;
+    }
+
+    public static BigInteger toBigInteger(int[] x)
+    {
+        int[] z = Nat256.create();
+        fromMontgomery(x, z);
+        return Nat256.toBigInteger(z);
+    }
+
+    public static void fromMontgomery(int[] x, int[] z)
+    {
+        int[] tt = Nat256.createExt();
+        Nat256.copy(x, 0, tt, 0);
+        reduce(tt, z);
+    }
+
+    public static void inv(int[] x, int[] z)
+    {
+        // (x.R)^-1 = x^-1.R^-1, so a Montgomery product with R^3 gives x^-1.R
+        Mod.checkedModOddInverse(P, x, z);
+        multiply(z, R3, z);
+    }
+
+    public static boolean isOne(int[] x)
+    {
+        return Nat256.eq(x, ONE);
+    }
+
+    public static int isZero(int[] x)
+    {
+        int d = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            d |= x[i];
+        }
+        d = (d >>> 1) | (d & 1);
+        return (d - 1) >> 31;
+    }
+
+    public static void multiply(int[] x, int[] y, int[] z)
+    {
+        int[] tt = Nat256.createExt();
+        Nat256.mul(x, y, tt);
+        reduce(tt, z);
+    }
+
+    public static void multiply(int[] x, int[] y, int[] z, int[] tt)
+    {
+        Nat256.mul(x, y, tt);
+        reduce(tt, z);
+    }
+
+    public static void negate(int[] x, int[] z)
+    {
+        if (0 != isZero(x))
+        {
+            Nat256.sub(P, P, z);
+        }
+        else
+        {
+            Nat256.sub(P, x, z);
+        }
+    }
+
+    public static void random(SecureRandom r, int[] z)
+    {
+        byte[] bb = new byte[8 * 4];
+        do
+        {
+            r.nextBytes(bb);
+            Pack.littleEndianToInt(bb, 0, z, 0, 8);
+        }
+        while (0 == Nat.lessThan(8, z, P));
+    }
+
+    public static void randomMult(SecureRandom r, int[] z)
+    {
+        do
+        {
+            random(r, z);
+        }
+        while (0 != isZero(z));
+    }
+
+    /**
+     * Montgomery reduction: z = xx.R^-1 mod p, for any xx &lt; p.R. The contents of xx are destroyed.
+     */
+    public static void reduce(int[] xx, int[] z)
+    {
+        int cc = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            int u = xx[i] * P_INV;
+            int c = Nat256.mulWordAddTo(u, P, 0, xx, i);
+            cc += Nat.addWordAt(16, c, xx, i + 8);
+        }
+
+        Nat256.copy(xx, 8, z, 0);
+        if (cc != 0 || Nat256.gte(z, P))
+        {
+            Nat256.subFrom(P, z);
+        }
+    }
+
+    public static void sqrt(int[] x, int[] z)
+    {
+        // x^((p + 1) / 4), left to right; the exponent is a public constant
+        int[] tt = Nat256.createExt();
+        int[] t = Nat256.create();
+        Nat256.copy(ONE, t);
+        for (int i = 255; i >= 0; --i)
+        {
+            square(t, t, tt);
+            if (Nat256.getBit(SQRT_EXP, i) != 0)
+            {
+                multiply(t, x, t, tt);
+            }
+        }
+        Nat256.copy(t, z);
+    }
+
+    public static void square(int[] x, int[] z)
+    {
+        int[] tt = Nat256.createExt();
+        Nat256.square(x, tt);
+        reduce(tt, z);
+    }
+
+    public static void square(int[] x, int[] z, int[] tt)
+    {
+        Nat256.square(x, tt);
+        reduce(tt, z);
+    }
+
+    public static void subtract(int[] x, int[] y, int[] z)
+    {
+        int c = Nat256.sub(x, y, z);
+        if (c != 0)
+        {
+            Nat256.addTo(P, z);
+        }
+    }
+
+    public static void twice(int[] x, int[] z)
+    {
+        int c = Nat.shiftUpBit(8, x, 0, z);
+        if (c != 0 || Nat256.gte(z, P))
+        {
+            Nat256.subFrom(P, z);
+        }
+    }
+}
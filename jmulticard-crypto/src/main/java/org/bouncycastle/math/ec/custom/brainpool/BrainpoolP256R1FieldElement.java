@@ -0,0 +1,189 @@
+package org.bouncycastle.math.ec.custom.brainpool;
+
+import java.math.BigInteger;
+
+import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.raw.Nat256;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Element of the brainpoolP256r1 prime field. The value is held in Montgomery representation
+ * (see {@link BrainpoolP256R1Field}); conversions happen only in {@link #BrainpoolP256R1FieldElement(BigInteger)}
+ * and {@link #toBigInteger()}.
+ */
+public class BrainpoolP256R1FieldElement extends ECFieldElement.AbstractFp
+{
+    public static final BigInteger Q = new BigInteger(1,
+        Hex.decodeStrict("A9FB57DBA1EEA9BC3E660A909D838D726E3BF623D52620282013481D1F6E5377"));
+
+    protected int[] x;
+
+    public BrainpoolP256R1FieldElement(final BigInteger x)
+    {
+        if (x == null || x.signum() < 0 || x.compareTo(Q) >= 0)
+        {
+            throw new IllegalArgumentException("x value invalid for BrainpoolP256R1FieldElement");
+        }
+
+        this.x = BrainpoolP256R1Field.fromBigInteger(x);
+    }
+
+    public BrainpoolP256R1FieldElement()
+    {
+        x = Nat256.create();
+    }
+
+    protected BrainpoolP256R1FieldElement(final int[] x)
+    {
+        this.x = x;
+    }
+
+    @Override
+	public boolean isZero()
+    {
+        return Nat256.isZero(x);
+    }
+
+    @Override
+	public boolean isOne()
+    {
+        return BrainpoolP256R1Field.isOne(x);
+    }
+
+    @Override
+	public boolean testBitZero()
+    {
+        final int[] z = Nat256.create();
+        BrainpoolP256R1Field.fromMontgomery(x, z);
+        return Nat256.getBit(z, 0) == 1;
+    }
+
+    @Override
+	public BigInteger toBigInteger()
+    {
+        return BrainpoolP256R1Field.toBigInteger(x);
+    }
+
+    @Override
+	public String getFieldName()
+    {
+        return "BrainpoolP256R1Field";
+    }
+
+    @Override
+	public int getFieldSize()
+    {
+        return Q.bitLength();
+    }
+
+    @Override
+	public ECFieldElement add(final ECFieldElement b)
+    {
+        final int[] z = Nat256.create();
+        BrainpoolP256R1Field.add(x, ((BrainpoolP256R1FieldElement)b).x, z);
+        return new BrainpoolP256R1FieldElement(z);
+    }
+
+    @Override
+	public ECFieldElement addOne()
+    {
+        final int[] z = Nat256.create();
+        BrainpoolP256R1Field.addOne(x, z);
+        return new BrainpoolP256R1FieldElement(z);
+    }
+
+    @Override
+	public ECFieldElement subtract(final ECFieldElement b)
+    {
+        final int[] z = Nat256.create();
+        BrainpoolP256R1Field.subtract(x, ((BrainpoolP256R1FieldElement)b).x, z);
+        return new BrainpoolP256R1FieldElement(z);
+    }
+
+    @Override
+	public ECFieldElement multiply(final ECFieldElement b)
+    {
+        final int[] z = Nat256.create();
+        BrainpoolP256R1Field.multiply(x, ((BrainpoolP256R1FieldElement)b).x, z);
+        return new BrainpoolP256R1FieldElement(z);
+    }
+
+    @Override
+	public ECFieldElement divide(final ECFieldElement b)
+    {
+        final int[] z = Nat256.create();
+        BrainpoolP256R1Field.inv(((BrainpoolP256R1FieldElement)b).x, z);
+        BrainpoolP256R1Field.multiply(z, x, z);
+        return new BrainpoolP256R1FieldElement(z);
+    }
+
+    @Override
+	public ECFieldElement negate()
+    {
+        final int[] z = Nat256.create();
+        BrainpoolP256R1Field.negate(x, z);
+        return new BrainpoolP256R1FieldElement(z);
+    }
+
+    @Override
+	public ECFieldElement square()
+    {
+        final int[] z = Nat256.create();
+        BrainpoolP256R1Field.square(x, z);
+        return new BrainpoolP256R1FieldElement(z);
+    }
+
+    @Override
+	public ECFieldElement invert()
+    {
+        final int[] z = Nat256.create();
+        BrainpoolP256R1Field.inv(x, z);
+        return new BrainpoolP256R1FieldElement(z);
+    }
+
+    /**
+     * return a sqrt root - the routine verifies that the calculation returns the right value - if
+     * none exists it returns null.
+     */
+    @Override
+	public ECFieldElement sqrt()
+    {
+        final int[] x1 = x;
+        if (Nat256.isZero(x1) || BrainpoolP256R1Field.isOne(x1))
+        {
+            return this;
+        }
+
+        final int[] t1 = Nat256.create();
+        final int[] t2 = Nat256.create();
+
+        BrainpoolP256R1Field.sqrt(x1, t1);
+        BrainpoolP256R1Field.square(t1, t2);
+
+        return Nat256.eq(x1, t2) ? new BrainpoolP256R1FieldElement(t1) : null;
+    }
+
+    @Override
+	public boolean equals(final Object other)
+    {
+        if (other == this)
+        {
+            return true;
+        }
+
+        if (!(other instanceof BrainpoolP256R1FieldElement))
+        {
+            return false;
+        }
+
+        final BrainpoolP256R1FieldElement o = (BrainpoolP256R1FieldElement)other;
+        return Nat256.eq(x, o.x);
+    }
+
+    @Override
+	public int hashCode()
+    {
+        return Q.hashCode() ^ Arrays.hashCode(x, 0, 8);
+    }
+}
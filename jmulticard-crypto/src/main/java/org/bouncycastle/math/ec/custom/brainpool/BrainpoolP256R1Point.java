@@ -0,0 +1,285 @@
+package org.bouncycastle.math.ec.custom.brainpool;
+
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.raw.Nat256;
+
+/**
+ * Point of brainpoolP256r1 in Jacobian coordinates. Unlike the NIST curves, a is not -3, so
+ * doubling computes the full 3.X^2 + a.Z^4 term.
+ */
+public class BrainpoolP256R1Point extends ECPoint.AbstractFp
+{
+    BrainpoolP256R1Point(final ECCurve curve, final ECFieldElement x, final ECFieldElement y)
+    {
+        super(curve, x, y);
+    }
+
+    BrainpoolP256R1Point(final ECCurve curve, final ECFieldElement x, final ECFieldElement y, final ECFieldElement[] zs)
+    {
+        super(curve, x, y, zs);
+    }
+
+    @Override
+	protected ECPoint detach()
+    {
+        return new BrainpoolP256R1Point(null, getAffineXCoord(), getAffineYCoord());
+    }
+
+    @Override
+	public ECPoint add(final ECPoint b)
+    {
+        if (this.isInfinity())
+        {
+            return b;
+        }
+        if (b.isInfinity())
+        {
+            return this;
+        }
+        if (this == b)
+        {
+            return twice();
+        }
+
+        final ECCurve curve = this.getCurve();
+
+        final BrainpoolP256R1FieldElement X1 = (BrainpoolP256R1FieldElement)x, Y1 = (BrainpoolP256R1FieldElement)y;
+        final BrainpoolP256R1FieldElement X2 = (BrainpoolP256R1FieldElement)b.getXCoord(), Y2 = (BrainpoolP256R1FieldElement)b.getYCoord();
+
+        final BrainpoolP256R1FieldElement Z1 = (BrainpoolP256R1FieldElement)zs[0];
+        final BrainpoolP256R1FieldElement Z2 = (BrainpoolP256R1FieldElement)b.getZCoord(0);
+
+        final int[] tt0 = Nat256.createExt();
+        final int[] t1 = Nat256.create();
+        final int[] t2 = Nat256.create();
+        final int[] t3 = Nat256.create();
+        final int[] t4 = Nat256.create();
+
+        final boolean Z1IsOne = Z1.isOne();
+        int[] U2, S2;
+        if (Z1IsOne)
+        {
+            U2 = X2.x;
+            S2 = Y2.x;
+        }
+        else
+        {
+            S2 = t3;
+            BrainpoolP256R1Field.square(Z1.x, S2, tt0);
+
+            U2 = t2;
+            BrainpoolP256R1Field.multiply(S2, X2.x, U2, tt0);
+
+            BrainpoolP256R1Field.multiply(S2, Z1.x, S2, tt0);
+            BrainpoolP256R1Field.multiply(S2, Y2.x, S2, tt0);
+        }
+
+        final boolean Z2IsOne = Z2.isOne();
+        int[] U1, S1;
+        if (Z2IsOne)
+        {
+            U1 = X1.x;
+            S1 = Y1.x;
+        }
+        else
+        {
+            S1 = t4;
+            BrainpoolP256R1Field.square(Z2.x, S1, tt0);
+
+            U1 = t1;
+            BrainpoolP256R1Field.multiply(S1, X1.x, U1, tt0);
+
+            BrainpoolP256R1Field.multiply(S1, Z2.x, S1, tt0);
+            BrainpoolP256R1Field.multiply(S1, Y1.x, S1, tt0);
+        }
+
+        final int[] H = Nat256.create();
+        BrainpoolP256R1Field.subtract(U1, U2, H);
+
+        final int[] R = t2;
+        BrainpoolP256R1Field.subtract(S1, S2, R);
+
+        // Check if b == this or b == -this
+        if (Nat256.isZero(H))
+        {
+            if (Nat256.isZero(R))
+            {
+                // this == b, i.e. this must be doubled
+                return this.twice();
+            }
+
+            // this == -b, i.e. the result is the point at infinity
+            return curve.getInfinity();
+        }
+
+        final int[] HSquared = t3;
+        BrainpoolP256R1Field.square(H, HSquared, tt0);
+
+        final int[] G = Nat256.create();
+        BrainpoolP256R1Field.multiply(HSquared, H, G, tt0);
+
+        final int[] V = t3;
+        BrainpoolP256R1Field.multiply(HSquared, U1, V, tt0);
+
+        // S1.H^3, before S1 (which may share storage with t4) is overwritten
+        final int[] S1G = t1;
+        BrainpoolP256R1Field.multiply(S1, G, S1G, tt0);
+
+        // G = 2.V - H^3
+        BrainpoolP256R1Field.negate(G, G);
+        BrainpoolP256R1Field.add(G, V, G);
+        BrainpoolP256R1Field.add(G, V, G);
+
+        final BrainpoolP256R1FieldElement X3 = new BrainpoolP256R1FieldElement(t4);
+        BrainpoolP256R1Field.square(R, X3.x, tt0);
+        BrainpoolP256R1Field.subtract(X3.x, G, X3.x);
+
+        final BrainpoolP256R1FieldElement Y3 = new BrainpoolP256R1FieldElement(G);
+        BrainpoolP256R1Field.subtract(V, X3.x, Y3.x);
+        BrainpoolP256R1Field.multiply(Y3.x, R, Y3.x, tt0);
+        BrainpoolP256R1Field.subtract(Y3.x, S1G, Y3.x);
+
+        final BrainpoolP256R1FieldElement Z3 = new BrainpoolP256R1FieldElement(H);
+        if (!Z1IsOne)
+        {
+            BrainpoolP256R1Field.multiply(Z3.x, Z1.x, Z3.x, tt0);
+        }
+        if (!Z2IsOne)
+        {
+            BrainpoolP256R1Field.multiply(Z3.x, Z2.x, Z3.x, tt0);
+        }
+
+        final ECFieldElement[] zs = { Z3 };
+
+        return new BrainpoolP256R1Point(curve, X3, Y3, zs);
+    }
+
+    @Override
+	public ECPoint twice()
+    {
+        if (this.isInfinity())
+        {
+            return this;
+        }
+
+        final ECCurve curve = this.getCurve();
+
+        final BrainpoolP256R1FieldElement Y1 = (BrainpoolP256R1FieldElement)y;
+        if (Y1.isZero())
+        {
+            return curve.getInfinity();
+        }
+
+        final BrainpoolP256R1FieldElement X1 = (BrainpoolP256R1FieldElement)x, Z1 = (BrainpoolP256R1FieldElement)zs[0];
+        final BrainpoolP256R1FieldElement A = (BrainpoolP256R1FieldElement)curve.getA();
+
+        final int[] tt0 = Nat256.createExt();
+        final int[] t1 = Nat256.create();
+        final int[] t2 = Nat256.create();
+
+        final int[] Y1Squared = Nat256.create();
+        BrainpoolP256R1Field.square(Y1.x, Y1Squared, tt0);
+
+        final int[] T = Nat256.create();
+        BrainpoolP256R1Field.square(Y1Squared, T, tt0);
+
+        final boolean Z1IsOne = Z1.isOne();
+
+        // M = 3.X1^2 + a.Z1^4
+        final int[] M = Nat256.create();
+        BrainpoolP256R1Field.square(X1.x, t1, tt0);
+        BrainpoolP256R1Field.twice(t1, M);
+        BrainpoolP256R1Field.add(M, t1, M);
+        if (Z1IsOne)
+        {
+            BrainpoolP256R1Field.add(M, A.x, M);
+        }
+        else
+        {
+            BrainpoolP256R1Field.square(Z1.x, t2, tt0);
+            BrainpoolP256R1Field.square(t2, t2, tt0);
+            BrainpoolP256R1Field.multiply(t2, A.x, t2, tt0);
+            BrainpoolP256R1Field.add(M, t2, M);
+        }
+
+        // S = 4.X1.Y1^2
+        final int[] S = Y1Squared;
+        BrainpoolP256R1Field.multiply(Y1Squared, X1.x, S, tt0);
+        BrainpoolP256R1Field.twice(S, S);
+        BrainpoolP256R1Field.twice(S, S);
+
+        // t1 = 8.Y1^4
+        BrainpoolP256R1Field.twice(T, t1);
+        BrainpoolP256R1Field.twice(t1, t1);
+        BrainpoolP256R1Field.twice(t1, t1);
+
+        final BrainpoolP256R1FieldElement X3 = new BrainpoolP256R1FieldElement(T);
+        BrainpoolP256R1Field.square(M, X3.x, tt0);
+        BrainpoolP256R1Field.subtract(X3.x, S, X3.x);
+        BrainpoolP256R1Field.subtract(X3.x, S, X3.x);
+
+        final BrainpoolP256R1FieldElement Y3 = new BrainpoolP256R1FieldElement(S);
+        BrainpoolP256R1Field.subtract(S, X3.x, Y3.x);
+        BrainpoolP256R1Field.multiply(Y3.x, M, Y3.x, tt0);
+        BrainpoolP256R1Field.subtract(Y3.x, t1, Y3.x);
+
+        final BrainpoolP256R1FieldElement Z3 = new BrainpoolP256R1FieldElement(M);
+        BrainpoolP256R1Field.twice(Y1.x, Z3.x);
+        if (!Z1IsOne)
+        {
+            BrainpoolP256R1Field.multiply(Z3.x, Z1.x, Z3.x, tt0);
+        }
+
+        return new BrainpoolP256R1Point(curve, X3, Y3, new ECFieldElement[]{ Z3 });
+    }
+
+    @Override
+	public ECPoint twicePlus(final ECPoint b)
+    {
+        if (this == b)
+        {
+            return threeTimes();
+        }
+        if (this.isInfinity())
+        {
+            return b;
+        }
+        if (b.isInfinity())
+        {
+            return twice();
+        }
+
+        final ECFieldElement Y1 = y;
+        if (Y1.isZero())
+        {
+            return b;
+        }
+
+        return twice().add(b);
+    }
+
+    @Override
+	public ECPoint threeTimes()
+    {
+        if (this.isInfinity() || y.isZero())
+        {
+            return this;
+        }
+
+        // NOTE: Be careful about recursions between twicePlus and threeTimes
+        return twice().add(this);
+    }
+
+    @Override
+	public ECPoint negate()
+    {
+        if (this.isInfinity())
+        {
+            return this;
+        }
+
+        return new BrainpoolP256R1Point(curve, x, y.negate(), zs);
+    }
+}
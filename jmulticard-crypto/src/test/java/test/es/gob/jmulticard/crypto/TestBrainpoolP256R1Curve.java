@@ -0,0 +1,144 @@
+package test.es.gob.jmulticard.crypto;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.bouncycastle.asn1.teletrust.TeleTrusTNamedCurves;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.custom.brainpool.BrainpoolP256R1Curve;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/** Pruebas de la aritm&eacute;tica espec&iacute;fica de <i>brainpoolP256r1</i> frente a la
+ * gen&eacute;rica de <code>ECCurve.Fp</code>.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class TestBrainpoolP256R1Curve {
+
+	/** N&uacute;mero de valores aleatorios que se prueban en cada caso. */
+	private static final int ITERATIONS = 200;
+
+	/** Semilla fija, para que un fallo sea reproducible. */
+	private static final long SEED = 0x62703235367231L;
+
+	// Parametros de RFC 5639
+	private static final BigInteger P = new BigInteger("A9FB57DBA1EEA9BC3E660A909D838D726E3BF623D52620282013481D1F6E5377", 16); //$NON-NLS-1$
+	private static final BigInteger A = new BigInteger("7D5A0975FC2C3057EEF67530417AFFE7FB8055C126DC5C6CE94A4B44F330B5D9", 16); //$NON-NLS-1$
+	private static final BigInteger B = new BigInteger("26DC5C6CE94A4B44F330B5D9BBD77CBF958416295CF7E1CE6BCCDC18FF8C07B6", 16); //$NON-NLS-1$
+	private static final BigInteger N = new BigInteger("A9FB57DBA1EEA9BC3E660A909D838D718C397AA3B561A6F7901E0E82974856A7", 16); //$NON-NLS-1$
+	private static final BigInteger GX = new BigInteger("8BD2AEB9CB7E57CB2C4B482FFC81B7AFB9DE27E1E3BD23C23A4453BD9ACE3262", 16); //$NON-NLS-1$
+	private static final BigInteger GY = new BigInteger("547EF835C3DAC4FD97F8461A14611DC9C27745132DED8E545C1D54C72F046997", 16); //$NON-NLS-1$
+
+	private static final ECCurve GENERIC_CURVE = new ECCurve.Fp(P, A, B, N, BigInteger.ONE);
+
+	private static final ECPoint GENERIC_G = GENERIC_CURVE.createPoint(GX, GY);
+
+	/** Comprueba que los par&aacute;metros con nombre usan la curva espec&iacute;fica con
+	 * los mismos valores que la gen&eacute;rica. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testNamedCurve() {
+		final ECPoint g = TeleTrusTNamedCurves.getByName("brainpoolP256r1").getG(); //$NON-NLS-1$
+		final ECCurve curve = g.getCurve();
+		Assertions.assertTrue(curve instanceof BrainpoolP256R1Curve);
+		Assertions.assertEquals(P, curve.getField().getCharacteristic());
+		Assertions.assertEquals(A, curve.getA().toBigInteger());
+		Assertions.assertEquals(B, curve.getB().toBigInteger());
+		Assertions.assertEquals(N, curve.getOrder());
+		Assertions.assertEquals(GENERIC_G, toGeneric(g));
+		Assertions.assertTrue(g.isValid());
+	}
+
+	/** Compara las operaciones del cuerpo con las de <code>BigInteger</code> m&oacute;dulo <i>p</i>. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testFieldArithmetic() {
+		final ECCurve curve = new BrainpoolP256R1Curve();
+		final Random random = new Random(SEED);
+		for (int i = 0; i < ITERATIONS; i++) {
+			final BigInteger x = randomFieldValue(random);
+			final BigInteger y = randomFieldValue(random);
+			final ECFieldElement fx = curve.fromBigInteger(x);
+			final ECFieldElement fy = curve.fromBigInteger(y);
+			final ECFieldElement gx = GENERIC_CURVE.fromBigInteger(x);
+			final ECFieldElement gy = GENERIC_CURVE.fromBigInteger(y);
+
+			Assertions.assertEquals(x, fx.toBigInteger());
+			Assertions.assertEquals(gx.add(gy).toBigInteger(), fx.add(fy).toBigInteger());
+			Assertions.assertEquals(gx.subtract(gy).toBigInteger(), fx.subtract(fy).toBigInteger());
+			Assertions.assertEquals(gx.multiply(gy).toBigInteger(), fx.multiply(fy).toBigInteger());
+			Assertions.assertEquals(gx.square().toBigInteger(), fx.square().toBigInteger());
+			Assertions.assertEquals(gx.negate().toBigInteger(), fx.negate().toBigInteger());
+			Assertions.assertEquals(gx.addOne().toBigInteger(), fx.addOne().toBigInteger());
+			if (x.signum() != 0) {
+				Assertions.assertEquals(x.modInverse(P), fx.invert().toBigInteger());
+				Assertions.assertEquals(gy.divide(gx).toBigInteger(), fy.divide(fx).toBigInteger());
+			}
+
+			final ECFieldElement genericRoot = gx.sqrt();
+			final ECFieldElement root = fx.sqrt();
+			if (genericRoot == null) {
+				Assertions.assertNull(root);
+			}
+			else {
+				Assertions.assertNotNull(root);
+				Assertions.assertEquals(x, root.square().toBigInteger());
+			}
+		}
+	}
+
+	/** Compara las multiplicaciones escalares de puntos con las de la curva gen&eacute;rica. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testPointMultiplication() {
+		final ECPoint g = new BrainpoolP256R1Curve().createPoint(GX, GY);
+		final Random random = new Random(SEED);
+		for (int i = 0; i < ITERATIONS; i++) {
+			final BigInteger k = new BigInteger(N.bitLength(), random).mod(N);
+			final BigInteger l = new BigInteger(N.bitLength(), random).mod(N);
+
+			final ECPoint kg = g.multiply(k).normalize();
+			final ECPoint genericKg = GENERIC_G.multiply(k).normalize();
+			Assertions.assertEquals(genericKg, toGeneric(kg));
+			Assertions.assertTrue(kg.isValid());
+
+			final ECPoint q = g.multiply(l);
+			final ECPoint genericQ = GENERIC_G.multiply(l);
+			Assertions.assertEquals(genericQ.multiply(k).normalize(), toGeneric(q.multiply(k)));
+			Assertions.assertEquals(
+				ECAlgorithms.sumOfTwoMultiplies(GENERIC_G, k, genericQ, l).normalize(),
+				toGeneric(ECAlgorithms.sumOfTwoMultiplies(g, k, q, l))
+			);
+
+			Assertions.assertEquals(genericKg.add(genericQ).normalize(), toGeneric(kg.add(q)));
+			Assertions.assertEquals(genericKg.subtract(genericQ).normalize(), toGeneric(kg.subtract(q)));
+			Assertions.assertEquals(genericKg.twice().normalize(), toGeneric(kg.twice()));
+			Assertions.assertEquals(genericKg.threeTimes().normalize(), toGeneric(kg.threeTimes()));
+			Assertions.assertEquals(genericKg.negate().normalize(), toGeneric(kg.negate()));
+			Assertions.assertTrue(kg.add(kg.negate()).isInfinity());
+
+			// Codificacion comprimida y sin comprimir
+			Assertions.assertEquals(kg, g.getCurve().decodePoint(kg.getEncoded(true)));
+			Assertions.assertEquals(kg, g.getCurve().decodePoint(kg.getEncoded(false)));
+			Assertions.assertArrayEquals(genericKg.getEncoded(true), kg.getEncoded(true));
+		}
+		Assertions.assertTrue(g.multiply(N).isInfinity());
+	}
+
+	private static BigInteger randomFieldValue(final Random random) {
+		return new BigInteger(P.bitLength(), random).mod(P);
+	}
+
+	private static ECPoint toGeneric(final ECPoint point) {
+		if (point.isInfinity()) {
+			return GENERIC_CURVE.getInfinity();
+		}
+		final ECPoint normalized = point.normalize();
+		return GENERIC_CURVE.createPoint(
+			normalized.getAffineXCoord().toBigInteger(),
+			normalized.getAffineYCoord().toBigInteger()
+		);
+	}
+}
@@ -4,16 +4,28 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bouncycastle.asn1.teletrust.TeleTrusTNamedCurves;
 import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.math.ec.ECCurve;
-import org.bouncycastle.math.ec.ECCurve.Fp;
 import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.ec.ECMultiplier;
 import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
 
 import es.gob.jmulticard.CryptoHelper;
 import es.gob.jmulticard.CryptoHelper.BlockMode;
@@ -42,6 +54,29 @@ import es.gob.jmulticard.connection.pace.SecureMessaging;
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
 public class BcPaceChannelHelper extends PaceChannelHelper {
 
+	/** Par&aacute;metros de las curvas ya resueltas, por nombre de curva. Sus generadores
+	 * tienen ya precalculada la tabla de multiplicaci&oacute;n por punto fijo. */
+	private static final Map<String, X9ECParameters> CURVES = new ConcurrentHashMap<>();
+
+	/** Multiplicador en peine para las multiplicaciones sobre el generador de la curva,
+	 * que usa la tabla precalculada de este. */
+	private static final ECMultiplier FIXED_POINT_MULTIPLIER = new FixedPointCombMultiplier();
+
+	/** Hilos de c&aacute;lculo en segundo plano para las claves ef&iacute;meras del terminal.
+	 * Se crean solo si se necesitan, son de tipo <i>daemon</i> y terminan tras un tiempo sin uso. */
+	private static final class PrecomputationExecutor {
+
+		static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "jmulticard-pace-" + count.incrementAndGet()); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
 	private final CardAccess cardAccess;
 	private final PaceChat paceChat;
 
@@ -77,6 +112,49 @@ public class BcPaceChannelHelper extends PaceChannelHelper {
 		// Sacamos del CardAccess la algoritmia a usar
 		final CardAccess.PaceAlgorithm paceAlgorithm = cardAccess.getPaceAlgorithm();
 		final CardAccess.PaceAlgorithmParam paceAlgorithmParam = cardAccess.getPaceAlgorithmParam();
+		final boolean integratedMapping = paceAlgorithm.isIntegratedMapping();
+
+		// Las claves efimeras del terminal no dependen de las respuestas de la tarjeta, asi que se
+		// preparan antes de empezar: los aleatorios se obtienen aqui, siempre en el mismo orden, y la
+		// multiplicacion escalar de PukIFDDH1 se hace en segundo plano mientras se envian el MSE Set
+		// y el primer General Authenticate
+		final X9ECParameters ecdhParameters = getCurveParameters(paceAlgorithmParam.getCurveName());
+		final ECPoint pointG = ecdhParameters.getG();
+		final ECCurve curve = ecdhParameters.getCurve();
+
+		// Con el Generic Mapping la privada del terminal se genera aleatoriamente (PrkIFDDH1), y la
+		// publica de la tarjeta sera devuelta por ella misma al enviar nuestra publica (pukIFDDH1).
+		// Con el Integrated Mapping lo que se genera es el nonce del terminal (t), del tamano de la clave
+		final byte[] x1;
+		try {
+			x1 = cryptoHelper.generateRandomBytes(
+				integratedMapping ? paceAlgorithm.getKeyLength() / 8 : curve.getFieldSize() / 8
+			);
+		}
+		catch (final IOException e) {
+			throw new PaceException(
+				integratedMapping ?
+					"Error generando el nonce del terminal para el Integrated Mapping" : //$NON-NLS-1$
+						"Error generando la clave privada efimera del terminal (PrkIFDDH1)", //$NON-NLS-1$
+				e
+			);
+		}
+		final BigInteger prkIFDDH1 = new BigInteger(1, x1);
+
+		// La privada del segundo acuerdo de claves tambien es aleatoria (PrkIFDDH2)
+		final byte[] x2;
+		try {
+			x2 = cryptoHelper.generateRandomBytes(curve.getFieldSize()/8);
+		}
+		catch (final IOException e) {
+			throw new PaceException("Error generando la clave privada efimera del terminal (PrkIFDDH2)", e); //$NON-NLS-1$
+		}
+		final BigInteger prkIFDDH2 = new BigInteger(1, x2);
+
+		// Con el Generic Mapping empezamos a calcular la clave publica (pukIFDDH1 = G*PrkIFDDH1)
+		final Future<byte[]> pukIFDDH1Future = integratedMapping ?
+			null :
+				startPublicKeyComputation(pointG, prkIFDDH1);
 
 		// 1.3.2 - Establecemos el algoritmo para PACE con el comando MSE Set:
 
@@ -131,74 +209,63 @@ public class BcPaceChannelHelper extends PaceChannelHelper {
 
 		// 1.3.4 - Segundo comando General Autenticate - Map Nonce
 
-		// Generamos un par de claves efimeras EC para el DH
-
-		final X9ECParameters ecdhParameters = TeleTrusTNamedCurves.getByName(paceAlgorithmParam.getCurveName());
-		final ECPoint pointG = ecdhParameters.getG();
-		final Fp curve = (ECCurve.Fp) ecdhParameters.getCurve();
-
-		// La privada del terminal se genera aleatoriamente (PrkIFDDH1)
-		// La publica de la tarjeta sera devuelta por ella misma al enviar nuestra publica (pukIFDDH1)
-		final Random rnd = new SecureRandom();
-		final byte[] x1 = new byte[curve.getFieldSize()/8];
-		rnd.nextBytes(x1);
-		final BigInteger prkIFDDH1 = new BigInteger(1, x1);
-
-		// Obtenemos la clave publica (pukIFDDH1 = G*PrkIFDDH1)
-		final ECPoint pukIFDDH1 = pointG.multiply(prkIFDDH1);
-		final byte[] pukIFDDH1UncompressedBytes = pukIFDDH1.getEncoded(false);
-
-		// Y enviamos nuestra clave publica a la tarjeta
-		comm = new GeneralAuthenticateApduCommand(
-			(byte) 0x10,
-			new GeneralAuthenticateApduCommand.DataMapNonce(pukIFDDH1UncompressedBytes)
-		);
-		res = conn.transmit(comm);
-		if (!res.isOk()) {
-			throw new PaceException(res.getStatusWord(), comm, "Error mapeando el aleatorio de calculo PACE (nonce)"); //$NON-NLS-1$
+		final ECPoint newPointG;
+		if (integratedMapping) {
+			// El nuevo punto G' se obtiene directamente de los dos nonces, sin acuerdo de claves
+			newPointG = mapNonceIm(conn, pi, nonce, x1, ecdhParameters);
 		}
+		else {
+			// Esperamos a la clave publica (pukIFDDH1 = G*PrkIFDDH1), que se ha calculado mientras se
+			// enviaban los comandos anteriores
+			final byte[] pukIFDDH1UncompressedBytes = getPublicKey(pukIFDDH1Future);
+
+			// Y enviamos nuestra clave publica a la tarjeta
+			comm = new GeneralAuthenticateApduCommand(
+				(byte) 0x10,
+				new GeneralAuthenticateApduCommand.DataMapNonce(pukIFDDH1UncompressedBytes)
+			);
+			res = conn.transmit(comm);
+			if (!res.isOk()) {
+				throw new PaceException(res.getStatusWord(), comm, "Error mapeando el aleatorio de calculo PACE (nonce)"); //$NON-NLS-1$
+			}
+
+			JmcLogger.info(
+				BcPaceChannelHelper.class.getName(),
+				"openPaceChannel", //$NON-NLS-1$
+				"Mapeado el aleatorio de calculo PACE (Nonce) con el segundo comando General Autenticate" //$NON-NLS-1$
+			);
 
-		JmcLogger.info(
-			BcPaceChannelHelper.class.getName(),
-			"openPaceChannel", //$NON-NLS-1$
-			"Mapeado el aleatorio de calculo PACE (Nonce) con el segundo comando General Autenticate" //$NON-NLS-1$
-		);
-
-		// Se obtiene la clave publica de la tarjeta
-		final byte[] pukIccDh1;
-		try {
-			pukIccDh1 = unwrapEcKey(res.getData());
-		}
-		catch(final TlvException e) {
-			throw new PaceException("Error obteniendo la clave efimera EC publica de la tarjeta", e); //$NON-NLS-1$
+			// Se obtiene la clave publica de la tarjeta
+			final byte[] pukIccDh1;
+			try {
+				pukIccDh1 = unwrapEcKey(res.getData());
+			}
+			catch(final TlvException e) {
+				throw new PaceException("Error obteniendo la clave efimera EC publica de la tarjeta", e); //$NON-NLS-1$
+			}
+
+			// Calculamos el punto H secreto: H = PrkIFDDH1 * PukICCDH1
+			final ECPoint sharedSecretH = byteArrayToECPoint(pukIccDh1, curve).multiply(prkIFDDH1);
+
+			// Se calcula el nuevo punto G' = nonce*G + H
+			final BigInteger ms = new BigInteger(
+				1,
+				getSecretNonce(
+					pi,
+					nonce,
+					paceAlgorithm.getKeyLength(),
+					cardAccess.getPaceDigestAlgorithm()
+				)
+			);
+			final ECPoint gTemp = FIXED_POINT_MULTIPLIER.multiply(pointG, ms);
+			newPointG = gTemp.add(sharedSecretH);
 		}
 
-		// Calculamos el punto H secreto: H = PrkIFDDH1 * PukICCDH1
-		final ECPoint sharedSecretH = byteArrayToECPoint(pukIccDh1, curve).multiply(prkIFDDH1);
-
-		// Se calcula el nuevo punto G' = nonce*G + H
-		final BigInteger ms = new BigInteger(
-			1,
-			getSecretNonce(
-				pi,
-				nonce,
-				paceAlgorithm.getKeyLength(),
-				cardAccess.getPaceDigestAlgorithm()
-			)
-		);
-		final ECPoint gTemp = pointG.multiply(ms);
-		final ECPoint newPointG = gTemp.add(sharedSecretH);
-
 
 		// 1.3.5 Tercer comando General Authenticate
 
 		// Se calcula la coordenada X de G' y generamos con la tarjeta un nuevo acuerdo de claves.
-		// La privada del terminal se genera aleatoriamente (PrkIFDDH2).
 		// La publica de la tarjeta sera devuelta por ella misma al enviar nuestra publica (pukIFDDH2).
-		final byte[] x2 = new byte[curve.getFieldSize()/8];
-		rnd.setSeed(rnd.nextLong());
-		rnd.nextBytes(x2);
-		final BigInteger prkIFDDH2 = new BigInteger(1, x2);
 
 		// Enviamos nuestra clave publica (pukIFDDH2 = G'*PrkIFDDH2)
 		final ECPoint pukIFDDH2 = newPointG.multiply(prkIFDDH2);
@@ -226,8 +293,9 @@ public class BcPaceChannelHelper extends PaceChannelHelper {
 		final ECPoint y2FromNewG = byteArrayToECPoint(pukIccDh2, curve);
 
 		// Se calcula el secreto k = PukICCDH2 * PrkIFDDH2
-		final ECPoint.Fp sharedSecretK = (ECPoint.Fp) y2FromNewG.multiply(prkIFDDH2);
-		final byte[] secretK = bigIntToByteArray(sharedSecretK.normalize().getXCoord().toBigInteger());
+		final ECPoint sharedSecretK = y2FromNewG.multiply(prkIFDDH2);
+		// La coordenada X se codifica con la longitud fija del campo (FE2OS), aunque empiece por ceros
+		final byte[] secretK = sharedSecretK.normalize().getXCoord().getEncoded();
 
 		JmcLogger.info(
 			BcPaceChannelHelper.class.getName(),
@@ -317,6 +385,178 @@ public class BcPaceChannelHelper extends PaceChannelHelper {
 		);
 	}
 
+	/** Obtiene los par&aacute;metros de una curva el&iacute;ptica con nombre, con la
+	 * implementaci&oacute;n optimizada para su primo si la hay (como la de <i>secp256r1</i>).
+	 * La primera vez que se usa cada curva se resuelven sus par&aacute;metros y se precalcula
+	 * la tabla de multiplicaci&oacute;n por punto fijo de su generador, que se reutiliza en
+	 * los siguientes establecimientos de canal.
+	 * @param curveName Nombre de la curva.
+	 * @return Par&aacute;metros de la curva.
+	 * @throws PaceException Si la curva no est&aacute; soportada. */
+	protected static X9ECParameters getCurveParameters(final String curveName) throws PaceException {
+		if (curveName == null) {
+			throw new PaceException("No se ha indicado la curva eliptica para PACE"); //$NON-NLS-1$
+		}
+		X9ECParameters params = CURVES.get(curveName);
+		if (params == null) {
+			params = CustomNamedCurves.getByName(curveName);
+			if (params == null) {
+				params = TeleTrusTNamedCurves.getByName(curveName);
+			}
+			if (params == null) {
+				throw new PaceException("Curva eliptica no soportada para PACE: " + curveName); //$NON-NLS-1$
+			}
+			FixedPointUtil.precompute(params.getG());
+			final X9ECParameters previous = CURVES.putIfAbsent(curveName, params);
+			if (previous != null) {
+				params = previous;
+			}
+		}
+		return params;
+	}
+
+	/** Realiza el paso de mapeo del <i>nonce</i> con el <i>Integrated Mapping</i> de ICAO 9303
+	 * (parte 11) para ECDH: se env&iacute;a a la tarjeta el <i>nonce</i> del terminal y el nuevo
+	 * generador es <code>G' = f<sub>G</sub>(R<sub>p</sub>(s, t))</code>, sin el acuerdo de
+	 * claves ni las multiplicaciones de punto del <i>Generic Mapping</i>.
+	 * @param conn Conexi&oacute;n con la tarjeta.
+	 * @param pi Valor de inicializaci&oacute;n del canal.
+	 * @param encryptedNonce <i>Nonce</i> cifrado devuelto por la tarjeta.
+	 * @param nonceT <i>Nonce</i> del terminal.
+	 * @param ecdhParameters Par&aacute;metros de la curva.
+	 * @return Nuevo generador G'.
+	 * @throws ApduConnectionException Si hay problemas de conexi&oacute;n con la tarjeta.
+	 * @throws PaceException Si la tarjeta rechaza el comando o falla el mapeo. */
+	private ECPoint mapNonceIm(final ApduConnection conn,
+			                   final WirelessInitializer pi,
+			                   final byte[] encryptedNonce,
+			                   final byte[] nonceT,
+			                   final X9ECParameters ecdhParameters) throws ApduConnectionException,
+	                                                                       PaceException {
+		final CardAccess.PaceAlgorithm paceAlgorithm = cardAccess.getPaceAlgorithm();
+
+		// Enviamos el nonce del terminal como datos de mapeo; la tarjeta no devuelve nada
+		final CommandApdu comm = new GeneralAuthenticateApduCommand(
+			(byte) 0x10,
+			new GeneralAuthenticateApduCommand.DataMapNonce(nonceT)
+		);
+		final ResponseApdu res = conn.transmit(comm);
+		if (!res.isOk()) {
+			throw new PaceException(res.getStatusWord(), comm, "Error mapeando el aleatorio de calculo PACE (nonce)"); //$NON-NLS-1$
+		}
+
+		JmcLogger.info(
+			BcPaceChannelHelper.class.getName(),
+			"mapNonceIm", //$NON-NLS-1$
+			"Mapeado el aleatorio de calculo PACE (Nonce) con el segundo comando General Autenticate (Integrated Mapping)" //$NON-NLS-1$
+		);
+
+		final byte[] s = getSecretNonce(
+			pi,
+			encryptedNonce,
+			paceAlgorithm.getKeyLength(),
+			cardAccess.getPaceDigestAlgorithm()
+		);
+		final BigInteger r;
+		try {
+			r = pseudoRandomNumberMapping(s, nonceT, ecdhParameters.getCurve().getField().getCharacteristic());
+		}
+		catch (final IOException e) {
+			throw new PaceException("Error en la funcion pseudoaleatoria del Integrated Mapping", e); //$NON-NLS-1$
+		}
+		return pointEncoding(r, ecdhParameters);
+	}
+
+	/** Codifica un elemento del cuerpo como punto de la curva seg&uacute;n el <i>Integrated Mapping</i>
+	 * de ICAO 9303 (parte 11) para ECDH, con el algoritmo <i>Simplified SWU</i> para primos
+	 * <code>p = 3 mod 4</code> (como los de las curvas <i>brainpool</i>).
+	 * @param t Elemento del cuerpo (salida de la funci&oacute;n pseudoaleatoria).
+	 * @param ecdhParameters Par&aacute;metros de la curva.
+	 * @return Punto de la curva.
+	 * @throws PaceException Si la curva no admite esta codificaci&oacute;n o el elemento no es v&aacute;lido. */
+	protected static ECPoint pointEncoding(final BigInteger t, final X9ECParameters ecdhParameters) throws PaceException {
+		final ECCurve curve = ecdhParameters.getCurve();
+		final BigInteger p = curve.getField().getCharacteristic();
+		if (!p.testBit(0) || !p.testBit(1)) {
+			throw new PaceException("El Integrated Mapping solo se soporta en curvas con p = 3 mod 4"); //$NON-NLS-1$
+		}
+		final ECFieldElement a = curve.getA();
+		final ECFieldElement b = curve.getB();
+		final ECFieldElement tE = curve.fromBigInteger(t);
+
+		// alpha = -t^2
+		final ECFieldElement alpha = tE.square().negate();
+		final ECFieldElement alphaPlusAlpha2 = alpha.add(alpha.square());
+		if (alphaPlusAlpha2.isZero()) {
+			throw new PaceException("Elemento no valido para el Integrated Mapping"); //$NON-NLS-1$
+		}
+
+		// X2 = -b * (1 + alpha + alpha^2) / (a * (alpha + alpha^2)); X3 = alpha * X2
+		final ECFieldElement x2 = b.negate().multiply(alphaPlusAlpha2.addOne()).divide(a.multiply(alphaPlusAlpha2));
+		final ECFieldElement x3 = alpha.multiply(x2);
+
+		// h2 = X2^3 + a * X2 + b; U = t^3 * h2
+		final ECFieldElement h2 = x2.square().add(a).multiply(x2).add(b);
+		final ECFieldElement u = tE.square().multiply(tE).multiply(h2);
+
+		// A = h2^(p - 1 - (p + 1) / 4): si h2 es residuo cuadratico, A^2 * h2 = 1 y su raiz es A * h2
+		final ECFieldElement aa = curve.fromBigInteger(
+			h2.toBigInteger().modPow(p.subtract(BigInteger.ONE).subtract(p.add(BigInteger.ONE).shiftRight(2)), p)
+		);
+		final ECPoint point;
+		if (aa.square().multiply(h2).isOne()) {
+			point = curve.createPoint(x2.toBigInteger(), aa.multiply(h2).toBigInteger());
+		}
+		else {
+			point = curve.createPoint(x3.toBigInteger(), aa.multiply(u).toBigInteger());
+		}
+		if (!point.isValid()) {
+			throw new PaceException("El Integrated Mapping no ha dado un punto de la curva"); //$NON-NLS-1$
+		}
+		final BigInteger cofactor = ecdhParameters.getH();
+		return BigInteger.ONE.equals(cofactor) ? point : point.multiply(cofactor).normalize();
+	}
+
+	/** Inicia en segundo plano el c&aacute;lculo de la clave p&uacute;blica ef&iacute;mera del terminal
+	 * para el mapeo del <i>nonce</i>, de forma que se solape con el env&iacute;o de APDU a la tarjeta.
+	 * Si no se puede usar el hilo de c&aacute;lculo, la clave se calcula en el momento.
+	 * @param pointG Generador de la curva (con su tabla de multiplicaci&oacute;n por punto fijo).
+	 * @param privateKey Clave privada ef&iacute;mera del terminal.
+	 * @return Tarea que proporciona la clave p&uacute;blica codificada como punto no comprimido. */
+	private static Future<byte[]> startPublicKeyComputation(final ECPoint pointG, final BigInteger privateKey) {
+		final Callable<byte[]> task = new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				return FIXED_POINT_MULTIPLIER.multiply(pointG, privateKey).getEncoded(false);
+			}
+		};
+		try {
+			return PrecomputationExecutor.EXECUTOR.submit(task);
+		}
+		catch (final RejectedExecutionException e) {
+			final FutureTask<byte[]> inline = new FutureTask<>(task);
+			inline.run();
+			return inline;
+		}
+	}
+
+	/** Espera a que termine el c&aacute;lculo de la clave p&uacute;blica ef&iacute;mera del terminal.
+	 * @param future Tarea iniciada con <code>startPublicKeyComputation()</code>.
+	 * @return Clave p&uacute;blica codificada como punto no comprimido.
+	 * @throws PaceException Si el c&aacute;lculo falla o se interrumpe la espera. */
+	private static byte[] getPublicKey(final Future<byte[]> future) throws PaceException {
+		try {
+			return future.get();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PaceException("Interrumpido el calculo de la clave publica efimera del terminal (PukIFDDH1)", e); //$NON-NLS-1$
+		}
+		catch (final ExecutionException e) {
+			throw new PaceException("Error calculando la clave publica efimera del terminal (PukIFDDH1)", e.getCause()); //$NON-NLS-1$
+		}
+	}
+
 	protected byte[] padAndDigest(final byte[] input,
 			                      final byte[] padding,
 			                      final DigestAlgorithm digestAlgorithm,
@@ -365,7 +605,7 @@ public class BcPaceChannelHelper extends PaceChannelHelper {
 		}
 	}
 
-	protected static ECPoint byteArrayToECPoint(final byte[] value, final ECCurve.Fp curve) {
+	protected static ECPoint byteArrayToECPoint(final byte[] value, final ECCurve curve) {
 		final byte[] x = new byte[(value.length - 1) / 2];
 		final byte[] y = new byte[(value.length - 1) / 2];
 		if (value[0] != (byte) 0x04) {
@@ -373,9 +613,8 @@ public class BcPaceChannelHelper extends PaceChannelHelper {
 		}
 		System.arraycopy(value, 1, x, 0, (value.length - 1) / 2);
 		System.arraycopy(value, 1 + (value.length - 1) / 2, y, 0, (value.length - 1) / 2);
-		final ECFieldElement.Fp xE = (ECFieldElement.Fp) curve.fromBigInteger(new BigInteger(1, x));
-		final ECFieldElement.Fp yE = (ECFieldElement.Fp) curve.fromBigInteger(new BigInteger(1, y));
-
-		return curve.createPoint(xE.toBigInteger(), yE.toBigInteger());
+		// La curva puede tener una implementacion especifica (como secp256r1), asi que no
+		// se asume que sea la generica ECCurve.Fp
+		return curve.createPoint(new BigInteger(1, x), new BigInteger(1, y));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package es.gob.jmulticard.jse.provider;
+
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.HexUtils;
+
+/** Cach&eacute; en memoria de las CA ra&iacute;z del DNIe y de las cadenas de certificados
+ * ya construidas y verificadas.
+ * Las ra&iacute;ces incluidas en el proyecto se leen y analizan una &uacute;nica vez (por
+ * cargador de clases), y las cadenas se guardan por huella SHA-256 del certificado final,
+ * de forma que las llamadas repetidas a <code>getCertificateChain()</code> no vuelven a
+ * leer recursos ni a verificar firmas.
+ * La cach&eacute; es segura frente a hilos y tiene un tama&ntilde;o m&aacute;ximo, descart&aacute;ndose
+ * la entrada usada hace m&aacute;s tiempo cuando se supera.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class DnieCertificateChainCache {
+
+	private static final Logger LOGGER = Logger.getLogger(DnieCertificateChainCache.class.getName());
+
+	/** N&uacute;mero m&aacute;ximo de cadenas almacenadas. */
+	private static final int MAX_ENTRIES = 32;
+
+	/** Cadenas de certificados por huella SHA-256 (en hexadecimal) del certificado final. */
+	private static final Map<String, X509Certificate[]> CHAINS = new LinkedHashMap<String, X509Certificate[]>(MAX_ENTRIES, 0.75f, true) {
+
+		private static final long serialVersionUID = -3905581215412371468L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, X509Certificate[]> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/** CA ra&iacute;z del DNIe incluidas en el proyecto, en orden de preferencia. Se cargan
+	 * la primera vez que se necesitan. */
+	private static final class TrustedRoots {
+
+		static final X509Certificate[] ROOTS = {
+			loadRoot("/ACRAIZ-SHA2-2.crt"), //$NON-NLS-1$
+			loadRoot("/ACRAIZ-SHA2.crt") //$NON-NLS-1$
+		};
+
+		private static X509Certificate loadRoot(final String resource) {
+			try (InputStream is = DnieCertificateChainCache.class.getResourceAsStream(resource)) {
+				return CryptoHelper.generateCertificate(is);
+			}
+			catch (final Exception e) {
+				LOGGER.warning("No se ha podido cargar el certificado de la CA raiz " + resource + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+				return null;
+			}
+		}
+	}
+
+	private DnieCertificateChainCache() {
+		// No instanciable
+	}
+
+	/** Obtiene la CA ra&iacute;z del DNIe incluida en el proyecto que ha emitido un certificado
+	 * de CA intermedia.
+	 * @param intermediateCaCert Certificado de la CA intermedia.
+	 * @return CA ra&iacute;z emisora o <code>null</code> si no es ninguna de las conocidas. */
+	static X509Certificate getIssuerRoot(final X509Certificate intermediateCaCert) {
+		for (final X509Certificate root : TrustedRoots.ROOTS) {
+			if (root == null) {
+				continue;
+			}
+			try {
+				intermediateCaCert.verify(root.getPublicKey());
+				return root;
+			}
+			catch (final Exception e) {
+				// Puede que sea un DNI antiguo con la raiz anterior
+				LOGGER.info("La CA raiz " + root.getSubjectX500Principal() + " no es la emisora de este DNIe: " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		return null;
+	}
+
+	/** Obtiene una cadena ya construida.
+	 * @param cert Certificado final de la cadena.
+	 * @return Copia de la cadena o <code>null</code> si no est&aacute; en cach&eacute;. */
+	static X509Certificate[] get(final X509Certificate cert) {
+		final String key = getKey(cert);
+		if (key == null) {
+			return null;
+		}
+		final X509Certificate[] chain;
+		synchronized (CHAINS) {
+			chain = CHAINS.get(key);
+		}
+		return chain != null ? chain.clone() : null;
+	}
+
+	/** Almacena una cadena ya construida.
+	 * @param chain Cadena de certificados, empezando por el certificado final. */
+	static void put(final X509Certificate[] chain) {
+		if (chain == null || chain.length == 0) {
+			return;
+		}
+		final String key = getKey(chain[0]);
+		if (key == null) {
+			return;
+		}
+		synchronized (CHAINS) {
+			CHAINS.put(key, chain.clone());
+		}
+	}
+
+	private static String getKey(final X509Certificate cert) {
+		if (cert == null) {
+			return null;
+		}
+		try {
+			return HexUtils.hexify(MessageDigest.getInstance("SHA-256").digest(cert.getEncoded()), false); //$NON-NLS-1$
+		}
+		catch (final CertificateEncodingException | NoSuchAlgorithmException e) {
+			LOGGER.warning("No se ha podido calcular la huella del certificado: " + e); //$NON-NLS-1$
+			return null;
+		}
+	}
+}
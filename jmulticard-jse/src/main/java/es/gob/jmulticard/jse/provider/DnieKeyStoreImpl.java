@@ -52,7 +52,6 @@ import java.util.List;
 
 import javax.security.auth.callback.PasswordCallback;
 
-import es.gob.jmulticard.CryptoHelper;
 import es.gob.jmulticard.card.dnie.DnieFactory;
 import es.gob.jmulticard.connection.ApduConnection;
 
@@ -72,62 +71,37 @@ public class DnieKeyStoreImpl extends AbstractJMultiCardKeyStore {
     		return null;
     	}
 
+    	final X509Certificate cert = (X509Certificate) engineGetCertificate(alias);
+
+    	// Las cadenas ya verificadas se reutilizan sin volver a leer ni verificar nada
+    	final X509Certificate[] cachedChain = DnieCertificateChainCache.get(cert);
+    	if (cachedChain != null) {
+    		return cachedChain;
+    	}
+
     	final List<X509Certificate> certs = new ArrayList<>();
-    	certs.add((X509Certificate) engineGetCertificate(alias));
+    	certs.add(cert);
 
     	// La cadena disponible del certificado la componen el propio certificado y el
     	// certificado de la CA intermedia. Si no se puede recuperar esta ultima, se obvia
     	final X509Certificate intermediateCaCert = this.cryptoCard.getCertificate(INTERMEDIATE_CA_CERT_ALIAS);
-
-    	X509Certificate sha2DnieRoot = null;
-
-    	if (intermediateCaCert != null) {
-
-    		certs.add(intermediateCaCert);
-
-    		// Si tenemos CA intermedia probamos con la raiz v2, que esta incluida estaticamente en el proyecto
-	    	try (InputStream is = DnieKeyStoreImpl.class.getResourceAsStream("/ACRAIZ-SHA2-2.crt")) { //$NON-NLS-1$
-				sha2DnieRoot = CryptoHelper.generateCertificate(is);
-			}
-	    	catch (final Exception e) {
-	    		sha2DnieRoot = null;
-	    		LOGGER.warning("No se ha podido cargar el certificado de la CA raiz 2: " + e); //$NON-NLS-1$
-			}
-
-	    	// Comprobamos que efectivamente sea su raiz
-	    	if (sha2DnieRoot != null) {
-		    	try {
-					intermediateCaCert.verify(sha2DnieRoot.getPublicKey());
-				}
-		    	catch (final Exception e) {
-		    		// Si no es la raiz, puede que sea un DNI antiguo con la raiz anterior
-		    		LOGGER.warning("La CA raiz no es la V2, se intentara con la version anterior: " + e); //$NON-NLS-1$
-
-		    		try (InputStream is = DnieKeyStoreImpl.class.getResourceAsStream("/ACRAIZ-SHA2.crt")) { //$NON-NLS-1$
-	    				sha2DnieRoot = CryptoHelper.generateCertificate(is);
-	    			}
-	    	    	catch (final Exception ex) {
-	    	    		sha2DnieRoot = null;
-	    	    		LOGGER.warning("No se ha podido cargar el certificado de la CA raiz: " + ex); //$NON-NLS-1$
-	    			}
-		    		if (sha2DnieRoot != null) {
-				    	try {
-							intermediateCaCert.verify(sha2DnieRoot.getPublicKey());
-						}
-				    	catch (final Exception ex2) {
-				    		sha2DnieRoot = null;
-				    		LOGGER.info("La CA raiz de DNIe precargada no es la emisora de este DNIe: " + ex2); //$NON-NLS-1$
-						}
-		    		}
-		    	}
-	    	}
+    	if (intermediateCaCert == null) {
+    		return certs.toArray(new X509Certificate[0]);
     	}
+    	certs.add(intermediateCaCert);
 
+    	// Si tenemos CA intermedia probamos con las raices incluidas estaticamente en el proyecto
+    	final X509Certificate sha2DnieRoot = DnieCertificateChainCache.getIssuerRoot(intermediateCaCert);
     	if (sha2DnieRoot != null) {
     		certs.add(sha2DnieRoot);
     	}
+    	else {
+    		LOGGER.info("Ninguna de las CA raiz de DNIe precargadas es la emisora de este DNIe"); //$NON-NLS-1$
+    	}
 
-    	return certs.toArray(new X509Certificate[0]);
+    	final X509Certificate[] chain = certs.toArray(new X509Certificate[0]);
+    	DnieCertificateChainCache.put(chain);
+    	return chain;
     }
 
     @Override
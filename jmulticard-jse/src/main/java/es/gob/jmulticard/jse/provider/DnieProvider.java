@@ -56,6 +56,8 @@ import es.gob.jmulticard.connection.ApduConnection;
  *     <dd><i>DNI</i></dd>
  *   <dt><code>Signature</code></dt>
  *     <dd><i>SHA1withRSA</i>, <i>SHA256withRSA</i>, <i>SHA384withRSA</i>, <i>SHA512withRSA</i></dd>
+ *     <dd><i>NONEwithRSA</i> y <i>SHA1withRSA/Prehashed</i>, <i>SHA256withRSA/Prehashed</i>,
+ *         <i>SHA384withRSA/Prehashed</i>, <i>SHA512withRSA/Prehashed</i> (sobre huellas ya calculadas)</dd>
  * </dl>
  * Adicionalmente, en JVM no de Oracle/Sun, crea el servicio <code>Cipher.RSA/ECB/PKCS1Padding</code>.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
@@ -149,11 +151,23 @@ public final class DnieProvider extends Provider {
         put("Signature.SHA384withRSA", "es.gob.jmulticard.jse.provider.DnieSignatureImpl$Sha384"); //$NON-NLS-1$ //$NON-NLS-2$
         put("Signature.SHA512withRSA", "es.gob.jmulticard.jse.provider.DnieSignatureImpl$Sha512"); //$NON-NLS-1$ //$NON-NLS-2$
 
+        // Motores de firma sobre huellas ya calculadas
+        put("Signature.NONEwithRSA",             "es.gob.jmulticard.jse.provider.DnieSignatureImpl$None");            //$NON-NLS-1$ //$NON-NLS-2$
+        put("Signature.SHA1withRSA/Prehashed",   "es.gob.jmulticard.jse.provider.DnieSignatureImpl$Sha1Prehashed");   //$NON-NLS-1$ //$NON-NLS-2$
+        put("Signature.SHA256withRSA/Prehashed", "es.gob.jmulticard.jse.provider.DnieSignatureImpl$Sha256Prehashed"); //$NON-NLS-1$ //$NON-NLS-2$
+        put("Signature.SHA384withRSA/Prehashed", "es.gob.jmulticard.jse.provider.DnieSignatureImpl$Sha384Prehashed"); //$NON-NLS-1$ //$NON-NLS-2$
+        put("Signature.SHA512withRSA/Prehashed", "es.gob.jmulticard.jse.provider.DnieSignatureImpl$Sha512Prehashed"); //$NON-NLS-1$ //$NON-NLS-2$
+
         // Claves soportadas para firma
         put("Signature.SHA1withRSA SupportedKeyClasses",     DNIE_PRIVATE_KEY); //$NON-NLS-1$
         put("Signature.SHA256withRSA SupportedKeyClasses",   DNIE_PRIVATE_KEY); //$NON-NLS-1$
         put("Signature.SHA384withRSA SupportedKeyClasses",   DNIE_PRIVATE_KEY); //$NON-NLS-1$
         put("Signature.SHA512withRSA SupportedKeyClasses",   DNIE_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.NONEwithRSA SupportedKeyClasses",              DNIE_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.SHA1withRSA/Prehashed SupportedKeyClasses",    DNIE_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.SHA256withRSA/Prehashed SupportedKeyClasses",  DNIE_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.SHA384withRSA/Prehashed SupportedKeyClasses",  DNIE_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.SHA512withRSA/Prehashed SupportedKeyClasses",  DNIE_PRIVATE_KEY); //$NON-NLS-1$
 
         // Alias de los nombres de algoritmos de firma
         put("Alg.Alias.Signature.1.2.840.113549.1.1.5",      SHA1WITH_RSA); //$NON-NLS-1$
@@ -40,8 +40,10 @@
 package es.gob.jmulticard.jse.provider;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.InvalidParameterException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
@@ -51,6 +53,7 @@ import java.security.Signature;
 import java.security.SignatureException;
 import java.security.SignatureSpi;
 
+import es.gob.jmulticard.asn1.der.pkcs1.DigestInfo;
 import es.gob.jmulticard.card.CryptoCardException;
 import es.gob.jmulticard.card.PinException;
 import es.gob.jmulticard.card.dnie.Dni;
@@ -64,10 +67,24 @@ import es.gob.jmulticard.card.dnie.DniePrivateKeyReference;
  *  <li>SHA384withRSA</li>
  *  <li>SHA512withRSA</li>
  * </ul>
+ * Y sus variantes sobre datos ya procesados, para quien ya dispone de la huella:
+ * <ul>
+ *  <li>NONEwithRSA (se proporciona el <code>DigestInfo</code> completo)</li>
+ *  <li>SHA1withRSA/Prehashed, SHA256withRSA/Prehashed, SHA384withRSA/Prehashed y
+ *      SHA512withRSA/Prehashed (se proporciona solo la huella)</li>
+ * </ul>
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
 abstract class DnieSignatureImpl extends SignatureSpi {
 
-    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    /** Firma de un <code>DigestInfo</code> ya construido. */
+    private static final String NONE_WITH_RSA = "NONEwithRSA"; //$NON-NLS-1$
+
+    /** Huella de los datos a firmar, que se calcula seg&uacute;n se van proporcionando,
+     * o <code>null</code> si se proporciona ya calculada. */
+    private final MessageDigest digest;
+
+    /** Huella o <code>DigestInfo</code> proporcionados ya calculados. */
+    private final ByteArrayOutputStream prehashedData = new ByteArrayOutputStream();
 
     private Signature signatureVerifier = null;
 
@@ -77,7 +94,27 @@ abstract class DnieSignatureImpl extends SignatureSpi {
     private final String signatureAlgo;
 
     DnieSignatureImpl(final String signatureAlgorithm) {
+        this(signatureAlgorithm, false);
+    }
+
+    /** Construye el motor de firma.
+     * @param signatureAlgorithm Algoritmo de firma.
+     * @param prehashed <code>true</code> si en lugar de los datos se proporciona su huella
+     *                  (o, con <i>NONEwithRSA</i>, su <code>DigestInfo</code>). */
+    DnieSignatureImpl(final String signatureAlgorithm, final boolean prehashed) {
         this.signatureAlgo = signatureAlgorithm;
+        if (prehashed) {
+        	this.digest = null;
+        	return;
+        }
+        try {
+        	this.digest = MessageDigest.getInstance(DigestInfo.getDigestAlgorithm(signatureAlgorithm).toString());
+        }
+        catch (final NoSuchAlgorithmException e) {
+        	throw new IllegalStateException(
+        		"No existe un proveedor de huellas digitales para el algoritmo " + signatureAlgorithm, e //$NON-NLS-1$
+    		);
+        }
     }
 
     @Override
@@ -94,24 +131,33 @@ abstract class DnieSignatureImpl extends SignatureSpi {
             throw new InvalidKeyException("La clave proporcionada no es de un DNIe: " + prKey.getClass().getName()); //$NON-NLS-1$
         }
         this.privateKey = (DniePrivateKey) prKey;
-        this.data.reset();
+        this.signatureVerifier = null;
+        resetData();
+    }
+
+    private void resetData() {
+    	this.prehashedData.reset();
+    	if (this.digest != null) {
+    		this.digest.reset();
+    	}
     }
 
     @Override
     protected void engineInitVerify(final PublicKey publicKey) throws InvalidKeyException {
-        this.data.reset();
+        resetData();
+        final String verifierAlgo = this.digest != null ? this.signatureAlgo : NONE_WITH_RSA;
         try {
-        	this.signatureVerifier = Signature.getInstance(this.signatureAlgo);
+        	this.signatureVerifier = Signature.getInstance(verifierAlgo);
         	if (this.signatureVerifier.getProvider() instanceof DnieProvider) {
         		this.signatureVerifier = Signature.getInstance(
-    				this.signatureAlgo,
-    				ProviderUtil.getDefaultOtherProvider("Signature", this.signatureAlgo) //$NON-NLS-1$
+    				verifierAlgo,
+    				ProviderUtil.getDefaultOtherProvider("Signature", verifierAlgo) //$NON-NLS-1$
 				);
         	}
         }
         catch (final NoSuchAlgorithmException e) {
             throw new IllegalStateException(
-                "No existe un proveedor para validar firmas con el algoritmo " + this.signatureAlgo, e //$NON-NLS-1$
+                "No existe un proveedor para validar firmas con el algoritmo " + verifierAlgo, e //$NON-NLS-1$
             );
         }
         catch (final NoSuchProviderException e) {
@@ -146,11 +192,23 @@ abstract class DnieSignatureImpl extends SignatureSpi {
 		);
 
     	try {
-            return this.privateKey.getCryptoCard().sign(
-        		this.data.toByteArray(),
-        		this.signatureAlgo,
-        		dniePkRef
-    		);
+    		if (this.digest != null) {
+    			return this.privateKey.getCryptoCard().signDigest(
+					this.digest.digest(),
+					this.signatureAlgo,
+					dniePkRef
+				);
+    		}
+    		final byte[] prehashed = this.prehashedData.toByteArray();
+    		this.prehashedData.reset();
+    		if (NONE_WITH_RSA.equals(this.signatureAlgo)) {
+    			return this.privateKey.getCryptoCard().signDigest(
+					DigestInfo.getEncodedDigest(prehashed),
+					DigestInfo.getEncodedDigestAlgorithm(prehashed).toString(),
+					dniePkRef
+				);
+    		}
+    		return this.privateKey.getCryptoCard().signDigest(prehashed, this.signatureAlgo, dniePkRef);
         }
         catch (final CryptoCardException e) {
             throw new SignatureException(e);
@@ -158,16 +216,35 @@ abstract class DnieSignatureImpl extends SignatureSpi {
     	catch (final PinException e) {
 			throw new SignatureAuthException(e);
 		}
+        catch (final IOException e) {
+            throw new SignatureException("Los datos proporcionados no son un DigestInfo valido", e); //$NON-NLS-1$
+        }
     }
 
     @Override
-    protected void engineUpdate(final byte b) {
-        this.data.write(b);
+    protected void engineUpdate(final byte b) throws SignatureException {
+    	if (this.digest == null) {
+    		this.prehashedData.write(b);
+    	}
+    	else if (this.signatureVerifier != null) {
+    		this.signatureVerifier.update(b);
+    	}
+    	else {
+    		this.digest.update(b);
+    	}
     }
 
     @Override
-    protected void engineUpdate(final byte[] b, final int off, final int len) {
-        this.data.write(b, off, len);
+    protected void engineUpdate(final byte[] b, final int off, final int len) throws SignatureException {
+    	if (this.digest == null) {
+    		this.prehashedData.write(b, off, len);
+    	}
+    	else if (this.signatureVerifier != null) {
+    		this.signatureVerifier.update(b, off, len);
+    	}
+    	else {
+    		this.digest.update(b, off, len);
+    	}
     }
 
     @Override
@@ -175,8 +252,20 @@ abstract class DnieSignatureImpl extends SignatureSpi {
         if (this.signatureVerifier == null) {
             throw new SignatureException("La verificacion no esta inicializada"); //$NON-NLS-1$
         }
-        this.signatureVerifier.update(this.data.toByteArray());
-        this.data.reset();
+        if (this.digest == null) {
+        	final byte[] prehashed = this.prehashedData.toByteArray();
+        	this.prehashedData.reset();
+        	try {
+        		this.signatureVerifier.update(
+    				NONE_WITH_RSA.equals(this.signatureAlgo) ?
+						prehashed :
+							DigestInfo.encodeDigest(this.signatureAlgo, prehashed)
+				);
+        	}
+        	catch (final IOException e) {
+        		throw new SignatureException("La huella proporcionada no es valida para " + this.signatureAlgo, e); //$NON-NLS-1$
+        	}
+        }
         return this.signatureVerifier.verify(sigBytes);
     }
 
@@ -211,4 +300,44 @@ abstract class DnieSignatureImpl extends SignatureSpi {
             super("SHA512withRSA"); //$NON-NLS-1$
         }
     }
+
+    /** Firma NONEwithRSA de un <code>DigestInfo</code> ya construido. */
+    public static final class None extends DnieSignatureImpl {
+        /** Constructor. */
+        public None() {
+            super(NONE_WITH_RSA, true);
+        }
+    }
+
+    /** Firma SHA1withRSA de una huella SHA-1 ya calculada. */
+    public static final class Sha1Prehashed extends DnieSignatureImpl {
+        /** Constructor. */
+        public Sha1Prehashed() {
+            super("SHA1withRSA", true); //$NON-NLS-1$
+        }
+    }
+
+    /** Firma SHA256withRSA de una huella SHA-256 ya calculada. */
+    public static final class Sha256Prehashed extends DnieSignatureImpl {
+        /** Constructor. */
+        public Sha256Prehashed() {
+            super("SHA256withRSA", true); //$NON-NLS-1$
+        }
+    }
+
+    /** Firma SHA384withRSA de una huella SHA-384 ya calculada. */
+    public static final class Sha384Prehashed extends DnieSignatureImpl {
+        /** Constructor. */
+        public Sha384Prehashed() {
+            super("SHA384withRSA", true); //$NON-NLS-1$
+        }
+    }
+
+    /** Firma SHA512withRSA de una huella SHA-512 ya calculada. */
+    public static final class Sha512Prehashed extends DnieSignatureImpl {
+        /** Constructor. */
+        public Sha512Prehashed() {
+            super("SHA512withRSA", true); //$NON-NLS-1$
+        }
+    }
 }
\ No newline at end of file
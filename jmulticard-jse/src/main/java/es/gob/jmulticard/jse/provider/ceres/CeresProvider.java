@@ -14,6 +14,8 @@ import es.gob.jmulticard.jse.provider.ProviderUtil;
  * <dd><i>CERES</i></dd>
  * <dt><code>Signature</code></dt>
  * <dd><i>SHA1withRSA</i>, <i>SHA256withRSA</i>, <i>SHA384withRSA</i>, <i>SHA512withRSA</i></dd>
+ * <dd><i>NONEwithRSA</i> y <i>SHA1withRSA/Prehashed</i>, <i>SHA256withRSA/Prehashed</i>,
+ *     <i>SHA384withRSA/Prehashed</i>, <i>SHA512withRSA/Prehashed</i> (sobre huellas ya calculadas)</dd>
  * </dl>
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
 public final class CeresProvider extends Provider {
@@ -88,11 +90,23 @@ public final class CeresProvider extends Provider {
         put("Signature.SHA384withRSA", "es.gob.jmulticard.jse.provider.ceres.CeresSignatureImpl$Sha384"); //$NON-NLS-1$ //$NON-NLS-2$
         put("Signature.SHA512withRSA", "es.gob.jmulticard.jse.provider.ceres.CeresSignatureImpl$Sha512"); //$NON-NLS-1$ //$NON-NLS-2$
 
+        // Motores de firma sobre huellas ya calculadas
+        put("Signature.NONEwithRSA",             "es.gob.jmulticard.jse.provider.ceres.CeresSignatureImpl$None");            //$NON-NLS-1$ //$NON-NLS-2$
+        put("Signature.SHA1withRSA/Prehashed",   "es.gob.jmulticard.jse.provider.ceres.CeresSignatureImpl$Sha1Prehashed");   //$NON-NLS-1$ //$NON-NLS-2$
+        put("Signature.SHA256withRSA/Prehashed", "es.gob.jmulticard.jse.provider.ceres.CeresSignatureImpl$Sha256Prehashed"); //$NON-NLS-1$ //$NON-NLS-2$
+        put("Signature.SHA384withRSA/Prehashed", "es.gob.jmulticard.jse.provider.ceres.CeresSignatureImpl$Sha384Prehashed"); //$NON-NLS-1$ //$NON-NLS-2$
+        put("Signature.SHA512withRSA/Prehashed", "es.gob.jmulticard.jse.provider.ceres.CeresSignatureImpl$Sha512Prehashed"); //$NON-NLS-1$ //$NON-NLS-2$
+
         // Claves soportadas
         put("Signature.SHA1withRSA SupportedKeyClasses",   CeresProvider.ES_GOB_JMULTICARD_CARD_CERES_PRIVATE_KEY); //$NON-NLS-1$
         put("Signature.SHA256withRSA SupportedKeyClasses", CeresProvider.ES_GOB_JMULTICARD_CARD_CERES_PRIVATE_KEY); //$NON-NLS-1$
         put("Signature.SHA384withRSA SupportedKeyClasses", CeresProvider.ES_GOB_JMULTICARD_CARD_CERES_PRIVATE_KEY); //$NON-NLS-1$
         put("Signature.SHA512withRSA SupportedKeyClasses", CeresProvider.ES_GOB_JMULTICARD_CARD_CERES_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.NONEwithRSA SupportedKeyClasses",              CeresProvider.ES_GOB_JMULTICARD_CARD_CERES_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.SHA1withRSA/Prehashed SupportedKeyClasses",    CeresProvider.ES_GOB_JMULTICARD_CARD_CERES_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.SHA256withRSA/Prehashed SupportedKeyClasses",  CeresProvider.ES_GOB_JMULTICARD_CARD_CERES_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.SHA384withRSA/Prehashed SupportedKeyClasses",  CeresProvider.ES_GOB_JMULTICARD_CARD_CERES_PRIVATE_KEY); //$NON-NLS-1$
+        put("Signature.SHA512withRSA/Prehashed SupportedKeyClasses",  CeresProvider.ES_GOB_JMULTICARD_CARD_CERES_PRIVATE_KEY); //$NON-NLS-1$
 
         // Alias de los nombres de algoritmos de firma
         put("Alg.Alias.Signature.1.2.840.113549.1.1.5",     CeresProvider.SHA1WITH_RSA); //$NON-NLS-1$
@@ -211,7 +211,7 @@ public final class SmartCafeKeyStoreImpl extends KeyStoreSpi {
     	final ApduConnection conn = ProviderUtil.getDefaultConnection();
 
         // Aqui se realiza el acceso e inicializacion de la tarjeta
-    	cryptoCard = new SmartCafePkcs15Applet(conn, new BcCryptoHelper());
+    	cryptoCard = new SmartCafePkcs15Applet(conn, new BcCryptoHelper(), true);
     	if (password != null) {
     		cryptoCard.setPasswordCallback(new CachePasswordCallback(password));
     	}
@@ -221,7 +221,7 @@ public final class SmartCafeKeyStoreImpl extends KeyStoreSpi {
     @Override
     public void engineLoad(final KeyStore.LoadStoreParameter param) throws IOException {
 		final ApduConnection conn = ProviderUtil.getDefaultConnection();
-		cryptoCard = new SmartCafePkcs15Applet(conn, new BcCryptoHelper());
+		cryptoCard = new SmartCafePkcs15Applet(conn, new BcCryptoHelper(), true);
     	if (param != null) {
     		final ProtectionParameter pp = param.getProtectionParameter();
     		if (pp instanceof KeyStore.CallbackHandlerProtection) {
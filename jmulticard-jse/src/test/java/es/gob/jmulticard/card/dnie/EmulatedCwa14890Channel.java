@@ -0,0 +1,196 @@
+package es.gob.jmulticard.card.dnie;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.asn1.Tlv;
+import es.gob.jmulticard.asn1.bertlv.BerTlv;
+import es.gob.jmulticard.connection.ApduEncrypterDes;
+
+/** Extremo de tarjeta de un canal seguro CWA-14890 emulado.
+ * Desprotege los comandos que protege <code>Cwa14890OneV1Connection</code> (o
+ * <code>Cwa14890OneV2Connection</code>) y protege las respuestas de forma que esta
+ * pueda descifrarlas y comprobar su MAC.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class EmulatedCwa14890Channel extends ApduEncrypterDes implements EmulatedSecureChannel {
+
+	/** <i>Tag</i> del TLV de estado de respuesta de una APDU de respuesta. */
+	private static final byte TAG_SW_TLV = (byte) 0x99;
+
+	/** <i>Tag</i> del TLV del Le de una APDU protegida. */
+	private static final byte TAG_LE_TLV = (byte) 0x97;
+
+	/** <i>Tag</i> del TLV de c&oacute;digo de autenticaci&oacute;n de mensaje (MAC). */
+	private static final byte TAG_MAC_TLV = (byte) 0x8E;
+
+	/** Octeto que precede a los datos cifrados dentro del TLV de datos. */
+	private static final byte PADDING_INDICATOR = (byte) 0x01;
+
+	private final byte[] kenc;
+	private final byte[] kmac;
+	private final int macLength;
+	private final CryptoHelper cryptoHelper;
+
+	/** Contador de secuencia actual. */
+	private byte[] ssc;
+
+	/** Crea el extremo de tarjeta de un canal seguro ya establecido.
+	 * @param keyEnc Clave de cifrado del canal.
+	 * @param keyMac Clave de MAC del canal.
+	 * @param initialSsc Contador de secuencia inicial.
+	 * @param macLen Longitud del MAC (4 en CWA-14890 V1, 8 en V2).
+	 * @param cryptoHlpr Operador criptogr&aacute;fico. */
+	EmulatedCwa14890Channel(final byte[] keyEnc,
+			                final byte[] keyMac,
+			                final byte[] initialSsc,
+			                final int macLen,
+			                final CryptoHelper cryptoHlpr) {
+		kenc = keyEnc.clone();
+		kmac = keyMac.clone();
+		ssc = initialSsc.clone();
+		macLength = macLen;
+		cryptoHelper = cryptoHlpr;
+	}
+
+	@Override
+	protected int getMacLength() {
+		return macLength;
+	}
+
+	@Override
+	public EmulatedDnieConnection.Command unprotect(final EmulatedDnieConnection.Command command) throws IOException {
+
+		final byte[] body = command.getData();
+		byte[] cryptogram = null;
+		byte[] le = null;
+		byte[] mac = null;
+		int macOffset = -1;
+		try {
+			final ByteArrayInputStream tlvs = new ByteArrayInputStream(body);
+			while (tlvs.available() > 0) {
+				final int offset = body.length - tlvs.available();
+				final BerTlv tlv = BerTlv.createInstance(tlvs);
+				if (tlv.getTag() == TAG_DATA_TLV) {
+					cryptogram = tlv.getValue();
+				}
+				else if (tlv.getTag() == TAG_LE_TLV) {
+					le = tlv.getValue();
+				}
+				else if (tlv.getTag() == TAG_MAC_TLV) {
+					mac = tlv.getValue();
+					macOffset = offset;
+					break;
+				}
+				else {
+					return null;
+				}
+			}
+		}
+		catch (final RuntimeException e) {
+			return null;
+		}
+		if (mac == null || mac.length != macLength) {
+			return null;
+		}
+
+		final byte[] nextSsc = increment(ssc);
+		final ByteArrayOutputStream macData = new ByteArrayOutputStream();
+		macData.write(
+			addPadding7816(
+				new byte[] { command.getCla(), command.getIns(), command.getP1(), command.getP2() },
+				paddingLength
+			)
+		);
+		macData.write(body, 0, macOffset);
+		final byte[] expectedMac = generateMac(
+			addPadding7816(macData.toByteArray(), paddingLength),
+			nextSsc,
+			kmac,
+			cryptoHelper
+		);
+		if (!Arrays.equals(mac, expectedMac)) {
+			return null;
+		}
+		ssc = nextSsc;
+
+		final byte[] data;
+		if (cryptogram == null || cryptogram.length < 2 || cryptogram[0] != PADDING_INDICATOR) {
+			data = new byte[0];
+		}
+		else {
+			data = removePadding7816(
+				cryptoHelper.desedeDecrypt(HexUtils.subArray(cryptogram, 1, cryptogram.length - 1), kenc)
+			);
+		}
+		final int expectedLength;
+		if (le == null) {
+			expectedLength = -1;
+		}
+		else if (le.length == 1) {
+			expectedLength = le[0] == 0 ? 0x100 : le[0] & 0xFF;
+		}
+		else {
+			final int extendedLe = (le[0] & 0xFF) << 8 | le[1] & 0xFF;
+			expectedLength = extendedLe == 0 ? 0x10000 : extendedLe;
+		}
+		return new EmulatedDnieConnection.Command(
+			command.getCla(),
+			command.getIns(),
+			command.getP1(),
+			command.getP2(),
+			data,
+			expectedLength
+		);
+	}
+
+	/** {@inheritDoc}
+	 * Las respuestas de error se devuelven en claro y sin datos, como hace la tarjeta real,
+	 * aunque el contador de secuencia avanza igualmente. */
+	@Override
+	public byte[] protect(final byte[] response) throws IOException {
+		ssc = increment(ssc);
+		final byte[] sw = HexUtils.subArray(response, response.length - 2, 2);
+		if (sw[0] != (byte) 0x90 || sw[1] != (byte) 0x00) {
+			return sw;
+		}
+		final ByteArrayOutputStream tlvs = new ByteArrayOutputStream();
+		if (response.length > 2) {
+			tlvs.write(
+				new Tlv(
+					TAG_DATA_TLV,
+					HexUtils.concatenateByteArrays(
+						new byte[] { PADDING_INDICATOR },
+						encryptData(
+							addPadding7816(HexUtils.subArray(response, 0, response.length - 2), paddingLength),
+							kenc,
+							ssc,
+							cryptoHelper
+						)
+					)
+				).getBytes()
+			);
+		}
+		tlvs.write(new Tlv(TAG_SW_TLV, sw).getBytes());
+		final byte[] mac = generateMac(addPadding7816(tlvs.toByteArray(), paddingLength), ssc, kmac, cryptoHelper);
+		tlvs.write(new Tlv(TAG_MAC_TLV, mac).getBytes());
+		tlvs.write(sw);
+		return tlvs.toByteArray();
+	}
+
+	/** Incrementa en una unidad un contador de secuencia de ocho octetos.
+	 * @param counter Contador.
+	 * @return Contador incrementado (en un nuevo array). */
+	private static byte[] increment(final byte[] counter) {
+		final byte[] ret = counter.clone();
+		for (int i = ret.length - 1; i >= 0; i--) {
+			if (++ret[i] != 0) {
+				break;
+			}
+		}
+		return ret;
+	}
+}
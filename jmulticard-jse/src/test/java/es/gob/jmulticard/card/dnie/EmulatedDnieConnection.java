@@ -0,0 +1,1092 @@
+package es.gob.jmulticard.card.dnie;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.ASN1Set;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.apdu.ResponseApdu;
+import es.gob.jmulticard.asn1.icao.CardAccess;
+import es.gob.jmulticard.asn1.bertlv.BerTlv;
+import es.gob.jmulticard.card.cwa14890.Cwa14890PrivateConstants;
+import es.gob.jmulticard.card.cwa14890.Cwa14890PublicConstants;
+import es.gob.jmulticard.connection.AbstractApduConnectionIso7816;
+import es.gob.jmulticard.connection.ApduConnection;
+import es.gob.jmulticard.connection.ApduConnectionException;
+import es.gob.jmulticard.connection.ApduConnectionProtocol;
+import es.gob.jmulticard.crypto.BcCryptoHelper;
+
+/** Conexi&oacute;n con un DNIe (2&#46;0 o 3&#46;0) emulado en memoria, para pruebas y medidas
+ * de rendimiento sin lector ni tarjeta.
+ * Emula un sistema de ficheros PKCS#15 con certificados y claves de prueba generados al vuelo,
+ * el extremo de tarjeta del canal seguro CWA-14890 (incluyendo el paso del canal de PIN al
+ * de usuario del DNIe 3&#46;0, que se establece dentro del primero y lo sustituye), la
+ * verificaci&oacute;n de PIN y la firma electr&oacute;nica.
+ * Los DNIe 3&#46;0 emulados contienen adem&aacute;s la aplicaci&oacute;n LDS1 de ICAO 9303
+ * (EF&#46;CardAccess, EF&#46;COM, EF&#46;SOD y grupos de datos) y, accedidos como por NFC, exigen
+ * establecer primero un canal PACE con el CAN o la MRZ, lo que permite medir el rendimiento de
+ * <code>DnieNfc</code> o <code>IcaoMrtdWithPace</code> con una latencia por APDU configurable.
+ * Los certificados CV del controlador se aceptan sin verificarlos: las claves p&uacute;blicas
+ * del controlador se toman directamente de las constantes CWA-14890 de la biblioteca.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+public final class EmulatedDnieConnection extends AbstractApduConnectionIso7816 {
+
+	/** PIN por defecto de las tarjetas emuladas. */
+	public static final String DEFAULT_PIN = "12345678"; //$NON-NLS-1$
+
+	/** ATR de los DNIe 2&#46;0 emulados. */
+	private static final byte[] ATR_DNIE = {
+		(byte) 0x3B, (byte) 0x7F, (byte) 0x38, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x6A,
+		(byte) 0x44, (byte) 0x4E, (byte) 0x49, (byte) 0x65, (byte) 0x10, (byte) 0x02, (byte) 0x4C,
+		(byte) 0x34, (byte) 0x01, (byte) 0x13, (byte) 0x03, (byte) 0x90, (byte) 0x00
+	};
+
+	/** ATR de los DNIe 3&#46;0 emulados. */
+	private static final byte[] ATR_DNIE3 = {
+		(byte) 0x3B, (byte) 0x7F, (byte) 0x96, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x6A,
+		(byte) 0x44, (byte) 0x4E, (byte) 0x49, (byte) 0x65, (byte) 0x10, (byte) 0x01, (byte) 0x01,
+		(byte) 0x55, (byte) 0x04, (byte) 0x21, (byte) 0x03, (byte) 0x90, (byte) 0x00
+	};
+
+	/** Octetos hist&oacute;ricos que devuelven por NFC los DNIe 3&#46;0 emulados. */
+	private static final byte[] ATR_DNIE_NFC = {
+		(byte) 0x3B, (byte) 0x88, (byte) 0x80, (byte) 0x01, (byte) 0xE1, (byte) 0xF3, (byte) 0x5E,
+		(byte) 0x11, (byte) 0x77, (byte) 0x81, (byte) 0xA1, (byte) 0x00, (byte) 0x03
+	};
+
+	private static final String MF = "3F00"; //$NON-NLS-1$
+	private static final byte[] MASTER_FILE_NAME = "Master.File".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+
+	private static final int SW_OK = 0x9000;
+	private static final int SW_EOF_REACHED = 0x6282;
+	private static final int SW_VERIFICATION_FAILED = 0x6300;
+	private static final int SW_WRONG_LENGTH = 0x6700;
+	private static final int SW_INVALID_CHECKSUM = 0x6688;
+	private static final int SW_COMMAND_INCOMPATIBLE = 0x6981;
+	private static final int SW_SECURITY_STATUS_NOT_SATISFIED = 0x6982;
+	private static final int SW_AUTHENTICATION_METHOD_BLOCKED = 0x6983;
+	private static final int SW_CONDITIONS_NOT_SATISFIED = 0x6985;
+	private static final int SW_NO_CURRENT_EF = 0x6986;
+	private static final int SW_SM_DATA_MISSING = 0x6988;
+	private static final int SW_FILE_NOT_FOUND = 0x6A82;
+	private static final int SW_REFERENCED_DATA_NOT_FOUND = 0x6A88;
+	private static final int SW_WRONG_P1P2 = 0x6B00;
+	private static final int SW_CLA_NOT_SUPPORTED = 0x6E00;
+	private static final int SW_INS_NOT_SUPPORTED = 0x6D00;
+
+	private static final int PIN_RETRIES = 3;
+
+	/** Referencia de la MRZ como contrase&ntilde;a PACE en el MSE Set AT. */
+	private static final byte[] PACE_PASSWORD_MRZ = { (byte) 0x01 };
+
+	/** Referencia del CAN como contrase&ntilde;a PACE en el MSE Set AT. */
+	private static final byte[] PACE_PASSWORD_CAN = { (byte) 0x02 };
+
+	/** Algoritmos PACE que acepta la tarjeta en el MSE Set AT. */
+	private static final CardAccess.PaceAlgorithm[] SUPPORTED_PACE_ALGORITHMS = {
+		CardAccess.PaceAlgorithm.PACE_ECDH_GM_AES_CBC_CMAC_128,
+		CardAccess.PaceAlgorithm.PACE_ECDH_IM_AES_CBC_CMAC_128
+	};
+
+	/** Curvas que acepta la tarjeta en el MSE Set AT. */
+	private static final CardAccess.PaceAlgorithmParam[] SUPPORTED_PACE_PARAMS = {
+		CardAccess.PaceAlgorithmParam.BRAINPOOL_256_R1,
+		CardAccess.PaceAlgorithmParam.NIST_P256
+	};
+
+	/** Longitud (en octetos) de las claves RSA del controlador y del certificado de componente. */
+	private static final int RSA_LENGTH = 128;
+
+	private static final int KICC_LENGTH = 32;
+	private static final int SHA1_LENGTH = 20;
+	private static final byte ISO_9796_2_PADDING_START = (byte) 0x6A;
+	private static final byte ISO_9796_2_PADDING_END = (byte) 0xBC;
+
+	private final boolean dnie3;
+	private final byte[] pin;
+	private final CryptoHelper cryptoHelper;
+	private final EmulatedDnieContents contents;
+	private byte[] serial;
+	private final SecureRandom random = new SecureRandom();
+
+	/** CAN de la tarjeta en ASCII, o <code>null</code> si se accede por contactos. */
+	private final byte[] can;
+
+	/** Claves p&uacute;blicas de controlador aceptadas, por CHR (rellenado a 12 octetos, en hexadecimal). */
+	private final Map<String, RSAPublicKey> ifdKeys = new HashMap<>();
+
+	/** Canal seguro establecido o <code>null</code> si no hay ninguno. */
+	private EmulatedSecureChannel channel = null;
+
+	private boolean open = false;
+	private int apduCount = 0;
+	private int pinRetries = PIN_RETRIES;
+	private boolean pinVerified = false;
+
+	private final ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+
+	private String currentDf = MF;
+	private String currentEf = null;
+
+	private RSAPublicKey selectedIfdKey = null;
+	private PrivateKey selectedUserKey = null;
+	private byte[] randomIfd = null;
+	private byte[] kicc = null;
+	private byte[] randomIcc = null;
+	private EmulatedSecureChannel pendingChannel = null;
+
+	/** Protocolo PACE en curso o <code>null</code> si no se ha iniciado ninguno. */
+	private EmulatedPaceAuthentication paceAuthentication = null;
+
+	/** Si se ha establecido un canal PACE desde que se acerc&oacute; la tarjeta al lector NFC. */
+	private boolean paceEstablished = false;
+
+	/** Latencia simulada de cada APDU, en milisegundos. */
+	private long latency = 0;
+
+	/** Tama&ntilde;o m&aacute;ximo de APDU que declara el lector. */
+	private int maxApduSize = 0xFF;
+
+	/** Longitud m&aacute;xima de lectura que admite la tarjeta (cero para no limitarla). */
+	private int maxReadLength = 0;
+
+	/** N&uacute;mero de lecturas rechazadas por superar la longitud m&aacute;xima de lectura. */
+	private int rejectedReads = 0;
+
+	/** Firmas que admite la tarjeta por cada verificaci&oacute;n de PIN (cero para no limitarlas). */
+	private int signaturesPerPinVerification = 0;
+
+	/** Firmas realizadas desde la &uacute;ltima verificaci&oacute;n de PIN. */
+	private int signaturesSinceVerification = 0;
+
+	/** Contenido del EF&#46;CardAccess de esta tarjeta, o <code>null</code> para usar el com&uacute;n. */
+	private byte[] cardAccess = null;
+
+	/** N&uacute;mero de veces que se ha seleccionado el EF&#46;CardAccess. */
+	private int cardAccessReads = 0;
+
+	/** N&uacute;mero de APDU SELECT recibidas. */
+	private int selectCount = 0;
+
+	/** N&uacute;mero de veces que se ha seleccionado cada EF, por ruta (en hexadecimal). */
+	private final Map<String, Integer> fileSelections = new HashMap<>();
+
+	/** Algoritmo PACE del &uacute;ltimo MSE Set AT aceptado. */
+	private CardAccess.PaceAlgorithm paceAlgorithm = null;
+
+	/** Curva del &uacute;ltimo MSE Set AT aceptado. */
+	private CardAccess.PaceAlgorithmParam paceAlgorithmParam = null;
+
+	/** Crea una conexi&oacute;n con un DNIe emulado con el PIN por defecto.
+	 * @param isDnie3 <code>true</code> para emular un DNIe 3&#46;0, <code>false</code>
+	 *                para emular un DNIe 2&#46;0. */
+	public EmulatedDnieConnection(final boolean isDnie3) {
+		this(isDnie3, DEFAULT_PIN, new BcCryptoHelper());
+	}
+
+	/** Crea una conexi&oacute;n con un DNIe emulado.
+	 * @param isDnie3 <code>true</code> para emular un DNIe 3&#46;0, <code>false</code>
+	 *                para emular un DNIe 2&#46;0.
+	 * @param cardPin PIN de la tarjeta.
+	 * @param cryptoHlpr Operador criptogr&aacute;fico para el canal seguro. */
+	public EmulatedDnieConnection(final boolean isDnie3, final String cardPin, final CryptoHelper cryptoHlpr) {
+		this(isDnie3, cardPin, null, cryptoHlpr);
+	}
+
+	/** Crea una conexi&oacute;n NFC con un DNIe 3&#46;0 emulado con el PIN por defecto.
+	 * Antes de cualquier otra operaci&oacute;n debe establecerse un canal PACE con el CAN
+	 * indicado o con la MRZ de la tarjeta (ver {@link #getMrz()}).
+	 * @param cardAccessNumber CAN de la tarjeta.
+	 * @param cryptoHlpr Operador criptogr&aacute;fico para los canales seguros. */
+	public EmulatedDnieConnection(final String cardAccessNumber, final CryptoHelper cryptoHlpr) {
+		this(true, DEFAULT_PIN, cardAccessNumber, cryptoHlpr);
+		if (cardAccessNumber == null) {
+			throw new IllegalArgumentException("El CAN no puede ser nulo"); //$NON-NLS-1$
+		}
+	}
+
+	private EmulatedDnieConnection(final boolean isDnie3,
+			                       final String cardPin,
+			                       final String cardAccessNumber,
+			                       final CryptoHelper cryptoHlpr) {
+		if (cardPin == null || cryptoHlpr == null) {
+			throw new IllegalArgumentException("Ni el PIN ni el CryptoHelper pueden ser nulos"); //$NON-NLS-1$
+		}
+		dnie3 = isDnie3;
+		pin = cardPin.getBytes(StandardCharsets.US_ASCII);
+		can = cardAccessNumber != null ? cardAccessNumber.getBytes(StandardCharsets.US_ASCII) : null;
+		cryptoHelper = cryptoHlpr;
+		contents = EmulatedDnieContents.getInstance();
+
+		// Cada tarjeta tiene un numero de serie distinto, para que no compartan
+		// la cache de claves de componente
+		serial = new byte[7];
+		random.nextBytes(serial);
+
+		if (dnie3) {
+			addIfdKey(new Dnie3PinCwa14890Constants());
+			addIfdKey(new Dnie3UsrCwa14890Constants());
+			addIfdKey(new Dnie3r2PinCwa14890Constants());
+			addIfdKey(new Dnie3r2UsrCwa14890Constants());
+		}
+		else {
+			addIfdKey(new DnieCwa14890Constants());
+		}
+	}
+
+	private <T extends Cwa14890PublicConstants & Cwa14890PrivateConstants> void addIfdKey(final T consts) {
+		final byte[] chr = new byte[12];
+		final byte[] chrCCvIfd = consts.getChrCCvIfd();
+		System.arraycopy(chrCCvIfd, 0, chr, chr.length - chrCCvIfd.length, chrCCvIfd.length);
+		final RSAPrivateKey ifdPrivateKey = consts.getIfdPrivateKey();
+		try {
+			ifdKeys.put(
+				HexUtils.hexify(chr, false),
+				(RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic( //$NON-NLS-1$
+					new RSAPublicKeySpec(
+						ifdPrivateKey.getModulus(),
+						((RSAPrivateCrtKey) ifdPrivateKey).getPublicExponent()
+					)
+				)
+			);
+		}
+		catch (final GeneralSecurityException e) {
+			throw new IllegalStateException("No se ha podido obtener la clave publica del controlador", e); //$NON-NLS-1$
+		}
+	}
+
+	/** Obtiene un certificado de la tarjeta emulada.
+	 * @param alias Alias del certificado.
+	 * @return Certificado o <code>null</code> si no hay ninguno con ese alias. */
+	public X509Certificate getCertificate(final String alias) {
+		return contents.getCertificates().get(alias);
+	}
+
+	/** Obtiene la MRZ impresa de los DNIe 3&#46;0 emulados, v&aacute;lida para establecer el canal PACE.
+	 * @return MRZ (sus tres l&iacute;neas concatenadas). */
+	public static String getMrz() {
+		return EmulatedLds1Contents.getInstance().getMrz();
+	}
+
+	/** Obtiene el certificado de firma de documentos (DS) con el que est&aacute; firmado el
+	 * EF&#46;SOD de los DNIe 3&#46;0 emulados.
+	 * @return Certificado DS. */
+	public static X509Certificate getDocumentSignerCertificate() {
+		return EmulatedLds1Contents.getInstance().getDocumentSignerCertificate();
+	}
+
+	/** Sustituye el contenido del EF&#46;CardAccess de esta tarjeta, para anunciar otros
+	 * <code>PACEInfo</code>.
+	 * @param securityInfos <code>SecurityInfos</code> codificado. */
+	public void setCardAccess(final byte[] securityInfos) {
+		cardAccess = securityInfos.clone();
+	}
+
+	/** Obtiene el n&uacute;mero de veces que se ha seleccionado el EF&#46;CardAccess.
+	 * @return N&uacute;mero de selecciones del EF&#46;CardAccess. */
+	public int getCardAccessReads() {
+		return cardAccessReads;
+	}
+
+	/** Obtiene el n&uacute;mero de APDU SELECT recibidas por la tarjeta desde su creaci&oacute;n.
+	 * @return N&uacute;mero de APDU SELECT recibidas. */
+	public int getSelectCount() {
+		return selectCount;
+	}
+
+	/** Obtiene el n&uacute;mero de veces que se ha seleccionado un EF.
+	 * @param path Ruta completa del EF en hexadecimal (por ejemplo, <code>3F00601F</code>).
+	 * @return N&uacute;mero de selecciones del EF. */
+	public int getFileSelections(final String path) {
+		final Integer selections = fileSelections.get(path);
+		return selections != null ? selections.intValue() : 0;
+	}
+
+	/** Obtiene el n&uacute;mero de serie del chip.
+	 * @return N&uacute;mero de serie del chip. */
+	public byte[] getSerialNumber() {
+		return serial.clone();
+	}
+
+	/** Establece el n&uacute;mero de serie del chip, para emular otra conexi&oacute;n con el mismo chip.
+	 * @param chipSerial N&uacute;mero de serie del chip. */
+	public void setSerialNumber(final byte[] chipSerial) {
+		serial = chipSerial.clone();
+	}
+
+	/** Obtiene el algoritmo PACE del &uacute;ltimo MSE Set AT aceptado.
+	 * @return Algoritmo PACE o <code>null</code> si no se ha iniciado PACE. */
+	public CardAccess.PaceAlgorithm getPaceAlgorithm() {
+		return paceAlgorithm;
+	}
+
+	/** Obtiene la curva del &uacute;ltimo MSE Set AT aceptado.
+	 * @return Curva o <code>null</code> si no se ha iniciado PACE. */
+	public CardAccess.PaceAlgorithmParam getPaceAlgorithmParam() {
+		return paceAlgorithmParam;
+	}
+
+	/** Establece una latencia simulada para cada APDU, como la de un lector NFC.
+	 * @param millis Latencia por APDU en milisegundos (cero para no simular latencia). */
+	public void setLatency(final long millis) {
+		if (millis < 0) {
+			throw new IllegalArgumentException("La latencia no puede ser negativa"); //$NON-NLS-1$
+		}
+		latency = millis;
+	}
+
+	/** Establece el tama&ntilde;o m&aacute;ximo de APDU que declara el lector.
+	 * @param size Tama&ntilde;o m&aacute;ximo (en octetos) de APDU. */
+	public void setMaxApduSize(final int size) {
+		if (size < 0xFF) {
+			throw new IllegalArgumentException("El tamano maximo de APDU no puede ser menor de 255"); //$NON-NLS-1$
+		}
+		maxApduSize = size;
+	}
+
+	/** Limita la longitud de lectura que admite la tarjeta: las lecturas de binario con un Le
+	 * mayor se rechazan con <code>6700</code>.
+	 * @param length Longitud m&aacute;xima de lectura (cero para no limitarla). */
+	public void setMaxReadLength(final int length) {
+		if (length < 0) {
+			throw new IllegalArgumentException("La longitud maxima de lectura no puede ser negativa"); //$NON-NLS-1$
+		}
+		maxReadLength = length;
+	}
+
+	/** Obtiene el n&uacute;mero de lecturas de binario rechazadas por superar la longitud
+	 * m&aacute;xima de lectura.
+	 * @return N&uacute;mero de lecturas rechazadas. */
+	public int getRejectedReads() {
+		return rejectedReads;
+	}
+
+	/** Limita las firmas que admite la tarjeta por cada verificaci&oacute;n de PIN, como
+	 * hacen las claves que exigen verificarlo antes de cada firma.
+	 * @param signatures Firmas por verificaci&oacute;n de PIN (cero para no limitarlas). */
+	public void setSignaturesPerPinVerification(final int signatures) {
+		if (signatures < 0) {
+			throw new IllegalArgumentException("El numero de firmas no puede ser negativo"); //$NON-NLS-1$
+		}
+		signaturesPerPinVerification = signatures;
+	}
+
+	/** Obtiene el n&uacute;mero de APDU recibidas por la tarjeta desde su creaci&oacute;n.
+	 * @return N&uacute;mero de APDU recibidas. */
+	public int getApduCount() {
+		return apduCount;
+	}
+
+	@Override
+	public int getMaxApduSize() {
+		return maxApduSize;
+	}
+
+	@Override
+	public void open() {
+		open = true;
+	}
+
+	@Override
+	public void close() {
+		open = false;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public byte[] reset() {
+		open = true;
+		if (can != null) {
+			// Por NFC el reinicio no cierra la sesion con la tarjeta: solo se obtienen sus octetos historicos
+			return ATR_DNIE_NFC.clone();
+		}
+		channel = null;
+		pendingChannel = null;
+		pinVerified = false;
+		envelope.reset();
+		currentDf = MF;
+		currentEf = null;
+		selectedIfdKey = null;
+		selectedUserKey = null;
+		randomIfd = null;
+		kicc = null;
+		randomIcc = null;
+		return (dnie3 ? ATR_DNIE3 : ATR_DNIE).clone();
+	}
+
+	@Override
+	public long[] getTerminals(final boolean onlyWithCardPresent) {
+		return new long[] { 0 };
+	}
+
+	@Override
+	public String getTerminalInfo(final int terminal) {
+		if (can != null) {
+			return "Lector NFC emulado con DNIe 3.0"; //$NON-NLS-1$
+		}
+		return "Lector emulado con " + (dnie3 ? "DNIe 3.0" : "DNIe 2.0"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	@Override
+	public void setTerminal(final int t) {
+		// Solo hay un lector
+	}
+
+	@Override
+	public void setProtocol(final ApduConnectionProtocol p) {
+		// Indiferente
+	}
+
+	@Override
+	public ApduConnection getSubConnection() {
+		return null;
+	}
+
+	@Override
+	protected ResponseApdu internalTransmit(final byte[] apdu) throws ApduConnectionException {
+		apduCount++;
+		if (latency > 0) {
+			try {
+				Thread.sleep(latency);
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ApduConnectionException("Interrumpida la espera de la tarjeta emulada", e); //$NON-NLS-1$
+			}
+		}
+		try {
+			return new ResponseApdu(process(apdu));
+		}
+		catch (final IOException | GeneralSecurityException e) {
+			throw new ApduConnectionException("Error en la tarjeta emulada", e); //$NON-NLS-1$
+		}
+	}
+
+	private byte[] process(final byte[] apdu) throws IOException, GeneralSecurityException {
+
+		Command command = Command.parse(apdu);
+		if (command == null) {
+			return sw(SW_WRONG_LENGTH);
+		}
+
+		// Envolturas de APDU grandes: se acumulan hasta tener una APDU completa
+		if (command.getCla() == (byte) 0x90 && command.getIns() == (byte) 0xC2) {
+			envelope.write(command.getData());
+			command = Command.parse(envelope.toByteArray());
+			if (command == null) {
+				return sw(SW_OK);
+			}
+			envelope.reset();
+		}
+
+		// Quitamos la mensajeria segura. Una APDU en claro cierra el canal, como en la tarjeta real
+		final boolean secure = (command.getCla() & 0x0C) == 0x0C;
+		if (secure) {
+			if (channel == null) {
+				return sw(SW_SM_DATA_MISSING);
+			}
+			final Command unprotected = channel.unprotect(command);
+			if (unprotected == null) {
+				channel = null;
+				return sw(SW_INVALID_CHECKSUM);
+			}
+			command = unprotected;
+		}
+		else {
+			channel = null;
+			// Por NFC solo se admite en claro lo necesario para establecer el canal PACE
+			if (can != null && !paceEstablished && !isPaceCommand(command)) {
+				return sw(SW_SECURITY_STATUS_NOT_SATISFIED);
+			}
+		}
+
+		byte[] response = execute(command, secure);
+		if (secure) {
+			response = channel.protect(response);
+		}
+		// Un canal recien establecido (aunque sea dentro de otro) sustituye al anterior
+		// desde el siguiente comando
+		if (pendingChannel != null) {
+			channel = pendingChannel;
+			pendingChannel = null;
+		}
+		return response;
+	}
+
+	private byte[] execute(final Command command, final boolean secure) throws IOException, GeneralSecurityException {
+		switch (command.getIns()) {
+			case (byte) 0xA4:
+				selectCount++;
+				return select(command);
+			case (byte) 0xB0:
+				return readBinary(command, secure);
+			case (byte) 0xB8:
+				return ok(serial);
+			case (byte) 0x84:
+				randomIcc = new byte[command.getLe() > 0 ? Math.min(command.getLe(), 0x100) : 8];
+				random.nextBytes(randomIcc);
+				return ok(randomIcc);
+			case (byte) 0x22:
+				return manageSecurityEnvironment(command);
+			case (byte) 0x2A:
+				return performSecurityOperation(command, secure);
+			case (byte) 0x88:
+				return internalAuthenticate(command);
+			case (byte) 0x82:
+				return externalAuthenticate(command);
+			case (byte) 0x20:
+				return verify(command, secure);
+			case (byte) 0x86:
+				return generalAuthenticate(command);
+			default:
+				return sw(SW_INS_NOT_SUPPORTED);
+		}
+	}
+
+	private byte[] select(final Command command) {
+		final byte[] data = command.getData();
+		if (command.getP1() == (byte) 0x04) {
+			if (!Arrays.equals(MASTER_FILE_NAME, data)) {
+				return sw(SW_FILE_NOT_FOUND);
+			}
+			currentDf = MF;
+			currentEf = null;
+			return fci(data, 0);
+		}
+		final String id = HexUtils.hexify(data, false);
+		if (MF.equals(id)) {
+			currentDf = MF;
+			currentEf = null;
+			return fci(data, 0);
+		}
+		String path = currentDf + id;
+		if (!isDedicatedFile(path) && getFile(path) == null) {
+			path = MF + id;
+		}
+		if (isDedicatedFile(path)) {
+			currentDf = path;
+			currentEf = null;
+			return fci(data, 0);
+		}
+		final byte[] file = getFile(path);
+		if (file == null) {
+			return sw(SW_FILE_NOT_FOUND);
+		}
+		currentEf = path;
+		fileSelections.merge(path, Integer.valueOf(1), Integer::sum);
+		if (EmulatedLds1Contents.isCardAccess(path)) {
+			cardAccessReads++;
+		}
+		return fci(data, file.length);
+	}
+
+	private byte[] readBinary(final Command command, final boolean secure) {
+		if (currentEf == null) {
+			return sw(SW_NO_CURRENT_EF);
+		}
+		// Los ficheros LDS1 (salvo el EF.CardAccess) solo se leen por canal seguro
+		if (!secure && EmulatedLds1Contents.isLds1File(currentEf) && !EmulatedLds1Contents.isPublicFile(currentEf)) {
+			return sw(SW_SECURITY_STATUS_NOT_SATISFIED);
+		}
+		final byte[] file = getFile(currentEf);
+		final int offset = (command.getP1() & 0x7F) << 8 | command.getP2() & 0xFF;
+		if (offset > file.length) {
+			return sw(SW_WRONG_P1P2);
+		}
+		final int le = command.getLe() > 0 ? command.getLe() : 0x100;
+		if (maxReadLength > 0 && le > maxReadLength) {
+			rejectedReads++;
+			return sw(SW_WRONG_LENGTH);
+		}
+		final int length = Math.min(le, file.length - offset);
+		return HexUtils.concatenateByteArrays(
+			Arrays.copyOfRange(file, offset, offset + length),
+			sw(length < le ? SW_EOF_REACHED : SW_OK)
+		);
+	}
+
+	private byte[] manageSecurityEnvironment(final Command command) throws GeneralSecurityException {
+		final int p1p2 = (command.getP1() & 0xFF) << 8 | command.getP2() & 0xFF;
+		final Map<Byte, byte[]> tlvs = parseTlvs(command.getData());
+		switch (p1p2) {
+			case 0x81B6:
+				// Seleccion de clave publica para verificar certificados del controlador
+				return sw(SW_OK);
+			case 0xC1A4:
+				// Establecimiento del algoritmo de PACE
+				if (tlvs.containsKey(Byte.valueOf((byte) 0x80))) {
+					return setPaceAlgorithm(tlvs);
+				}
+				// Seleccion de claves para la autenticacion interna
+				final byte[] chr = tlvs.get(Byte.valueOf((byte) 0x83));
+				selectedIfdKey = chr != null ? ifdKeys.get(HexUtils.hexify(chr, false)) : null;
+				return sw(selectedIfdKey != null ? SW_OK : SW_REFERENCED_DATA_NOT_FOUND);
+			case 0x41B6:
+				// Seleccion de clave privada de firma
+				final byte[] keyId = tlvs.get(Byte.valueOf((byte) 0x84));
+				selectedUserKey = keyId != null ? contents.getUserKey(HexUtils.hexify(keyId, false)) : null;
+				return sw(selectedUserKey != null ? SW_OK : SW_REFERENCED_DATA_NOT_FOUND);
+			default:
+				return sw(SW_WRONG_P1P2);
+		}
+	}
+
+	/** Inicia el protocolo PACE con el algoritmo y la contrase&ntilde;a (CAN o MRZ) indicados
+	 * en un comando MSE Set AT.
+	 * @param tlvs Datos del comando MSE Set AT por etiqueta.
+	 * @return Respuesta al comando.
+	 * @throws GeneralSecurityException Si no se puede derivar la contrase&ntilde;a de la MRZ. */
+	private byte[] setPaceAlgorithm(final Map<Byte, byte[]> tlvs) throws GeneralSecurityException {
+		if (can == null) {
+			return sw(SW_CONDITIONS_NOT_SATISFIED);
+		}
+		final CardAccess.PaceAlgorithm algorithm = getPaceAlgorithm(tlvs.get(Byte.valueOf((byte) 0x80)));
+		final CardAccess.PaceAlgorithmParam curve = getPaceAlgorithmParam(tlvs.get(Byte.valueOf((byte) 0x84)));
+		if (algorithm == null || curve == null || !isAnnounced(algorithm, curve)) {
+			return sw(SW_REFERENCED_DATA_NOT_FOUND);
+		}
+		final byte[] passwordType = tlvs.get(Byte.valueOf((byte) 0x83));
+		final byte[] password;
+		if (Arrays.equals(PACE_PASSWORD_MRZ, passwordType)) {
+			password = EmulatedLds1Contents.getMrzPacePassword();
+		}
+		else if (Arrays.equals(PACE_PASSWORD_CAN, passwordType)) {
+			password = can;
+		}
+		else {
+			return sw(SW_REFERENCED_DATA_NOT_FOUND);
+		}
+		paceAuthentication = new EmulatedPaceAuthentication(password, algorithm, curve, cryptoHelper, random);
+		paceAlgorithm = algorithm;
+		paceAlgorithmParam = curve;
+		return sw(SW_OK);
+	}
+
+	/** Indica si un algoritmo PACE con una curva se anuncia en el EF&#46;CardAccess. Si no se
+	 * ha sustituido el EF&#46;CardAccess com&uacute;n se aceptan todos los soportados.
+	 * @param algorithm Algoritmo PACE.
+	 * @param curve Curva.
+	 * @return <code>true</code> si la tarjeta anuncia el algoritmo con la curva. */
+	private boolean isAnnounced(final CardAccess.PaceAlgorithm algorithm, final CardAccess.PaceAlgorithmParam curve) {
+		if (cardAccess == null) {
+			return true;
+		}
+		// La codificacion del algoritmo no incluye la etiqueta del OID
+		final ASN1ObjectIdentifier oid = ASN1ObjectIdentifier.getInstance(
+			HexUtils.concatenateByteArrays(new byte[] { (byte) 0x06 }, algorithm.getBytes())
+		);
+		for (final ASN1Encodable securityInfo : ASN1Set.getInstance(cardAccess)) {
+			final ASN1Sequence seq = ASN1Sequence.getInstance(securityInfo);
+			if (seq.size() >= 3 && oid.equals(seq.getObjectAt(0)) &&
+					ASN1Integer.getInstance(seq.getObjectAt(2)).intValueExact() == curve.getParameterId()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Obtiene la curva de la tarjeta correspondiente al identificador de par&aacute;metros
+	 * de un comando MSE Set AT.
+	 * @param parameterId Identificador de par&aacute;metros (sin etiqueta ni longitud), o
+	 *                    <code>null</code> para la curva por defecto (<i>brainpoolP256r1</i>).
+	 * @return Curva o <code>null</code> si la tarjeta no la soporta. */
+	private static CardAccess.PaceAlgorithmParam getPaceAlgorithmParam(final byte[] parameterId) {
+		if (parameterId == null) {
+			return CardAccess.PaceAlgorithmParam.BRAINPOOL_256_R1;
+		}
+		for (final CardAccess.PaceAlgorithmParam param : SUPPORTED_PACE_PARAMS) {
+			final byte[] encoded = param.getBytes();
+			if (Arrays.equals(Arrays.copyOfRange(encoded, 2, encoded.length), parameterId)) {
+				return param;
+			}
+		}
+		return null;
+	}
+
+	/** Obtiene el algoritmo PACE de la tarjeta (ECDH con AES-128, con <i>Generic Mapping</i>
+	 * o con <i>Integrated Mapping</i>) correspondiente al OID de un comando MSE Set AT.
+	 * @param oid OID del algoritmo (sin etiqueta ni longitud).
+	 * @return Algoritmo PACE o <code>null</code> si la tarjeta no lo soporta. */
+	private static CardAccess.PaceAlgorithm getPaceAlgorithm(final byte[] oid) {
+		for (final CardAccess.PaceAlgorithm algorithm : SUPPORTED_PACE_ALGORITHMS) {
+			final byte[] encoded = algorithm.getBytes();
+			if (Arrays.equals(Arrays.copyOfRange(encoded, 1, encoded.length), oid)) {
+				return algorithm;
+			}
+		}
+		return null;
+	}
+
+	/** Procesa un paso del protocolo PACE. Si es el &uacute;ltimo y concluye con &eacute;xito,
+	 * el canal PACE se usar&aacute; desde el siguiente comando.
+	 * @param command Comando <i>General Authenticate</i>.
+	 * @return Respuesta al comando.
+	 * @throws IOException Si hay errores en las operaciones criptogr&aacute;ficas. */
+	private byte[] generalAuthenticate(final Command command) throws IOException {
+		if (paceAuthentication == null) {
+			return sw(SW_CONDITIONS_NOT_SATISFIED);
+		}
+		if ((command.getCla() & 0xEF) != 0) {
+			return sw(SW_CLA_NOT_SUPPORTED);
+		}
+		final byte[] response = paceAuthentication.generalAuthenticate(command);
+		if (paceAuthentication.getChannel() != null) {
+			pendingChannel = paceAuthentication.getChannel();
+			paceEstablished = true;
+			paceAuthentication = null;
+		}
+		return response;
+	}
+
+	/** Indica si un comando en claro puede enviarse por NFC antes de establecer el canal PACE:
+	 * selecciones de fichero, lectura del EF&#46;CardAccess y comandos del propio protocolo PACE.
+	 * @param command Comando en claro.
+	 * @return <code>true</code> si el comando se admite sin canal PACE. */
+	private boolean isPaceCommand(final Command command) {
+		switch (command.getIns()) {
+			case (byte) 0xA4:
+			case (byte) 0x22:
+			case (byte) 0x86:
+				return true;
+			case (byte) 0xB0:
+				return currentEf != null && EmulatedLds1Contents.isPublicFile(currentEf);
+			default:
+				return false;
+		}
+	}
+
+	private boolean isDedicatedFile(final String path) {
+		return contents.isDedicatedFile(path) || dnie3 && EmulatedLds1Contents.isDedicatedFile(path);
+	}
+
+	private byte[] getFile(final String path) {
+		if (cardAccess != null && EmulatedLds1Contents.isCardAccess(path)) {
+			return dnie3 ? cardAccess : null;
+		}
+		if (EmulatedLds1Contents.isLds1File(path)) {
+			return dnie3 ? EmulatedLds1Contents.getInstance().getFile(path) : null;
+		}
+		return contents.getFile(path, dnie3);
+	}
+
+	private byte[] performSecurityOperation(final Command command, final boolean secure) throws GeneralSecurityException {
+		final int p1p2 = (command.getP1() & 0xFF) << 8 | command.getP2() & 0xFF;
+		if (p1p2 == 0x00AE) {
+			// Verificacion de certificado CV del controlador
+			return sw(SW_OK);
+		}
+		if (p1p2 != 0x9E9A) {
+			return sw(SW_WRONG_P1P2);
+		}
+		if (selectedUserKey == null) {
+			return sw(SW_CONDITIONS_NOT_SATISFIED);
+		}
+		if (!pinVerified || !secure) {
+			return sw(SW_SECURITY_STATUS_NOT_SATISFIED);
+		}
+		final Signature signature = Signature.getInstance("NONEwithRSA"); //$NON-NLS-1$
+		signature.initSign(selectedUserKey);
+		signature.update(command.getData());
+		signaturesSinceVerification++;
+		if (signaturesSinceVerification == signaturesPerPinVerification) {
+			pinVerified = false;
+		}
+		return ok(signature.sign());
+	}
+
+	/** Autenticaci&oacute;n interna: la tarjeta firma con su clave de componente
+	 * <code>6A || PRND1 || KICC || h(PRND1 || KICC || RND.IFD || CHR.IFD) || BC</code> y
+	 * cifra el m&iacute;nimo de la firma con la clave p&uacute;blica del controlador.
+	 * @param command Comando con el aleatorio y el CHR del controlador.
+	 * @return Respuesta a la autenticaci&oacute;n interna.
+	 * @throws GeneralSecurityException Si no est&aacute; disponible SHA-1. */
+	private byte[] internalAuthenticate(final Command command) throws GeneralSecurityException {
+		if (selectedIfdKey == null) {
+			return sw(SW_CONDITIONS_NOT_SATISFIED);
+		}
+		final byte[] data = command.getData();
+		if (data.length < 8) {
+			return sw(SW_WRONG_LENGTH);
+		}
+		randomIfd = Arrays.copyOf(data, 8);
+		final byte[] chrCCvIfd = Arrays.copyOfRange(data, 8, data.length);
+
+		final byte[] prnd1 = new byte[RSA_LENGTH - KICC_LENGTH - SHA1_LENGTH - 2];
+		random.nextBytes(prnd1);
+		kicc = new byte[KICC_LENGTH];
+		random.nextBytes(kicc);
+
+		final MessageDigest md = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		md.update(prnd1);
+		md.update(kicc);
+		md.update(randomIfd);
+		md.update(chrCCvIfd);
+		final byte[] msg = HexUtils.concatenateByteArrays(
+			new byte[] { ISO_9796_2_PADDING_START },
+			prnd1,
+			kicc,
+			md.digest(),
+			new byte[] { ISO_9796_2_PADDING_END }
+		);
+
+		final RSAPrivateCrtKey iccKey = contents.getIccPrivateKey();
+		final BigInteger sig = new BigInteger(1, msg).modPow(iccKey.getPrivateExponent(), iccKey.getModulus());
+		final BigInteger sigMin = sig.min(iccKey.getModulus().subtract(sig));
+		return ok(
+			toFixedLength(sigMin.modPow(selectedIfdKey.getPublicExponent(), selectedIfdKey.getModulus()))
+		);
+	}
+
+	/** Autenticaci&oacute;n externa: la tarjeta comprueba la firma del controlador sobre
+	 * <code>6A || PRND2 || KIFD || h(PRND2 || KIFD || RND.ICC || SN.ICC) || BC</code> y, si es
+	 * correcta, deriva las claves del nuevo canal seguro, que se usar&aacute; desde el siguiente comando.
+	 * @param command Comando con el criptograma de autenticaci&oacute;n externa.
+	 * @return Respuesta a la autenticaci&oacute;n externa.
+	 * @throws GeneralSecurityException Si no est&aacute; disponible SHA-1. */
+	private byte[] externalAuthenticate(final Command command) throws GeneralSecurityException {
+		if (selectedIfdKey == null || kicc == null || randomIcc == null) {
+			return sw(SW_COMMAND_INCOMPATIBLE);
+		}
+		final RSAPrivateCrtKey iccKey = contents.getIccPrivateKey();
+		final BigInteger sigMin = new BigInteger(1, command.getData()).modPow(
+			iccKey.getPrivateExponent(), iccKey.getModulus()
+		);
+		byte[] msg = toFixedLength(sigMin.modPow(selectedIfdKey.getPublicExponent(), selectedIfdKey.getModulus()));
+		if (msg[0] != ISO_9796_2_PADDING_START || msg[msg.length - 1] != ISO_9796_2_PADDING_END) {
+			msg = toFixedLength(
+				selectedIfdKey.getModulus().subtract(sigMin).modPow(
+					selectedIfdKey.getPublicExponent(), selectedIfdKey.getModulus()
+				)
+			);
+			if (msg[0] != ISO_9796_2_PADDING_START || msg[msg.length - 1] != ISO_9796_2_PADDING_END) {
+				return sw(SW_VERIFICATION_FAILED);
+			}
+		}
+		final int prnd2Length = RSA_LENGTH - KICC_LENGTH - SHA1_LENGTH - 2;
+		final byte[] prnd2 = Arrays.copyOfRange(msg, 1, 1 + prnd2Length);
+		final byte[] kifd = Arrays.copyOfRange(msg, 1 + prnd2Length, 1 + prnd2Length + KICC_LENGTH);
+		final byte[] hash = Arrays.copyOfRange(msg, msg.length - 1 - SHA1_LENGTH, msg.length - 1);
+
+		final MessageDigest md = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		md.update(prnd2);
+		md.update(kifd);
+		md.update(randomIcc);
+		md.update(new byte[] { 0x00 });
+		md.update(serial);
+		if (!MessageDigest.isEqual(hash, md.digest())) {
+			return sw(SW_VERIFICATION_FAILED);
+		}
+
+		final byte[] kifdicc = HexUtils.xor(kicc, kifd);
+		md.update(kifdicc);
+		md.update(new byte[] { 0x00, 0x00, 0x00, 0x01 });
+		final byte[] kenc = Arrays.copyOf(md.digest(), 16);
+		md.update(kifdicc);
+		md.update(new byte[] { 0x00, 0x00, 0x00, 0x02 });
+		final byte[] kmac = Arrays.copyOf(md.digest(), 16);
+		final byte[] ssc = HexUtils.concatenateByteArrays(
+			Arrays.copyOfRange(randomIcc, randomIcc.length - 4, randomIcc.length),
+			Arrays.copyOfRange(randomIfd, randomIfd.length - 4, randomIfd.length)
+		);
+
+		// El DNIe 3.0 usa CWA-14890 V2, con MAC de ocho octetos
+		pendingChannel = new EmulatedCwa14890Channel(kenc, kmac, ssc, dnie3 ? 8 : 4, cryptoHelper);
+		kicc = null;
+		randomIcc = null;
+		return sw(SW_OK);
+	}
+
+	private byte[] verify(final Command command, final boolean secure) {
+		if (!secure) {
+			return sw(SW_SECURITY_STATUS_NOT_SATISFIED);
+		}
+		if (pinRetries == 0) {
+			return sw(SW_AUTHENTICATION_METHOD_BLOCKED);
+		}
+		final byte[] data = command.getData();
+		if (data.length == 0) {
+			// Consulta de intentos restantes
+			return sw(0x63C0 | pinRetries);
+		}
+		if (MessageDigest.isEqual(pin, data)) {
+			pinRetries = PIN_RETRIES;
+			pinVerified = true;
+			signaturesSinceVerification = 0;
+			return sw(SW_OK);
+		}
+		pinRetries--;
+		pinVerified = false;
+		return sw(0x63C0 | pinRetries);
+	}
+
+	private static Map<Byte, byte[]> parseTlvs(final byte[] data) {
+		final Map<Byte, byte[]> ret = new HashMap<>();
+		final ByteArrayInputStream tlvs = new ByteArrayInputStream(data);
+		while (tlvs.available() > 0) {
+			final BerTlv tlv = BerTlv.createInstance(tlvs);
+			ret.put(Byte.valueOf(tlv.getTag()), tlv.getValue());
+		}
+		return ret;
+	}
+
+	/** Construye la respuesta a una selecci&oacute;n de fichero.
+	 * @param id Identificador del fichero.
+	 * @param length Longitud del fichero (cero para los DF).
+	 * @return Respuesta a la selecci&oacute;n. */
+	private static byte[] fci(final byte[] id, final int length) {
+		final byte[] fid = id.length == 2 ? id : new byte[] { (byte) 0x3F, (byte) 0x00 };
+		return new byte[] {
+			(byte) 0x6F, (byte) 0x08,
+			(byte) 0x81, (byte) 0x02, (byte) (length >> 8), (byte) length,
+			(byte) 0x83, (byte) 0x02, fid[0], fid[1],
+			(byte) 0x90, (byte) 0x00
+		};
+	}
+
+	private static byte[] toFixedLength(final BigInteger value) {
+		final byte[] raw = value.toByteArray();
+		if (raw.length == RSA_LENGTH) {
+			return raw;
+		}
+		final byte[] ret = new byte[RSA_LENGTH];
+		if (raw.length > RSA_LENGTH) {
+			System.arraycopy(raw, raw.length - RSA_LENGTH, ret, 0, RSA_LENGTH);
+		}
+		else {
+			System.arraycopy(raw, 0, ret, RSA_LENGTH - raw.length, raw.length);
+		}
+		return ret;
+	}
+
+	private static byte[] ok(final byte[] data) {
+		return HexUtils.concatenateByteArrays(data, sw(SW_OK));
+	}
+
+	private static byte[] sw(final int statusWord) {
+		return new byte[] { (byte) (statusWord >> 8), (byte) statusWord };
+	}
+
+	/** Comando APDU recibido por la tarjeta emulada.
+	 * No se usa <code>CommandApdu</code> porque la tarjeta necesita distinguir la ausencia
+	 * de Le de un Le de valor cero y admitir longitudes extendidas. */
+	static final class Command {
+
+		private final byte cla;
+		private final byte ins;
+		private final byte p1;
+		private final byte p2;
+		private final byte[] data;
+		private final int le;
+
+		/** Crea un comando APDU.
+		 * @param c Clase.
+		 * @param i Instrucci&oacute;n.
+		 * @param param1 Primer par&aacute;metro.
+		 * @param param2 Segundo par&aacute;metro.
+		 * @param d Datos (nunca nulos).
+		 * @param expectedLength Longitud esperada de respuesta (ya decodificada)
+		 *                       o <code>-1</code> si el comando no tiene Le. */
+		Command(final byte c, final byte i, final byte param1, final byte param2, final byte[] d, final int expectedLength) {
+			cla = c;
+			ins = i;
+			p1 = param1;
+			p2 = param2;
+			data = d.clone();
+			le = expectedLength;
+		}
+
+		/** Analiza una APDU de comando, corta o extendida.
+		 * @param apdu APDU codificada.
+		 * @return Comando o <code>null</code> si la APDU no est&aacute; bien formada. */
+		static Command parse(final byte[] apdu) {
+			if (apdu.length < 4) {
+				return null;
+			}
+			if (apdu.length == 4) {
+				return new Command(apdu[0], apdu[1], apdu[2], apdu[3], new byte[0], -1);
+			}
+			final int b4 = apdu[4] & 0xFF;
+			if (apdu.length == 5) {
+				return new Command(apdu[0], apdu[1], apdu[2], apdu[3], new byte[0], b4 == 0 ? 0x100 : b4);
+			}
+			if (b4 != 0) {
+				if (apdu.length == 5 + b4) {
+					return new Command(apdu[0], apdu[1], apdu[2], apdu[3], Arrays.copyOfRange(apdu, 5, 5 + b4), -1);
+				}
+				if (apdu.length == 6 + b4) {
+					final int le = apdu[5 + b4] & 0xFF;
+					return new Command(apdu[0], apdu[1], apdu[2], apdu[3], Arrays.copyOfRange(apdu, 5, 5 + b4), le == 0 ? 0x100 : le);
+				}
+				return null;
+			}
+			if (apdu.length < 7) {
+				return null;
+			}
+			final int ext = (apdu[5] & 0xFF) << 8 | apdu[6] & 0xFF;
+			if (apdu.length == 7) {
+				return new Command(apdu[0], apdu[1], apdu[2], apdu[3], new byte[0], ext == 0 ? 0x10000 : ext);
+			}
+			if (apdu.length == 7 + ext) {
+				return new Command(apdu[0], apdu[1], apdu[2], apdu[3], Arrays.copyOfRange(apdu, 7, 7 + ext), -1);
+			}
+			if (apdu.length == 9 + ext) {
+				final int le = (apdu[7 + ext] & 0xFF) << 8 | apdu[8 + ext] & 0xFF;
+				return new Command(apdu[0], apdu[1], apdu[2], apdu[3], Arrays.copyOfRange(apdu, 7, 7 + ext), le == 0 ? 0x10000 : le);
+			}
+			return null;
+		}
+
+		byte getCla() {
+			return cla;
+		}
+
+		byte getIns() {
+			return ins;
+		}
+
+		byte getP1() {
+			return p1;
+		}
+
+		byte getP2() {
+			return p2;
+		}
+
+		byte[] getData() {
+			return data.clone();
+		}
+
+		/** Obtiene la longitud esperada de respuesta.
+		 * @return Longitud esperada de respuesta o <code>-1</code> si el comando no tiene Le. */
+		int getLe() {
+			return le;
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package es.gob.jmulticard.card.dnie;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import org.bouncycastle.asn1.ASN1Boolean;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.util.encoders.Hex;
+
+import es.gob.jmulticard.HexUtils;
+
+/** Contenido (ficheros y claves) de un DNIe emulado.
+ * Las claves y certificados se generan una &uacute;nica vez por m&aacute;quina virtual, ya que
+ * su generaci&oacute;n es costosa, y son compartidos por todas las tarjetas emuladas. Lo que
+ * diferencia a cada tarjeta es su n&uacute;mero de serie.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class EmulatedDnieContents {
+
+	/** Alias del certificado de autenticaci&oacute;n. */
+	static final String AUTH_CERT_ALIAS = "CertAutenticacion"; //$NON-NLS-1$
+
+	/** Alias del certificado de firma. */
+	static final String SIGN_CERT_ALIAS = "CertFirmaDigital"; //$NON-NLS-1$
+
+	/** Alias del certificado de la CA intermedia. */
+	static final String INTERMEDIATE_CERT_ALIAS = "CertCAIntermediaDGP"; //$NON-NLS-1$
+
+	private static final String SIGNATURE_ALGORITHM = "SHA256withRSA"; //$NON-NLS-1$
+
+	/** IDESP (n&uacute;mero de soporte) de los DNIe 3&#46;0 emulados. */
+	private static final String IDESP = "BMP123456"; //$NON-NLS-1$
+
+	/** Contenido compartido por todas las tarjetas emuladas. */
+	private static EmulatedDnieContents instance = null;
+
+	/** Ficheros de la tarjeta por ruta absoluta (en hexadecimal). */
+	private final Map<String, byte[]> files = new HashMap<>();
+
+	/** Rutas absolutas (en hexadecimal) de los DF de la tarjeta. */
+	private final Set<String> dedicatedFiles = new HashSet<>();
+
+	/** Claves privadas de usuario por identificador de su fichero (en hexadecimal). */
+	private final Map<String, PrivateKey> userKeys = new HashMap<>();
+
+	/** Certificados de usuario por alias. */
+	private final Map<String, X509Certificate> certificates = new LinkedHashMap<>();
+
+	/** Clave privada del certificado de componente. */
+	private final RSAPrivateCrtKey iccPrivateKey;
+
+	/** Obtiene el contenido compartido por todas las tarjetas emuladas.
+	 * @return Contenido de los DNIe emulados. */
+	static synchronized EmulatedDnieContents getInstance() {
+		if (instance == null) {
+			try {
+				instance = new EmulatedDnieContents();
+			}
+			catch (final GeneralSecurityException | IOException | OperatorCreationException e) {
+				throw new IllegalStateException("No se ha podido generar el contenido del DNIe emulado", e); //$NON-NLS-1$
+			}
+		}
+		return instance;
+	}
+
+	private EmulatedDnieContents() throws GeneralSecurityException, IOException, OperatorCreationException {
+
+		final SecureRandom random = new SecureRandom();
+		final KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA"); //$NON-NLS-1$
+		kpg.initialize(2048, random);
+
+		final KeyPair rootKeyPair = kpg.generateKeyPair();
+		final X500Name rootName = new X500Name("CN=AC RAIZ DNIE EMULADA, OU=DNIE, O=DIRECCION GENERAL DE LA POLICIA, C=ES"); //$NON-NLS-1$
+		final KeyPair intermediateKeyPair = kpg.generateKeyPair();
+		final X500Name intermediateName = new X500Name("CN=AC DNIE EMULADA 001, OU=DNIE, O=DIRECCION GENERAL DE LA POLICIA, C=ES"); //$NON-NLS-1$
+		final X509Certificate intermediateCert = createCertificate(
+			intermediateName, intermediateKeyPair, rootName, rootKeyPair.getPrivate(), true, random
+		);
+
+		final KeyPair authKeyPair = kpg.generateKeyPair();
+		final X509Certificate authCert = createCertificate(
+			new X500Name("CN=ESPECIMEN EMULADO (AUTENTICACION), SERIALNUMBER=99999999R, C=ES"), //$NON-NLS-1$
+			authKeyPair,
+			intermediateName,
+			intermediateKeyPair.getPrivate(),
+			false,
+			random
+		);
+		final KeyPair signKeyPair = kpg.generateKeyPair();
+		final X509Certificate signCert = createCertificate(
+			new X500Name("CN=ESPECIMEN EMULADO (FIRMA), SERIALNUMBER=99999999R, C=ES"), //$NON-NLS-1$
+			signKeyPair,
+			intermediateName,
+			intermediateKeyPair.getPrivate(),
+			false,
+			random
+		);
+
+		// El certificado de componente es RSA-1024, como el del controlador
+		kpg.initialize(1024, random);
+		final KeyPair iccKeyPair = kpg.generateKeyPair();
+		final X500Name iccName = new X500Name("CN=COMPONENTE DNIE EMULADO, C=ES"); //$NON-NLS-1$
+		final X509Certificate iccCert = createCertificate(
+			iccName, iccKeyPair, iccName, iccKeyPair.getPrivate(), false, random
+		);
+		iccPrivateKey = (RSAPrivateCrtKey) iccKeyPair.getPrivate();
+
+		dedicatedFiles.add("3F00"); //$NON-NLS-1$
+		dedicatedFiles.add("3F005015"); //$NON-NLS-1$
+		dedicatedFiles.add("3F006061"); //$NON-NLS-1$
+
+		files.put("3F00601F", iccCert.getEncoded()); //$NON-NLS-1$
+		files.put("3F000006", IDESP.getBytes()); //$NON-NLS-1$
+		files.put("3F0060617001", compress(authCert.getEncoded())); //$NON-NLS-1$
+		files.put("3F0060617002", compress(signCert.getEncoded())); //$NON-NLS-1$
+		files.put("3F0060617004", compress(intermediateCert.getEncoded())); //$NON-NLS-1$
+
+		final byte[] authId = MessageDigest.getInstance("SHA-1").digest(authKeyPair.getPublic().getEncoded()); //$NON-NLS-1$
+		final byte[] signId = MessageDigest.getInstance("SHA-1").digest(signKeyPair.getPublic().getEncoded()); //$NON-NLS-1$
+		final byte[] intermediateId = MessageDigest.getInstance("SHA-1").digest(intermediateKeyPair.getPublic().getEncoded()); //$NON-NLS-1$
+
+		final ByteArrayOutputStream cdf = new ByteArrayOutputStream();
+		cdf.write(createCertificateObject(AUTH_CERT_ALIAS, authId, "60617001", authCert)); //$NON-NLS-1$
+		cdf.write(createCertificateObject(SIGN_CERT_ALIAS, signId, "60617002", signCert)); //$NON-NLS-1$
+		cdf.write(createCertificateObject(INTERMEDIATE_CERT_ALIAS, intermediateId, "60617004", intermediateCert)); //$NON-NLS-1$
+		files.put("3F0050156004", cdf.toByteArray()); //$NON-NLS-1$
+
+		final ByteArrayOutputStream prkdf = new ByteArrayOutputStream();
+		prkdf.write(createPrivateKeyObject("KprivAutenticacion", authId, "3F110101", 1)); //$NON-NLS-1$ //$NON-NLS-2$
+		prkdf.write(createPrivateKeyObject("KprivFirmaDigital", signId, "3F110102", 2)); //$NON-NLS-1$ //$NON-NLS-2$
+		files.put("3F0050156001", prkdf.toByteArray()); //$NON-NLS-1$
+
+		userKeys.put("0101", authKeyPair.getPrivate()); //$NON-NLS-1$
+		userKeys.put("0102", signKeyPair.getPrivate()); //$NON-NLS-1$
+
+		certificates.put(AUTH_CERT_ALIAS, authCert);
+		certificates.put(SIGN_CERT_ALIAS, signCert);
+		certificates.put(INTERMEDIATE_CERT_ALIAS, intermediateCert);
+	}
+
+	/** Obtiene el contenido de un fichero elemental.
+	 * @param path Ruta absoluta del fichero (en hexadecimal y may&uacute;sculas).
+	 * @param withIdesp Si la tarjeta tiene fichero de IDESP (DNIe 3&#46;0).
+	 * @return Contenido del fichero o <code>null</code> si no existe. */
+	byte[] getFile(final String path, final boolean withIdesp) {
+		if (!withIdesp && "3F000006".equals(path)) { //$NON-NLS-1$
+			return null;
+		}
+		return files.get(path);
+	}
+
+	/** Indica si una ruta corresponde a un DF de la tarjeta.
+	 * @param path Ruta absoluta (en hexadecimal y may&uacute;sculas).
+	 * @return <code>true</code> si la ruta es de un DF, <code>false</code> en caso contrario. */
+	boolean isDedicatedFile(final String path) {
+		return dedicatedFiles.contains(path);
+	}
+
+	/** Obtiene una clave privada de usuario.
+	 * @param keyFileId Identificador del fichero de la clave (en hexadecimal y may&uacute;sculas).
+	 * @return Clave privada o <code>null</code> si no existe. */
+	PrivateKey getUserKey(final String keyFileId) {
+		return userKeys.get(keyFileId);
+	}
+
+	/** Obtiene los certificados de la tarjeta por alias.
+	 * @return Certificados de la tarjeta. */
+	Map<String, X509Certificate> getCertificates() {
+		return Collections.unmodifiableMap(certificates);
+	}
+
+	/** Obtiene la clave privada del certificado de componente.
+	 * @return Clave privada del certificado de componente. */
+	RSAPrivateCrtKey getIccPrivateKey() {
+		return iccPrivateKey;
+	}
+
+	/** Crea un certificado X&#46;509 v3 firmado con SHA256withRSA y v&aacute;lido desde ayer y durante un a&ntilde;o.
+	 * @param subject Titular del certificado.
+	 * @param subjectKeyPair Claves del titular.
+	 * @param issuer Emisor del certificado.
+	 * @param issuerKey Clave privada del emisor.
+	 * @param ca Si el certificado es de una CA.
+	 * @param random Generador de aleatorios para el n&uacute;mero de serie.
+	 * @return Certificado.
+	 * @throws IOException Si hay problemas codificando las extensiones.
+	 * @throws OperatorCreationException Si no se puede crear el firmador.
+	 * @throws GeneralSecurityException Si no se puede generar el certificado. */
+	static X509Certificate createCertificate(final X500Name subject,
+			                                         final KeyPair subjectKeyPair,
+			                                         final X500Name issuer,
+			                                         final PrivateKey issuerKey,
+			                                         final boolean ca,
+			                                         final SecureRandom random) throws IOException,
+	                                                                                   OperatorCreationException,
+	                                                                                   GeneralSecurityException {
+		final long now = System.currentTimeMillis();
+		final X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+			issuer,
+			new BigInteger(64, random),
+			new Date(now - 86_400_000L),
+			new Date(now + 365L * 86_400_000L),
+			subject,
+			subjectKeyPair.getPublic()
+		);
+		if (ca) {
+			builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(0));
+		}
+		return new JcaX509CertificateConverter().getCertificate(
+			builder.build(new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(issuerKey))
+		);
+	}
+
+	/** Comprime un certificado como lo hace el DNIe: longitud descomprimida y longitud
+	 * comprimida (cuatro octetos cada una, <i>little endian</i>) seguidas de los datos en ZLIB.
+	 * @param data Certificado.
+	 * @return Certificado comprimido. */
+	private static byte[] compress(final byte[] data) {
+		final Deflater deflater = new Deflater();
+		deflater.setInput(data);
+		deflater.finish();
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		final byte[] buf = new byte[1024];
+		while (!deflater.finished()) {
+			compressed.write(buf, 0, deflater.deflate(buf));
+		}
+		deflater.end();
+		final byte[] zlib = compressed.toByteArray();
+		return HexUtils.concatenateByteArrays(littleEndian(data.length), littleEndian(zlib.length), zlib);
+	}
+
+	private static byte[] littleEndian(final int value) {
+		return new byte[] {
+			(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)
+		};
+	}
+
+	/** Crea la ruta PKCS#15 de un fichero de la tarjeta.
+	 * @param path Ruta en hexadecimal.
+	 * @param length Longitud del fichero.
+	 * @return Ruta PKCS#15. */
+	private static ASN1Encodable createPath(final String path, final int length) {
+		return new DERSequence(new ASN1Encodable[] {
+			new DEROctetString(Hex.decode(path)),
+			new ASN1Integer(0),
+			new DERTaggedObject(false, 0, new ASN1Integer(length))
+		});
+	}
+
+	private static byte[] createCertificateObject(final String label,
+			                                      final byte[] id,
+			                                      final String path,
+			                                      final X509Certificate cert) throws IOException,
+	                                                                                 GeneralSecurityException {
+		return new DERSequence(new ASN1Encodable[] {
+			new DERSequence(new ASN1Encodable[] {
+				new DERUTF8String(label),
+				new DERBitString(new byte[] { (byte) 0x40 }, 6)
+			}),
+			new DERSequence(new DEROctetString(id)),
+			new DERTaggedObject(true, 1, new DERSequence(new ASN1Encodable[] {
+				createPath(path, compress(cert.getEncoded()).length),
+				X500Name.getInstance(cert.getSubjectX500Principal().getEncoded()),
+				new DERTaggedObject(true, 0, X500Name.getInstance(cert.getIssuerX500Principal().getEncoded())),
+				new ASN1Integer(cert.getSerialNumber())
+			}))
+		}).getEncoded();
+	}
+
+	private static byte[] createPrivateKeyObject(final String label,
+			                                     final byte[] id,
+			                                     final String path,
+			                                     final int reference) throws IOException {
+		return new DERSequence(new ASN1Encodable[] {
+			new DERSequence(new ASN1Encodable[] {
+				new DERUTF8String(label),
+				new DERBitString(new byte[] { (byte) 0xC0 }, 6)
+			}),
+			new DERSequence(new ASN1Encodable[] {
+				new DEROctetString(id),
+				new DERBitString(new byte[] { (byte) 0x20, (byte) 0x00 }, 6),
+				ASN1Boolean.TRUE,
+				new DERBitString(new byte[] { (byte) 0xB8 }, 3),
+				new ASN1Integer(reference)
+			}),
+			new DERTaggedObject(true, 1, new DERSequence(new ASN1Encodable[] {
+				createPath(path, 0x0203),
+				new ASN1Integer(2048)
+			}))
+		}).getEncoded();
+	}
+}
@@ -0,0 +1,428 @@
+package es.gob.jmulticard.card.dnie;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Certificate;
+import org.bouncycastle.operator.OperatorCreationException;
+
+import es.gob.jmulticard.HexUtils;
+
+/** Contenido LDS1 (ICAO 9303) de un DNIe 3&#46;0 emulado: EF&#46;CardAccess, EF&#46;COM, EF&#46;SOD y
+ * los grupos de datos que un DNIe 3&#46;0 permite leer con el canal de usuario (DG1, DG2, DG7,
+ * DG11, DG12, DG13 y DG14).
+ * El EF&#46;SOD est&aacute; firmado por un certificado de firma de documentos (DS) emitido por una
+ * CSCA de pruebas, ambos generados al vuelo, y contiene las huellas SHA-256 de todos los grupos
+ * de datos, de forma que <code>Dnie3.checkSecurityObjects()</code> puede validarlo por completo.
+ * Como en <code>EmulatedDnieContents</code>, el contenido se genera una &uacute;nica vez por
+ * m&aacute;quina virtual.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class EmulatedLds1Contents {
+
+	/** Ruta absoluta del DF de la aplicaci&oacute;n LDS1. */
+	private static final String LDS1_DF = "3F003F01"; //$NON-NLS-1$
+
+	/** Ruta absoluta del EF&#46;CardAccess. */
+	private static final String CARD_ACCESS = "3F00011C"; //$NON-NLS-1$
+
+	private static final String ID_PACE_ECDH_GM_AES_CBC_CMAC_128 = "0.4.0.127.0.7.2.2.4.2.2"; //$NON-NLS-1$
+	private static final String ID_LDS_SECURITY_OBJECT = "2.23.136.1.1.1"; //$NON-NLS-1$
+	private static final String ID_SIGNED_DATA = "1.2.840.113549.1.7.2"; //$NON-NLS-1$
+	private static final String ID_CONTENT_TYPE = "1.2.840.113549.1.9.3"; //$NON-NLS-1$
+	private static final String ID_MESSAGE_DIGEST = "1.2.840.113549.1.9.4"; //$NON-NLS-1$
+	private static final String ID_SHA256 = "2.16.840.1.101.3.4.2.1"; //$NON-NLS-1$
+	private static final String ID_SHA256_WITH_RSA = "1.2.840.113549.1.1.11"; //$NON-NLS-1$
+
+	/** Identificador de los par&aacute;metros de dominio est&aacute;ndar <i>brainpoolP256r1</i>. */
+	private static final int BRAINPOOL_P256R1 = 13;
+
+	/** Cabecera de un fichero JPEG2000. */
+	private static final byte[] JPEG2000_HEADER = {
+		(byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x0C, (byte) 0x6A, (byte) 0x50,
+		(byte) 0x20, (byte) 0x20, (byte) 0x0D, (byte) 0x0A, (byte) 0x87, (byte) 0x0A
+	};
+
+	/** Tama&ntilde;o aproximado de la foto del DG2, similar al de un DNIe real. */
+	private static final int FACE_IMAGE_LENGTH = 15_000;
+
+	/** Tama&ntilde;o aproximado de la imagen de la firma manuscrita del DG7. */
+	private static final int SIGNATURE_IMAGE_LENGTH = 4_000;
+
+	private static final String DOCUMENT_NUMBER = "BAA000589"; //$NON-NLS-1$
+	private static final String DATE_OF_BIRTH = "800101"; //$NON-NLS-1$
+	private static final String DATE_OF_EXPIRY = "310101"; //$NON-NLS-1$
+
+	/** Contenido compartido por todas las tarjetas emuladas. */
+	private static EmulatedLds1Contents instance = null;
+
+	/** Ficheros por ruta absoluta (en hexadecimal). */
+	private final Map<String, byte[]> files = new HashMap<>();
+
+	/** MRZ impresa en el documento (sin saltos de l&iacute;nea). */
+	private final String mrz;
+
+	/** Certificado de firma de documentos (DS) del EF&#46;SOD. */
+	private final X509Certificate documentSignerCertificate;
+
+	/** Obtiene el contenido LDS1 compartido por todas las tarjetas emuladas.
+	 * @return Contenido LDS1 de los DNIe emulados. */
+	static synchronized EmulatedLds1Contents getInstance() {
+		if (instance == null) {
+			try {
+				instance = new EmulatedLds1Contents();
+			}
+			catch (final GeneralSecurityException | IOException | OperatorCreationException e) {
+				throw new IllegalStateException("No se ha podido generar el contenido LDS1 emulado", e); //$NON-NLS-1$
+			}
+		}
+		return instance;
+	}
+
+	private EmulatedLds1Contents() throws GeneralSecurityException, IOException, OperatorCreationException {
+
+		final SecureRandom random = new SecureRandom();
+
+		// MRZ TD1 de tres lineas de 30 caracteres
+		final String line1 = "IDESP" + DOCUMENT_NUMBER + checkDigit(DOCUMENT_NUMBER) + "99999999R<<<<<<"; //$NON-NLS-1$ //$NON-NLS-2$
+		final String line2WithoutCheck = DATE_OF_BIRTH + checkDigit(DATE_OF_BIRTH) + 'F' +
+			DATE_OF_EXPIRY + checkDigit(DATE_OF_EXPIRY) + "ESP<<<<<<<<<<<"; //$NON-NLS-1$
+		final String line2 = line2WithoutCheck + checkDigit(
+			line1.substring(5) + line2WithoutCheck.substring(0, 7) +
+				line2WithoutCheck.substring(8, 15) + line2WithoutCheck.substring(18, 29)
+		);
+		final String line3 = "ESPANOLA<ESPANOLA<<CARMEN<<<<<"; //$NON-NLS-1$
+		mrz = line1 + line2 + line3;
+
+		final Map<Integer, byte[]> dataGroups = new HashMap<>();
+		dataGroups.put(Integer.valueOf(1), tlv(0x61, tlv(0x5F1F, mrz.getBytes(StandardCharsets.US_ASCII))));
+		dataGroups.put(
+			Integer.valueOf(2),
+			tlv(0x75, tlv(0x7F61, HexUtils.concatenateByteArrays(
+				tlv(0x02, new byte[] { 0x01 }),
+				tlv(0x7F60, HexUtils.concatenateByteArrays(
+					tlv(0xA1, tlv(0x80, new byte[] { 0x01, 0x01 })),
+					tlv(0x5F2E, createImage(FACE_IMAGE_LENGTH, random))
+				))
+			)))
+		);
+		dataGroups.put(
+			Integer.valueOf(7),
+			tlv(0x67, HexUtils.concatenateByteArrays(
+				tlv(0x02, new byte[] { 0x01 }),
+				tlv(0x5F43, createImage(SIGNATURE_IMAGE_LENGTH, random))
+			))
+		);
+		dataGroups.put(
+			Integer.valueOf(11),
+			tlv(0x6B, HexUtils.concatenateByteArrays(
+				tlv(0x5C, new byte[] { (byte) 0x5F, (byte) 0x0E, (byte) 0x5F, (byte) 0x10, (byte) 0x5F, (byte) 0x11 }),
+				tlv(0x5F0E, "ESPANOLA ESPANOLA<<CARMEN".getBytes(StandardCharsets.UTF_8)), //$NON-NLS-1$
+				tlv(0x5F10, "99999999R".getBytes(StandardCharsets.UTF_8)), //$NON-NLS-1$
+				tlv(0x5F11, "MADRID<MADRID".getBytes(StandardCharsets.UTF_8)) //$NON-NLS-1$
+			))
+		);
+		dataGroups.put(
+			Integer.valueOf(12),
+			tlv(0x6C, HexUtils.concatenateByteArrays(
+				tlv(0x5C, new byte[] { (byte) 0x5F, (byte) 0x19, (byte) 0x5F, (byte) 0x26 }),
+				tlv(0x5F19, "DIRECCION GENERAL DE LA POLICIA".getBytes(StandardCharsets.UTF_8)), //$NON-NLS-1$
+				tlv(0x5F26, "20210101".getBytes(StandardCharsets.UTF_8)) //$NON-NLS-1$
+			))
+		);
+		dataGroups.put(Integer.valueOf(13), tlv(0x6D, createOptionalDetails()));
+		dataGroups.put(Integer.valueOf(14), tlv(0x6E, createPaceInfos()));
+
+		// Los DG estan en el DF LDS1 con identificadores 01xx
+		for (final Map.Entry<Integer, byte[]> dg : dataGroups.entrySet()) {
+			files.put(
+				LDS1_DF + HexUtils.hexify(new byte[] { 0x01, dg.getKey().byteValue() }, false),
+				dg.getValue()
+			);
+		}
+
+		files.put(
+			LDS1_DF + "011E", //$NON-NLS-1$
+			tlv(0x60, HexUtils.concatenateByteArrays(
+				tlv(0x5F01, "0107".getBytes(StandardCharsets.US_ASCII)), //$NON-NLS-1$
+				tlv(0x5F36, "040000".getBytes(StandardCharsets.US_ASCII)), //$NON-NLS-1$
+				tlv(0x5C, new byte[] { 0x61, 0x75, 0x67, 0x6B, 0x6C, 0x6D, 0x6E })
+			))
+		);
+		files.put(CARD_ACCESS, createPaceInfos());
+
+		// Cadena CSCA -> DS para la firma del SOD
+		final KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA"); //$NON-NLS-1$
+		kpg.initialize(2048, random);
+		final KeyPair cscaKeyPair = kpg.generateKeyPair();
+		final X500Name cscaName = new X500Name("CN=CSCA EMULADA, O=DIRECCION GENERAL DE LA POLICIA, C=ES"); //$NON-NLS-1$
+		final KeyPair dsKeyPair = kpg.generateKeyPair();
+		documentSignerCertificate = EmulatedDnieContents.createCertificate(
+			new X500Name("CN=DS EMULADO, O=DIRECCION GENERAL DE LA POLICIA, C=ES"), //$NON-NLS-1$
+			dsKeyPair,
+			cscaName,
+			cscaKeyPair.getPrivate(),
+			false,
+			random
+		);
+
+		files.put(
+			LDS1_DF + "011D", //$NON-NLS-1$
+			tlv(0x77, createSignedData(createLdsSecurityObject(dataGroups), dsKeyPair))
+		);
+	}
+
+	/** Obtiene el contenido de un fichero elemental LDS1.
+	 * @param path Ruta absoluta del fichero (en hexadecimal y may&uacute;sculas).
+	 * @return Contenido del fichero o <code>null</code> si no existe. */
+	byte[] getFile(final String path) {
+		return files.get(path);
+	}
+
+	/** Indica si una ruta corresponde al DF de la aplicaci&oacute;n LDS1.
+	 * @param path Ruta absoluta (en hexadecimal y may&uacute;sculas).
+	 * @return <code>true</code> si la ruta es la del DF LDS1, <code>false</code> en caso contrario. */
+	static boolean isDedicatedFile(final String path) {
+		return LDS1_DF.equals(path);
+	}
+
+	/** Indica si una ruta corresponde a un fichero LDS1.
+	 * @param path Ruta absoluta (en hexadecimal y may&uacute;sculas).
+	 * @return <code>true</code> si la ruta es la de un fichero LDS1, <code>false</code> en caso contrario. */
+	static boolean isLds1File(final String path) {
+		return CARD_ACCESS.equals(path) || path.startsWith(LDS1_DF) && !LDS1_DF.equals(path);
+	}
+
+	/** Indica si una ruta corresponde al EF&#46;CardAccess.
+	 * @param path Ruta absoluta (en hexadecimal y may&uacute;sculas).
+	 * @return <code>true</code> si la ruta es la del EF&#46;CardAccess, <code>false</code> en caso contrario. */
+	static boolean isCardAccess(final String path) {
+		return CARD_ACCESS.equals(path);
+	}
+
+	/** Indica si un fichero puede leerse sin canal seguro.
+	 * @param path Ruta absoluta del fichero (en hexadecimal y may&uacute;sculas).
+	 * @return <code>true</code> si el fichero es de libre lectura (el EF&#46;CardAccess). */
+	static boolean isPublicFile(final String path) {
+		return CARD_ACCESS.equals(path);
+	}
+
+	/** Obtiene la MRZ impresa del documento.
+	 * @return MRZ (sus tres l&iacute;neas concatenadas). */
+	String getMrz() {
+		return mrz;
+	}
+
+	/** Obtiene la contrase&ntilde;a PACE derivada de la MRZ: la huella SHA-1 del n&uacute;mero de
+	 * documento, la fecha de nacimiento y la de caducidad, cada uno con su d&iacute;gito de control.
+	 * @return Contrase&ntilde;a PACE derivada de la MRZ.
+	 * @throws GeneralSecurityException Si no est&aacute; disponible SHA-1. */
+	static byte[] getMrzPacePassword() throws GeneralSecurityException {
+		return MessageDigest.getInstance("SHA-1").digest( //$NON-NLS-1$
+			(
+				DOCUMENT_NUMBER + checkDigit(DOCUMENT_NUMBER) +
+				DATE_OF_BIRTH + checkDigit(DATE_OF_BIRTH) +
+				DATE_OF_EXPIRY + checkDigit(DATE_OF_EXPIRY)
+			).getBytes(StandardCharsets.US_ASCII)
+		);
+	}
+
+	/** Obtiene el certificado de firma de documentos (DS) con el que est&aacute; firmado el EF&#46;SOD.
+	 * @return Certificado DS. */
+	X509Certificate getDocumentSignerCertificate() {
+		return documentSignerCertificate;
+	}
+
+	/** Crea un <code>SecurityInfos</code> con un &uacute;nico <code>PACEInfo</code> para
+	 * <code>id-PACE-ECDH-GM-AES-CBC-CMAC-128</code> sobre <i>brainpoolP256r1</i>.
+	 * @return <code>SecurityInfos</code> codificado.
+	 * @throws IOException Si hay problemas en la codificaci&oacute;n. */
+	private static byte[] createPaceInfos() throws IOException {
+		return new DERSet(
+			new DERSequence(new ASN1Encodable[] {
+				new ASN1ObjectIdentifier(ID_PACE_ECDH_GM_AES_CBC_CMAC_128),
+				new ASN1Integer(2),
+				new ASN1Integer(BRAINPOOL_P256R1)
+			})
+		).getEncoded();
+	}
+
+	/** Crea el contenido del DG13 de DNIe: campos de texto separados por pares de caracteres de control.
+	 * @return Contenido del DG13. */
+	private static byte[] createOptionalDetails() {
+		final String[] fields = {
+			"ESPANOLA", "ESPANOLA", "CARMEN", "99999999R", "01 01 1980", "ESP", "01 01 2031", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+			DOCUMENT_NUMBER, "F", "MADRID", "MADRID", "JUAN / MARIA", "CALLE FICTICIA 1", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			"MADRID", "MADRID", "ESPANA" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		};
+		final StringBuilder sb = new StringBuilder();
+		for (final String field : fields) {
+			sb.append("\u0001\u0002"); //$NON-NLS-1$
+			sb.append(field);
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/** Crea el <code>LDSSecurityObject</code> con las huellas SHA-256 de los grupos de datos.
+	 * El identificador del algoritmo de huella no lleva par&aacute;metros.
+	 * @param dataGroups Grupos de datos por n&uacute;mero.
+	 * @return <code>LDSSecurityObject</code> codificado.
+	 * @throws IOException Si hay problemas en la codificaci&oacute;n.
+	 * @throws GeneralSecurityException Si no est&aacute; disponible SHA-256. */
+	private static byte[] createLdsSecurityObject(final Map<Integer, byte[]> dataGroups) throws IOException,
+	                                                                                           GeneralSecurityException {
+		final ASN1Encodable[] hashes = new ASN1Encodable[dataGroups.size()];
+		int i = 0;
+		for (final Map.Entry<Integer, byte[]> dg : dataGroups.entrySet()) {
+			hashes[i++] = new DERSequence(new ASN1Encodable[] {
+				new ASN1Integer(dg.getKey().intValue()),
+				new DEROctetString(MessageDigest.getInstance("SHA-256").digest(dg.getValue())) //$NON-NLS-1$
+			});
+		}
+		return new DERSequence(new ASN1Encodable[] {
+			new ASN1Integer(0),
+			new DERSequence(new ASN1ObjectIdentifier(ID_SHA256)),
+			new DERSequence(hashes)
+		}).getEncoded();
+	}
+
+	/** Crea el <code>ContentInfo</code> CMS <code>SignedData</code> del EF&#46;SOD, con atributos
+	 * firmados <code>contentType</code> y <code>messageDigest</code> y firma SHA256withRSA.
+	 * @param ldsSecurityObject <code>LDSSecurityObject</code> a firmar.
+	 * @param dsKeyPair Claves del certificado DS.
+	 * @return <code>ContentInfo</code> codificado.
+	 * @throws IOException Si hay problemas en la codificaci&oacute;n.
+	 * @throws GeneralSecurityException Si hay problemas en la firma. */
+	private byte[] createSignedData(final byte[] ldsSecurityObject,
+			                        final KeyPair dsKeyPair) throws IOException,
+	                                                                GeneralSecurityException {
+
+		final DERSequence digestAlgorithm = new DERSequence(new ASN1Encodable[] {
+			new ASN1ObjectIdentifier(ID_SHA256),
+			DERNull.INSTANCE
+		});
+
+		final DERSet signedAttributes = new DERSet(new ASN1Encodable[] {
+			new DERSequence(new ASN1Encodable[] {
+				new ASN1ObjectIdentifier(ID_CONTENT_TYPE),
+				new DERSet(new ASN1ObjectIdentifier(ID_LDS_SECURITY_OBJECT))
+			}),
+			new DERSequence(new ASN1Encodable[] {
+				new ASN1ObjectIdentifier(ID_MESSAGE_DIGEST),
+				new DERSet(new DEROctetString(MessageDigest.getInstance("SHA-256").digest(ldsSecurityObject))) //$NON-NLS-1$
+			})
+		});
+
+		final Signature signature = Signature.getInstance("SHA256withRSA"); //$NON-NLS-1$
+		signature.initSign(dsKeyPair.getPrivate());
+		signature.update(signedAttributes.getEncoded());
+
+		final DERSequence signerInfo = new DERSequence(new ASN1Encodable[] {
+			new ASN1Integer(1),
+			new DERSequence(new ASN1Encodable[] {
+				X500Name.getInstance(documentSignerCertificate.getIssuerX500Principal().getEncoded()),
+				new ASN1Integer(documentSignerCertificate.getSerialNumber())
+			}),
+			digestAlgorithm,
+			new DERTaggedObject(false, 0, signedAttributes),
+			new DERSequence(new ASN1Encodable[] {
+				new ASN1ObjectIdentifier(ID_SHA256_WITH_RSA),
+				DERNull.INSTANCE
+			}),
+			new DEROctetString(signature.sign())
+		});
+
+		final DERSequence signedData = new DERSequence(new ASN1Encodable[] {
+			new ASN1Integer(3),
+			new DERSet(digestAlgorithm),
+			new DERSequence(new ASN1Encodable[] {
+				new ASN1ObjectIdentifier(ID_LDS_SECURITY_OBJECT),
+				new DERTaggedObject(true, 0, new DEROctetString(ldsSecurityObject))
+			}),
+			new DERTaggedObject(false, 0, new DERSet(Certificate.getInstance(documentSignerCertificate.getEncoded()))),
+			new DERSet(signerInfo)
+		});
+
+		return new DERSequence(new ASN1Encodable[] {
+			new ASN1ObjectIdentifier(ID_SIGNED_DATA),
+			new DERTaggedObject(true, 0, signedData)
+		}).getEncoded();
+	}
+
+	/** Crea una imagen sint&eacute;tica: una cabecera JPEG2000 seguida de octetos aleatorios.
+	 * @param length Longitud de la imagen.
+	 * @param random Generador de aleatorios.
+	 * @return Imagen sint&eacute;tica. */
+	private static byte[] createImage(final int length, final SecureRandom random) {
+		final byte[] body = new byte[length - JPEG2000_HEADER.length];
+		random.nextBytes(body);
+		return HexUtils.concatenateByteArrays(JPEG2000_HEADER, body);
+	}
+
+	/** Calcula el d&iacute;gito de control 7-3-1 de un campo de la MRZ.
+	 * @param field Campo de la MRZ.
+	 * @return D&iacute;gito de control. */
+	private static char checkDigit(final String field) {
+		final int[] weights = { 7, 3, 1 };
+		int sum = 0;
+		for (int i = 0; i < field.length(); i++) {
+			final char c = field.charAt(i);
+			final int value;
+			if (c >= '0' && c <= '9') {
+				value = c - '0';
+			}
+			else if (c >= 'A' && c <= 'Z') {
+				value = c - 'A' + 10;
+			}
+			else {
+				value = 0;
+			}
+			sum += value * weights[i % 3];
+		}
+		return (char) ('0' + sum % 10);
+	}
+
+	/** Codifica un TLV BER con etiqueta de uno o dos octetos.
+	 * @param tag Etiqueta.
+	 * @param value Valor.
+	 * @return TLV codificado. */
+	private static byte[] tlv(final int tag, final byte[] value) {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		if (tag > 0xFF) {
+			baos.write(tag >> 8);
+		}
+		baos.write(tag);
+		if (value.length < 0x80) {
+			baos.write(value.length);
+		}
+		else if (value.length <= 0xFF) {
+			baos.write(0x81);
+			baos.write(value.length);
+		}
+		else {
+			baos.write(0x82);
+			baos.write(value.length >> 8);
+			baos.write(value.length);
+		}
+		baos.write(value, 0, value.length);
+		return baos.toByteArray();
+	}
+}
@@ -0,0 +1,322 @@
+package es.gob.jmulticard.card.dnie;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.asn1.x9.ECNamedCurveTable;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.encoders.Hex;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.CryptoHelper.BlockMode;
+import es.gob.jmulticard.CryptoHelper.Padding;
+import es.gob.jmulticard.DigestAlgorithm;
+import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.asn1.Tlv;
+import es.gob.jmulticard.asn1.TlvException;
+import es.gob.jmulticard.asn1.icao.CardAccess;
+
+/** Extremo de tarjeta del protocolo PACE sobre ECDH con las curvas <i>brainpoolP256r1</i> o
+ * <i>NIST P-256</i>, tanto con <i>Generic Mapping</i> (<code>id-PACE-ECDH-GM-AES-CBC-CMAC-128</code>, el que anuncia el
+ * EF&#46;CardAccess del DNIe 3&#46;0 y de los MRTD emulados) como con <i>Integrated Mapping</i>
+ * (<code>id-PACE-ECDH-IM-AES-CBC-CMAC-128</code>).
+ * Procesa en orden los cuatro comandos <i>General Authenticate</i> y, si el MAC del lector es
+ * correcto, proporciona el canal de mensajer&iacute;a segura resultante.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class EmulatedPaceAuthentication {
+
+	private static final byte TAG_DYNAMIC_AUTHENTICATION_DATA = (byte) 0x7C;
+	private static final byte TAG_ENCRYPTED_NONCE = (byte) 0x80;
+	private static final byte TAG_MAPPING_DATA_IFD = (byte) 0x81;
+	private static final byte TAG_MAPPING_DATA_ICC = (byte) 0x82;
+	private static final byte TAG_EPHEMERAL_KEY_IFD = (byte) 0x83;
+	private static final byte TAG_EPHEMERAL_KEY_ICC = (byte) 0x84;
+	private static final byte TAG_TOKEN_IFD = (byte) 0x85;
+	private static final byte TAG_TOKEN_ICC = (byte) 0x86;
+
+	private static final byte[] CAN_MRZ_PADDING = { (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x03 };
+	private static final byte[] KENC_PADDING = { (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x01 };
+	private static final byte[] KMAC_PADDING = { (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x02 };
+
+	/** Cabecera del objeto de clave p&uacute;blica sobre el que se calculan los <i>tokens</i> de autenticaci&oacute;n. */
+	private static final byte[] TOKEN_PREFIX = { (byte) 0x7F, (byte) 0x49, (byte) 0x4F, (byte) 0x06 };
+
+	/** Etiqueta y longitud del punto p&uacute;blico (sin comprimir) dentro del objeto de clave p&uacute;blica. */
+	private static final byte[] TOKEN_POINT_PREFIX = { (byte) 0x86, (byte) 0x41 };
+
+	private static final int KEY_LENGTH = 16;
+
+	/** Constantes de la funci&oacute;n pseudoaleatoria del <i>Integrated Mapping</i> con AES-128
+	 * (ICAO 9303 parte 11, 4&#46;4&#46;3&#46;3&#46;2). */
+	private static final byte[] IM_C0 = Hex.decode("a668892a7c41e3ca739f40b057d85904"); //$NON-NLS-1$
+	private static final byte[] IM_C1 = Hex.decode("a4e136ac725f738b01c1f60217c188ad"); //$NON-NLS-1$
+
+	private static final int SW_OK = 0x9000;
+	private static final int SW_VERIFICATION_FAILED = 0x6300;
+	private static final int SW_WRONG_DATA = 0x6A80;
+	private static final int SW_CONDITIONS_NOT_SATISFIED = 0x6985;
+
+	private final byte[] password;
+	private final CardAccess.PaceAlgorithm algorithm;
+	private final X9ECParameters ecParameters;
+	private final CryptoHelper cryptoHelper;
+	private final SecureRandom random;
+
+	private int step = 0;
+	private byte[] nonce = null;
+	private ECPoint mappedGenerator = null;
+	private byte[] publicKeyIfd = null;
+	private byte[] publicKeyIcc = null;
+	private byte[] kenc = null;
+	private byte[] kmac = null;
+	private EmulatedPaceChannel channel = null;
+
+	/** Inicia el protocolo PACE en la tarjeta.
+	 * @param pacePassword Contrase&ntilde;a PACE tal y como entra en la derivaci&oacute;n de la
+	 *                     clave del <i>nonce</i> (el CAN en ASCII o la huella SHA-1 de la
+	 *                     informaci&oacute;n de la MRZ).
+	 * @param paceAlgorithm Algoritmo PACE seleccionado en el MSE Set AT.
+	 * @param paceAlgorithmParam Curva seleccionada en el MSE Set AT.
+	 * @param cryptoHlpr Operador criptogr&aacute;fico.
+	 * @param rnd Generador de aleatorios de la tarjeta. */
+	EmulatedPaceAuthentication(final byte[] pacePassword,
+			                   final CardAccess.PaceAlgorithm paceAlgorithm,
+			                   final CardAccess.PaceAlgorithmParam paceAlgorithmParam,
+			                   final CryptoHelper cryptoHlpr,
+			                   final SecureRandom rnd) {
+		password = pacePassword.clone();
+		algorithm = paceAlgorithm;
+		ecParameters = ECNamedCurveTable.getByName(paceAlgorithmParam.getCurveName());
+		cryptoHelper = cryptoHlpr;
+		random = rnd;
+	}
+
+	/** Obtiene el canal seguro establecido.
+	 * @return Canal seguro o <code>null</code> si el protocolo no ha concluido con &eacute;xito. */
+	EmulatedPaceChannel getChannel() {
+		return channel;
+	}
+
+	/** Procesa un comando <i>General Authenticate</i>.
+	 * @param command Comando en claro.
+	 * @return Respuesta (datos y palabra de estado).
+	 * @throws IOException Si hay errores en las operaciones criptogr&aacute;ficas. */
+	byte[] generalAuthenticate(final EmulatedDnieConnection.Command command) throws IOException {
+		final byte[] content;
+		try {
+			final Tlv dynamicAuthenticationData = new Tlv(command.getData());
+			if (dynamicAuthenticationData.getTag() != TAG_DYNAMIC_AUTHENTICATION_DATA) {
+				return sw(SW_WRONG_DATA);
+			}
+			content = dynamicAuthenticationData.getValue();
+		}
+		catch (final TlvException | RuntimeException e) {
+			return sw(SW_WRONG_DATA);
+		}
+		try {
+			if (content.length == 0) {
+				return step == 0 ? encryptedNonce() : sw(SW_CONDITIONS_NOT_SATISFIED);
+			}
+			final Tlv tlv = new Tlv(content);
+			if (tlv.getTag() == TAG_MAPPING_DATA_IFD && step == 1) {
+				return mapNonce(tlv.getValue());
+			}
+			if (tlv.getTag() == TAG_EPHEMERAL_KEY_IFD && step == 2) {
+				return keyAgreement(tlv.getValue());
+			}
+			if (tlv.getTag() == TAG_TOKEN_IFD && step == 3) {
+				return mutualAuthentication(tlv.getValue());
+			}
+			return sw(SW_CONDITIONS_NOT_SATISFIED);
+		}
+		catch (final TlvException | IllegalArgumentException e) {
+			return sw(SW_WRONG_DATA);
+		}
+		catch (final GeneralSecurityException e) {
+			throw new IOException("Error en el protocolo PACE", e); //$NON-NLS-1$
+		}
+	}
+
+	/** Primer paso: se genera el <i>nonce</i> y se devuelve cifrado con la clave derivada
+	 * de la contrase&ntilde;a PACE.
+	 * @return Respuesta con el <i>nonce</i> cifrado.
+	 * @throws IOException Si hay errores en el cifrado.
+	 * @throws GeneralSecurityException Si no est&aacute; disponible SHA-1. */
+	private byte[] encryptedNonce() throws IOException, GeneralSecurityException {
+		final byte[] s = new byte[KEY_LENGTH];
+		random.nextBytes(s);
+		nonce = s;
+		final byte[] encryptedNonce = cryptoHelper.aesEncrypt(
+			s,
+			new byte[KEY_LENGTH],
+			deriveKey(password, CAN_MRZ_PADDING),
+			BlockMode.CBC,
+			Padding.NOPADDING
+		);
+		step = 1;
+		return ok(new Tlv(TAG_ENCRYPTED_NONCE, encryptedNonce));
+	}
+
+	/** Segundo paso: obtenci&oacute;n del generador mapeado.
+	 * @param mappingDataIfd Clave p&uacute;blica de mapeo del lector (<i>Generic Mapping</i>)
+	 *                       o <i>nonce</i> <code>t</code> del lector (<i>Integrated Mapping</i>).
+	 * @return Respuesta con la clave p&uacute;blica de mapeo de la tarjeta (<i>Generic Mapping</i>)
+	 *         o vac&iacute;a (<i>Integrated Mapping</i>).
+	 * @throws GeneralSecurityException Si no est&aacute; disponible AES. */
+	private byte[] mapNonce(final byte[] mappingDataIfd) throws GeneralSecurityException {
+		if (algorithm.isIntegratedMapping()) {
+			if (mappingDataIfd.length != KEY_LENGTH) {
+				return sw(SW_WRONG_DATA);
+			}
+			mappedGenerator = encodePoint(pseudoRandom(nonce, mappingDataIfd));
+			step = 2;
+			return HexUtils.concatenateByteArrays(
+				new Tlv(TAG_DYNAMIC_AUTHENTICATION_DATA, new byte[0]).getBytes(),
+				sw(SW_OK)
+			);
+		}
+		// Generic Mapping: G' = s*G + H
+		final BigInteger privateKey = generatePrivateKey();
+		final ECPoint sharedSecretH = decodePoint(mappingDataIfd).multiply(privateKey);
+		mappedGenerator = ecParameters.getG().multiply(new BigInteger(1, nonce)).add(sharedSecretH).normalize();
+		step = 2;
+		return ok(new Tlv(TAG_MAPPING_DATA_ICC, ecParameters.getG().multiply(privateKey).getEncoded(false)));
+	}
+
+	/** Funci&oacute;n pseudoaleatoria <code>R<sub>p</sub>(s, t)</code> del <i>Integrated Mapping</i>
+	 * con AES-128, calculada con JCA (un bloque AES-CBC con IV nulo es un bloque AES-ECB).
+	 * @param s <i>Nonce</i> de la tarjeta.
+	 * @param t <i>Nonce</i> del lector.
+	 * @return Elemento del cuerpo de la curva.
+	 * @throws GeneralSecurityException Si no est&aacute; disponible AES. */
+	private BigInteger pseudoRandom(final byte[] s, final byte[] t) throws GeneralSecurityException {
+		final BigInteger p = ecParameters.getCurve().getField().getCharacteristic();
+		final int blocks = (p.bitLength() + 64 + KEY_LENGTH * 8 - 1) / (KEY_LENGTH * 8);
+		final Cipher aes = Cipher.getInstance("AES/ECB/NoPadding"); //$NON-NLS-1$
+		aes.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(t, "AES")); //$NON-NLS-1$
+		byte[] key = aes.doFinal(s);
+		byte[] x = new byte[0];
+		for (int i = 0; i < blocks; i++) {
+			aes.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES")); //$NON-NLS-1$
+			x = HexUtils.concatenateByteArrays(x, aes.doFinal(IM_C1));
+			key = aes.doFinal(IM_C0);
+		}
+		return new BigInteger(1, x).mod(p);
+	}
+
+	/** Codificaci&oacute;n de un elemento del cuerpo como punto de la curva (SWU simplificado
+	 * para <code>p = 3 mod 4</code>, ICAO 9303 parte 11, 4&#46;4&#46;3&#46;3&#46;2), con
+	 * aritm&eacute;tica de <code>BigInteger</code>.
+	 * @param t Elemento del cuerpo.
+	 * @return Punto de la curva. */
+	private ECPoint encodePoint(final BigInteger t) {
+		final BigInteger p = ecParameters.getCurve().getField().getCharacteristic();
+		final BigInteger a = ecParameters.getCurve().getA().toBigInteger();
+		final BigInteger b = ecParameters.getCurve().getB().toBigInteger();
+		final BigInteger alpha = t.pow(2).negate().mod(p);
+		final BigInteger alpha2 = alpha.add(alpha.pow(2)).mod(p);
+		final BigInteger x2 = b.negate().multiply(BigInteger.ONE.add(alpha2))
+			.multiply(a.multiply(alpha2).modInverse(p)).mod(p);
+		final BigInteger x3 = alpha.multiply(x2).mod(p);
+		final BigInteger h2 = x2.pow(3).add(a.multiply(x2)).add(b).mod(p);
+		final BigInteger u = t.pow(3).multiply(h2).mod(p);
+		final BigInteger aa = h2.modPow(p.subtract(BigInteger.ONE).subtract(p.add(BigInteger.ONE).shiftRight(2)), p);
+		final ECPoint point = aa.pow(2).multiply(h2).mod(p).equals(BigInteger.ONE) ?
+			ecParameters.getCurve().createPoint(x2, aa.multiply(h2).mod(p)) :
+				ecParameters.getCurve().createPoint(x3, aa.multiply(u).mod(p));
+		if (!point.isValid()) {
+			throw new IllegalArgumentException("Punto mapeado no valido"); //$NON-NLS-1$
+		}
+		return point;
+	}
+
+	/** Tercer paso: acuerdo de claves sobre el generador mapeado y derivaci&oacute;n de las
+	 * claves de sesi&oacute;n a partir de la coordenada X (de longitud fija) del secreto compartido.
+	 * @param ephemeralKeyIfd Clave p&uacute;blica ef&iacute;mera del lector.
+	 * @return Respuesta con la clave p&uacute;blica ef&iacute;mera de la tarjeta.
+	 * @throws GeneralSecurityException Si no est&aacute; disponible SHA-1. */
+	private byte[] keyAgreement(final byte[] ephemeralKeyIfd) throws GeneralSecurityException {
+		final BigInteger privateKey = generatePrivateKey();
+		publicKeyIfd = ephemeralKeyIfd.clone();
+		publicKeyIcc = mappedGenerator.multiply(privateKey).getEncoded(false);
+		final byte[] secretK = decodePoint(publicKeyIfd).multiply(privateKey).normalize().getXCoord().getEncoded();
+		kenc = deriveKey(secretK, KENC_PADDING);
+		kmac = deriveKey(secretK, KMAC_PADDING);
+		step = 3;
+		return ok(new Tlv(TAG_EPHEMERAL_KEY_ICC, publicKeyIcc));
+	}
+
+	/** Cuarto paso: se comprueba el <i>token</i> del lector (MAC sobre la clave ef&iacute;mera
+	 * de la tarjeta) y se devuelve el de la tarjeta (MAC sobre la clave ef&iacute;mera del lector).
+	 * @param tokenIfd <i>Token</i> de autenticaci&oacute;n del lector.
+	 * @return Respuesta con el <i>token</i> de autenticaci&oacute;n de la tarjeta.
+	 * @throws GeneralSecurityException Si no est&aacute; disponible AES-CMAC. */
+	private byte[] mutualAuthentication(final byte[] tokenIfd) throws GeneralSecurityException {
+		step = 4;
+		if (!MessageDigest.isEqual(tokenIfd, authenticationToken(publicKeyIcc))) {
+			return sw(SW_VERIFICATION_FAILED);
+		}
+		channel = new EmulatedPaceChannel(kenc, kmac, cryptoHelper);
+		return ok(new Tlv(TAG_TOKEN_ICC, authenticationToken(publicKeyIfd)));
+	}
+
+	private byte[] authenticationToken(final byte[] publicKey) throws GeneralSecurityException {
+		return cryptoHelper.doAesCmac(
+			HexUtils.concatenateByteArrays(
+				TOKEN_PREFIX,
+				algorithm.getBytes(),
+				TOKEN_POINT_PREFIX,
+				publicKey
+			),
+			kmac
+		);
+	}
+
+	/** Deriva una clave AES-128 como los primeros octetos de <code>SHA-1(secreto || contador)</code>.
+	 * @param secret Secreto.
+	 * @param counter Contador de derivaci&oacute;n.
+	 * @return Clave derivada.
+	 * @throws GeneralSecurityException Si no est&aacute; disponible SHA-1. */
+	private static byte[] deriveKey(final byte[] secret, final byte[] counter) throws GeneralSecurityException {
+		final MessageDigest md = MessageDigest.getInstance(DigestAlgorithm.SHA1.toString());
+		md.update(secret);
+		md.update(counter);
+		return Arrays.copyOf(md.digest(), KEY_LENGTH);
+	}
+
+	private BigInteger generatePrivateKey() {
+		final BigInteger order = ecParameters.getN();
+		BigInteger ret;
+		do {
+			ret = new BigInteger(order.bitLength(), random);
+		} while (ret.signum() == 0 || ret.compareTo(order) >= 0);
+		return ret;
+	}
+
+	private ECPoint decodePoint(final byte[] encoded) {
+		final ECPoint point = ecParameters.getCurve().decodePoint(encoded);
+		if (point.isInfinity() || !point.isValid()) {
+			throw new IllegalArgumentException("Punto no valido"); //$NON-NLS-1$
+		}
+		return point;
+	}
+
+	private static byte[] ok(final Tlv content) {
+		return HexUtils.concatenateByteArrays(
+			new Tlv(TAG_DYNAMIC_AUTHENTICATION_DATA, content.getBytes()).getBytes(),
+			sw(SW_OK)
+		);
+	}
+
+	private static byte[] sw(final int statusWord) {
+		return new byte[] { (byte) (statusWord >> 8), (byte) statusWord };
+	}
+}
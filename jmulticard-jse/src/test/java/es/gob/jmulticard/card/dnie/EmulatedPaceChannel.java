@@ -0,0 +1,223 @@
+package es.gob.jmulticard.card.dnie;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.CryptoHelper.BlockMode;
+import es.gob.jmulticard.CryptoHelper.Padding;
+import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.asn1.Tlv;
+import es.gob.jmulticard.asn1.bertlv.BerTlv;
+
+/** Extremo de tarjeta de un canal de mensajer&iacute;a segura PACE (AES-CBC y AES-CMAC) emulado.
+ * Desprotege los comandos que protege <code>SecureMessaging</code> y protege las respuestas
+ * de forma que este pueda comprobar su MAC y descifrarlas.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class EmulatedPaceChannel implements EmulatedSecureChannel {
+
+	private static final byte TAG_DATA_TLV = (byte) 0x87;
+	private static final byte TAG_LE_TLV = (byte) 0x97;
+	private static final byte TAG_SW_TLV = (byte) 0x99;
+	private static final byte TAG_MAC_TLV = (byte) 0x8E;
+
+	/** Octeto que precede a los datos cifrados dentro del TLV de datos. */
+	private static final byte PADDING_INDICATOR = (byte) 0x01;
+
+	private static final int BLOCK_SIZE = 16;
+	private static final int MAC_LENGTH = 8;
+
+	private final byte[] kenc;
+	private final byte[] kmac;
+	private final CryptoHelper cryptoHelper;
+
+	/** Contador de secuencia actual (del tama&ntilde;o del bloque AES). */
+	private byte[] ssc = new byte[BLOCK_SIZE];
+
+	/** Crea el extremo de tarjeta de un canal PACE reci&eacute;n establecido (con contador a cero).
+	 * @param keyEnc Clave de cifrado del canal.
+	 * @param keyMac Clave de MAC del canal.
+	 * @param cryptoHlpr Operador criptogr&aacute;fico. */
+	EmulatedPaceChannel(final byte[] keyEnc, final byte[] keyMac, final CryptoHelper cryptoHlpr) {
+		kenc = keyEnc.clone();
+		kmac = keyMac.clone();
+		cryptoHelper = cryptoHlpr;
+	}
+
+	@Override
+	public EmulatedDnieConnection.Command unprotect(final EmulatedDnieConnection.Command command) throws IOException {
+
+		final byte[] body = command.getData();
+		// De los objetos de datos se guarda su codificacion completa, que entra en el MAC
+		byte[] do87 = null;
+		byte[] do97 = null;
+		byte[] cryptogram = null;
+		byte[] le = null;
+		byte[] mac = null;
+		try {
+			final ByteArrayInputStream tlvs = new ByteArrayInputStream(body);
+			while (tlvs.available() > 0) {
+				final int offset = body.length - tlvs.available();
+				final BerTlv tlv = BerTlv.createInstance(tlvs);
+				final byte[] encoded = Arrays.copyOfRange(body, offset, body.length - tlvs.available());
+				if (tlv.getTag() == TAG_DATA_TLV) {
+					do87 = encoded;
+					cryptogram = tlv.getValue();
+				}
+				else if (tlv.getTag() == TAG_LE_TLV) {
+					do97 = encoded;
+					le = tlv.getValue();
+				}
+				else if (tlv.getTag() == TAG_MAC_TLV) {
+					mac = tlv.getValue();
+					break;
+				}
+				else {
+					return null;
+				}
+			}
+		}
+		catch (final RuntimeException e) {
+			return null;
+		}
+		if (mac == null || mac.length != MAC_LENGTH) {
+			return null;
+		}
+
+		final byte[] nextSsc = increment(ssc);
+
+		// La cabecera solo se rellena si le siguen objetos de datos
+		final byte[] header = { command.getCla(), command.getIns(), command.getP1(), command.getP2() };
+		final ByteArrayOutputStream macData = new ByteArrayOutputStream();
+		macData.write(do87 != null || do97 != null ? addPadding(header) : header);
+		if (do87 != null) {
+			macData.write(do87);
+		}
+		if (do97 != null) {
+			macData.write(do97);
+		}
+		if (!MessageDigest.isEqual(mac, getMac(macData.toByteArray(), nextSsc))) {
+			return null;
+		}
+		ssc = nextSsc;
+
+		final byte[] data;
+		if (cryptogram == null) {
+			data = new byte[0];
+		}
+		else {
+			if (cryptogram.length < 2 || cryptogram[0] != PADDING_INDICATOR) {
+				return null;
+			}
+			data = cryptoHelper.aesDecrypt(
+				HexUtils.subArray(cryptogram, 1, cryptogram.length - 1),
+				getIv(),
+				kenc,
+				BlockMode.CBC,
+				Padding.ISO7816_4PADDING
+			);
+		}
+
+		final int expectedLength;
+		if (le == null) {
+			expectedLength = -1;
+		}
+		else if (le.length == 1) {
+			expectedLength = le[0] == 0 ? 0x100 : le[0] & 0xFF;
+		}
+		else {
+			final int extendedLe = (le[0] & 0xFF) << 8 | le[1] & 0xFF;
+			expectedLength = extendedLe == 0 ? 0x10000 : extendedLe;
+		}
+		return new EmulatedDnieConnection.Command(
+			command.getCla(),
+			command.getIns(),
+			command.getP1(),
+			command.getP2(),
+			data,
+			expectedLength
+		);
+	}
+
+	/** {@inheritDoc}
+	 * Las respuestas de error (salvo la de fin de fichero, que el lector trata como correcta)
+	 * se devuelven en claro y sin avanzar el contador de secuencia, porque
+	 * <code>PaceConnection</code> las descarta sin desprotegerlas. */
+	@Override
+	public byte[] protect(final byte[] response) throws IOException {
+		final byte[] sw = HexUtils.subArray(response, response.length - 2, 2);
+		final boolean ok = sw[0] == (byte) 0x90 && sw[1] == (byte) 0x00;
+		final boolean eof = sw[0] == (byte) 0x62 && sw[1] == (byte) 0x82;
+		if (!ok && !eof) {
+			return sw;
+		}
+		ssc = increment(ssc);
+		final ByteArrayOutputStream tlvs = new ByteArrayOutputStream();
+		if (response.length > 2) {
+			tlvs.write(
+				new Tlv(
+					TAG_DATA_TLV,
+					HexUtils.concatenateByteArrays(
+						new byte[] { PADDING_INDICATOR },
+						cryptoHelper.aesEncrypt(
+							HexUtils.subArray(response, 0, response.length - 2),
+							getIv(),
+							kenc,
+							BlockMode.CBC,
+							Padding.ISO7816_4PADDING
+						)
+					)
+				).getBytes()
+			);
+		}
+		tlvs.write(new Tlv(TAG_SW_TLV, sw).getBytes());
+		tlvs.write(new Tlv(TAG_MAC_TLV, getMac(tlvs.toByteArray(), ssc)).getBytes());
+		tlvs.write(sw);
+		return tlvs.toByteArray();
+	}
+
+	/** Obtiene el vector de inicializaci&oacute;n de un cifrado: el contador de secuencia
+	 * actual cifrado con la clave de cifrado del canal.
+	 * @return Vector de inicializaci&oacute;n.
+	 * @throws IOException Si hay errores en el cifrado. */
+	private byte[] getIv() throws IOException {
+		return cryptoHelper.aesEncrypt(ssc, null, kenc, BlockMode.ECB, Padding.NOPADDING);
+	}
+
+	/** Calcula el CMAC de <code>SSC || datos</code> (con relleno ISO 7816-4).
+	 * @param data Datos.
+	 * @param counter Contador de secuencia.
+	 * @return MAC de los datos.
+	 * @throws IOException Si hay errores en el c&aacute;lculo del MAC. */
+	private byte[] getMac(final byte[] data, final byte[] counter) throws IOException {
+		try {
+			return cryptoHelper.doAesCmac(addPadding(HexUtils.concatenateByteArrays(counter, data)), kmac);
+		}
+		catch (final GeneralSecurityException e) {
+			throw new IOException("Error calculando el CMAC", e); //$NON-NLS-1$
+		}
+	}
+
+	private static byte[] addPadding(final byte[] data) {
+		final byte[] ret = Arrays.copyOf(data, (data.length / BLOCK_SIZE + 1) * BLOCK_SIZE);
+		ret[data.length] = (byte) 0x80;
+		return ret;
+	}
+
+	/** Incrementa en una unidad un contador de secuencia.
+	 * @param counter Contador.
+	 * @return Contador incrementado (en un nuevo array). */
+	private static byte[] increment(final byte[] counter) {
+		final byte[] ret = counter.clone();
+		for (int i = ret.length - 1; i >= 0; i--) {
+			if (++ret[i] != 0) {
+				break;
+			}
+		}
+		return ret;
+	}
+}
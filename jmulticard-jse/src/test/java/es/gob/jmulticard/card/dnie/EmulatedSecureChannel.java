@@ -0,0 +1,23 @@
+package es.gob.jmulticard.card.dnie;
+
+import java.io.IOException;
+
+/** Extremo de tarjeta de un canal de mensajer&iacute;a segura emulado.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+interface EmulatedSecureChannel {
+
+	/** Desprotege un comando recibido por el canal.
+	 * Si el comando no est&aacute; protegido con las claves de este canal (su MAC no es
+	 * correcto o no tiene la estructura de un comando protegido) se devuelve <code>null</code>
+	 * sin alterar el contador de secuencia.
+	 * @param command Comando protegido.
+	 * @return Comando en claro o <code>null</code> si no est&aacute; protegido por este canal.
+	 * @throws IOException Si hay errores en las operaciones criptogr&aacute;ficas. */
+	EmulatedDnieConnection.Command unprotect(EmulatedDnieConnection.Command command) throws IOException;
+
+	/** Protege una respuesta para enviarla por el canal.
+	 * @param response Respuesta en claro (datos y palabra de estado).
+	 * @return Respuesta protegida.
+	 * @throws IOException Si hay errores en las operaciones criptogr&aacute;ficas. */
+	byte[] protect(byte[] response) throws IOException;
+}
@@ -0,0 +1,158 @@
+package test.es.gob.jmulticard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Random;
+
+import javax.security.auth.callback.PasswordCallback;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import es.gob.jmulticard.card.dnie.Dnie;
+import es.gob.jmulticard.card.dnie.DnieFactory;
+import es.gob.jmulticard.card.dnie.EmulatedDnieConnection;
+import es.gob.jmulticard.card.icao.MrtdLds1;
+import es.gob.jmulticard.connection.ApduConnection;
+import es.gob.jmulticard.connection.trace.ApduTrace;
+import es.gob.jmulticard.connection.trace.RecordingApduConnection;
+import es.gob.jmulticard.connection.trace.ReplayApduConnection;
+import es.gob.jmulticard.crypto.BcCryptoHelper;
+
+/** Pruebas de grabaci&oacute;n y reproducci&oacute;n de sesiones APDU.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class TestApduTrace {
+
+	private static final String ALGORITHM = "SHA256withRSA"; //$NON-NLS-1$
+	private static final String SIGN_ALIAS = "CertFirmaDigital"; //$NON-NLS-1$
+	private static final byte[] DATA = "Datos a firmar".getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+	private static final String CAN = "123456"; //$NON-NLS-1$
+	private static final long SEED = 1234L;
+
+	/** Graba una firma por canal CWA-14890 con el DNIe emulado y la reproduce desde la
+	 * codificaci&oacute;n binaria de la traza.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testRecordAndReplayCwa14890() throws Exception {
+		// La clave del certificado de componente se guarda en cache tras la primera sesion
+		// con cada tarjeta, asi que la grabacion debe partir del mismo estado que la reproduccion
+		final EmulatedDnieConnection card = new EmulatedDnieConnection(false);
+		sign(card, SEED);
+
+		final RecordingApduConnection recorder = new RecordingApduConnection(card);
+		final byte[] signature = sign(recorder, SEED);
+
+		final ApduTrace trace = roundTrip(recorder.getTrace());
+		Assertions.assertEquals(recorder.getTrace().size(), trace.size());
+		final List<ApduTrace.Entry> recorded = recorder.getTrace().getEntries();
+		final List<ApduTrace.Entry> read = trace.getEntries();
+		for (int i = 0; i < read.size(); i++) {
+			Assertions.assertEquals(recorded.get(i).getType(), read.get(i).getType());
+			Assertions.assertArrayEquals(recorded.get(i).getCommand(), read.get(i).getCommand());
+			Assertions.assertArrayEquals(recorded.get(i).getResponse(), read.get(i).getResponse());
+			Assertions.assertEquals(recorded.get(i).getDurationNanos(), read.get(i).getDurationNanos());
+		}
+
+		final ReplayApduConnection replay = new ReplayApduConnection(trace);
+		Assertions.assertArrayEquals(signature, sign(replay, SEED));
+		Assertions.assertTrue(replay.isFinished());
+	}
+
+	/** Sin la misma fuente de aleatorios el canal seguro diverge de la traza.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testReplayWithOtherRandom() throws Exception {
+		final EmulatedDnieConnection card = new EmulatedDnieConnection(false);
+		sign(card, SEED);
+		final RecordingApduConnection recorder = new RecordingApduConnection(card);
+		sign(recorder, SEED);
+		final ReplayApduConnection replay = new ReplayApduConnection(recorder.getTrace());
+		Assertions.assertThrows(Exception.class, () -> sign(replay, SEED + 1));
+	}
+
+	/** La grabaci&oacute;n y la reproducci&oacute;n declaran el tama&ntilde;o m&aacute;ximo de APDU
+	 * de la conexi&oacute;n grabada, para que las lecturas extendidas no se desactiven.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testRecordAndReplayMaxApduSize() throws Exception {
+		final EmulatedDnieConnection card = new EmulatedDnieConnection(false);
+		card.setMaxApduSize(0xFFFF);
+		sign(card, SEED);
+		final RecordingApduConnection recorder = new RecordingApduConnection(card);
+		Assertions.assertEquals(0xFFFF, recorder.getMaxApduSize());
+		final byte[] signature = sign(recorder, SEED);
+
+		final ApduTrace trace = roundTrip(recorder.getTrace());
+		Assertions.assertEquals(0xFFFF, trace.getMaxApduSize());
+		final ReplayApduConnection replay = new ReplayApduConnection(trace);
+		Assertions.assertEquals(0xFFFF, replay.getMaxApduSize());
+		Assertions.assertArrayEquals(signature, sign(replay, SEED));
+		Assertions.assertTrue(replay.isFinished());
+	}
+
+	/** Graba el establecimiento de PACE y la lectura de LDS1 y los reproduce simulando la latencia.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testRecordAndReplayPace() throws Exception {
+		// El algoritmo PACE negociado se guarda en cache por ATR tras la primera sesion,
+		// asi que la grabacion debe partir del mismo estado que la reproduccion
+		final EmulatedDnieConnection card = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		readDocumentNumber(card);
+		card.setLatency(1);
+		final RecordingApduConnection recorder = new RecordingApduConnection(card);
+		final String docNumber = readDocumentNumber(recorder);
+
+		final ApduTrace trace = roundTrip(recorder.getTrace());
+		final ReplayApduConnection replay = new ReplayApduConnection(trace, 0.5);
+		final long start = System.nanoTime();
+		Assertions.assertEquals(docNumber, readDocumentNumber(replay));
+		Assertions.assertTrue(replay.isFinished());
+		Assertions.assertTrue(System.nanoTime() - start >= trace.size() * 500_000L);
+	}
+
+	private static byte[] sign(final ApduConnection conn, final long seed) throws Exception {
+		final PasswordCallback pwc = new PasswordCallback("PIN", false); //$NON-NLS-1$
+		pwc.setPassword(EmulatedDnieConnection.DEFAULT_PIN.toCharArray());
+		final Dnie dnie = DnieFactory.getDnie(conn, pwc, new BcCryptoHelper(new FixedSecureRandom(seed)), null);
+		return dnie.sign(DATA, ALGORITHM, dnie.getPrivateKey(SIGN_ALIAS));
+	}
+
+	private static String readDocumentNumber(final ApduConnection conn) throws Exception {
+		final MrtdLds1 mrtd = DnieFactory.getEmrtdNfc(
+			conn,
+			new BcCryptoHelper(new FixedSecureRandom(SEED)),
+			new TestingDnieCallbackHandler(CAN, (String) null)
+		);
+		return mrtd.getDg1().getDocumentNumber();
+	}
+
+	private static ApduTrace roundTrip(final ApduTrace trace) throws Exception {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		trace.write(baos);
+		return ApduTrace.read(new ByteArrayInputStream(baos.toByteArray()));
+	}
+
+	/** Fuente de aleatorios reproducible, solo para pruebas. */
+	private static final class FixedSecureRandom extends SecureRandom {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Random random;
+
+		FixedSecureRandom(final long seed) {
+			random = new Random(seed);
+		}
+
+		@Override
+		public void nextBytes(final byte[] bytes) {
+			random.nextBytes(bytes);
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package test.es.gob.jmulticard;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.security.auth.callback.PasswordCallback;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import es.gob.jmulticard.asn1.der.pkcs1.DigestInfo;
+import es.gob.jmulticard.card.Location;
+import es.gob.jmulticard.card.dnie.Dnie;
+import es.gob.jmulticard.card.dnie.DnieFactory;
+import es.gob.jmulticard.card.dnie.DnieSession;
+import es.gob.jmulticard.card.dnie.EmulatedDnieConnection;
+import es.gob.jmulticard.card.iso7816four.AbstractIso7816FourCard;
+import es.gob.jmulticard.card.iso7816four.Iso7816FourCardException;
+import es.gob.jmulticard.connection.ApduConnection;
+import es.gob.jmulticard.connection.ApduConnectionException;
+import es.gob.jmulticard.connection.trace.RecordingApduConnection;
+import es.gob.jmulticard.crypto.BcCryptoHelper;
+import es.gob.jmulticard.jse.provider.DnieProvider;
+
+/** Pruebas de DNIe contra la tarjeta emulada en memoria, sin lector. */
+final class TestEmulatedDnie {
+
+	private static final String ALGORITHM = "SHA256withRSA"; //$NON-NLS-1$
+	private static final String SIGN_ALIAS = "CertFirmaDigital"; //$NON-NLS-1$
+	private static final byte[] DATA = "Datos a firmar".getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+
+	/** Firma con un DNIe 2&#46;0 emulado y comprueba la firma con su certificado.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testDnieSignature() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(false);
+		final PasswordCallback pwc = new PasswordCallback("PIN", false); //$NON-NLS-1$
+		pwc.setPassword(EmulatedDnieConnection.DEFAULT_PIN.toCharArray());
+		final Dnie dnie = DnieFactory.getDnie(conn, pwc, new BcCryptoHelper(), null);
+
+		final byte[] signature = dnie.sign(DATA, ALGORITHM, dnie.getPrivateKey(SIGN_ALIAS));
+
+		final Signature verifier = Signature.getInstance(ALGORITHM);
+		verifier.initVerify(conn.getCertificate(SIGN_ALIAS));
+		verifier.update(DATA);
+		Assertions.assertTrue(verifier.verify(signature));
+	}
+
+	/** Firma dos veces con un DNIe 3&#46;0 emulado a trav&eacute;s del proveedor JCA.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testDnie3ProviderSignature() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(true);
+		final Provider provider = new DnieProvider(conn);
+		final char[] pin = EmulatedDnieConnection.DEFAULT_PIN.toCharArray();
+
+		final KeyStore ks = KeyStore.getInstance("DNI", provider); //$NON-NLS-1$
+		ks.load(null, pin);
+		Assertions.assertTrue(ks.containsAlias(SIGN_ALIAS));
+		final PrivateKey key = (PrivateKey) ks.getKey(SIGN_ALIAS, pin);
+		final X509Certificate cert = (X509Certificate) ks.getCertificate(SIGN_ALIAS);
+		Assertions.assertEquals(conn.getCertificate(SIGN_ALIAS), cert);
+
+		// La segunda obtencion de la cadena sale de cache, y no debe poder alterarse desde fuera
+		final Certificate[] chain = ks.getCertificateChain(SIGN_ALIAS);
+		Assertions.assertEquals(cert, chain[0]);
+		final List<Certificate> expected = new ArrayList<>(Arrays.asList(chain));
+		chain[0] = null;
+		Assertions.assertEquals(expected, Arrays.asList(ks.getCertificateChain(SIGN_ALIAS)));
+
+		for (int i = 0; i < 2; i++) {
+			final Signature signer = Signature.getInstance(ALGORITHM, provider);
+			signer.initSign(key);
+			signer.update(DATA);
+			final byte[] signature = signer.sign();
+
+			final Signature verifier = Signature.getInstance(ALGORITHM);
+			verifier.initVerify(cert);
+			verifier.update(DATA);
+			Assertions.assertTrue(verifier.verify(signature));
+		}
+	}
+
+	/** Firma con un DNIe 3&#46;0 emulado a trav&eacute;s de los motores del proveedor JCA
+	 * que reciben la huella ya calculada.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testDnie3PrehashedProviderSignature() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(true);
+		final Provider provider = new DnieProvider(conn);
+		final char[] pin = EmulatedDnieConnection.DEFAULT_PIN.toCharArray();
+
+		final KeyStore ks = KeyStore.getInstance("DNI", provider); //$NON-NLS-1$
+		ks.load(null, pin);
+		final PrivateKey key = (PrivateKey) ks.getKey(SIGN_ALIAS, pin);
+		final X509Certificate cert = (X509Certificate) ks.getCertificate(SIGN_ALIAS);
+
+		final byte[] digest = MessageDigest.getInstance("SHA-256").digest(DATA); //$NON-NLS-1$
+		final byte[][] inputs = {
+			digest,
+			DigestInfo.encodeDigest(ALGORITHM, digest)
+		};
+		final String[] algorithms = {
+			ALGORITHM + "/Prehashed", //$NON-NLS-1$
+			"NONEwithRSA" //$NON-NLS-1$
+		};
+		for (int i = 0; i < algorithms.length; i++) {
+			final Signature signer = Signature.getInstance(algorithms[i], provider);
+			signer.initSign(key);
+			signer.update(inputs[i]);
+			final byte[] signature = signer.sign();
+
+			final Signature verifier = Signature.getInstance(ALGORITHM);
+			verifier.initVerify(cert);
+			verifier.update(DATA);
+			Assertions.assertTrue(verifier.verify(signature));
+
+			final Signature prehashedVerifier = Signature.getInstance(algorithms[i], provider);
+			prehashedVerifier.initVerify(cert);
+			prehashedVerifier.update(inputs[i]);
+			Assertions.assertTrue(prehashedVerifier.verify(signature));
+		}
+
+		// Una huella de longitud incorrecta no llega a la tarjeta
+		final Signature signer = Signature.getInstance(ALGORITHM + "/Prehashed", provider); //$NON-NLS-1$
+		signer.initSign(key);
+		signer.update(DATA);
+		Assertions.assertThrows(SignatureException.class, signer::sign);
+	}
+
+	/** Firma un lote dentro de una sesi&oacute;n con una clave que obliga a reestablecer el
+	 * canal a mitad del lote, y comprueba que la sesi&oacute;n solo cuenta como reutilizado
+	 * el canal de las firmas que realmente lo reutilizaron.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testSignBatchAcrossChannelRestart() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(true);
+		conn.setSignaturesPerPinVerification(2);
+		final PasswordCallback pwc = new PasswordCallback("PIN", false); //$NON-NLS-1$
+		pwc.setPassword(EmulatedDnieConnection.DEFAULT_PIN.toCharArray());
+		final Dnie dnie = DnieFactory.getDnie(conn, pwc, new BcCryptoHelper(), null);
+
+		final List<byte[]> data = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			data.add(("Datos a firmar " + i).getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+		}
+		try (final DnieSession session = dnie.openSession(0)) {
+			final List<byte[]> signatures = dnie.signBatch(data, ALGORITHM, dnie.getPrivateKey(SIGN_ALIAS));
+			Assertions.assertEquals(data.size(), signatures.size());
+			for (int i = 0; i < data.size(); i++) {
+				final Signature verifier = Signature.getInstance(ALGORITHM);
+				verifier.initVerify(conn.getCertificate(SIGN_ALIAS));
+				verifier.update(data.get(i));
+				Assertions.assertTrue(verifier.verify(signatures.get(i)));
+			}
+
+			// Canal nuevo para la primera firma, reutilizado para la segunda y reestablecido para la tercera
+			Assertions.assertEquals(3, session.getSignatureCount());
+			Assertions.assertEquals(1, session.getHandshakesAvoided());
+		}
+	}
+
+	/** Ruta del certificado de componente en la tarjeta emulada. */
+	private static final String ICC_CERT_PATH = "3F00601F"; //$NON-NLS-1$
+
+	/** Al abrir de nuevo el canal seguro con el mismo chip la clave del certificado de
+	 * componente se toma de la cach&eacute; por n&uacute;mero de serie, sin volver a leerlo,
+	 * y con otro n&uacute;mero de serie se lee de la tarjeta.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testIccPublicKeyCache() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(false);
+		sign(conn);
+		Assertions.assertEquals(1, conn.getFileSelections(ICC_CERT_PATH));
+
+		// Nueva instancia (y nuevo canal) sobre el mismo chip
+		sign(conn);
+		Assertions.assertEquals(1, conn.getFileSelections(ICC_CERT_PATH));
+
+		// Otra conexion con el mismo chip
+		final EmulatedDnieConnection sameChip = new EmulatedDnieConnection(false);
+		sameChip.setSerialNumber(conn.getSerialNumber());
+		sign(sameChip);
+		Assertions.assertEquals(0, sameChip.getFileSelections(ICC_CERT_PATH));
+
+		// Un chip con otro numero de serie no comparte la cache
+		final EmulatedDnieConnection otherChip = new EmulatedDnieConnection(false);
+		Assertions.assertFalse(Arrays.equals(conn.getSerialNumber(), otherChip.getSerialNumber()));
+		sign(otherChip);
+		Assertions.assertEquals(1, otherChip.getFileSelections(ICC_CERT_PATH));
+	}
+
+	private static void sign(final EmulatedDnieConnection conn) throws Exception {
+		final PasswordCallback pwc = new PasswordCallback("PIN", false); //$NON-NLS-1$
+		pwc.setPassword(EmulatedDnieConnection.DEFAULT_PIN.toCharArray());
+		final Dnie dnie = DnieFactory.getDnie(conn, pwc, new BcCryptoHelper(), null);
+		final byte[] signature = dnie.sign(DATA, ALGORITHM, dnie.getPrivateKey(SIGN_ALIAS));
+
+		final Signature verifier = Signature.getInstance(ALGORITHM);
+		verifier.initVerify(conn.getCertificate(SIGN_ALIAS));
+		verifier.update(DATA);
+		Assertions.assertTrue(verifier.verify(signature));
+	}
+
+	/** Identificador del MF. */
+	private static final byte[] MASTER_FILE_ID = { (byte) 0x3F, (byte) 0x00 };
+
+	/** Las lecturas por ruta solo seleccionan la parte de la ruta que difiere de la
+	 * &uacute;ltima selecci&oacute;n, y la selecci&oacute;n registrada se descarta al
+	 * seleccionar un fichero directamente o al cambiar de conexi&oacute;n.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testSelectionCache() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(false);
+		final SelectionTestCard card = new SelectionTestCard(conn);
+		final Location cdf = new Location("3F0050156004"); //$NON-NLS-1$
+		final Location prkdf = new Location("3F0050156001"); //$NON-NLS-1$
+
+		// MF, DF 5015 y EF
+		Assertions.assertEquals(3, countSelects(conn, card, cdf));
+		// Mismo DF, solo el EF
+		Assertions.assertEquals(1, countSelects(conn, card, prkdf));
+		// Mismo EF, ninguna seleccion
+		Assertions.assertEquals(0, countSelects(conn, card, prkdf));
+
+		// Una seleccion directa descarta la registrada
+		card.selectFileById(MASTER_FILE_ID);
+		Assertions.assertEquals(3, countSelects(conn, card, prkdf));
+
+		// Y tambien un cambio de conexion
+		card.reconnect(new RecordingApduConnection(conn));
+		Assertions.assertEquals(3, countSelects(conn, card, prkdf));
+		Assertions.assertEquals(0, countSelects(conn, card, prkdf));
+	}
+
+	/** Comprueba que las lecturas de binario no superan el tama&ntilde;o m&aacute;ximo de respuesta
+	 * que declara la tarjeta, aunque sea menor que el tama&ntilde;o por defecto, y que si la tarjeta
+	 * no lo declara y rechaza la longitud pedida se reintenta con otra menor.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testReadChunkLimits() throws Exception {
+		final Location iccCert = new Location(ICC_CERT_PATH);
+		final byte[] expected = new SelectionTestCard(new EmulatedDnieConnection(false)).selectFileByLocationAndRead(iccCert);
+
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(false);
+		conn.setMaxReadLength(0x80);
+
+		// Sin tamano declarado se reduce la longitud tras el primer rechazo
+		Assertions.assertArrayEquals(expected, new SelectionTestCard(conn).selectFileByLocationAndRead(iccCert));
+		Assertions.assertEquals(1, conn.getRejectedReads());
+
+		// Con tamano declarado (datos y palabra de estado) no se pide nunca mas
+		final SelectionTestCard card = new SelectionTestCard(conn);
+		card.declareMaxResponseLength(0x80 + 2);
+		Assertions.assertArrayEquals(expected, card.selectFileByLocationAndRead(iccCert));
+		Assertions.assertEquals(1, conn.getRejectedReads());
+	}
+
+	private static int countSelects(final EmulatedDnieConnection conn,
+			                        final AbstractIso7816FourCard card,
+			                        final Location location) throws Exception {
+		final int before = conn.getSelectCount();
+		Assertions.assertTrue(card.selectFileByLocationAndRead(location).length > 0);
+		return conn.getSelectCount() - before;
+	}
+
+	/** Tarjeta ISO 7816-4 m&iacute;nima que permite sustituir su conexi&oacute;n y declarar su
+	 * tama&ntilde;o m&aacute;ximo de respuesta. */
+	private static final class SelectionTestCard extends AbstractIso7816FourCard {
+
+		SelectionTestCard(final ApduConnection conn) {
+			super((byte) 0x00, conn);
+		}
+
+		void reconnect(final ApduConnection conn) throws ApduConnectionException {
+			setConnection(conn);
+		}
+
+		void declareMaxResponseLength(final int length) {
+			setMaxResponseLength(length);
+		}
+
+		@Override
+		protected void selectMasterFile() throws ApduConnectionException, Iso7816FourCardException {
+			selectFileById(MASTER_FILE_ID);
+		}
+
+		@Override
+		public void verifyPin(final PasswordCallback pinPc) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getCardName() {
+			return "Tarjeta de pruebas de seleccion"; //$NON-NLS-1$
+		}
+	}
+}
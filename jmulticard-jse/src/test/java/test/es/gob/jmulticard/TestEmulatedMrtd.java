@@ -0,0 +1,350 @@
+package test.es.gob.jmulticard;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.DigestAlgorithm;
+import es.gob.jmulticard.apdu.CommandApdu;
+import es.gob.jmulticard.apdu.ResponseApdu;
+import es.gob.jmulticard.apdu.iso7816four.GetChallengeApduCommand;
+import es.gob.jmulticard.asn1.icao.CardAccess;
+import es.gob.jmulticard.card.dnie.DnieFactory;
+import es.gob.jmulticard.card.dnie.DnieNfc;
+import es.gob.jmulticard.card.dnie.EmulatedDnieConnection;
+import es.gob.jmulticard.card.icao.IcaoMrtdWithPace;
+import es.gob.jmulticard.card.icao.MrtdLds1;
+import es.gob.jmulticard.card.icao.Mrz;
+import es.gob.jmulticard.card.icao.WirelessInitializerCan;
+import es.gob.jmulticard.connection.pace.PaceConnection;
+import es.gob.jmulticard.connection.pace.SecureMessaging;
+import es.gob.jmulticard.connection.pace.SecureMessagingException;
+import es.gob.jmulticard.crypto.BcCryptoHelper;
+
+/** Pruebas de lectura sin contacto (PACE y LDS1) contra el DNIe 3&#46;0 emulado en memoria.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class TestEmulatedMrtd {
+
+	private static final String CAN = "123456"; //$NON-NLS-1$
+	private static final String ALGORITHM = "SHA256withRSA"; //$NON-NLS-1$
+	private static final String SIGN_ALIAS = "CertFirmaDigital"; //$NON-NLS-1$
+	private static final byte[] DATA = "Datos a firmar".getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+
+	private static final String ID_PACE_DH_GM_AES_CBC_CMAC_128 = "0.4.0.127.0.7.2.2.4.1.2"; //$NON-NLS-1$
+	private static final String ID_PACE_ECDH_GM_AES_CBC_CMAC_128 = "0.4.0.127.0.7.2.2.4.2.2"; //$NON-NLS-1$
+	private static final String ID_PACE_ECDH_IM_AES_CBC_CMAC_128 = "0.4.0.127.0.7.2.2.4.4.2"; //$NON-NLS-1$
+	private static final String ID_CA_ECDH_AES_CBC_CMAC_128 = "0.4.0.127.0.7.2.2.3.2.2"; //$NON-NLS-1$
+	private static final int NIST_P256 = 12;
+	private static final int BRAINPOOL_P256R1 = 13;
+
+	/** Establece PACE con el CAN, lee los DG y comprueba el SOD.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testEmrtdWithCan() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		final MrtdLds1 mrtd = DnieFactory.getEmrtdNfc(
+			conn,
+			new BcCryptoHelper(),
+			new TestingDnieCallbackHandler(CAN, (String) null)
+		);
+		Assertions.assertTrue(mrtd instanceof IcaoMrtdWithPace);
+		checkContents(mrtd);
+	}
+
+	/** Establece PACE con la MRZ (simulando la latencia de un lector NFC) y comprueba el SOD.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testEmrtdWithMrz() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		conn.setLatency(1);
+		final MrtdLds1 mrtd = new IcaoMrtdWithPace(
+			conn,
+			new BcCryptoHelper(),
+			new TestingDnieCallbackHandler(EmulatedDnieConnection.getMrz(), (String) null)
+		);
+		checkContents(mrtd);
+	}
+
+	/** Establece PACE con <i>Integrated Mapping</i> y el CAN y usa el canal seguro resultante.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testPaceIntegratedMapping() throws Exception {
+		final CryptoHelper cryptoHelper = new BcCryptoHelper();
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(CAN, cryptoHelper);
+		conn.open();
+		final SecureMessaging sm = cryptoHelper.getPaceChannelHelper(
+			new CardAccess(
+				CardAccess.PaceAlgorithm.PACE_ECDH_IM_AES_CBC_CMAC_128,
+				CardAccess.PaceAlgorithmParam.BRAINPOOL_256_R1,
+				DigestAlgorithm.SHA1
+			),
+			null
+		).openPaceChannel((byte) 0x00, new WirelessInitializerCan(CAN), conn);
+		final ResponseApdu res = new PaceConnection(conn, cryptoHelper, sm).transmit(
+			new GetChallengeApduCommand((byte) 0x00)
+		);
+		Assertions.assertTrue(res.isOk());
+		Assertions.assertEquals(8, res.getData().length);
+	}
+
+	/** Negocia el algoritmo PACE con los <code>PACEInfo</code> del EF&#46;CardAccess, eligiendo
+	 * el de menor coste, y comprueba que una segunda sesi&oacute;n con el mismo ATR usa el
+	 * algoritmo guardado en cach&eacute; sin depender del EF&#46;CardAccess.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testNegotiatedPaceAlgorithm() throws Exception {
+		final byte[] atr = { (byte) 0x3B, (byte) 0x88, (byte) 0x80, (byte) 0x01, (byte) 0x25, (byte) 0x01 };
+
+		final byte[] cardAccess = securityInfos(
+			new DERSequence(new ASN1Encodable[] {
+				new ASN1ObjectIdentifier(ID_CA_ECDH_AES_CBC_CMAC_128),
+				new ASN1Integer(2)
+			}),
+			paceInfo(ID_PACE_DH_GM_AES_CBC_CMAC_128, 0),
+			paceInfo(ID_PACE_ECDH_GM_AES_CBC_CMAC_128, BRAINPOOL_P256R1),
+			paceInfo(ID_PACE_ECDH_GM_AES_CBC_CMAC_128, NIST_P256),
+			paceInfo(ID_PACE_ECDH_IM_AES_CBC_CMAC_128, BRAINPOOL_P256R1),
+			paceInfo(ID_PACE_ECDH_IM_AES_CBC_CMAC_128, NIST_P256)
+		);
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		conn.setCardAccess(cardAccess);
+		checkContents(new IcaoMrtdWithPace(conn, new BcCryptoHelper(), new WirelessInitializerCan(CAN), atr));
+		Assertions.assertEquals(CardAccess.PaceAlgorithm.PACE_ECDH_IM_AES_CBC_CMAC_128, conn.getPaceAlgorithm());
+		Assertions.assertEquals(CardAccess.PaceAlgorithmParam.NIST_P256, conn.getPaceAlgorithmParam());
+		Assertions.assertEquals(1, conn.getCardAccessReads());
+
+		// Con el mismo ATR no se vuelve a leer el EF.CardAccess
+		final EmulatedDnieConnection sameModel = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		sameModel.setCardAccess(cardAccess);
+		new IcaoMrtdWithPace(sameModel, new BcCryptoHelper(), new WirelessInitializerCan(CAN), atr).getDg1();
+		Assertions.assertEquals(CardAccess.PaceAlgorithm.PACE_ECDH_IM_AES_CBC_CMAC_128, sameModel.getPaceAlgorithm());
+		Assertions.assertEquals(CardAccess.PaceAlgorithmParam.NIST_P256, sameModel.getPaceAlgorithmParam());
+		Assertions.assertEquals(0, sameModel.getCardAccessReads());
+
+		// Sin Integrated Mapping se prefiere la curva con aritmetica optimizada
+		Assertions.assertEquals(
+			CardAccess.PaceAlgorithmParam.NIST_P256,
+			CardAccess.getPreferredCardAccess(securityInfos(
+				paceInfo(ID_PACE_ECDH_GM_AES_CBC_CMAC_128, BRAINPOOL_P256R1),
+				paceInfo(ID_PACE_ECDH_GM_AES_CBC_CMAC_128, NIST_P256)
+			)).getPaceAlgorithmParam()
+		);
+		Assertions.assertNull(CardAccess.getPreferredCardAccess(securityInfos(paceInfo(ID_PACE_DH_GM_AES_CBC_CMAC_128, 0))));
+	}
+
+	/** Con un ATR compartido por tarjetas que anuncian algoritmos PACE distintos (como los
+	 * pseudo-ATR de NFC), el algoritmo guardado de la primera no sirve para la segunda: se
+	 * descarta, se vuelve a leer el EF&#46;CardAccess y se reintenta una vez.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testCachedPaceAlgorithmRejected() throws Exception {
+		final byte[] atr = { (byte) 0x3B, (byte) 0x88, (byte) 0x80, (byte) 0x01, (byte) 0x25, (byte) 0x02 };
+
+		final EmulatedDnieConnection first = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		first.setCardAccess(securityInfos(paceInfo(ID_PACE_ECDH_IM_AES_CBC_CMAC_128, NIST_P256)));
+		new IcaoMrtdWithPace(first, new BcCryptoHelper(), new WirelessInitializerCan(CAN), atr).getDg1();
+		Assertions.assertEquals(CardAccess.PaceAlgorithm.PACE_ECDH_IM_AES_CBC_CMAC_128, first.getPaceAlgorithm());
+
+		// Otro modelo con el mismo ATR rechaza el MSE Set con el algoritmo guardado
+		final byte[] otherCardAccess = securityInfos(paceInfo(ID_PACE_ECDH_GM_AES_CBC_CMAC_128, BRAINPOOL_P256R1));
+		final EmulatedDnieConnection other = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		other.setCardAccess(otherCardAccess);
+		checkContents(new IcaoMrtdWithPace(other, new BcCryptoHelper(), new WirelessInitializerCan(CAN), atr));
+		Assertions.assertEquals(CardAccess.PaceAlgorithm.PACE_ECDH_GM_AES_CBC_CMAC_128, other.getPaceAlgorithm());
+		Assertions.assertEquals(CardAccess.PaceAlgorithmParam.BRAINPOOL_256_R1, other.getPaceAlgorithmParam());
+		Assertions.assertEquals(1, other.getCardAccessReads());
+
+		// El algoritmo releido sustituye al anterior para ese ATR
+		final EmulatedDnieConnection again = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		again.setCardAccess(otherCardAccess);
+		new IcaoMrtdWithPace(again, new BcCryptoHelper(), new WirelessInitializerCan(CAN), atr).getDg1();
+		Assertions.assertEquals(CardAccess.PaceAlgorithm.PACE_ECDH_GM_AES_CBC_CMAC_128, again.getPaceAlgorithm());
+		Assertions.assertEquals(0, again.getCardAccessReads());
+
+		// Si el algoritmo se acaba de leer de la propia tarjeta no se reintenta
+		final EmulatedDnieConnection unsupported = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		unsupported.setCardAccess(securityInfos(paceInfo(ID_PACE_DH_GM_AES_CBC_CMAC_128, 0)));
+		Assertions.assertThrows(
+			Exception.class,
+			() -> new IcaoMrtdWithPace(unsupported, new BcCryptoHelper(), new WirelessInitializerCan(CAN))
+		);
+		Assertions.assertEquals(1, unsupported.getCardAccessReads());
+	}
+
+	/** Firma dos veces con un DNIe por NFC sin ATR conocido: cada firma reabre el canal PACE,
+	 * pero el EF&#46;CardAccess solo se lee para el primero.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testPaceAlgorithmReusedOnReopen() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		final DnieNfc dnie = new DnieNfc(
+			conn,
+			null,
+			new BcCryptoHelper(),
+			new TestingDnieCallbackHandler((String) null, EmulatedDnieConnection.DEFAULT_PIN),
+			new WirelessInitializerCan(CAN)
+		);
+		for (int i = 0; i < 2; i++) {
+			final byte[] signature = dnie.sign(DATA, ALGORITHM, dnie.getPrivateKey(SIGN_ALIAS));
+			final Signature verifier = Signature.getInstance(ALGORITHM);
+			verifier.initVerify(conn.getCertificate(SIGN_ALIAS));
+			verifier.update(DATA);
+			Assertions.assertTrue(verifier.verify(signature));
+		}
+		Assertions.assertEquals(1, conn.getCardAccessReads());
+	}
+
+	/** Abre un DNIe por NFC con el CAN y comprueba el SOD por el canal de usuario.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testDnieNfc() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		final DnieNfc dnie = DnieFactory.getDnieNfc(
+			conn,
+			new BcCryptoHelper(),
+			new TestingDnieCallbackHandler(CAN, EmulatedDnieConnection.DEFAULT_PIN)
+		);
+		checkContents(dnie);
+	}
+
+	/** Abre a la vez canales PACE con varios DNIe, cada uno con su CAN, y firma con cada uno
+	 * (lo que reabre el canal PACE con el CAN de esa tarjeta).
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testConcurrentDnieNfc() throws Exception {
+		final int readers = 4;
+		final ExecutorService executor = Executors.newFixedThreadPool(readers);
+		try {
+			final List<Future<X509Certificate>> results = new ArrayList<>();
+			for (int i = 1; i <= readers; i++) {
+				final String can = String.valueOf(i * 111111);
+				results.add(executor.submit(() -> {
+					final EmulatedDnieConnection conn = new EmulatedDnieConnection(can, new BcCryptoHelper());
+					conn.setLatency(1);
+					final DnieNfc dnie = DnieFactory.getDnieNfc(
+						conn,
+						new BcCryptoHelper(),
+						new TestingDnieCallbackHandler((String) null, EmulatedDnieConnection.DEFAULT_PIN),
+						new WirelessInitializerCan(can)
+					);
+					final byte[] signature = dnie.sign(DATA, ALGORITHM, dnie.getPrivateKey(SIGN_ALIAS));
+					final X509Certificate cert = conn.getCertificate(SIGN_ALIAS);
+					final Signature verifier = Signature.getInstance(ALGORITHM);
+					verifier.initVerify(cert);
+					verifier.update(DATA);
+					Assertions.assertTrue(verifier.verify(signature));
+					return cert;
+				}));
+			}
+			for (final Future<X509Certificate> result : results) {
+				Assertions.assertNotNull(result.get());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** Un MRTD no permite firmar, ni datos ni huellas ya calculadas.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testMrtdSignNotAllowed() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		final IcaoMrtdWithPace mrtd = new IcaoMrtdWithPace(
+			conn,
+			new BcCryptoHelper(),
+			new TestingDnieCallbackHandler(CAN, (String) null)
+		);
+		Assertions.assertThrows(
+			UnsupportedOperationException.class,
+			() -> mrtd.sign(DATA, ALGORITHM, null)
+		);
+		Assertions.assertThrows(
+			UnsupportedOperationException.class,
+			() -> mrtd.signDigest(new byte[32], ALGORITHM, null)
+		);
+	}
+
+	/** Un CAN incorrecto debe impedir el establecimiento de PACE.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testWrongCan() throws Exception {
+		final EmulatedDnieConnection conn = new EmulatedDnieConnection(CAN, new BcCryptoHelper());
+		Assertions.assertThrows(
+			Exception.class,
+			() -> new IcaoMrtdWithPace(
+				conn,
+				new BcCryptoHelper(),
+				new TestingDnieCallbackHandler("654321", (String) null) //$NON-NLS-1$
+			)
+		);
+	}
+
+	/** Las APDU protegidas por PACE solo usan la forma extendida si la tarjeta la admite, y
+	 * entonces piden como Le la longitud de la respuesta protegida al Le en claro.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testSecureMessagingExtendedLength() throws Exception {
+		final SecureMessaging sm = new SecureMessaging(new byte[16], new byte[16], new byte[16], new BcCryptoHelper());
+		final CommandApdu longRead = new CommandApdu((byte) 0x00, (byte) 0xB0, (byte) 0x00, (byte) 0x00, null, Integer.valueOf(0x400));
+		final CommandApdu shortRead = new CommandApdu((byte) 0x00, (byte) 0xB0, (byte) 0x00, (byte) 0x00, null, Integer.valueOf(0xDE));
+
+		// Sin APDU extendidas, un Le extendido no se puede proteger
+		Assertions.assertThrows(SecureMessagingException.class, () -> sm.wrap(longRead));
+		Assertions.assertEquals(Integer.valueOf(0), sm.wrap(shortRead).getLe());
+
+		sm.setExtendedLength(true);
+		final CommandApdu wrapped = sm.wrap(longRead);
+		Assertions.assertEquals(0, wrapped.getBytes()[4]);
+		// DO87 (etiqueta, tres octetos de longitud, indicador de relleno y 1040 de criptograma), DO99 y DO8E
+		Assertions.assertEquals(Integer.valueOf(1 + 3 + 1 + 1040 + 4 + 10), wrapped.getLe());
+		// Lo que cabe en una APDU corta sigue yendo en forma corta
+		Assertions.assertEquals(Integer.valueOf(0), sm.wrap(shortRead).getLe());
+	}
+
+	private static DERSequence paceInfo(final String protocol, final int parameterId) {
+		return new DERSequence(new ASN1Encodable[] {
+			new ASN1ObjectIdentifier(protocol),
+			new ASN1Integer(2),
+			new ASN1Integer(parameterId)
+		});
+	}
+
+	private static byte[] securityInfos(final ASN1Encodable... infos) throws Exception {
+		return new DERSet(infos).getEncoded();
+	}
+
+	private static void checkContents(final MrtdLds1 mrtd) throws Exception {
+		final X509Certificate[] chain = mrtd.checkSecurityObjects();
+		Assertions.assertEquals(EmulatedDnieConnection.getDocumentSignerCertificate(), chain[0]);
+
+		final Mrz dg1 = mrtd.getDg1();
+		Assertions.assertEquals(new Mrz(EmulatedDnieConnection.getMrz()).getDocumentNumber(), dg1.getDocumentNumber());
+		Assertions.assertEquals("CARMEN", mrtd.getDg13().getName()); //$NON-NLS-1$
+	}
+}
@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Constructor;
 import java.math.BigInteger;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -16,10 +17,16 @@ import java.security.SecureRandom;
 import java.security.Security;
 import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateFactorySpi;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateCrtKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECFieldFp;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -58,6 +65,7 @@ import es.gob.jmulticard.CryptoHelper.BlockMode;
 import es.gob.jmulticard.CryptoHelper.EcCurve;
 import es.gob.jmulticard.CryptoHelper.Padding;
 import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.card.cwa14890.Cwa14890PrivateConstants;
 import es.gob.jmulticard.crypto.BcCryptoHelper;
 
 /** Pruebas de operaciones criptogr&aacute;ficas con BcCryptoHelper.
@@ -285,6 +293,28 @@ final class TestCryptoHelper {
 		System.out.println(kp);
 	}
 
+	/** Prueba del mapeo gen&eacute;rico de un nonce: el nuevo generador debe estar en la curva.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testGetEcPoint() throws Exception {
+		final KeyPair kp = CH.generateEcKeyPair(EcCurve.BRAINPOOL_P256_R1);
+		final byte[] x = ((ECPublicKey) kp.getPublic()).getW().getAffineX().toByteArray();
+		final AlgorithmParameterSpec spec = CH.getEcPoint(
+			CH.generateRandomBytes(16),
+			x,
+			EcCurve.BRAINPOOL_P256_R1
+		);
+		Assertions.assertTrue(spec instanceof ECParameterSpec);
+		final EllipticCurve curve = ((ECParameterSpec) spec).getCurve();
+		final BigInteger p = ((ECFieldFp) curve.getField()).getP();
+		final ECPoint g = ((ECParameterSpec) spec).getGenerator();
+		Assertions.assertEquals(
+			g.getAffineY().modPow(BigInteger.valueOf(2), p),
+			g.getAffineX().pow(3).add(curve.getA().multiply(g.getAffineX())).add(curve.getB()).mod(p)
+		);
+	}
+
 	/** Prueba de cifrado DES ECB sin relleno contra proveedor JSE.
 	 * @throws Exception En cualquier error. */
 	@SuppressWarnings("static-method")
@@ -441,6 +471,53 @@ final class TestCryptoHelper {
 		Assertions.assertArrayEquals(res1, res2);
 	}
 
+	/** Clases de constantes CWA-14890 con clave privada de Terminal en formato CRT. */
+	private static final String[] CWA14890_PRIVATE_CONSTANTS = {
+		"es.gob.jmulticard.card.dnie.DnieCwa14890Constants", //$NON-NLS-1$
+		"es.gob.jmulticard.card.dnie.Dnie3PinCwa14890Constants", //$NON-NLS-1$
+		"es.gob.jmulticard.card.dnie.Dnie3UsrCwa14890Constants", //$NON-NLS-1$
+		"es.gob.jmulticard.card.dnie.Dnie3r2PinCwa14890Constants", //$NON-NLS-1$
+		"es.gob.jmulticard.card.dnie.Dnie3r2UsrCwa14890Constants", //$NON-NLS-1$
+		"es.gob.jmulticard.card.dnie.ceressc.CeresScCwa14890Constants", //$NON-NLS-1$
+		"es.gob.jmulticard.card.dnie.tif.TifCwa14890Constants" //$NON-NLS-1$
+	};
+
+	/** Prueba de operaciones RSA con las claves privadas de Terminal mediante CRT (con cegado)
+	 * frente a la exponenciaci&oacute;n modular completa, comprobando tambi&eacute;n que los
+	 * par&aacute;metros CRT de cada clave reproducen su m&oacute;dulo y su exponente privado.
+	 * @throws Exception En cualquier error. */
+	@SuppressWarnings("static-method")
+	@Test
+	void testRsaCrt() throws Exception {
+		for (final String className : CWA14890_PRIVATE_CONSTANTS) {
+			final Constructor<?> constructor = Class.forName(className).getDeclaredConstructor();
+			constructor.setAccessible(true);
+			final RSAPrivateKey ifdKey = ((Cwa14890PrivateConstants) constructor.newInstance()).getIfdPrivateKey();
+			Assertions.assertTrue(ifdKey instanceof RSAPrivateCrtKey, className);
+			final RSAPrivateCrtKey crtKey = (RSAPrivateCrtKey) ifdKey;
+
+			final BigInteger p = crtKey.getPrimeP();
+			final BigInteger q = crtKey.getPrimeQ();
+			final BigInteger pMinusOne = p.subtract(BigInteger.ONE);
+			final BigInteger qMinusOne = q.subtract(BigInteger.ONE);
+
+			Assertions.assertEquals(crtKey.getModulus(), p.multiply(q), className);
+			Assertions.assertEquals(crtKey.getPrivateExponent().mod(pMinusOne), crtKey.getPrimeExponentP(), className);
+			Assertions.assertEquals(crtKey.getPrivateExponent().mod(qMinusOne), crtKey.getPrimeExponentQ(), className);
+			Assertions.assertEquals(q.modInverse(p), crtKey.getCrtCoefficient(), className);
+
+			// e * d = 1 mod mcm(p-1, q-1)
+			final BigInteger lambda = pMinusOne.multiply(qMinusOne).divide(pMinusOne.gcd(qMinusOne));
+			Assertions.assertEquals(
+				BigInteger.ONE,
+				crtKey.getPublicExponent().multiply(crtKey.getPrivateExponent()).mod(lambda),
+				className
+			);
+
+			Assertions.assertArrayEquals(doRsaBc(RSA_TEST_DATA, ifdKey), CH.rsaEncrypt(RSA_TEST_DATA, ifdKey), className);
+		}
+	}
+
 	private static byte[] doRsaBc(final byte[] data, final RSAKey key) throws IOException {
     	final boolean forEncryption = true;
 
@@ -346,6 +346,23 @@ public abstract class CryptoHelper {
 			(byte) 0x86, (byte) 0x41, (byte) 0x04
 		};
 
+		/** Constante <i>c<sub>0</sub></i> de la funci&oacute;n pseudoaleatoria del <i>Integrated Mapping</i>
+		 * con cifrados de bloque de 128 bits. */
+		private static final byte[] IM_C0_128 = {
+			(byte) 0xa6, (byte) 0x68, (byte) 0x89, (byte) 0x2a, (byte) 0x7c, (byte) 0x41, (byte) 0xe3, (byte) 0xca,
+			(byte) 0x73, (byte) 0x9f, (byte) 0x40, (byte) 0xb0, (byte) 0x57, (byte) 0xd8, (byte) 0x59, (byte) 0x04
+		};
+
+		/** Constante <i>c<sub>1</sub></i> de la funci&oacute;n pseudoaleatoria del <i>Integrated Mapping</i>
+		 * con cifrados de bloque de 128 bits. */
+		private static final byte[] IM_C1_128 = {
+			(byte) 0xa4, (byte) 0xe1, (byte) 0x36, (byte) 0xac, (byte) 0x72, (byte) 0x5f, (byte) 0x73, (byte) 0x8b,
+			(byte) 0x01, (byte) 0xc1, (byte) 0xf6, (byte) 0x02, (byte) 0x17, (byte) 0xc1, (byte) 0x88, (byte) 0xad
+		};
+
+		/** Tama&ntilde;o (en octetos) de bloque y de clave de AES-128. */
+		private static final int AES128_LENGTH = 16;
+
 		/** Utilidad para operaciones criptogr&aacute;ficas. */
 		protected final CryptoHelper cryptoHelper;
 
@@ -376,6 +393,35 @@ public abstract class CryptoHelper {
 			return new Tlv(new Tlv(key).getValue()).getValue();
 		}
 
+		/** Funci&oacute;n pseudoaleatoria <code>R<sub>p</sub>(s, t)</code> del <i>Integrated Mapping</i>
+		 * de PACE (ICAO 9303 parte 11), construida con AES-128 en modo CBC con vector de
+		 * inicializaci&oacute;n nulo: <code>k<sub>1</sub> = E(t, s)</code> y, para cada bloque,
+		 * <code>x<sub>i</sub> = E(k<sub>i</sub>, c<sub>1</sub>)</code> y
+		 * <code>k<sub>i+1</sub> = E(k<sub>i</sub>, c<sub>0</sub>)</code>, hasta tener al menos
+		 * 64 bits m&aacute;s que el tama&ntilde;o de <code>p</code>.
+		 * @param s <i>Nonce</i> de la tarjeta (ya descifrado).
+		 * @param t <i>Nonce</i> del terminal.
+		 * @param p Primo del cuerpo de la curva.
+		 * @return Elemento del cuerpo <code>x<sub>1</sub> || ... || x<sub>n</sub> mod p</code>.
+		 * @throws IOException Si hay problemas en el cifrado. */
+		protected BigInteger pseudoRandomNumberMapping(final byte[] s,
+				                                       final byte[] t,
+				                                       final BigInteger p) throws IOException {
+			if (s == null || s.length != AES128_LENGTH || t == null || t.length != AES128_LENGTH) {
+				throw new IllegalArgumentException(
+					"El Integrated Mapping solo esta soportado con AES-128 (nonces de 16 octetos)" //$NON-NLS-1$
+				);
+			}
+			final int n = (p.bitLength() + 64 + AES128_LENGTH * 8 - 1) / (AES128_LENGTH * 8);
+			byte[] key = cryptoHelper.aesEncrypt(s, new byte[0], t, BlockMode.CBC, Padding.NOPADDING);
+			final ByteArrayOutputStream x = new ByteArrayOutputStream(n * AES128_LENGTH);
+			for (int i = 0; i < n; i++) {
+				x.write(cryptoHelper.aesEncrypt(IM_C1_128, new byte[0], key, BlockMode.CBC, Padding.NOPADDING));
+				key = cryptoHelper.aesEncrypt(IM_C0_128, new byte[0], key, BlockMode.CBC, Padding.NOPADDING);
+			}
+			return new BigInteger(1, x.toByteArray()).mod(p);
+		}
+
 		/** Abre un canal PACE.
 		 * @param cla Clase de APDU para los comandos de establecimiento de canal.
 		 * @param pi Valor de inicializaci&oacute;n del canal. Puede ser un CAN
@@ -52,6 +52,21 @@ public class CommandApdu extends Apdu {
 	private Integer le;
 	private final byte[] body;
 
+	/** Indica si una APDU en binario tiene Lc y Le en forma extendida
+	 * (casos 2E, 3E y 4E de ISO 7816-3).
+	 * @param bytes APDU en binario.
+	 * @return <code>true</code> si la APDU es extendida, <code>false</code> si es corta. */
+	private static boolean isExtended(final byte[] bytes) {
+		if (bytes.length < 7 || bytes[4] != 0) {
+			return false;
+		}
+		if (bytes.length == 7) {
+			return true;
+		}
+		final int lc = (bytes[5] & 0xff) << 8 | bytes[6] & 0xff;
+		return lc > 0 && (bytes.length == 7 + lc || bytes.length == 9 + lc);
+	}
+
 	private static byte[] getBody(final byte[] bytes) {
 		if (bytes == null || bytes.length < 5) {
 			throw new IllegalArgumentException(
@@ -59,6 +74,15 @@ public class CommandApdu extends Apdu {
 			);
 		}
 		final byte[] data;
+		if (isExtended(bytes)) {
+			if (bytes.length == 7) {
+				return null;
+			}
+			final int lc = (bytes[5] & 0xff) << 8 | bytes[6] & 0xff;
+			data = new byte[lc];
+			System.arraycopy(bytes, 7, data, 0, lc);
+			return data;
+		}
 		final int i = bytes[4] & 0xff;
 		if (bytes.length > 5) {
 			data = new byte[i];
@@ -75,6 +99,21 @@ public class CommandApdu extends Apdu {
 				"La longitud del array de octetos debe ser igual o mayor que 5." //$NON-NLS-1$
 			);
 		}
+		if (isExtended(bytes)) {
+			final int lePos;
+			if (bytes.length == 7) {
+				lePos = 5;
+			}
+			else {
+				lePos = 7 + ((bytes[5] & 0xff) << 8 | bytes[6] & 0xff);
+				if (lePos == bytes.length) {
+					return null;
+				}
+			}
+			final int le = (bytes[lePos] & 0xff) << 8 | bytes[lePos + 1] & 0xff;
+			// Un Le extendido de 0000 indica 65536 octetos
+			return Integer.valueOf(le == 0 ? 0x10000 : le);
+		}
 		final int i = bytes[4] & 0xff;
 		if (bytes.length>5 && bytes.length>i+5) {
 			return Integer.valueOf(bytes[i+5]);
@@ -125,6 +164,9 @@ public class CommandApdu extends Apdu {
 		p2 = param2;
 		baos.write(param2);
 
+		// Si Lc o Le no caben en un octeto, ambos se codifican en forma extendida
+		final boolean extended = data != null && data.length > 255 || ne != null && ne.intValue() > 0xff;
+
 		if (data == null) {
 			body = null;
 		}
@@ -133,7 +175,7 @@ public class CommandApdu extends Apdu {
 			System.arraycopy(data, 0, body, 0, data.length);
 
 			// Caso 4s: |CLA|INS|P1 |P2 |LC |...BODY...|LE |              len = 7..261
-			if (data.length <= 255) {
+			if (!extended) {
 				baos.write(Integer.valueOf(String.valueOf(body.length)).byteValue());
 			}
 			// Caso 3e: |CLA|INS|P1 |P2 |00 |LC1|LC2|...BODY...|          len = 8..65542
@@ -157,10 +199,14 @@ public class CommandApdu extends Apdu {
 
 		le = ne;
 		if (ne != null) {
-			if (ne.intValue() <= 0xff) {
+			if (!extended) {
 				baos.write(ne.byteValue());
 			}
 			else {
+				// Caso 2e: |CLA|INS|P1 |P2 |00 |LE1|LE2|                len = 7
+				if (data == null) {
+					baos.write((byte) 0x00);
+				}
 				baos.write((byte) (ne.intValue() >> 8));
 				baos.write((byte) (ne.intValue() & 0xff));
 			}
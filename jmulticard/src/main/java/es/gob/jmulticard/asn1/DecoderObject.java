@@ -46,16 +46,49 @@ import es.gob.jmulticard.HexUtils;
  * @author Alberto Mart&iacute;nez. */
 public abstract class DecoderObject {
 
+    /** Estructura binaria que contiene el valor DER del objeto. Puede estar compartida
+     * con el objeto que contiene a este, por lo que nunca se modifica. */
     private byte[] rawDerValue = null;
 
+    /** Posici&oacute;n del valor DER del objeto dentro de <code>rawDerValue</code>. */
+    private int rawDerOffset = 0;
+
+    /** Longitud del valor DER del objeto. */
+    private int rawDerLength = 0;
+
 	/** Obtiene el valor directo binario ASN&#46;1 DER.
 	 * @return Valor directo ASN&#46;1 DER. */
 	public final byte[] getBytes() {
-		final byte[] out = new byte[rawDerValue.length];
-		System.arraycopy(rawDerValue, 0, out, 0, rawDerValue.length);
+		final byte[] out = new byte[rawDerLength];
+		System.arraycopy(rawDerValue, rawDerOffset, out, 0, rawDerLength);
 		return out;
 	}
 
+	/** Obtiene la longitud del valor directo binario ASN&#46;1 DER, sin copiarlo.
+	 * @return Longitud del valor directo ASN&#46;1 DER. */
+	protected final int getDerLength() {
+		return rawDerLength;
+	}
+
+	/** Obtiene, sin copiar datos, el TLV que comienza al principio del valor DER del objeto.
+	 * @return TLV del objeto.
+	 * @throws TlvException Si el valor DER no empieza por un TLV v&aacute;lido. */
+	protected final Tlv getTlv() throws TlvException {
+		return getTlvAt(0);
+	}
+
+	/** Obtiene, sin copiar datos, el TLV que comienza en una posici&oacute;n del valor DER del objeto.
+	 * @param offset Posici&oacute;n (relativa al inicio del valor DER) en la que comienza el TLV.
+	 * @return TLV en la posici&oacute;n indicada.
+	 * @throws TlvException Si no hay un TLV v&aacute;lido en la posici&oacute;n indicada. */
+	protected final Tlv getTlvAt(final int offset) throws TlvException {
+		if (rawDerLength == 0) {
+			// Mantenemos el comportamiento de los TLV vacios
+			return new Tlv(new byte[0]);
+		}
+		return Tlv.view(rawDerValue, rawDerOffset + offset, rawDerOffset + rawDerLength);
+	}
+
     /** Establece el valor (en codificaci&oacute;n DER) del objeto ASN&#46;1.
      * @param value Valor (TLC con codificaci&oacute;n DER) del objeto ASN&#46;1.
      * @throws Asn1Exception Si no se puede decodificar adecuadamente el valor establecido.
@@ -68,6 +101,27 @@ public abstract class DecoderObject {
         }
         rawDerValue = new byte[value.length];
         System.arraycopy(value, 0, rawDerValue, 0, value.length);
+        rawDerOffset = 0;
+        rawDerLength = value.length;
+        decodeValue();
+    }
+
+    /** Establece el valor (en codificaci&oacute;n DER) del objeto ASN&#46;1 a partir de un TLV ya
+     * analizado, compartiendo sus datos en vez de copiarlos.
+     * Es la forma de establecer el valor de los elementos de los tipos compuestos, de modo
+     * que toda la estructura se decodifique sobre una &uacute;nica copia de los datos.
+     * @param tlv TLV con el valor del objeto ASN&#46;1.
+     * @throws Asn1Exception Si no se puede decodificar adecuadamente el valor establecido.
+     * @throws TlvException Si hay errores relativos a los TLV DER al decodificar los datos de entrada. */
+    public void setDerTlv(final Tlv tlv) throws Asn1Exception, TlvException {
+        if (tlv == null) {
+            throw new IllegalArgumentException(
+        		"El TLV del objeto ASN.1 no puede ser nulo" //$NON-NLS-1$
+    		);
+        }
+        rawDerValue = tlv.getBuffer();
+        rawDerOffset = tlv.getStart();
+        rawDerLength = tlv.getTotalLength();
         decodeValue();
     }
 
@@ -0,0 +1,65 @@
+package es.gob.jmulticard.asn1;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/** Factor&iacute;as de objetos ASN&#46;1 a partir de su clase.
+ * Se usan cuando los tipos compuestos declaran sus elementos mediante clases en vez de
+ * mediante factor&iacute;as (por ejemplo, referencias a constructores), y resuelven el
+ * constructor de cada clase una &uacute;nica vez en lugar de en cada elemento decodificado.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+public final class DecoderObjectFactory {
+
+	/** Factor&iacute;as ya creadas por clase. */
+	private static final Map<Class<? extends DecoderObject>, Supplier<? extends DecoderObject>> FACTORIES = new ConcurrentHashMap<>();
+
+	private DecoderObjectFactory() {
+		// No instanciable
+	}
+
+	/** Obtiene una factor&iacute;a de objetos de la clase indicada, que debe tener un
+	 * constructor p&uacute;blico sin par&aacute;metros.
+	 * Si la clase no puede instanciarse, el error se produce al invocar a la factor&iacute;a
+	 * como una <code>IllegalStateException</code>.
+	 * @param <T> Tipo de los objetos ASN&#46;1 a crear.
+	 * @param type Clase de los objetos ASN&#46;1 a crear.
+	 * @return Factor&iacute;a de objetos de la clase indicada. */
+	@SuppressWarnings("unchecked")
+	public static <T extends DecoderObject> Supplier<T> forClass(final Class<T> type) {
+		if (type == null) {
+			throw new IllegalArgumentException("La clase de objeto ASN.1 no puede ser nula"); //$NON-NLS-1$
+		}
+		// Cada clase se asocia siempre a una factoria de su mismo tipo
+		return (Supplier<T>) FACTORIES.computeIfAbsent(type, ConstructorFactory::new);
+	}
+
+	/** Factor&iacute;a que instancia una clase mediante su constructor sin par&aacute;metros. */
+	private static final class ConstructorFactory<T extends DecoderObject> implements Supplier<T> {
+
+		private final Class<T> type;
+
+		/** Constructor resuelto en el primer uso. */
+		private volatile Constructor<T> constructor = null;
+
+		ConstructorFactory(final Class<T> t) {
+			type = t;
+		}
+
+		@Override
+		public T get() {
+			try {
+				Constructor<T> c = constructor;
+				if (c == null) {
+					c = type.getConstructor();
+					constructor = c;
+				}
+				return c.newInstance();
+			}
+			catch (final ReflectiveOperationException | SecurityException e) {
+				throw new IllegalStateException("No se ha podido instanciar un " + type.getName(), e); //$NON-NLS-1$
+			}
+		}
+	}
+}
@@ -62,6 +62,9 @@ public final class OidDictionary {
 		dic.put("55-04-0A", "O");            //$NON-NLS-1$ //$NON-NLS-2$
 		dic.put("55-04-0B", "OU");           //$NON-NLS-1$ //$NON-NLS-2$
 		dic.put("2B-0E-03-02-1A", "SHA-1");  //$NON-NLS-1$ //$NON-NLS-2$
+		dic.put("60-86-48-01-65-03-04-02-01", "SHA-256"); //$NON-NLS-1$ //$NON-NLS-2$
+		dic.put("60-86-48-01-65-03-04-02-02", "SHA-384"); //$NON-NLS-1$ //$NON-NLS-2$
+		dic.put("60-86-48-01-65-03-04-02-03", "SHA-512"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
 	/** Obtiene la descripci&oacute;n textual de un OID.
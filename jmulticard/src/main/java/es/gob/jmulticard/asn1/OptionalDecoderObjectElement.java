@@ -1,37 +1,95 @@
-package es.gob.jmulticard.asn1;
-
-/** Tipo de objeto ASN&#46;1 gen&eacute;rico opcional dentro de un objeto compuesto.
- * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
-public final class OptionalDecoderObjectElement {
-
-	private final Class<? extends DecoderObject> elementType;
-	private final boolean optional;
-
-	/** Construye un tipo de objeto ASN&#46;1 gen&eacute;rico opcional dentro de un objeto compuesto.
-	 * @param type Tipo de objeto ASN&#46;1.
-	 * @param opt <code>true</code> si este elemento es opcional dentro de un objeto compuesto,
-	 *            <code>false</code> en caso contrario. */
-	public OptionalDecoderObjectElement(final Class<? extends DecoderObject> type, final boolean opt) {
-		if (type == null && !opt) {
-			throw new IllegalArgumentException(
-				"El tipo de elemento ASN.1 no puede ser nulo cuando el elemento no es opcional" //$NON-NLS-1$
-			);
-		}
-		this.elementType = type;
-		this.optional = opt;
-	}
-
-	/** Optiene el tipo del elemento ASN&#46;1.
-	 * @return Tipo del elemento ASN&#46;1. */
-	public Class<? extends DecoderObject> getElementType() {
-		return this.elementType;
-	}
-
-	/** Indica si el elemento es opcional dentro de un objeto compuesto.
-	 * @return <code>true</code> si este elemento es opcional dentro de un objeto compuesto,
-	 *          <code>false</code> en caso contrario. */
-	public boolean isOptional() {
-		return this.optional;
-	}
-
-}
+package es.gob.jmulticard.asn1;
+
+import java.util.function.Supplier;
+
+/** Tipo de objeto ASN&#46;1 gen&eacute;rico opcional dentro de un objeto compuesto.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+public final class OptionalDecoderObjectElement {
+
+	private final Class<? extends DecoderObject> elementType;
+	private final Supplier<? extends DecoderObject> elementFactory;
+	private final boolean optional;
+
+	/** Nombre del tipo del elemento, que se obtiene del primer objeto creado si el
+	 * elemento se construy&oacute; a partir de una factor&iacute;a. */
+	private String elementName;
+
+	/** Construye un tipo de objeto ASN&#46;1 gen&eacute;rico opcional dentro de un objeto compuesto.
+	 * @param type Tipo de objeto ASN&#46;1.
+	 * @param opt <code>true</code> si este elemento es opcional dentro de un objeto compuesto,
+	 *            <code>false</code> en caso contrario. */
+	public OptionalDecoderObjectElement(final Class<? extends DecoderObject> type, final boolean opt) {
+		if (type == null && !opt) {
+			throw new IllegalArgumentException(
+				"El tipo de elemento ASN.1 no puede ser nulo cuando el elemento no es opcional" //$NON-NLS-1$
+			);
+		}
+		this.elementType = type;
+		this.elementName = type != null ? type.getName() : null;
+		this.elementFactory = type != null ? DecoderObjectFactory.forClass(type) : null;
+		this.optional = opt;
+	}
+
+	/** Construye un tipo de objeto ASN&#46;1 gen&eacute;rico opcional dentro de un objeto compuesto
+	 * a partir de una factor&iacute;a de objetos (normalmente, una referencia a su constructor),
+	 * lo que evita instanciar los elementos mediante reflexi&oacute;n.
+	 * @param factory Factor&iacute;a de objetos ASN&#46;1 del tipo del elemento.
+	 * @param opt <code>true</code> si este elemento es opcional dentro de un objeto compuesto,
+	 *            <code>false</code> en caso contrario. */
+	public OptionalDecoderObjectElement(final Supplier<? extends DecoderObject> factory, final boolean opt) {
+		if (factory == null && !opt) {
+			throw new IllegalArgumentException(
+				"La factoria de elementos ASN.1 no puede ser nula cuando el elemento no es opcional" //$NON-NLS-1$
+			);
+		}
+		this.elementType = null;
+		this.elementFactory = factory;
+		this.optional = opt;
+	}
+
+	/** Optiene el tipo del elemento ASN&#46;1.
+	 * @return Tipo del elemento ASN&#46;1 o <code>null</code> si el elemento se
+	 *         construy&oacute; a partir de una factor&iacute;a. */
+	public Class<? extends DecoderObject> getElementType() {
+		return this.elementType;
+	}
+
+	/** Obtiene el nombre del tipo del elemento, para los mensajes de error.
+	 * Si el elemento se construy&oacute; a partir de una factor&iacute;a, el nombre se toma
+	 * de la clase del objeto que crea.
+	 * @return Nombre del tipo del elemento. */
+	public String getElementName() {
+		if (this.elementName == null && this.elementFactory != null) {
+			try {
+				this.elementName = this.elementFactory.get().getClass().getName();
+			}
+			catch (final RuntimeException e) {
+				// La propia factoria falla, no hay objeto del que tomar el nombre
+				return "ASN.1"; //$NON-NLS-1$
+			}
+		}
+		return this.elementName != null ? this.elementName : "ASN.1"; //$NON-NLS-1$
+	}
+
+	/** Crea un nuevo objeto ASN&#46;1 del tipo del elemento.
+	 * @return Nuevo objeto ASN&#46;1 del tipo del elemento.
+	 * @throws IllegalStateException Si no se ha podido crear el objeto. */
+	public DecoderObject newElement() {
+		if (this.elementFactory == null) {
+			throw new IllegalStateException("No hay tipo definido para el elemento ASN.1"); //$NON-NLS-1$
+		}
+		final DecoderObject element = this.elementFactory.get();
+		if (this.elementName == null) {
+			this.elementName = element.getClass().getName();
+		}
+		return element;
+	}
+
+	/** Indica si el elemento es opcional dentro de un objeto compuesto.
+	 * @return <code>true</code> si este elemento es opcional dentro de un objeto compuesto,
+	 *          <code>false</code> en caso contrario. */
+	public boolean isOptional() {
+		return this.optional;
+	}
+
+}
@@ -55,9 +55,15 @@ public final class Tlv {
     /** Longitud del valor. */
     private final int length;
 
-    /** Estructura binaria completa del TLV. */
+    /** Estructura binaria que contiene el TLV completo. Puede ser compartida con otros
+     * TLV (los anidados en este o aquel en el que este est&aacute; anidado), pero nunca
+     * se modifica ni se expone directamente fuera del paquete. */
     private final byte[] bytes;
 
+    /** Posici&oacute;n del TLV (de su octeto de tipo) dentro de <code>bytes</code>. */
+    private final int start;
+
+    /** Posici&oacute;n del valor del TLV dentro de <code>bytes</code>. */
     private final int valueOffset;
 
     /** Construye un TLV simple con etiqueta y longitud de un solo octeto cada uno.
@@ -67,10 +73,9 @@ public final class Tlv {
     	if (value == null) {
             throw new IllegalArgumentException("El valor del TLV no puede ser nulo"); //$NON-NLS-1$
         }
-        valueOffset = 2;
         tag = t;
         length = value.length;
-
+        start = 0;
 
         final int iExtLen;
         if (length >= 256) {
@@ -82,6 +87,7 @@ public final class Tlv {
         else {
         	iExtLen = 2;
         }
+        valueOffset = iExtLen;
 
         bytes = new byte[value.length + iExtLen];
         bytes[0] = t;
@@ -109,6 +115,7 @@ public final class Tlv {
         if (buffer == null) {
             throw new IllegalArgumentException("El TLV no puede ser nulo"); //$NON-NLS-1$
         }
+        start = 0;
         if (buffer.length == 0) {
         	JmcLogger.warning("Se ha pedido crear un TLV vacio"); //$NON-NLS-1$
         	length = 0;
@@ -123,51 +130,121 @@ public final class Tlv {
     		);
         }
 
-        int offset = 0;
+        tag = buffer[0];
+        valueOffset = decodeLength(buffer, 0, buffer.length);
+        length = decodedLength(buffer, 0);
 
-        // Copiamos el TLV completo
-        final byte[] tempBytes = new byte[buffer.length];
-        System.arraycopy(buffer, 0, tempBytes, 0, buffer.length);
+        // Copiamos unicamente los octetos del TLV
+        bytes = new byte[valueOffset + length];
+        System.arraycopy(buffer, 0, bytes, 0, valueOffset + length);
+    }
 
-        tag = tempBytes[offset++];
+    /** Construye un TLV como vista sobre una estructura binaria ya existente, sin copiarla.
+     * @param buffer Estructura binaria que contiene el TLV, que no debe modificarse despu&eacute;s.
+     * @param offset Posici&oacute;n del TLV dentro de la estructura.
+     * @param limit Posici&oacute;n (excluida) hasta la que puede extenderse el TLV.
+     * @throws TlvException Si no hay un TLV v&aacute;lido en la posici&oacute;n indicada. */
+    private Tlv(final byte[] buffer, final int offset, final int limit) throws TlvException {
+    	if (limit - offset < 2) {
+    		throw new TlvException(
+				"No hay datos suficientes para un TLV en la posicion " + offset //$NON-NLS-1$
+			);
+    	}
+    	bytes = buffer;
+    	start = offset;
+    	tag = buffer[offset];
+    	valueOffset = decodeLength(buffer, offset, limit);
+    	length = decodedLength(buffer, offset);
+    	if (valueOffset + length > limit) {
+    		throw new TlvException(
+				"La longitud del TLV (" + length + ") excede los datos disponibles (" + (limit - valueOffset) + ")" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			);
+    	}
+    }
 
-        // Copiamos la longitud
-        int size = tempBytes[offset++] & 0xff;
-        final boolean indefinite = size == 128;
-        if (indefinite) {
-            if ((tag & 0x20) == 0) {
+    /** Crea un TLV como vista sobre una estructura binaria, sin copiarla.
+     * @param buffer Estructura binaria que contiene el TLV, que no debe modificarse despu&eacute;s.
+     * @param offset Posici&oacute;n del TLV dentro de la estructura.
+     * @param limit Posici&oacute;n (excluida) hasta la que puede extenderse el TLV.
+     * @return TLV que comparte la estructura binaria proporcionada.
+     * @throws TlvException Si no hay un TLV v&aacute;lido en la posici&oacute;n indicada. */
+    static Tlv view(final byte[] buffer, final int offset, final int limit) throws TlvException {
+    	return new Tlv(buffer, offset, limit);
+    }
+
+    /** Analiza el campo de longitud de un TLV.
+     * @param buffer Estructura binaria que contiene el TLV.
+     * @param offset Posici&oacute;n del TLV dentro de la estructura.
+     * @param limit Posici&oacute;n (excluida) hasta la que puede extenderse el TLV.
+     * @return Posici&oacute;n del valor del TLV dentro de la estructura.
+     * @throws TlvException Si el campo de longitud no es v&aacute;lido. */
+    private static int decodeLength(final byte[] buffer, final int offset, final int limit) throws TlvException {
+        final int size = buffer[offset + 1] & 0xff;
+        if (size == 128) {
+            if ((buffer[offset] & 0x20) == 0) {
                 throw new TlvException("Longitud del TLV invalida"); //$NON-NLS-1$
             }
+            return offset + 2;
         }
-        else if (size >= 128) {
-            int sizeLen = size - 128;
+        if (size > 128) {
+            final int sizeLen = size - 128;
             // NOTA: El tamano debe caber en tres octetos
             if (sizeLen > 3) {
                 throw new TlvException("TLV demasiado largo"); //$NON-NLS-1$
             }
+            if (offset + 2 + sizeLen > limit) {
+            	throw new TlvException("Longitud del TLV truncada"); //$NON-NLS-1$
+            }
+            return offset + 2 + sizeLen;
+        }
+        return offset + 2;
+    }
+
+    /** Obtiene la longitud del valor de un TLV cuyo campo de longitud ya se ha validado.
+     * @param buffer Estructura binaria que contiene el TLV.
+     * @param offset Posici&oacute;n del TLV dentro de la estructura.
+     * @return Longitud del valor del TLV. */
+    private static int decodedLength(final byte[] buffer, final int offset) {
+        int size = buffer[offset + 1] & 0xff;
+        if (size > 128) {
+            int sizeLen = size - 128;
+            int pos = offset + 2;
             size = 0;
             while (sizeLen > 0) {
-                size = (size << 8) + (tempBytes[offset++] & 0xff);
+                size = (size << 8) + (buffer[pos++] & 0xff);
                 sizeLen--;
             }
         }
+        return size;
+    }
 
-        length = size;
-        valueOffset = offset;
-
-        bytes = new byte[valueOffset + length];
-        System.arraycopy(tempBytes, 0, bytes, 0, valueOffset + length);
-
+    /** Obtiene, sin copiar datos, el TLV que comienza en una posici&oacute;n del valor de este TLV.
+     * @param offset Posici&oacute;n (relativa al inicio del valor) en la que comienza el TLV anidado.
+     * @return TLV anidado en la posici&oacute;n indicada.
+     * @throws TlvException Si no hay un TLV v&aacute;lido en la posici&oacute;n indicada. */
+    public Tlv getChild(final int offset) throws TlvException {
+    	if (offset < 0 || offset >= length) {
+    		throw new TlvException(
+				"No hay ningun TLV en la posicion " + offset + " de un valor de " + length + " octetos" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			);
+    	}
+    	return new Tlv(bytes, valueOffset + offset, valueOffset + length);
     }
 
     /** Devuelve el TLV directamente en binario.
      * @return Valor binario completo del TLV. */
     public byte[] getBytes() {
-        final byte[] out = new byte[bytes.length];
-        System.arraycopy(bytes, 0, out, 0, bytes.length);
+        final byte[] out = new byte[getTotalLength()];
+        System.arraycopy(bytes, start, out, 0, out.length);
         return out;
     }
 
+    /** Devuelve la longitud total del TLV (tipo, longitud y valor).
+     * @return Longitud total del TLV. */
+    public int getTotalLength() {
+    	return valueOffset - start + length;
+    }
+
     /** Devuelve la longitud del valor del TLV.
      * @return Longitud del valor del TLV. */
     public int getLength() {
@@ -188,6 +265,18 @@ public final class Tlv {
         return out;
     }
 
+    /** Obtiene la estructura binaria (compartida) que contiene el TLV.
+     * @return Estructura binaria que contiene el TLV. */
+    byte[] getBuffer() {
+    	return bytes;
+    }
+
+    /** Obtiene la posici&oacute;n del TLV dentro de su estructura binaria.
+     * @return Posici&oacute;n del TLV dentro de su estructura binaria. */
+    int getStart() {
+    	return start;
+    }
+
     /** Obtiene un TLV de un flujo de entrada, leyendo del mismo &uacute;nicamente los octetos
      * correspondientes al TLV en cuesti&oacute;n.
      * @param recordOfTlv Flujo de entrada.
@@ -52,7 +52,7 @@ public final class CeresCommonPrivateKeyAttributesContextSpecific extends Contex
 
 	/** Construye un objeto ASN&#46;1 de contexto espec&iacute;fico del <i>X509CertificateAttributes</i>. */
 	public CeresCommonPrivateKeyAttributesContextSpecific() {
-		super(Null.class);
+		super(Null::new);
 	}
 
 	@Override
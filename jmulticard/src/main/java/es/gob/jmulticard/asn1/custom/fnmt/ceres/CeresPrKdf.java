@@ -77,16 +77,16 @@ public final class CeresPrKdf extends Record implements Pkcs15PrKdf {
 		super(
 			// Maximo 10 certificados por tarjeta
 			// Estructura antigua, que incumple PKCS#15
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresPrivateKeyObject.class, true)
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresPrivateKeyObject::new, true)
 		);
 	}
 
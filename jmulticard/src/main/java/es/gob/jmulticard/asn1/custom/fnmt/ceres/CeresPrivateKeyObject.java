@@ -70,9 +70,9 @@ public final class CeresPrivateKeyObject extends PrivateKeyObject {
 	public CeresPrivateKeyObject() {
 		super(
 		 // CommonObjectAttributes (heredado de Pkcs15Object)
-			CommonKeyAttributes.class,                              // ClassAttributes
-			CeresCommonPrivateKeyAttributesContextSpecific.class,   // SubclassAttributes
-			CeresPrivateRsaKeyAttributesContextSpecific.class       // TypeAttributes
+			CommonKeyAttributes::new,                               // ClassAttributes
+			CeresCommonPrivateKeyAttributesContextSpecific::new,    // SubclassAttributes
+			CeresPrivateRsaKeyAttributesContextSpecific::new        // TypeAttributes
 		);
 	}
 
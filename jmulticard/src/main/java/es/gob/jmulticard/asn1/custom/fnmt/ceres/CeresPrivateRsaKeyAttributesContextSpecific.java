@@ -52,7 +52,7 @@ public final class CeresPrivateRsaKeyAttributesContextSpecific extends ContextSp
 
 	/** Construye un objeto ASN&#46;1 de contexto espec&iacute;fico del <i>X509CertificateAttributes</i>. */
 	public CeresPrivateRsaKeyAttributesContextSpecific() {
-		super(Path.class);
+		super(Path::new);
 	}
 
 	@Override
@@ -52,7 +52,7 @@ public final class CeresX509CertificateAttributesContextSpecific extends Context
 
 	/** Construye un objeto ASN&#46;1 de contexto espec&iacute;fico del <i>X509CertificateAttributes</i>. */
 	public CeresX509CertificateAttributesContextSpecific() {
-		super(Path.class);
+		super(Path::new);
 	}
 
 	@Override
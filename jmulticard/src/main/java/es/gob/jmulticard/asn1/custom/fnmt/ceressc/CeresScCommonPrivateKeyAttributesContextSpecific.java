@@ -62,7 +62,7 @@ public final class CeresScCommonPrivateKeyAttributesContextSpecific extends Cont
 
 	/** Construye un objeto ASN&#46;1 de contexto espec&iacute;fico del <i>CommonPrivateKeyAttributesEmpty</i>. */
 	public CeresScCommonPrivateKeyAttributesContextSpecific() {
-		super(EmptyCommonPrivateKeyAttributes.class);
+		super(EmptyCommonPrivateKeyAttributes::new);
 	}
 
 	@Override
@@ -54,16 +54,16 @@ public final class CeresScPrKdf extends PrKdf {
 	public CeresScPrKdf() {
 		super(
 			// Maximo 10 certificados
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, false),
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(CeresScPrivateKeyObject.class, true)
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, false),
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(CeresScPrivateKeyObject::new, true)
 		);
 	}
 
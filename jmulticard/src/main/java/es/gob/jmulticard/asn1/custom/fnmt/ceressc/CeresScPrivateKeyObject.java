@@ -39,6 +39,8 @@
  */
 package es.gob.jmulticard.asn1.custom.fnmt.ceressc;
 
+import java.util.function.Supplier;
+
 import javax.security.auth.x500.X500Principal;
 
 import es.gob.jmulticard.asn1.DecoderObject;
@@ -70,6 +72,16 @@ import es.gob.jmulticard.asn1.der.pkcs15.Pkcs15Object;
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
 public final class CeresScPrivateKeyObject extends Pkcs15Object {
 
+    /** Construye un tipo PrivateKeyObject ASN&#46;1.
+     * @param classAttributes Factor&iacute;a de los Atributos espec&iacute;ficos de la clase general del objeto
+     * @param subclassAttributes Factor&iacute;a de los Atributos espec&iacute;ficos de la subclase general del objeto
+     * @param typeAttributes Factor&iacute;a de los Atributos espec&iacute;ficos del tipo concreto del objeto */
+	public CeresScPrivateKeyObject(final Supplier<? extends DecoderObject> classAttributes,
+			                     final Supplier<? extends ContextSpecific> subclassAttributes,
+			                     final Supplier<? extends ContextSpecific> typeAttributes) {
+        super(classAttributes, subclassAttributes, typeAttributes);
+	}
+
     /** Construye un tipo PrivateKeyObject ASN&#46;1.
      * @param classAttributes Tipo de los Atributos espec&iacute;ficos de la clase general del objeto
      * @param subclassAttributes Tipo de los Atributos espec&iacute;ficos de la subclase general del objeto
@@ -84,9 +96,9 @@ public final class CeresScPrivateKeyObject extends Pkcs15Object {
 	public CeresScPrivateKeyObject() {
 		super(
 		 // CommonObjectAttributes (heredado de Pkcs15Object)
-			CommonKeyAttributes.class,                            // classAttributes
-			CeresScCommonPrivateKeyAttributesContextSpecific.class, // subclassAttributes
-			CeresScPrivateRsaKeyAttributesContextSpecific.class     // typeAttributes
+			CommonKeyAttributes::new,                             // classAttributes
+			CeresScCommonPrivateKeyAttributesContextSpecific::new,  // subclassAttributes
+			CeresScPrivateRsaKeyAttributesContextSpecific::new      // typeAttributes
 		);
 	}
 
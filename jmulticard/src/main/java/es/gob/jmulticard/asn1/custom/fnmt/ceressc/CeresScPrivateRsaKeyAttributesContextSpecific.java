@@ -60,7 +60,7 @@ public final class CeresScPrivateRsaKeyAttributesContextSpecific extends Context
 
 	/** Construye un objeto ASN&#46;1 de contexto espec&iacute;fico del <i>PrivateRsaKeyAttributes</i>. */
 	public CeresScPrivateRsaKeyAttributesContextSpecific() {
-		super(PrivateRsaKeyAttributes.class);
+		super(PrivateRsaKeyAttributes::new);
 	}
 
 	@Override
@@ -39,11 +39,12 @@
  */
 package es.gob.jmulticard.asn1.der;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
 
 import es.gob.jmulticard.HexUtils;
 import es.gob.jmulticard.asn1.Asn1Exception;
 import es.gob.jmulticard.asn1.DecoderObject;
+import es.gob.jmulticard.asn1.DecoderObjectFactory;
 import es.gob.jmulticard.asn1.Tlv;
 import es.gob.jmulticard.asn1.TlvException;
 
@@ -67,24 +68,27 @@ public abstract class ContextSpecific extends DecoderObject {
 
         final DecoderObject tmpDo;
         try {
-            tmpDo = elementType.getConstructor().newInstance();
+            tmpDo = elementFactory.get();
         }
-        catch (final IllegalAccessException    |
-        		     InstantiationException    |
-        		     IllegalArgumentException  |
-        		     InvocationTargetException |
-        		     NoSuchMethodException     |
-        		     SecurityException e) {
+        catch (final IllegalStateException e) {
             throw new Asn1Exception(
-        		"No se ha podido instanciar un " + elementType.getName() + " en el contexto especifico", e //$NON-NLS-1$ //$NON-NLS-2$
+        		"No se ha podido instanciar un " + getElementTypeName() + " en el contexto especifico", e //$NON-NLS-1$ //$NON-NLS-2$
             );
         }
-        final Tlv tlv = new Tlv(getBytes());
+        if (elementTypeName == null) {
+        	elementTypeName = tmpDo.getClass().getName();
+        }
+        final Tlv tlv = getTlv();
         tmpDo.setDerValue(tlv.getValue());
         object = tmpDo;
     }
 
-    private final Class<? extends DecoderObject> elementType;
+    /** Factor&iacute;a del elemento contenido dentro de este objeto. */
+    private final Supplier<? extends DecoderObject> elementFactory;
+
+    /** Nombre del tipo del elemento contenido, para los mensajes de error. Si el elemento
+     * se crea con una factor&iacute;a, se toma del primer objeto creado. */
+    private String elementTypeName;
 
     /** Construye un tipo ASN&#46;1 espec&iacute;fico del contexto.
      * @param type Tipo de elemento contenido dentro de este objeto. */
@@ -94,7 +98,28 @@ public abstract class ContextSpecific extends DecoderObject {
         		"El tipo contenido dentro de ContextSpecific no puede ser nulo" //$NON-NLS-1$
     		);
         }
-        elementType = type;
+        elementFactory = DecoderObjectFactory.forClass(type);
+        elementTypeName = type.getName();
+    }
+
+    /** Construye un tipo ASN&#46;1 espec&iacute;fico del contexto cuyo elemento se crea con una
+     * factor&iacute;a (normalmente, una referencia a su constructor) en vez de mediante reflexi&oacute;n.
+     * @param factory Factor&iacute;a del elemento contenido dentro de este objeto. */
+    protected ContextSpecific(final Supplier<? extends DecoderObject> factory) {
+        if (factory == null) {
+            throw new IllegalArgumentException(
+        		"La factoria del tipo contenido dentro de ContextSpecific no puede ser nula" //$NON-NLS-1$
+    		);
+        }
+        elementFactory = factory;
+        elementTypeName = null;
+    }
+
+    /** Obtiene el nombre del tipo del elemento contenido, para los mensajes de error.
+     * @return Nombre del tipo del elemento contenido o, si a&uacute;n no se ha podido
+     *         crear ninguno con la factor&iacute;a, referencia a este contexto espec&iacute;fico. */
+    private String getElementTypeName() {
+    	return elementTypeName != null ? elementTypeName : "elemento de " + getClass().getName(); //$NON-NLS-1$
     }
 
     @Override
@@ -42,7 +42,6 @@ package es.gob.jmulticard.asn1.der;
 import java.math.BigInteger;
 
 import es.gob.jmulticard.asn1.DecoderObject;
-import es.gob.jmulticard.asn1.Tlv;
 import es.gob.jmulticard.asn1.TlvException;
 
 /** Tipo ASN&#46;1 <i>Integer</i>.
@@ -55,7 +54,7 @@ public class DerInteger extends DecoderObject {
 
 	@Override
     protected void decodeValue() throws TlvException {
-		value = new BigInteger(new Tlv(getBytes()).getValue());
+		value = new BigInteger(getTlv().getValue());
 	}
 
 	/** Obtiene el valor entero (<code>BigInteger</code>) del objeto.
@@ -66,7 +66,7 @@ public final class GeneralizedTime extends DecoderObject {
 
     @Override
     protected void decodeValue() throws Asn1Exception, TlvException {
-    	final Tlv tlv = new Tlv(getBytes());
+    	final Tlv tlv = getTlv();
     	checkTag(tlv.getTag());
     	strValue = new String(tlv.getValue(), StandardCharsets.US_ASCII);
     }
@@ -3,6 +3,7 @@ package es.gob.jmulticard.asn1.der;
 import es.gob.jmulticard.JmcLogger;
 import es.gob.jmulticard.asn1.Asn1Exception;
 import es.gob.jmulticard.asn1.DecoderObject;
+import es.gob.jmulticard.asn1.Tlv;
 import es.gob.jmulticard.asn1.TlvException;
 
 /** Tipo nulo.
@@ -30,6 +31,11 @@ public final class Null extends DecoderObject {
     	}
     }
 
+    @Override
+	public void setDerTlv(final Tlv tlv) throws Asn1Exception, TlvException {
+    	setDerValue(tlv.getBytes());
+    }
+
     @Override
 	public void checkTag(final byte tag) {
     	// No hacemos nada
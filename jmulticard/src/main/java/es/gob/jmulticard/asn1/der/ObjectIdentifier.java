@@ -43,7 +43,6 @@ import es.gob.jmulticard.HexUtils;
 import es.gob.jmulticard.asn1.Asn1Exception;
 import es.gob.jmulticard.asn1.DecoderObject;
 import es.gob.jmulticard.asn1.OidDictionary;
-import es.gob.jmulticard.asn1.Tlv;
 import es.gob.jmulticard.asn1.TlvException;
 
 /** Tipo ASN&#46;1 OID.
@@ -69,7 +68,7 @@ public final class ObjectIdentifier extends DecoderObject {
 
 	@Override
     protected void decodeValue() throws TlvException {
-		rawValue = new Tlv(getBytes()).getValue();
+		rawValue = getTlv().getValue();
 	}
 
 	@Override
@@ -55,7 +55,7 @@ public class OctectString extends DecoderObject {
 
     @Override
     protected void decodeValue() throws TlvException {
-    	final Tlv tlv = new Tlv(getBytes());
+    	final Tlv tlv = getTlv();
     	if (TAG_OCTECTSTRING != tlv.getTag()) {
     		throw new TlvException(
 				"Se esperaba un TLV de tipo OctectString pero se ha encontrado uno de tipo " + //$NON-NLS-1$
@@ -89,24 +89,22 @@ public abstract class Record extends DecoderObject {
 
     @Override
     protected final void decodeValue() throws Asn1Exception, TlvException {
-        if (getBytes().length == 0) {
+        if (getDerLength() == 0) {
             throw new Asn1Exception("El valor del objeto ASN.1 esta vacio"); //$NON-NLS-1$
         }
         int offset = 0;
         Tlv tlv;
-        byte[] remainingBytes;
         DecoderObject tmpDo;
         for (int i = 0; i < elementsTypes.length; i++) {
         	try {
-	            remainingBytes = new byte[getBytes().length - offset];
-	            System.arraycopy(getBytes(), offset, remainingBytes, 0, remainingBytes.length);
-	            tlv = new Tlv(remainingBytes);
+	            // Los elementos se analizan sobre los datos del registro, sin copiarlos
+	            tlv = getTlvAt(offset);
 	            try {
-	                tmpDo = elementsTypes[i].getElementType().getConstructor().newInstance();
+	                tmpDo = elementsTypes[i].newElement();
 	            }
 	            catch (final Exception e) {
 	                throw new Asn1Exception(
-	            		"No se ha podido instanciar un " + elementsTypes[i].getElementType().getName() + //$NON-NLS-1$
+	            		"No se ha podido instanciar un " + elementsTypes[i].getElementName() + //$NON-NLS-1$
 	                        " en la posicion " + Integer.toString(i) + " del registro", e //$NON-NLS-1$ //$NON-NLS-2$
 	                );
 	            }
@@ -119,8 +117,8 @@ public abstract class Record extends DecoderObject {
             	}
             	throw new Asn1Exception("Error en el elemento " + i + " del registro ASN.1", e); //$NON-NLS-1$ //$NON-NLS-2$
         	}
-            offset = offset + tlv.getBytes().length;
-        	tmpDo.setDerValue(tlv.getBytes());
+            offset = offset + tlv.getTotalLength();
+        	tmpDo.setDerTlv(tlv);
             elements.add(tmpDo);
         }
     }
@@ -78,23 +78,18 @@ public abstract class Sequence extends DecoderObject {
 
     @Override
     protected final void decodeValue() throws Asn1Exception, TlvException {
-        final Tlv mainTlv = new Tlv(getBytes());
+        final Tlv mainTlv = getTlv();
         checkTag(mainTlv.getTag());
         int offset = 0;
         Tlv tlv;
-        byte[] remainingBytes;
         DecoderObject tmpDo;
-        final byte[] rawValue = mainTlv.getValue();
         for (int i = 0; i < elementsTypes.length; i++) {
-            remainingBytes = new byte[rawValue.length - offset];
-            System.arraycopy(rawValue, offset, remainingBytes, 0, remainingBytes.length);
             try {
-            	tlv = new Tlv(remainingBytes);
-            	tmpDo = elementsTypes[i].getElementType().getConstructor().newInstance();
+            	// Los elementos se analizan sobre los datos de la secuencia, sin copiarlos
+            	tlv = mainTlv.getChild(offset);
+            	tmpDo = elementsTypes[i].newElement();
             	tmpDo.checkTag(tlv.getTag());
-                tmpDo.setDerValue(
-            		tlv.getBytes()
-        		);
+                tmpDo.setDerTlv(tlv);
             }
             catch(final Exception e) {
             	if (elementsTypes[i].isOptional()) {
@@ -102,11 +97,11 @@ public abstract class Sequence extends DecoderObject {
             		continue;
             	}
             	throw new Asn1Exception(
-        			"Error en el elemento " + i + " (" + elementsTypes[i].getElementType().getName() + ") de la secuencia ASN.1", e //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        			"Error en el elemento " + i + " (" + elementsTypes[i].getElementName() + ") de la secuencia ASN.1", e //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
     			);
             }
             // El offset se avanza antes del continue de la opcionalidad
-            offset = offset + tlv.getBytes().length;
+            offset = offset + tlv.getTotalLength();
             elements.add(tmpDo);
         }
     }
@@ -39,10 +39,14 @@
  */
 package es.gob.jmulticard.asn1.der;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
 
 import es.gob.jmulticard.asn1.Asn1Exception;
 import es.gob.jmulticard.asn1.DecoderObject;
+import es.gob.jmulticard.asn1.DecoderObjectFactory;
 import es.gob.jmulticard.asn1.Tlv;
 import es.gob.jmulticard.asn1.TlvException;
 
@@ -53,36 +57,44 @@ public abstract class SequenceOf extends DecoderObject {
 	/** Tipo ASN&#46;1 <i>SequenceOf</i>. */
     private static final byte TAG_SEQUENCE = (byte) 0x30;
 
-    private final Class<? extends DecoderObject> elementsType;
+    /** Factor&iacute;a de los elementos de la secuencia. */
+    private final Supplier<? extends DecoderObject> elementsFactory;
 
-    private LinkedList<DecoderObject> sequenceObjects = null;
+    /** Nombre del tipo de los elementos de la secuencia, para los mensajes de error. Si los
+     * elementos se crean con una factor&iacute;a, se toma del primer objeto creado. */
+    private String elementsTypeName;
+
+    /** Elementos de la secuencia, inmutables una vez decodificada. */
+    private DecoderObject[] sequenceObjects = null;
 
 	@Override
     protected final void decodeValue() throws Asn1Exception, TlvException {
-		Tlv tlv = new Tlv(getBytes());
-		checkTag(tlv.getTag());
+		final Tlv mainTlv = getTlv();
+		checkTag(mainTlv.getTag());
 		int offset = 0;
-		byte[] remainingBytes;
+		Tlv tlv;
         DecoderObject tmpDo;
-        final byte[] valueBytes = tlv.getValue();
-        sequenceObjects = new LinkedList<>();
-        while (offset < valueBytes.length) {
-        	remainingBytes = new byte[valueBytes.length - offset];
-        	System.arraycopy(valueBytes, offset, remainingBytes, 0, remainingBytes.length);
-    		tlv = new Tlv(remainingBytes);
+        final List<DecoderObject> decodedObjects = new ArrayList<>();
+        while (offset < mainTlv.getLength()) {
+        	// Los elementos se analizan sobre los datos de la secuencia, sin copiarlos
+    		tlv = mainTlv.getChild(offset);
         	try {
-        		tmpDo = elementsType.getConstructor().newInstance();
+        		tmpDo = elementsFactory.get();
         	}
         	catch (final Exception e) {
         		throw new Asn1Exception(
-    				"No se ha podido instanciar un " + elementsType.getName() + " en la secuencia", e  //$NON-NLS-1$ //$NON-NLS-2$
+    				"No se ha podido instanciar un " + getElementsTypeName() + " en la secuencia", e  //$NON-NLS-1$ //$NON-NLS-2$
         		);
         	}
-        	offset = offset + tlv.getBytes().length;
+        	if (elementsTypeName == null) {
+        		elementsTypeName = tmpDo.getClass().getName();
+        	}
+        	offset = offset + tlv.getTotalLength();
         	tmpDo.checkTag(tlv.getTag());
-        	tmpDo.setDerValue(tlv.getBytes());
-        	sequenceObjects.add(tmpDo);
+        	tmpDo.setDerTlv(tlv);
+        	decodedObjects.add(tmpDo);
         }
+        sequenceObjects = decodedObjects.toArray(new DecoderObject[0]);
 	}
 
 	/** Construye un tipo ASN&#46;1 <i>SequenceOf</i>.
@@ -92,9 +104,28 @@ public abstract class SequenceOf extends DecoderObject {
 	    if (type == null) {
 			throw new IllegalArgumentException();
 		}
-		elementsType = type;
+		elementsFactory = DecoderObjectFactory.forClass(type);
+		elementsTypeName = type.getName();
+	}
+
+	/** Construye un tipo ASN&#46;1 <i>SequenceOf</i> cuyos elementos se crean con una factor&iacute;a
+	 * (normalmente, una referencia a su constructor) en vez de mediante reflexi&oacute;n.
+     * @param factory Factor&iacute;a de los objetos ASN&#46;1 que va a contener la secuencia. */
+	protected SequenceOf(final Supplier<? extends DecoderObject> factory) {
+	    if (factory == null) {
+			throw new IllegalArgumentException();
+		}
+		elementsFactory = factory;
+		elementsTypeName = null;
 	}
 
+    /** Obtiene el nombre del tipo de los elementos de la secuencia, para los mensajes de error.
+     * @return Nombre del tipo de los elementos o, si a&uacute;n no se ha podido crear ninguno
+     *         con la factor&iacute;a, referencia a esta secuencia. */
+    private String getElementsTypeName() {
+    	return elementsTypeName != null ? elementsTypeName : "elemento de " + getClass().getName(); //$NON-NLS-1$
+    }
+
     @Override
     protected final byte getDefaultTag() {
         return TAG_SEQUENCE;
@@ -105,12 +136,25 @@ public abstract class SequenceOf extends DecoderObject {
      * @return Un objeto de tipo <code>DecoderObject</code> que contiene el TLV deseado.
      * @throws IndexOutOfBoundsException Si el indice indicado no pertenece al rango de la secuencia. */
     protected final DecoderObject getElementAt(final int index) {
-        return sequenceObjects.get(index);
+        return sequenceObjects[index];
     }
 
     /** Obtiene el n&uacute;mero de elementos que contiene la secuencia.
      * @return N&uacute;mero de elementos que contiene la secuencia. */
     protected final int getElementCount() {
-    	return sequenceObjects.size();
+    	return sequenceObjects.length;
+    }
+
+    /** Obtiene todos los elementos de la secuencia, en orden.
+     * @param <T> Tipo de los elementos de la secuencia.
+     * @param type Clase de los elementos de la secuencia.
+     * @return Lista no modificable con los elementos de la secuencia.
+     * @throws ClassCastException Si alg&uacute;n elemento no es del tipo indicado. */
+    protected final <T extends DecoderObject> List<T> getElements(final Class<T> type) {
+    	final List<T> ret = new ArrayList<>(sequenceObjects.length);
+    	for (final DecoderObject element : sequenceObjects) {
+    		ret.add(type.cast(element));
+    	}
+    	return Collections.unmodifiableList(ret);
     }
 }
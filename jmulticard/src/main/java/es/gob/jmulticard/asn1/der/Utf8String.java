@@ -83,7 +83,7 @@ public final class Utf8String extends DecoderObject {
 
     @Override
     protected void decodeValue() throws Asn1Exception, TlvException {
-    	final Tlv tlv = new Tlv(getBytes());
+    	final Tlv tlv = getTlv();
     	checkTag(tlv.getTag());
     	stringValue = new String(tlv.getValue(), StandardCharsets.UTF_8);
     }
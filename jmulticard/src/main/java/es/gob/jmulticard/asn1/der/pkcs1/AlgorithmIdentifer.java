@@ -56,7 +56,7 @@ public final class AlgorithmIdentifer extends Sequence {
 	public AlgorithmIdentifer() {
 		super(
 			new OptionalDecoderObjectElement(
-				ObjectIdentifier.class,
+				ObjectIdentifier::new,
 				false
 			)
 		);
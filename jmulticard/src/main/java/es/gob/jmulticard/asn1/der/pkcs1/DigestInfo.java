@@ -40,6 +40,7 @@
 package es.gob.jmulticard.asn1.der.pkcs1;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import es.gob.jmulticard.CryptoHelper;
 import es.gob.jmulticard.DigestAlgorithm;
@@ -118,11 +119,11 @@ public final class DigestInfo extends Sequence {
 	public DigestInfo() {
         super(
 			new OptionalDecoderObjectElement(
-				AlgorithmIdentifer.class,
+				AlgorithmIdentifer::new,
 				false
 			),
 			new OptionalDecoderObjectElement(
-				OctectString.class,
+				OctectString::new,
 				false
 			)
 		);
@@ -145,11 +146,26 @@ public final class DigestInfo extends Sequence {
     		                    final byte[] data,
     		                    final CryptoHelper cryptoHelper) throws IOException {
 
-        final String normalizedSignningAlgorithm = getNormalizedSigningAlgorithm(signingAlgorithm);
-        final DigestAlgorithm digestAlgorithm = getDigestAlgorithm(normalizedSignningAlgorithm);
-        final byte[] header = selectHeaderTemplate(digestAlgorithm);
-        final byte[] md = cryptoHelper.digest(digestAlgorithm, data);
+        final DigestAlgorithm digestAlgorithm = getDigestAlgorithm(signingAlgorithm);
+        return encodeDigest(digestAlgorithm, cryptoHelper.digest(digestAlgorithm, data));
+    }
 
+    /** Codifica una estructura <code>DigestInfo</code> a partir de una huella ya calculada.
+     * @param signingAlgorithm Algoritmo de huella digital o de firma electr&oacute;nica.
+     * @param digest Huella digital de los datos, calculada con el algoritmo de huella indicado.
+     * @return Estructura <code>DigestInfo</code>.
+     * @throws IOException Si la longitud de la huella no corresponde con la del algoritmo. */
+    public static byte[] encodeDigest(final String signingAlgorithm, final byte[] digest) throws IOException {
+    	return encodeDigest(getDigestAlgorithm(signingAlgorithm), digest);
+    }
+
+    private static byte[] encodeDigest(final DigestAlgorithm digestAlgorithm, final byte[] md) throws IOException {
+    	if (md == null || md.length != digestAlgorithm.getDigestLength()) {
+    		throw new IOException(
+				"La huella no tiene la longitud de una huella " + digestAlgorithm + ": " + (md == null ? "nula" : md.length + " octetos") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			);
+    	}
+        final byte[] header = selectHeaderTemplate(digestAlgorithm);
         final byte[] digestInfo = new byte[header.length + md.length];
         System.arraycopy(header, 0, digestInfo, 0, header.length);
         System.arraycopy(md, 0, digestInfo, header.length, md.length);
@@ -157,6 +173,32 @@ public final class DigestInfo extends Sequence {
         return digestInfo;
     }
 
+    /** Obtiene el algoritmo de huella de una estructura <code>DigestInfo</code> ya codificada.
+     * @param digestInfo Estructura <code>DigestInfo</code> codificada.
+     * @return Algoritmo de huella digital.
+     * @throws IOException Si los datos no son un <code>DigestInfo</code> de un algoritmo soportado. */
+    public static DigestAlgorithm getEncodedDigestAlgorithm(final byte[] digestInfo) throws IOException {
+    	if (digestInfo != null) {
+    		for (final DigestAlgorithm algorithm : DigestAlgorithm.values()) {
+    			final byte[] header = selectHeaderTemplate(algorithm);
+    			if (digestInfo.length == header.length + algorithm.getDigestLength() &&
+    					Arrays.equals(header, Arrays.copyOf(digestInfo, header.length))) {
+    				return algorithm;
+    			}
+    		}
+    	}
+    	throw new IOException("Los datos no son un DigestInfo de un algoritmo de huella soportado"); //$NON-NLS-1$
+    }
+
+    /** Obtiene la huella de una estructura <code>DigestInfo</code> ya codificada.
+     * @param digestInfo Estructura <code>DigestInfo</code> codificada.
+     * @return Huella digital contenida en la estructura.
+     * @throws IOException Si los datos no son un <code>DigestInfo</code> de un algoritmo soportado. */
+    public static byte[] getEncodedDigest(final byte[] digestInfo) throws IOException {
+    	final int digestLength = getEncodedDigestAlgorithm(digestInfo).getDigestLength();
+    	return Arrays.copyOfRange(digestInfo, digestInfo.length - digestLength, digestInfo.length);
+    }
+
     /** Normaliza los nombres de algorimo de firma.
      * @param algorithm Nombre de algoritmo.
      * @return Nombre de algoritmo normalizado. */
@@ -229,19 +271,20 @@ public final class DigestInfo extends Sequence {
 
     /** Obtiene el algoritmo de huella digital correspondiente a
      * un algoritmo de firma concreto.
-     * @param signatureAlgorithm Algoritmo de firma.
-     * @return Algoritmo de huella digital o la propia entrada si no se identific&oacute;. */
-    private static DigestAlgorithm getDigestAlgorithm(final String signatureAlgorithm) {
-        if (SHA1WITHRSA_NORMALIZED_ALGO_NAME.equals(signatureAlgorithm)) {
+     * @param signatureAlgorithm Algoritmo de firma o de huella digital.
+     * @return Algoritmo de huella digital. */
+    public static DigestAlgorithm getDigestAlgorithm(final String signatureAlgorithm) {
+    	final String normalizedSigningAlgorithm = getNormalizedSigningAlgorithm(signatureAlgorithm);
+        if (SHA1WITHRSA_NORMALIZED_ALGO_NAME.equals(normalizedSigningAlgorithm)) {
             return DigestAlgorithm.SHA1;
         }
-		if (SHA256WITHRSA_NORMALIZED_ALGO_NAME.equals(signatureAlgorithm)) {
+		if (SHA256WITHRSA_NORMALIZED_ALGO_NAME.equals(normalizedSigningAlgorithm)) {
             return DigestAlgorithm.SHA256;
         }
-		if (SHA384WITHRSA_NORMALIZED_ALGO_NAME.equals(signatureAlgorithm)) {
+		if (SHA384WITHRSA_NORMALIZED_ALGO_NAME.equals(normalizedSigningAlgorithm)) {
             return DigestAlgorithm.SHA384;
         }
-		if (SHA512WITHRSA_NORMALIZED_ALGO_NAME.equals(signatureAlgorithm)) {
+		if (SHA512WITHRSA_NORMALIZED_ALGO_NAME.equals(normalizedSigningAlgorithm)) {
             return DigestAlgorithm.SHA512;
         }
         throw new IllegalStateException(
@@ -18,7 +18,7 @@ public final class CertificatesContextSpecific extends ContextSpecific {
 	/** Construye una numeraci&oacute;n de certificados espec&iacute;fica de contexto.
 	 * Esta implememtaci&oacute;n solo soporta <code>Path</code> como tipo de los registros. */
 	public CertificatesContextSpecific() {
-		super(Path.class);
+		super(Path::new);
 	}
 
 	/** Obtiene la ruta (Path ASN&#46;1 PKCS#15) hacia el CDF.
@@ -59,7 +59,7 @@ public final class CommonCertificateAttributes extends Sequence {
 	public CommonCertificateAttributes() {
         super(
 			new OptionalDecoderObjectElement(
-				Identifier.class,
+				Identifier::new,
 				false
 			)
 		);
@@ -67,23 +67,23 @@ public final class CommonKeyAttributes extends Sequence {
 	public CommonKeyAttributes() {
 		super(
 			new OptionalDecoderObjectElement(
-				Identifier.class,    // Subtipo de Octet String
+				Identifier::new,     // Subtipo de Octet String
 				false
 			),
 			new OptionalDecoderObjectElement(
-				KeyUsageFlags.class, // Subtipo de Bit String
+				KeyUsageFlags::new,  // Subtipo de Bit String
 				false
 			),
 			new OptionalDecoderObjectElement(
-				DerBoolean.class,
+				DerBoolean::new,
 				true // Opcional
 			),
 			new OptionalDecoderObjectElement(
-				AccessFlags.class,   // Subtipo de Bit String
+				AccessFlags::new,    // Subtipo de Bit String
 				false
 			),
 			new OptionalDecoderObjectElement(
-				Reference.class,     // Subtipo de Integer
+				Reference::new,      // Subtipo de Integer
 				false
 			)
 		);
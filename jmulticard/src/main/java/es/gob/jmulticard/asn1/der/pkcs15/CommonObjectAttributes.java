@@ -60,15 +60,15 @@ public final class CommonObjectAttributes extends Sequence {
 	public CommonObjectAttributes() {
         super(
 			new OptionalDecoderObjectElement(
-				Utf8String.class, // Label
+				Utf8String::new,  // Label
 				false
 			),
 			new OptionalDecoderObjectElement(
-				CommonObjectFlags.class, // Subtipo de Bit String
+				CommonObjectFlags::new,  // Subtipo de Bit String
 				true
 			),
 			new OptionalDecoderObjectElement(
-				Identifier.class,        // Subtipo de Octet String
+				Identifier::new,         // Subtipo de Octet String
 				true
 			)
 		);
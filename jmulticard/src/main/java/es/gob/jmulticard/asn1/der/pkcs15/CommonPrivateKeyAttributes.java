@@ -24,7 +24,7 @@ public final class CommonPrivateKeyAttributes extends Sequence {
 			// Solo contemplamos el "name", que es de tipo "Name",
 			// implementado casi siempre como "RdnSequence".
 			new OptionalDecoderObjectElement(
-				RdnSequence.class,
+				RdnSequence::new,
 				true // Opcional
 			)
 		);
@@ -61,7 +61,7 @@ public final class CommonPrivateKeyAttributesContextSpecific extends ContextSpec
 
 	/** Construye un objeto ASN&#46;1 de contexto espec&iacute;fico del <i>CommonPrivateKeyAttributes</i>. */
 	public CommonPrivateKeyAttributesContextSpecific() {
-		super(CommonPrivateKeyAttributes.class);
+		super(CommonPrivateKeyAttributes::new);
 	}
 
 	@Override
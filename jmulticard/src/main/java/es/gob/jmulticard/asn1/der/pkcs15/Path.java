@@ -59,15 +59,15 @@ public final class Path extends Sequence {
 	public Path() {
 		super(
 			new OptionalDecoderObjectElement(
-				OctectString.class,
+				OctectString::new,
 				false
 			),
 			new OptionalDecoderObjectElement(
-				DerInteger.class,
+				DerInteger::new,
 				true
 			),
 			new OptionalDecoderObjectElement(
-				PathLength.class,
+				PathLength::new,
 				true
 			)
 		);
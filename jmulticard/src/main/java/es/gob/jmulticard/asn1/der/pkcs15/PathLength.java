@@ -41,7 +41,6 @@ package es.gob.jmulticard.asn1.der.pkcs15;
 
 import es.gob.jmulticard.HexUtils;
 import es.gob.jmulticard.asn1.Asn1Exception;
-import es.gob.jmulticard.asn1.Tlv;
 import es.gob.jmulticard.asn1.TlvException;
 import es.gob.jmulticard.asn1.der.ContextSpecific;
 import es.gob.jmulticard.asn1.der.Record;
@@ -65,7 +64,7 @@ public final class PathLength extends ContextSpecific {
 
 	@Override
     protected void decodeValue() throws TlvException {
-		value = Integer.valueOf(String.valueOf(HexUtils.getUnsignedInt(new Tlv(getBytes()).getValue(), 0)));
+		value = Integer.valueOf(String.valueOf(HexUtils.getUnsignedInt(getTlv().getValue(), 0)));
 	}
 
 	@Override
@@ -39,7 +39,10 @@
  */
 package es.gob.jmulticard.asn1.der.pkcs15;
 
+import java.util.function.Supplier;
+
 import es.gob.jmulticard.asn1.DecoderObject;
+import es.gob.jmulticard.asn1.DecoderObjectFactory;
 import es.gob.jmulticard.asn1.OptionalDecoderObjectElement;
 import es.gob.jmulticard.asn1.der.ContextSpecific;
 import es.gob.jmulticard.asn1.der.Sequence;
@@ -58,15 +61,15 @@ import es.gob.jmulticard.asn1.der.Sequence;
 public abstract class Pkcs15Object extends Sequence {
 
     /** Construye un tipo PKCS#15 ASN&#46;1 <i>PKCS15Object</i> (<i>CIO</i> de ISO 7816-15).
-     * @param classAttributes Tipo de los Atributos espec&iacute;ficos de la clase general del objeto
-     * @param subclassAttributes Tipo de los Atributos espec&iacute;ficos de la subclase general del objeto
-     * @param typeAttributes Tipo de los Atributos espec&iacute;ficos del tipo concreto del objeto */
-	protected Pkcs15Object(final Class<? extends DecoderObject> classAttributes,
-			               final Class<? extends ContextSpecific> subclassAttributes,
-			               final Class<? extends ContextSpecific> typeAttributes) {
+     * @param classAttributes Factor&iacute;a de los Atributos espec&iacute;ficos de la clase general del objeto
+     * @param subclassAttributes Factor&iacute;a de los Atributos espec&iacute;ficos de la subclase general del objeto
+     * @param typeAttributes Factor&iacute;a de los Atributos espec&iacute;ficos del tipo concreto del objeto */
+	protected Pkcs15Object(final Supplier<? extends DecoderObject> classAttributes,
+			               final Supplier<? extends ContextSpecific> subclassAttributes,
+			               final Supplier<? extends ContextSpecific> typeAttributes) {
         super(
 			new OptionalDecoderObjectElement(
-				CommonObjectAttributes.class,
+				CommonObjectAttributes::new,
 				false
 			),
 			new OptionalDecoderObjectElement(
@@ -84,6 +87,24 @@ public abstract class Pkcs15Object extends Sequence {
 		);
     }
 
+    /** Construye un tipo PKCS#15 ASN&#46;1 <i>PKCS15Object</i> (<i>CIO</i> de ISO 7816-15).
+     * @param classAttributes Tipo de los Atributos espec&iacute;ficos de la clase general del objeto
+     * @param subclassAttributes Tipo de los Atributos espec&iacute;ficos de la subclase general del objeto
+     * @param typeAttributes Tipo de los Atributos espec&iacute;ficos del tipo concreto del objeto */
+	protected Pkcs15Object(final Class<? extends DecoderObject> classAttributes,
+			               final Class<? extends ContextSpecific> subclassAttributes,
+			               final Class<? extends ContextSpecific> typeAttributes) {
+		this(
+			factoryOf(classAttributes),
+			factoryOf(subclassAttributes),
+			factoryOf(typeAttributes)
+		);
+	}
+
+	private static <T extends DecoderObject> Supplier<T> factoryOf(final Class<T> type) {
+		return type != null ? DecoderObjectFactory.forClass(type) : null;
+	}
+
     /** Obtiene los atributos comunes (<i>CommonObjectAttributes</i>).
      * @return Atributos comunes */
     protected final CommonObjectAttributes getCommonObjectAttributes() {
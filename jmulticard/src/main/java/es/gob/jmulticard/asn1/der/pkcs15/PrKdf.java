@@ -52,16 +52,16 @@ public class PrKdf extends Record implements Pkcs15PrKdf {
 	public PrKdf() {
 		super(
 			// Maximo 10 certificados
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, false),
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, true),
-			new OptionalDecoderObjectElement(PrivateKeyObject.class, true)
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, false),
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, true),
+			new OptionalDecoderObjectElement(PrivateKeyObject::new, true)
 		);
 	}
 
@@ -39,6 +39,8 @@
  */
 package es.gob.jmulticard.asn1.der.pkcs15;
 
+import java.util.function.Supplier;
+
 import javax.security.auth.x500.X500Principal;
 
 import es.gob.jmulticard.asn1.DecoderObject;
@@ -66,6 +68,16 @@ import es.gob.jmulticard.asn1.der.ContextSpecific;
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
 public class PrivateKeyObject extends Pkcs15Object {
 
+    /** Construye un tipo PrivateKeyObject ASN&#46;1.
+     * @param classAttributes Factor&iacute;a de los Atributos espec&iacute;ficos de la clase general del objeto
+     * @param subclassAttributes Factor&iacute;a de los Atributos espec&iacute;ficos de la subclase general del objeto
+     * @param typeAttributes Factor&iacute;a de los Atributos espec&iacute;ficos del tipo concreto del objeto */
+	protected PrivateKeyObject(final Supplier<? extends DecoderObject> classAttributes,
+			                   final Supplier<? extends ContextSpecific> subclassAttributes,
+			                   final Supplier<? extends ContextSpecific> typeAttributes) {
+        super(classAttributes, subclassAttributes, typeAttributes);
+	}
+
     /** Construye un tipo PrivateKeyObject ASN&#46;1.
      * @param classAttributes Tipo de los Atributos espec&iacute;ficos de la clase general del objeto
      * @param subclassAttributes Tipo de los Atributos espec&iacute;ficos de la subclase general del objeto
@@ -81,9 +93,9 @@ public class PrivateKeyObject extends Pkcs15Object {
 	public PrivateKeyObject() {
 		super(
 		 // CommonObjectAttributes (heredado de Pkcs15Object)
-			CommonKeyAttributes.class,                       // classAttributes
-			CommonPrivateKeyAttributesContextSpecific.class, // subclassAttributes
-			PrivateRsaKeyAttributesContextSpecific.class     // typeAttributes
+			CommonKeyAttributes::new,                        // classAttributes
+			CommonPrivateKeyAttributesContextSpecific::new,  // subclassAttributes
+			PrivateRsaKeyAttributesContextSpecific::new      // typeAttributes
 		);
 	}
 
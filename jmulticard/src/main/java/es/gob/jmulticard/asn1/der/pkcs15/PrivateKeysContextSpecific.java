@@ -18,7 +18,7 @@ public final class PrivateKeysContextSpecific extends ContextSpecific {
 	/** Construye una numeraci&oacute;n de claves privadas espec&iacute;fica de contexto.
 	 * Esta implememtaci&oacute;n solo soporta <code>Path</code> como tipo de los registros. */
 	public PrivateKeysContextSpecific() {
-		super(Path.class);
+		super(Path::new);
 	}
 
 	@Override
@@ -59,11 +59,11 @@ public final class PrivateRsaKeyAttributes extends Sequence {
 	public PrivateRsaKeyAttributes() {
 		super(
 			new OptionalDecoderObjectElement(
-				Path.class,
+				Path::new,
 				false
 			),
 			new OptionalDecoderObjectElement(
-				DerInteger.class,
+				DerInteger::new,
 				false
 			)
 			// Faltaria el KeyInfo, pero es un campo
@@ -59,7 +59,7 @@ public final class PrivateRsaKeyAttributesContextSpecific extends ContextSpecifi
 
 	/** Construye un objeto ASN&#46;1 de contexto espec&iacute;fico del <i>PrivateRsaKeyAttributes</i>. */
 	public PrivateRsaKeyAttributesContextSpecific() {
-		super(PrivateRsaKeyAttributes.class);
+		super(PrivateRsaKeyAttributes::new);
 	}
 
 	@Override
@@ -18,7 +18,7 @@ public final class PublicKeysContextSpecific extends ContextSpecific {
 	/** Construye una numeraci&oacute;n de claves p&uacute;blicas espec&iacute;fica de contexto.
 	 * Esta implememtaci&oacute;n solo soporta <code>Path</code> como tipo de los registros. */
 	public PublicKeysContextSpecific() {
-		super(Path.class);
+		super(Path::new);
 	}
 
 	@Override
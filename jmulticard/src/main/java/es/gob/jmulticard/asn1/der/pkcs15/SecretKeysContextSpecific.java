@@ -18,7 +18,7 @@ public final class SecretKeysContextSpecific extends ContextSpecific {
 	/** Construye una numeraci&oacute;n de claves secretas espec&iacute;fica de contexto.
 	 * Esta implememtaci&oacute;n solo soporta <code>Path</code> como tipo de los registros. */
 	public SecretKeysContextSpecific() {
-		super(Path.class);
+		super(Path::new);
 	}
 
 	@Override
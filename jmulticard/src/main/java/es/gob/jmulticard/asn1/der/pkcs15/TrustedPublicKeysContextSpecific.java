@@ -18,7 +18,7 @@ public final class TrustedPublicKeysContextSpecific extends ContextSpecific {
 	/** Construye una numeraci&oacute;n de claves p&uacute;blicas de confianza espec&iacute;fica de contexto.
 	 * Esta implememtaci&oacute;n solo soporta <code>Path</code> como tipo de los registros. */
 	public TrustedPublicKeysContextSpecific() {
-		super(Path.class);
+		super(Path::new);
 	}
 
 	@Override
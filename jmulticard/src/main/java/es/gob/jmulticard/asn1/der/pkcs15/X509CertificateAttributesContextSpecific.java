@@ -53,7 +53,7 @@ public final class X509CertificateAttributesContextSpecific extends ContextSpeci
 
 	/** Construye un objeto ASN&#46;1 de contexto espec&iacute;fico del <i>X509CertificateAttributes</i>. */
 	public X509CertificateAttributesContextSpecific() {
-		super(X509CertificateAttributes.class);
+		super(X509CertificateAttributes::new);
 	}
 
 	@Override
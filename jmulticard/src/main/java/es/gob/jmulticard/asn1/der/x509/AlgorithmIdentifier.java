@@ -18,11 +18,11 @@ public final class AlgorithmIdentifier extends Sequence {
 	public AlgorithmIdentifier() {
 		super(
 			new OptionalDecoderObjectElement(
-				ObjectIdentifier.class,
+				ObjectIdentifier::new,
 				false
 			),
 			new OptionalDecoderObjectElement(
-				ObjectIdentifier.class,
+				ObjectIdentifier::new,
 				true
 			)
 		);
@@ -22,12 +22,12 @@ public final class Attribute extends Sequence {
 		super(
 			// Tipo de atributo
 			new OptionalDecoderObjectElement(
-				ObjectIdentifier.class,
+				ObjectIdentifier::new,
 				false
 			),
 			// Valor del atributo
 			new OptionalDecoderObjectElement(
-				AttributeValues.class,
+				AttributeValues::new,
 				false
 			)
 		);
@@ -58,11 +58,11 @@ public final class AttributeTypeAndDistinguishedValue extends Sequence {
 	public AttributeTypeAndDistinguishedValue() {
 		super(
 			new OptionalDecoderObjectElement(
-				ObjectIdentifier.class,
+				ObjectIdentifier::new,
 				false
 			),
 			new OptionalDecoderObjectElement(
-				Utf8String.class,
+				Utf8String::new,
 				false
 			)
 		);
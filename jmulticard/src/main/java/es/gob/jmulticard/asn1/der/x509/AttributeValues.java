@@ -18,7 +18,7 @@ public final class AttributeValues extends Set {
 	public AttributeValues() {
 		super(
 			new OptionalDecoderObjectElement(
-				GeneralizedTime.class,
+				GeneralizedTime::new,
 				false
 			)
 		);
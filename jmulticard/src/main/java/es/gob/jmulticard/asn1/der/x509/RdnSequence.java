@@ -49,18 +49,19 @@ public final class RdnSequence extends SequenceOf {
 
 	/** Construye un objeto ASN&#46;1 X&#46;509 <i>RdnSequence</i> (secuencia de <i>RelativeDistinguishedName</i>). */
 	public RdnSequence() {
-		super(RelativeDistinguishedName.class);
+		super(RelativeDistinguishedName::new);
 	}
 
 	@Override
     public String toString() {
 		final StringBuilder stringBuilder = new StringBuilder();
-		final int lastIndex = getElementCount();
-		for (int i=0; i<lastIndex;i++) {
-			stringBuilder.append(getElementAt(i));
-			if (i != lastIndex-1) {
+		boolean first = true;
+		for (final RelativeDistinguishedName rdn : getElements(RelativeDistinguishedName.class)) {
+			if (!first) {
 				stringBuilder.append(", "); //$NON-NLS-1$
 			}
+			stringBuilder.append(rdn);
+			first = false;
 		}
 		return stringBuilder.toString();
 	}
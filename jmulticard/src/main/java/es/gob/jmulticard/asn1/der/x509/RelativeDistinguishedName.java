@@ -53,7 +53,7 @@ public final class RelativeDistinguishedName extends Set {
 	public RelativeDistinguishedName() {
 		super(
 			new OptionalDecoderObjectElement(
-				AttributeTypeAndDistinguishedValue.class,
+				AttributeTypeAndDistinguishedValue::new,
 				false
 			)
 		);
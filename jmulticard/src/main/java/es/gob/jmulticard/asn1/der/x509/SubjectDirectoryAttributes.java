@@ -4,6 +4,7 @@ import java.util.Date;
 
 import es.gob.jmulticard.asn1.Asn1Exception;
 import es.gob.jmulticard.asn1.OptionalDecoderObjectElement;
+import es.gob.jmulticard.asn1.Tlv;
 import es.gob.jmulticard.asn1.TlvException;
 import es.gob.jmulticard.asn1.der.GeneralizedTime;
 import es.gob.jmulticard.asn1.der.OctectString;
@@ -25,7 +26,7 @@ public final class SubjectDirectoryAttributes extends Sequence {
 	public SubjectDirectoryAttributes() {
 		super(
 			new OptionalDecoderObjectElement(
-				Attribute.class,
+				Attribute::new,
 				false
 			)
 		);
@@ -38,6 +39,11 @@ public final class SubjectDirectoryAttributes extends Sequence {
 		super.setDerValue(os.getOctectStringByteValue());
 	}
 
+	@Override
+	public void setDerTlv(final Tlv tlv) throws Asn1Exception, TlvException {
+		setDerValue(tlv.getBytes());
+	}
+
 	@Override
     public String toString() {
 		return getElementAt(0).toString();
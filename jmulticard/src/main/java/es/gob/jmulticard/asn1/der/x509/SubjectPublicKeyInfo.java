@@ -22,11 +22,11 @@ public final class SubjectPublicKeyInfo extends Sequence {
 	public SubjectPublicKeyInfo() {
 		super(
 			new OptionalDecoderObjectElement(
-				AlgorithmIdentifier.class,
+				AlgorithmIdentifier::new,
 				false
 			),
 			new OptionalDecoderObjectElement(
-				SubjectPublicKey.class,
+				SubjectPublicKey::new,
 				false
 			)
 		);
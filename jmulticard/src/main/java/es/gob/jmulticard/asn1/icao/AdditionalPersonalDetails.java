@@ -9,7 +9,6 @@ import es.gob.jmulticard.HexUtils;
 import es.gob.jmulticard.JmcLogger;
 import es.gob.jmulticard.asn1.Asn1Exception;
 import es.gob.jmulticard.asn1.DecoderObject;
-import es.gob.jmulticard.asn1.Tlv;
 import es.gob.jmulticard.asn1.TlvException;
 
 /** Detalles personales adicionales de un eMRTD contenidos en el DG11.
@@ -93,7 +92,7 @@ public final class AdditionalPersonalDetails extends DecoderObject {
 
 		final DataInputStream dis = new DataInputStream(
 			new ByteArrayInputStream(
-				new Tlv(getBytes()).getValue()
+				getTlv().getValue()
 			)
 		);
 
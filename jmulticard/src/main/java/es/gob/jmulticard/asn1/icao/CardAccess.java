@@ -1,9 +1,15 @@
 package es.gob.jmulticard.asn1.icao;
 
+import java.util.Arrays;
+
 import es.gob.jmulticard.DigestAlgorithm;
+import es.gob.jmulticard.asn1.Asn1Exception;
+import es.gob.jmulticard.asn1.Tlv;
+import es.gob.jmulticard.asn1.TlvException;
 
 /** EF&#46;CardAccess de aplicaci&oacute;n de LDS1 para el eMRTD de ICAO 9303.
- * Implementaci&oacute;n ficticia hasta tener el correcto an&aacute;lisis de las estructuras ASN&#46;1.
+ * Recoge &uacute;nicamente el algoritmo PACE a usar, que puede indicarse directamente o
+ * seleccionarse entre los <code>PACEInfo</code> que anuncia la tarjeta.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
 public final class CardAccess {
 
@@ -49,6 +55,17 @@ public final class CardAccess {
 			192
 		),
 
+		/** id_PACE_ECDH_IM_AES_CBC_CMAC_128 (OID 0.4.0.127.0.7.2.2.4.4.2). */
+		PACE_ECDH_IM_AES_CBC_CMAC_128(
+			new byte[] {
+				/* T */
+				/* L */ (byte) 0x0A,
+				/* V */ (byte) 0x04, (byte) 0x00, (byte) 0x7f, (byte) 0x00, (byte) 0x07,
+				        (byte) 0x02, (byte) 0x02, (byte) 0x04, (byte) 0x04, (byte) 0x02
+			},
+			128
+		),
+
 		/** id_PACE_DH_GM_AES_CBC_CMAC_128 (OID 0.4.0.127.0.7.2.2.4.1.2). */
 		PACE_DH_GM_AES_CBC_CMAC_128(
 			new byte[] {
@@ -79,11 +96,30 @@ public final class CardAccess {
 		public int getKeyLength() {
 			return keyLength;
 		}
+
+		/** Indica si el algoritmo usa <i>Integrated Mapping</i> (id_PACE_DH_IM o id_PACE_ECDH_IM)
+		 * en lugar de <i>Generic Mapping</i>.
+		 * @return <code>true</code> si el algoritmo usa <i>Integrated Mapping</i>. */
+		public boolean isIntegratedMapping() {
+			// El penultimo octeto del OID indica el mapeo
+			final byte mapping = oidBytes[oidBytes.length - 2];
+			return mapping == (byte) 0x03 || mapping == (byte) 0x04;
+		}
 	}
 
 	/** Par&aacute;metro para el algoritmo de establecimiento de canal PACE. */
 	public enum PaceAlgorithmParam {
 
+		/** Curva <i>NIST P-256</i> (<i>secp256r1</i>). */
+		NIST_P256(
+			new byte[] {
+				/* T */ (byte) 0x84,
+				/* L */ (byte) 0x01,
+				/* V */ (byte) 0x0c
+			},
+			"secp256r1" //$NON-NLS-1$
+		),
+
 		/** Curva <i>brainpool256r1</i>. */
 		BRAINPOOL_256_R1(
 			new byte[] {
@@ -108,6 +144,13 @@ public final class CardAccess {
 			return paramBytes.clone();
 		}
 
+		/** Obtiene el identificador de los par&aacute;metros de dominio estandarizados
+		 * (el <code>parameterId</code> de los <code>PACEInfo</code>).
+		 * @return Identificador de los par&aacute;metros. */
+		public int getParameterId() {
+			return paramBytes[paramBytes.length - 1] & 0xFF;
+		}
+
 		/** Obtiene el nombre de la curva (el&iacute;ptica).
 		 * @return Nombre de la curva (el&iacute;ptica), o <code>null</code>
 		 *         si el algoritmo no es de curva el&iacute;ptica. */
@@ -116,12 +159,32 @@ public final class CardAccess {
 		}
 	}
 
+	/** Algoritmos PACE soportados, de menor a mayor coste. El <i>Integrated Mapping</i> se
+	 * ahorra el acuerdo de claves del mapeo, as&iacute; que se prefiere al <i>Generic Mapping</i>. */
+	private static final PaceAlgorithm[] PREFERRED_ALGORITHMS = {
+		PaceAlgorithm.PACE_ECDH_IM_AES_CBC_CMAC_128,
+		PaceAlgorithm.PACE_ECDH_GM_AES_CBC_CMAC_128
+	};
+
+	/** Curvas soportadas, de menor a mayor coste. <i>NIST P-256</i> cuenta con aritm&eacute;tica
+	 * optimizada para su primo en cualquier BouncyCastle, mientras que <i>brainpoolP256r1</i>
+	 * solo la tiene en el de <code>jmulticard-crypto</code>. */
+	private static final PaceAlgorithmParam[] PREFERRED_PARAMS = {
+		PaceAlgorithmParam.NIST_P256,
+		PaceAlgorithmParam.BRAINPOOL_256_R1
+	};
+
+	private static final byte TAG_SET = (byte) 0x31;
+	private static final byte TAG_SEQUENCE = (byte) 0x30;
+
+	/** Versi&oacute;n de <code>PACEInfo</code> de ICAO 9303. */
+	private static final int PACE_INFO_VERSION = 2;
+
 	private final PaceAlgorithm paceAlgorithm;
 	private final PaceAlgorithmParam paceAlgorithmParam;
 	private final DigestAlgorithm paceDigestAlgorithm;
 
-	/** Construye un CardAccess de ICAO 9303.
-     * Es una implementaci&oacute;n ficticia que recibe los datos en el constructor.
+	/** Construye un CardAccess de ICAO 9303 con el algoritmo PACE indicado.
 	 * @param algorithm Algoritmo de establecimiento del canal PACE.
 	 * @param algorithmParam Par&aacute;metros del algoritmo de establecimiento del canal PACE.
 	 * @param digestAlgorithm Algoritmo de huella a usar en el establecimiento de canal PACE. */
@@ -133,6 +196,77 @@ public final class CardAccess {
 		paceDigestAlgorithm = digestAlgorithm;
 	}
 
+	/** Selecciona, entre los <code>PACEInfo</code> de un EF&#46;CardAccess, la combinaci&oacute;n
+	 * de mapeo, curva y cifrado soportada de menor coste.
+	 * Se ignoran los <code>SecurityInfo</code> que no son <code>PACEInfo</code> y los
+	 * <code>PACEInfo</code> con algoritmos o par&aacute;metros no soportados.
+	 * @param securityInfos Contenido del EF&#46;CardAccess (<code>SecurityInfos</code>).
+	 * @return CardAccess con el algoritmo seleccionado, o <code>null</code> si la tarjeta no
+	 *         anuncia ninguno soportado.
+	 * @throws TlvException Si el contenido no es un <code>SecurityInfos</code>. */
+	public static CardAccess getPreferredCardAccess(final byte[] securityInfos) throws TlvException {
+		final Tlv set = new Tlv(securityInfos);
+		if (set.getTag() != TAG_SET) {
+			throw new TlvException("El EF.CardAccess no es un SET de SecurityInfo"); //$NON-NLS-1$
+		}
+		int bestRank = Integer.MAX_VALUE;
+		CardAccess best = null;
+		int offset = 0;
+		while (offset < set.getLength()) {
+			final Tlv securityInfo = set.getChild(offset);
+			offset += securityInfo.getTotalLength();
+			if (securityInfo.getTag() != TAG_SEQUENCE) {
+				continue;
+			}
+			final PaceInfo paceInfo = new PaceInfo();
+			try {
+				paceInfo.setDerValue(securityInfo.getBytes());
+			}
+			catch (final Asn1Exception | TlvException e) {
+				// No es un PACEInfo (por ejemplo, un ChipAuthenticationPublicKeyInfo)
+				continue;
+			}
+			if (paceInfo.getVersion() != PACE_INFO_VERSION) {
+				continue;
+			}
+			final int algorithmRank = indexOf(PREFERRED_ALGORITHMS, paceInfo.getProtocolBytes());
+			final int paramRank = indexOf(PREFERRED_PARAMS, paceInfo.getparameterId());
+			if (algorithmRank < 0 || paramRank < 0) {
+				continue;
+			}
+			final int rank = algorithmRank * PREFERRED_PARAMS.length + paramRank;
+			if (rank < bestRank) {
+				bestRank = rank;
+				best = new CardAccess(
+					PREFERRED_ALGORITHMS[algorithmRank],
+					PREFERRED_PARAMS[paramRank],
+					DigestAlgorithm.SHA1 // Con AES-128 las claves se derivan con SHA-1
+				);
+			}
+		}
+		return best;
+	}
+
+	private static int indexOf(final PaceAlgorithm[] algorithms, final byte[] oid) {
+		for (int i = 0; i < algorithms.length; i++) {
+			// El OID del PACEInfo incluye la etiqueta, que no esta en la codificacion del algoritmo
+			final byte[] algorithmOid = algorithms[i].getBytes();
+			if (oid.length == algorithmOid.length + 1 && Arrays.equals(algorithmOid, Arrays.copyOfRange(oid, 1, oid.length))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOf(final PaceAlgorithmParam[] params, final int parameterId) {
+		for (int i = 0; i < params.length; i++) {
+			if (params[i].getParameterId() == parameterId) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	/** Obtiene el algoritmo de establecimiento de canal PACE.
 	 * @return Algoritmo de establecimiento de canal PACE. */
 	public PaceAlgorithm getPaceAlgorithm() {
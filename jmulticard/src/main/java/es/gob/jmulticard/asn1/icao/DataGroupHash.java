@@ -39,11 +39,11 @@ public final class DataGroupHash extends Sequence {
 	public DataGroupHash() {
 		super(
 			new OptionalDecoderObjectElement(
-				DerInteger.class,
+				DerInteger::new,
 				false
 			),
 			new OptionalDecoderObjectElement(
-				OctectString.class,
+				OctectString::new,
 				false
 			)
 		);
@@ -11,17 +11,13 @@ public final class DataGroupHashValues extends SequenceOf {
 
 	/** Constructor. */
 	public DataGroupHashValues() {
-		super(DataGroupHash.class);
+		super(DataGroupHash::new);
 	}
 
 	/** Obtiene los <code>DataGroupHash</code>.
 	 * @return Array de <code>DataGroupHash</code>. */
 	public DataGroupHash[] getDataGroupsHashes() {
-		final DataGroupHash[] ret = new DataGroupHash[getElementCount()];
-		for (int i=0; i<getElementCount(); i++) {
-			ret[i] = (DataGroupHash) getElementAt(i);
-		}
-		return ret;
+		return getElements(DataGroupHash.class).toArray(new DataGroupHash[0]);
 	}
 
 }
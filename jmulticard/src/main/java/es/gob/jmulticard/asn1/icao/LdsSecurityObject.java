@@ -36,15 +36,15 @@ public final class LdsSecurityObject extends Sequence {
 	public LdsSecurityObject() {
 		super(
 			new OptionalDecoderObjectElement(
-				DerInteger.class,          // LDSSecurityObjectVersion
+				DerInteger::new,           // LDSSecurityObjectVersion
 				false
 			),
 			new OptionalDecoderObjectElement(
-				AlgorithmIdentifier.class, // DigestAlgorithmIdentifier
+				AlgorithmIdentifier::new,  // DigestAlgorithmIdentifier
 				false
 			),
 			new OptionalDecoderObjectElement(
-				DataGroupHashValues.class, // SEQUENCE SIZE OF DataHashGroup
+				DataGroupHashValues::new,  // SEQUENCE SIZE OF DataHashGroup
 				false
 			),
 			new OptionalDecoderObjectElement(
@@ -39,15 +39,15 @@ public final class PaceInfo extends Sequence {
 	public PaceInfo() {
 		super(
 			new OptionalDecoderObjectElement(
-				ObjectIdentifier.class, // protocol
+				ObjectIdentifier::new,  // protocol
 				false
 			),
 			new OptionalDecoderObjectElement(
-				DerInteger.class,       // version
+				DerInteger::new,        // version
 				false
 			),
 			new OptionalDecoderObjectElement(
-				DerInteger.class,       // parameterId
+				DerInteger::new,        // parameterId
 				true // Opcional
 			)
 		);
@@ -73,6 +73,12 @@ public final class PaceInfo extends Sequence {
 		return getElementAt(0).toString();
 	}
 
+	/** Obtiene la codificaci&oacute;n DER del OID del protocolo de este <code>PACEInfo</code>.
+	 * @return OID del protocolo (con etiqueta y longitud). */
+	public byte[] getProtocolBytes() {
+		return getElementAt(0).getBytes();
+	}
+
 	/** Obtiene la versi&oacute;n de este <code>PACEInfo</code>.
 	 * @return Versi&oacute;n de este <code>PACEInfo</code>. */
 	public int getVersion() {
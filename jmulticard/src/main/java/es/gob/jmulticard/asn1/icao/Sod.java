@@ -34,7 +34,7 @@ public final class Sod extends DecoderObject {
 
 	@Override
 	protected void decodeValue() throws Asn1Exception, TlvException {
-		final Tlv tlv = new Tlv(getBytes());
+		final Tlv tlv = getTlv();
 		checkTag(tlv.getTag());
 	}
 
@@ -50,7 +50,7 @@ public final class Sod extends DecoderObject {
 	                                       IOException,
 	                                       Asn1Exception {
 
-		final Tlv tlv = new Tlv(getBytes());
+		final Tlv tlv = getTlv();
 
 		certificateChain = cryptoHelper.validateCmsSignature(tlv.getValue());
 
@@ -18,11 +18,11 @@ public final class EcdsaSignature extends Sequence {
 	public EcdsaSignature() {
 		super(
 			new OptionalDecoderObjectElement(
-				DerInteger.class,
+				DerInteger::new,
 				false
 			),
 			new OptionalDecoderObjectElement(
-				DerInteger.class,
+				DerInteger::new,
 				false
 			)
 		);
@@ -77,6 +77,13 @@ public abstract class AbstractSmartCard implements Card {
             conn.open();
         }
         connection = conn;
+        connectionChanged();
+    }
+
+    /** Notifica que se ha sustituido la conexi&oacute;n con la tarjeta, para que se descarte
+     * cualquier estado que dependa de la conexi&oacute;n anterior. */
+    protected void connectionChanged() {
+    	// Vacio por defecto
     }
 
     /** Obtiene la clase de APDU por defecto de la tarjeta.
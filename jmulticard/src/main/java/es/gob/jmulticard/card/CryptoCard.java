@@ -40,6 +40,8 @@
 package es.gob.jmulticard.card;
 
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
 
 /** Operaciones comunes a todas las tarjetas criptogr&aacute;ficas.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
@@ -76,4 +78,47 @@ public interface CryptoCard {
      * @throws CryptoCardException Si ocurre alg&uacute;n problema durante la firma.
      * @throws PinException Si el PIN proporcionado es incorrecto o no es posible obtenerlo. */
     byte[] sign(byte[] data, String algorithm, PrivateKeyReference keyRef) throws CryptoCardException, PinException;
+
+    /** Realiza una firma electr&oacute;nica a partir de la huella ya calculada de los datos.
+     * Permite que quien firma calcule la huella de forma incremental, sin tener que
+     * mantener en memoria todos los datos.
+     * La implementaci&oacute;n por defecto no lo soporta.
+     * @param digest Huella digital de los datos a firmar.
+     * @param algorithm Algoritmo de firma (debe corresponder con el de la huella).
+     * @param keyRef Referencia a la clave privada de firma.
+     * @return Datos firmados (en el algoritmo y formato que determine la tarjeta).
+     * @throws AuthenticationModeLockedException Cuando la tarjeta est&aacute; bloqueada.
+     * @throws CryptoCardException Si ocurre alg&uacute;n problema durante la firma.
+     * @throws PinException Si el PIN proporcionado es incorrecto o no es posible obtenerlo. */
+    default byte[] signDigest(final byte[] digest,
+    		                  final String algorithm,
+    		                  final PrivateKeyReference keyRef) throws CryptoCardException, PinException {
+    	throw new UnsupportedOperationException(
+			"Esta tarjeta no soporta la firma de huellas ya calculadas" //$NON-NLS-1$
+		);
+    }
+
+    /** Realiza un lote de firmas electr&oacute;nicas con la misma clave privada.
+     * Las tarjetas que lo soportan establecen el canal, verifican el PIN y seleccionan
+     * la clave una &uacute;nica vez para todo el lote. La implementaci&oacute;n por defecto
+     * firma cada elemento por separado.
+     * @param data Lista de datos a firmar.
+     * @param algorithm Algoritmo de firma.
+     * @param keyRef Referencia a la clave privada de firma.
+     * @return Lista de firmas, en el mismo orden que los datos de entrada.
+     * @throws AuthenticationModeLockedException Cuando la tarjeta est&aacute; bloqueada.
+     * @throws CryptoCardException Si ocurre alg&uacute;n problema durante alguna de las firmas.
+     * @throws PinException Si el PIN proporcionado es incorrecto o no es posible obtenerlo. */
+    default List<byte[]> signBatch(final List<byte[]> data,
+    		                       final String algorithm,
+    		                       final PrivateKeyReference keyRef) throws CryptoCardException, PinException {
+    	if (data == null) {
+    		throw new IllegalArgumentException("La lista de datos a firmar no puede ser nula"); //$NON-NLS-1$
+    	}
+    	final List<byte[]> signatures = new ArrayList<>(data.size());
+    	for (final byte[] element : data) {
+    		signatures.add(sign(element, algorithm, keyRef));
+    	}
+    	return signatures;
+    }
 }
\ No newline at end of file
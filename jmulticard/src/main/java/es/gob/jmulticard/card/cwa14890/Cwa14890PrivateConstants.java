@@ -7,6 +7,8 @@ import java.security.interfaces.RSAPrivateKey;
 public interface Cwa14890PrivateConstants {
 
     /** Obtiene la clave privada del certificado de terminal.
+     * Si la clave es de tipo <code>RSAPrivateCrtKey</code> las operaciones con ella
+     * se realizan mediante el Teorema Chino del Resto, que es notablemente m&aacute;s r&aacute;pido.
      * @return Clave privada del certificado de Terminal. */
     RSAPrivateKey getIfdPrivateKey();
 
@@ -44,8 +44,10 @@ import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -108,6 +110,9 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
 	/** Octeto que identifica una verificaci&oacute;n fallida del PIN. */
     private static final byte ERROR_PIN_SW1 = (byte) 0x63;
 
+    /** Palabra de estado que indica que no se satisfacen las condiciones de seguridad. */
+    private static final StatusWord SW_SECURITY_STATUS_NOT_SATISFIED = new StatusWord((byte) 0x69, (byte) 0x82);
+
     /** Identificador del fichero del certificado de componente del DNIe. */
     private static final byte[] CERT_ICC_FILE_ID = { (byte) 0x60, (byte) 0x1F };
 
@@ -146,6 +151,21 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
     private PasswordCallback passwordCallback;
     private CallbackHandler callbackHandler;
 
+    /** Sesi&oacute;n de firma activa, o <code>null</code> si el canal se cierra tras cada firma. */
+    private DnieSession session = null;
+
+    /** N&uacute;mero de canales seguros establecidos con la tarjeta. */
+    private int handshakeCount = 0;
+
+    /** &Uacute;ltimo n&uacute;mero de serie del chip obtenido de la tarjeta, o <code>null</code>
+     * si a&uacute;n no se ha obtenido. El establecimiento del canal seguro lo obtiene siempre
+     * antes de pedir la clave del certificado de componente. */
+    private byte[] chipSerial = null;
+
+    /** Indica si se ha verificado el PIN dentro de los canales seguros abiertos desde
+     * el &uacute;ltimo reinicio de la tarjeta. */
+    private boolean pinVerified = false;
+
 	//*************************************************************************
 	//************************ CONSTRUCTORES **********************************
 
@@ -231,18 +251,47 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
     		                      final String signAlgorithm,
     		                      final PrivateKeyReference privateKeyReference) throws CryptoCardException,
     		                                                                            PinException {
+        return signDigestInfoInternal(encodeDigestInfo(signAlgorithm, data), privateKeyReference);
+    }
+
+    /**
+     * Ejecuta la operaci&oacute;n interna de firma de un <code>DigestInfo</code> ya construido.
+     * @param digestInfo Estructura <code>DigestInfo</code> a firmar.
+     * @param privateKeyReference Referencia a la clave privada de firma.
+     * @return Datos firmados.
+     * @throws CryptoCardException Si hay problemas durante el proceso.
+     * @throws PinException Si no se ha podido realizar la firma por un problema con el PIN.
+     */
+    private byte[] signDigestInfoInternal(final byte[] digestInfo,
+    		                              final PrivateKeyReference privateKeyReference) throws CryptoCardException,
+    		                                                                                    PinException {
         if (!(privateKeyReference instanceof DniePrivateKeyReference)) {
             throw new IllegalArgumentException(
         		"La referencia a la clave privada tiene que ser de tipo DniePrivateKeyReference" //$NON-NLS-1$
     		);
         }
-        return signOperation(data, signAlgorithm, privateKeyReference);
+        return signOperation(digestInfo, privateKeyReference);
+    }
+
+    /**
+     * Construye el <code>DigestInfo</code> a firmar calculando la huella de los datos.
+     * @param signAlgorithm Algoritmo de firma.
+     * @param data Datos a firmar.
+     * @return Estructura <code>DigestInfo</code>.
+     * @throws DnieCardException Si no se puede calcular la huella.
+     */
+    private byte[] encodeDigestInfo(final String signAlgorithm, final byte[] data) throws DnieCardException {
+        try {
+            return DigestInfo.encode(signAlgorithm, data, this.cryptoHelper);
+        }
+        catch (final IOException e) {
+            throw new DnieCardException("Error en el calculo de la huella para firmar", e); //$NON-NLS-1$
+        }
     }
 
     /**
      * Realiza la operaci&oacute;n de firma.
-     * @param data Datos que se desean firmar.
-     * @param signAlgorithm Algoritmo de firma (por ejemplo, <code>SHA512withRSA</code>, <code>SHA1withRSA</code>, etc.).
+     * @param digestInfo Estructura <code>DigestInfo</code> con la huella de los datos a firmar.
      * @param privateKeyReference Referencia a la clave privada para la firma.
      * @return Firma de los datos.
      * @throws CryptoCardException Cuando se produce un error durante la operaci&oacute;n de firma.
@@ -250,70 +299,138 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
      *                      la tarjeta tiene el PIN bloqueado.
      * @throws PasswordCallbackNotFoundException Si no se ha proporcionado una forma de obtener el PIN.
      */
-    private byte[] signOperation(final byte[] data,
-    		                     final String signAlgorithm,
+    private byte[] signOperation(final byte[] digestInfo,
     		                     final PrivateKeyReference privateKeyReference) throws CryptoCardException,
     		                                                                           PinException {
         openSecureChannelIfNotAlreadyOpened();
 
-        ResponseApdu res;
+        final byte[] signature;
         try {
-            CommandApdu apdu = new MseSetComputationApduCommand(
-        		(byte) 0x00,
-        		((DniePrivateKeyReference) privateKeyReference).getKeyPath().getLastFilePath(),
-        		null
-    		);
-            res = getConnection().transmit(apdu);
-            if (!res.isOk()) {
-                throw new DnieCardException(
-            		"Error en el establecimiento de las clave de firma con respuesta: " + res.getStatusWord(), //$NON-NLS-1$
-    				res.getStatusWord()
-        		);
-            }
-
-            JmcLogger.info(Dnie.class.getName(), "signOperation", "Establecidas las claves de firma"); //$NON-NLS-1$ //$NON-NLS-2$
-
-            final byte[] digestInfo;
-            try {
-                digestInfo = DigestInfo.encode(signAlgorithm, data, this.cryptoHelper);
-            }
-            catch (final IOException e) {
-                throw new DnieCardException("Error en el calculo de la huella para firmar", e); //$NON-NLS-1$
-            }
-
-            apdu = new PsoSignHashApduCommand((byte) 0x00, digestInfo);
-            res = getConnection().transmit(apdu);
-            if (!res.isOk()) {
-            	JmcLogger.severe(
-            		"Recibida APDU inesperada de respuesta al PSOSignHash:\n" + //$NON-NLS-1$
-        				HexUtils.hexify(res.getBytes(), true)
-        		);
-                throw new DnieCardException(
-                	"Error durante la operacion de firma con respuesta: " + res.getStatusWord(), //$NON-NLS-1$
-                	res.getStatusWord()
-                );
-            }
+        	setSignatureKey(privateKeyReference);
+        	signature = psoSignHash(digestInfo);
         }
         catch(final LostChannelException e) {
-            try {
-                getConnection().close();
-                if (getConnection() instanceof Cwa14890Connection) {
-                    setConnection(getConnection().getSubConnection());
-                }
-            }
-            catch (final ApduConnectionException ex) {
-                throw new DnieCardException("No se pudo recuperar el canal seguro para firmar (" + e + ")", ex); //$NON-NLS-1$ //$NON-NLS-2$
-            }
-            return signOperation(data, signAlgorithm, privateKeyReference);
+        	recoverLostChannel(e);
+            return signOperation(digestInfo, privateKeyReference);
         }
         catch (final ApduConnectionException e) {
             throw new DnieCardException("Error en la transmision de comandos para firma a la tarjeta", e); //$NON-NLS-1$
         }
 
         JmcLogger.info(Dnie.class.getName(), "signOperation", "Realizada correctamente la firma electronica"); //$NON-NLS-1$ //$NON-NLS-2$
+        return signature;
+    }
+
+    /**
+     * Realiza las firmas pendientes de un lote sobre un mismo canal seguro.
+     * @param digestInfos Lista completa de estructuras <code>DigestInfo</code> a firmar.
+     * @param privateKeyReference Referencia a la clave privada para la firma.
+     * @param signatures Lista de firmas ya realizadas, a la que se a&ntilde;aden las nuevas.
+     * @return <code>true</code> si se ha completado el lote, <code>false</code> si es necesario
+     *         reestablecer el canal seguro para continuar.
+     * @throws CryptoCardException Cuando se produce un error durante la operaci&oacute;n de firma.
+     * @throws PinException Si el PIN proporcionado es incorrecto o la tarjeta tiene el PIN bloqueado.
+     */
+    private boolean signBatchOperation(final List<byte[]> digestInfos,
+    		                           final PrivateKeyReference privateKeyReference,
+    		                           final List<byte[]> signatures) throws CryptoCardException,
+    		                                                                 PinException {
+    	openSecureChannelIfNotAlreadyOpened();
+
+    	final int signedBefore = signatures.size();
+    	try {
+    		// La clave se establece una unica vez para todas las firmas sobre este canal
+    		setSignatureKey(privateKeyReference);
+    		for (int i = signedBefore; i < digestInfos.size(); i++) {
+    			signatures.add(psoSignHash(digestInfos.get(i)));
+    		}
+    	}
+    	catch(final LostChannelException e) {
+    		recoverLostChannel(e);
+    		return false;
+    	}
+    	catch (final DnieCardException e) {
+    		// Hay claves que exigen verificar el PIN antes de cada firma
+    		if (signatures.size() == signedBefore || !SW_SECURITY_STATUS_NOT_SATISFIED.equals(e.getStatusWord())) {
+    			throw e;
+    		}
+    		closeSecureChannelAfterSign();
+    		return false;
+    	}
+    	catch (final ApduConnectionException e) {
+    		throw new DnieCardException("Error en la transmision de comandos para firma a la tarjeta", e); //$NON-NLS-1$
+    	}
+    	return true;
+    }
+
+    /**
+     * Establece en la tarjeta la clave privada para las siguientes operaciones de firma.
+     * @param privateKeyReference Referencia a la clave privada para la firma.
+     * @throws ApduConnectionException Si hay problemas en la transmisi&oacute;n de la APDU.
+     * @throws DnieCardException Si la tarjeta rechaza el establecimiento de la clave.
+     */
+    private void setSignatureKey(final PrivateKeyReference privateKeyReference) throws ApduConnectionException,
+                                                                                       DnieCardException {
+        final CommandApdu apdu = new MseSetComputationApduCommand(
+    		(byte) 0x00,
+    		((DniePrivateKeyReference) privateKeyReference).getKeyPath().getLastFilePath(),
+    		null
+		);
+        final ResponseApdu res = getConnection().transmit(apdu);
+        if (!res.isOk()) {
+            throw new DnieCardException(
+        		"Error en el establecimiento de las clave de firma con respuesta: " + res.getStatusWord(), //$NON-NLS-1$
+				res.getStatusWord()
+    		);
+        }
+
+        JmcLogger.info(Dnie.class.getName(), "setSignatureKey", "Establecidas las claves de firma"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Firma la huella de unos datos con la clave previamente establecida.
+     * @param digestInfo Estructura <code>DigestInfo</code> con la huella de los datos a firmar.
+     * @return Firma de los datos.
+     * @throws ApduConnectionException Si hay problemas en la transmisi&oacute;n de la APDU.
+     * @throws DnieCardException Si la tarjeta no realiza la firma.
+     */
+    private byte[] psoSignHash(final byte[] digestInfo) throws ApduConnectionException,
+                                                               DnieCardException {
+        final ResponseApdu res = getConnection().transmit(new PsoSignHashApduCommand((byte) 0x00, digestInfo));
+        if (!res.isOk()) {
+        	JmcLogger.severe(
+        		"Recibida APDU inesperada de respuesta al PSOSignHash:\n" + //$NON-NLS-1$
+    				HexUtils.hexify(res.getBytes(), true)
+    		);
+            throw new DnieCardException(
+            	"Error durante la operacion de firma con respuesta: " + res.getStatusWord(), //$NON-NLS-1$
+            	res.getStatusWord()
+            );
+        }
         return res.getData();
     }
 
+    /**
+     * Cierra el canal seguro perdido y vuelve a la conexi&oacute;n subyacente para
+     * que la siguiente operaci&oacute;n lo reestablezca.
+     * @param e Excepci&oacute;n de p&eacute;rdida de canal.
+     * @throws DnieCardException Si no se puede recuperar el canal.
+     */
+    private void recoverLostChannel(final LostChannelException e) throws DnieCardException {
+    	if (session != null) {
+    		session.channelLost();
+    	}
+        try {
+            getConnection().close();
+            if (getConnection() instanceof Cwa14890Connection) {
+                setConnection(getConnection().getSubConnection());
+            }
+        }
+        catch (final ApduConnectionException ex) {
+            throw new DnieCardException("No se pudo recuperar el canal seguro para firmar (" + e + ")", ex); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
     /**
      * Obtiene la <code>PasswordCallback</code> predefinida.
 	 * @return <code>PasswordCallback</code> predefinida.
@@ -408,7 +525,8 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
     public final byte[] getSerialNumber() throws ApduConnectionException {
         final ResponseApdu response = getConnection().transmit(new GetChipInfoApduCommand());
         if (response.isOk()) {
-        	return response.getData();
+        	chipSerial = response.getData();
+        	return chipSerial.clone();
         }
         throw new ApduConnectionException(
     		"Respuesta invalida en la obtencion del numero de serie con el codigo: " + response.getStatusWord() //$NON-NLS-1$
@@ -437,6 +555,14 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
 
     @Override
     public final RSAPublicKey getIccCertPublicKey() throws IOException {
+    	// El certificado de componente no cambia, asi que solo se lee de la tarjeta
+    	// la primera vez y despues se toma de la cache por numero de serie del chip
+    	final byte[] serial = chipSerial != null ? chipSerial : getSerialNumber();
+    	final RSAPublicKey cachedKey = IccPublicKeyCache.get(serial);
+    	if (cachedKey != null) {
+    		JmcLogger.info(Dnie.class.getName(), "getIccCertPublicKey", "Usada la clave del certificado de componente en cache"); //$NON-NLS-1$ //$NON-NLS-2$
+    		return cachedKey;
+    	}
         final byte[] iccCertEncoded;
         try {
         	selectMasterFile();
@@ -457,7 +583,9 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
         catch (final CertificateException e) {
         	throw new IOException("No se pudo obtener el certificado de componente", e); //$NON-NLS-1$
 		}
-        return this.cryptoHelper.getRsaPublicKey(iccCert);
+        final RSAPublicKey iccPublicKey = this.cryptoHelper.getRsaPublicKey(iccCert);
+        IccPublicKeyCache.put(serial, iccPublicKey);
+        return iccPublicKey;
     }
 
     @Override
@@ -563,7 +691,157 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
     		           final String signAlgorithm,
     		           final PrivateKeyReference privateKeyReference) throws CryptoCardException,
     		                                                                 PinException {
-    	final byte[] signBytes = signInternal(data, signAlgorithm, privateKeyReference);
+    	return signDigestInfo(encodeDigestInfo(signAlgorithm, data), privateKeyReference);
+    }
+
+    @Override
+    public byte[] signDigest(final byte[] digest,
+    		                 final String signAlgorithm,
+    		                 final PrivateKeyReference privateKeyReference) throws CryptoCardException,
+    		                                                                       PinException {
+    	final byte[] digestInfo;
+    	try {
+    		digestInfo = DigestInfo.encodeDigest(signAlgorithm, digest);
+    	}
+    	catch (final IOException e) {
+    		throw new DnieCardException("Error en la codificacion de la huella para firmar", e); //$NON-NLS-1$
+    	}
+    	return signDigestInfo(digestInfo, privateKeyReference);
+    }
+
+    /** Firma un <code>DigestInfo</code> ya construido registrando los canales seguros establecidos.
+     * @param digestInfo Estructura <code>DigestInfo</code> a firmar.
+     * @param privateKeyReference Referencia a la clave privada para la firma.
+     * @return Firma de los datos.
+     * @throws CryptoCardException Si hay problemas durante el proceso.
+     * @throws PinException Si no se ha podido realizar la firma por un problema con el PIN. */
+    private byte[] signDigestInfo(final byte[] digestInfo,
+    		                      final PrivateKeyReference privateKeyReference) throws CryptoCardException,
+    		                                                                            PinException {
+    	final int handshakesBefore = handshakeCount;
+    	final byte[] signBytes = signInSession(digestInfo, privateKeyReference);
+    	JmcLogger.debug(
+			Dnie.class.getName(),
+			"sign", //$NON-NLS-1$
+			"Firma realizada estableciendo " + (handshakeCount - handshakesBefore) + " canales seguros" //$NON-NLS-1$ //$NON-NLS-2$
+		);
+    	return signBytes;
+    }
+
+    /** Realiza una firma dentro de la sesi&oacute;n de firma activa, o cerrando el canal
+     * seguro tras ella si no hay ninguna.
+     * @param digestInfo Estructura <code>DigestInfo</code> a firmar.
+     * @param privateKeyReference Referencia a la clave privada para la firma.
+     * @return Firma de los datos.
+     * @throws CryptoCardException Si hay problemas durante el proceso.
+     * @throws PinException Si no se ha podido realizar la firma por un problema con el PIN. */
+    private byte[] signInSession(final byte[] digestInfo,
+    		                     final PrivateKeyReference privateKeyReference) throws CryptoCardException,
+    		                                                                           PinException {
+    	final DnieSession activeSession = session;
+    	if (activeSession == null || !activeSession.checkActive()) {
+	    	final byte[] signBytes = signDigestInfoInternal(digestInfo, privateKeyReference);
+	    	closeSecureChannelAfterSign();
+	    	return signBytes;
+    	}
+
+    	// Dentro de una sesion el canal se mantiene abierto entre firmas
+    	final boolean channelReused = isSecurityChannelOpen();
+    	byte[] signBytes;
+    	try {
+    		signBytes = signDigestInfoInternal(digestInfo, privateKeyReference);
+    	}
+    	catch (final DnieCardException e) {
+    		// Hay claves que exigen verificar el PIN antes de cada firma, en cuyo caso
+    		// se reestablece el canal (con su verificacion de PIN) y se reintenta una vez
+    		if (!channelReused || !SW_SECURITY_STATUS_NOT_SATISFIED.equals(e.getStatusWord())) {
+    			throw e;
+    		}
+    		JmcLogger.info(
+				Dnie.class.getName(),
+				"sign", //$NON-NLS-1$
+				"La clave exige verificar el PIN antes de cada firma, se reestablece el canal seguro" //$NON-NLS-1$
+			);
+    		closeSecureChannelAfterSign();
+    		signBytes = signDigestInfoInternal(digestInfo, privateKeyReference);
+    		activeSession.signatureDone(false);
+    		return signBytes;
+    	}
+    	if (activeSession.isOpen()) {
+    		activeSession.signatureDone(channelReused);
+    	}
+    	else {
+    		// Se ha perdido el canal durante la firma y la sesion se ha invalidado
+    		closeSecureChannelAfterSign();
+    	}
+    	return signBytes;
+    }
+
+    @Override
+    public List<byte[]> signBatch(final List<byte[]> data,
+    		                      final String signAlgorithm,
+    		                      final PrivateKeyReference privateKeyReference) throws CryptoCardException,
+    		                                                                            PinException {
+    	if (data == null) {
+    		throw new IllegalArgumentException("La lista de datos a firmar no puede ser nula"); //$NON-NLS-1$
+    	}
+        if (!(privateKeyReference instanceof DniePrivateKeyReference)) {
+            throw new IllegalArgumentException(
+        		"La referencia a la clave privada tiene que ser de tipo DniePrivateKeyReference" //$NON-NLS-1$
+    		);
+        }
+
+    	// Las huellas se calculan antes de abrir el canal para no alargar su uso
+    	final List<byte[]> digestInfos = new ArrayList<>(data.size());
+    	for (final byte[] element : data) {
+    		digestInfos.add(encodeDigestInfo(signAlgorithm, element));
+    	}
+
+    	final DnieSession activeSession = session != null && session.checkActive() ? session : null;
+
+    	final List<byte[]> signatures = new ArrayList<>(data.size());
+    	// Por cada firma, si se hizo sobre un canal ya establecido antes de ella
+    	final List<Boolean> channelsReused = new ArrayList<>(data.size());
+    	int restartsWithoutProgress = 0;
+    	while (signatures.size() < data.size()) {
+    		final int signedBefore = signatures.size();
+    		final boolean channelReused = isSecurityChannelOpen();
+    		final boolean completed = signBatchOperation(digestInfos, privateKeyReference, signatures);
+    		for (int i = signedBefore; i < signatures.size(); i++) {
+    			channelsReused.add(Boolean.valueOf(i > signedBefore || channelReused));
+    		}
+    		if (completed) {
+    			break;
+    		}
+    		restartsWithoutProgress = signatures.size() > signedBefore ? 0 : restartsWithoutProgress + 1;
+    		if (restartsWithoutProgress > 1) {
+    			throw new CryptoCardException(
+					"No se pudo reestablecer el canal seguro para completar el lote de firmas (firmados " + //$NON-NLS-1$
+						signatures.size() + " de " + data.size() + ")" //$NON-NLS-1$ //$NON-NLS-2$
+				);
+    		}
+    	}
+
+    	JmcLogger.info(
+			Dnie.class.getName(),
+			"signBatch", //$NON-NLS-1$
+			"Realizado correctamente un lote de " + signatures.size() + " firmas electronicas" //$NON-NLS-1$ //$NON-NLS-2$
+		);
+
+    	if (activeSession != null && activeSession.isOpen()) {
+    		for (final Boolean channelReused : channelsReused) {
+    			activeSession.signatureDone(channelReused.booleanValue());
+    		}
+    	}
+    	else {
+    		closeSecureChannelAfterSign();
+    	}
+    	return signatures;
+    }
+
+    /** Cierra el canal seguro tras una firma para que la siguiente operaci&oacute;n
+     * lo establezca de nuevo (con su verificaci&oacute;n de PIN). */
+    protected void closeSecureChannelAfterSign() {
     	try {
 			getConnection().close();
 		}
@@ -572,7 +850,38 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
 				"No se ha podido cerrar el canal despues de una firma, es posible que fallen operaciones: " + e //$NON-NLS-1$
 			);
 		}
-    	return signBytes;
+    }
+
+    /** Abre una sesi&oacute;n de firma en la que el canal seguro y la verificaci&oacute;n
+     * de PIN se mantienen entre firmas consecutivas.
+     * Si ya hay una sesi&oacute;n abierta se devuelve esta.
+     * @param idleTimeoutMillis Tiempo m&aacute;ximo de inactividad de la sesi&oacute;n en milisegundos
+     *                          (cero o negativo para no establecer l&iacute;mite).
+     * @return Sesi&oacute;n de firma. */
+    public final DnieSession openSession(final long idleTimeoutMillis) {
+    	if (session != null && session.isOpen()) {
+    		return session;
+    	}
+    	session = new DnieSession(this, idleTimeoutMillis);
+    	JmcLogger.info(Dnie.class.getName(), "openSession", "Abierta sesion de firma"); //$NON-NLS-1$ //$NON-NLS-2$
+    	return session;
+    }
+
+    /** Obtiene la sesi&oacute;n de firma abierta.
+     * @return Sesi&oacute;n de firma abierta o <code>null</code> si no hay ninguna. */
+    public final DnieSession getSession() {
+    	return session != null && session.isOpen() ? session : null;
+    }
+
+    /** Cierra una sesi&oacute;n de firma y el canal seguro que esta manten&iacute;a.
+     * @param closingSession Sesi&oacute;n que se cierra. */
+    final void closeSession(final DnieSession closingSession) {
+    	if (session != closingSession) {
+    		return;
+    	}
+    	session = null;
+    	closeSecureChannelAfterSign();
+    	JmcLogger.info(Dnie.class.getName(), "closeSession", "Cerrada sesion de firma: " + closingSession); //$NON-NLS-1$ //$NON-NLS-2$
     }
 
     @Override
@@ -609,6 +918,39 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
 				)
 			);
         }
+        pinVerified = isSecurityChannelOpen();
+    }
+
+    /** Indica si el PIN ya se ha verificado en un canal seguro desde el &uacute;ltimo
+     * reinicio de la tarjeta, de forma que un nuevo canal seguro puede usarlo sin
+     * necesidad de volver a verificarlo.
+     * @return <code>true</code> si hay una verificaci&oacute;n de PIN vigente,
+     *         <code>false</code> en caso contrario. */
+    protected final boolean isPinVerified() {
+    	return pinVerified;
+    }
+
+    /** Registra el establecimiento de un canal seguro con la tarjeta. */
+    protected final void secureChannelEstablished() {
+    	handshakeCount++;
+    }
+
+    /** Obtiene el n&uacute;mero de canales seguros (CWA-14890 o PACE) establecidos con la
+     * tarjeta desde su creaci&oacute;n. Cada establecimiento conlleva una autenticaci&oacute;n
+     * mutua completa con la tarjeta.
+     * @return N&uacute;mero de canales seguros establecidos. */
+    public final int getHandshakeCount() {
+    	return handshakeCount;
+    }
+
+    @Override
+    protected void connectionChanged() {
+    	super.connectionChanged();
+    	// Al volver a una conexion sin canal seguro CWA-14890 la tarjeta se ha reiniciado
+    	// o se va a reiniciar, y se pierde la verificacion de PIN
+    	if (!isSecurityChannelOpen()) {
+    		pinVerified = false;
+    	}
     }
 
 	@Override
@@ -714,6 +1056,7 @@ public class Dnie extends AbstractIso7816EightCard implements Dni, Cwa14890Card
                 catch (final ApduConnectionException e) {
                     throw new CryptoCardException("Error en el establecimiento del canal seguro", e); //$NON-NLS-1$
                 }
+                secureChannelEstablished();
             }
             if (doChv) {
 	            try {
@@ -85,6 +85,9 @@ public class Dnie3 extends Dnie implements MrtdLds1 {
 
     private String idesp = null;
 
+    /** Indica si ya se ha consultado la informaci&oacute;n de longitud extendida del EF&#46;ATR/INFO. */
+    private boolean extendedLengthChecked = false;
+
 	//*************************************************************************
 	//************************ CONSTRUCTORES **********************************
 
@@ -157,9 +160,20 @@ public class Dnie3 extends Dnie implements MrtdLds1 {
 	@Override
 	public void openSecureChannelIfNotAlreadyOpened(final boolean doChv) throws CryptoCardException,
 	                                                                            PinException {
-        // Si el canal seguro esta ya abierto salimos sin hacer nada
+		// Si el canal seguro de usuario esta ya abierto salimos sin hacer nada. Si lo que
+		// esta abierto es el canal de PIN, se aprovecha para pasar al de usuario
+        final ChannelType openChannelType;
         if (isSecurityChannelOpen()) {
-        	return;
+        	if (!(getConnection() instanceof Cwa14890OneV2Connection)) {
+        		return;
+        	}
+        	openChannelType = ((Cwa14890OneV2Connection)getConnection()).getChannelType();
+        	if (openChannelType != ChannelType.CWA_PIN) {
+        		return;
+        	}
+        }
+        else {
+        	openChannelType = null;
         }
 
     	JmcLogger.info(Dnie3.class.getName(), "openSecureChannelIfNotAlreadyOpened", "Conexion actual: " + getConnection()); //$NON-NLS-1$ //$NON-NLS-2$
@@ -179,9 +193,20 @@ public class Dnie3 extends Dnie implements MrtdLds1 {
 			}
         }
 
-        if (doChv) {
-	        // Establecemos el canal PIN y lo verificamos
-        	openPinChannel();
+        if (doChv && isPinVerified()) {
+        	// El PIN ya se verifico tras el ultimo reinicio de la tarjeta y la verificacion
+        	// sigue vigente en el nuevo canal de usuario
+        	JmcLogger.info(
+    			Dnie3.class.getName(),
+    			"openSecureChannelIfNotAlreadyOpened", //$NON-NLS-1$
+    			"Se reutiliza la verificacion de PIN anterior" //$NON-NLS-1$
+			);
+        }
+        else if (doChv) {
+	        // Establecemos el canal PIN (si no lo estaba ya) y lo verificamos
+        	if (openChannelType != ChannelType.CWA_PIN) {
+        		openPinChannel();
+        	}
 	        try {
 	        	verifyPin(getInternalPasswordCallback());
 	        }
@@ -235,6 +260,7 @@ public class Dnie3 extends Dnie implements MrtdLds1 {
         catch (final ApduConnectionException e) {
         	throw new CryptoCardException("Error en el establecimiento del canal seguro de PIN", e); //$NON-NLS-1$
         }
+        secureChannelEstablished();
 
         JmcLogger.info(
 			Dnie3.class.getName(), "openPinChannel", "Canal seguro de PIN para DNIe establecido" //$NON-NLS-1$ //$NON-NLS-2$
@@ -272,6 +298,7 @@ public class Dnie3 extends Dnie implements MrtdLds1 {
         catch (final ApduConnectionException e) {
             throw new CryptoCardException("Error en el establecimiento del canal seguro de usuario", e); //$NON-NLS-1$
         }
+        secureChannelEstablished();
 
         JmcLogger.info(
 			Dnie3.class.getName(), "openUserChannel", "Canal seguro de Usuario para DNIe establecido" //$NON-NLS-1$ //$NON-NLS-2$
@@ -399,6 +426,26 @@ public class Dnie3 extends Dnie implements MrtdLds1 {
 		}
     }
 
+    /** Consulta (una &uacute;nica vez) en el EF&#46;ATR/INFO los tama&ntilde;os m&aacute;ximos de comando
+     * y de respuesta que admite la tarjeta, para leer los ficheros grandes con el menor n&uacute;mero
+     * de APDU. */
+    private void checkExtendedLength() {
+    	if (extendedLengthChecked) {
+    		return;
+    	}
+    	extendedLengthChecked = true;
+    	try {
+    		final byte[] atrInfo = getAtrInfo();
+    		setMaxCommandLength(getMaxCommandLength(atrInfo));
+    		setMaxResponseLength(getMaxResponseLength(atrInfo));
+    	}
+    	catch (final Exception e) {
+    		JmcLogger.warning(
+				"No se ha podido obtener la informacion de longitud extendida, se usaran lecturas cortas: " + e //$NON-NLS-1$
+			);
+    	}
+    }
+
     @Override
 	public final byte[] getAtrInfo() throws IOException {
     	try {
@@ -428,6 +475,7 @@ public class Dnie3 extends Dnie implements MrtdLds1 {
     @Override
 	public final SubjectFacePhoto getDg2() throws IOException {
     	final SubjectFacePhoto ret = new SubjectFacePhoto();
+    	checkExtendedLength();
 		try {
 			ret.setDerValue(selectFileByLocationAndRead(FILE_DG02_LOCATION));
 		}
@@ -442,6 +490,7 @@ public class Dnie3 extends Dnie implements MrtdLds1 {
 
     @Override
 	public byte[] getDg3() throws IOException {
+    	checkExtendedLength();
 		try {
 			return selectFileByLocationAndRead(FILE_DG03_LOCATION);
 		}
@@ -460,6 +509,7 @@ public class Dnie3 extends Dnie implements MrtdLds1 {
     @Override
 	public final SubjectSignaturePhoto getDg7() throws IOException {
     	final SubjectSignaturePhoto ret = new SubjectSignaturePhoto();
+    	checkExtendedLength();
 		try {
 			ret.setDerValue(selectFileByLocationAndRead(FILE_DG07_LOCATION));
 		}
@@ -41,6 +41,7 @@ package es.gob.jmulticard.card.dnie;
 
 import java.math.BigInteger;
 import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
 import java.security.interfaces.RSAPrivateKey;
 
 import es.gob.jmulticard.card.cwa14890.Cwa14890PrivateConstants;
@@ -135,7 +136,7 @@ final class DnieCwa14890Constants implements Cwa14890PublicConstants, Cwa14890Pr
 
     /** Clave privada del certificado de Terminal.
      * (<i>sk-IFD-AUT</i>). */
-	private static final RSAPrivateKey IFD_PRIVATE_KEY = new RSAPrivateKey() {
+	private static final RSAPrivateCrtKey IFD_PRIVATE_KEY = new RSAPrivateCrtKey() {
 
         private static final long serialVersionUID = 6991556885804507378L;
 
@@ -184,6 +185,69 @@ final class DnieCwa14890Constants implements Cwa14890PublicConstants, Cwa14890Pr
             (byte) 0xBD, (byte) 0x9B, (byte) 0x00, (byte) 0x31, (byte) 0x3C, (byte) 0x0F, (byte) 0x46, (byte) 0xED
         });
 
+        /** (<i>e</i>). */
+        private final BigInteger ifdPublicExponent = BigInteger.valueOf(65537);
+
+        /** (<i>p</i>). */
+        private final BigInteger ifdPrimeP = new BigInteger(1, new byte[] {
+            (byte) 0xED, (byte) 0x6C, (byte) 0xF6, (byte) 0x69, (byte) 0x9E, (byte) 0xAC, (byte) 0x99, (byte) 0x66,
+            (byte) 0x7E, (byte) 0x0A, (byte) 0xFA, (byte) 0xEF, (byte) 0x84, (byte) 0x16, (byte) 0xF9, (byte) 0x02,
+            (byte) 0xC0, (byte) 0x0B, (byte) 0x42, (byte) 0xD6, (byte) 0xFF, (byte) 0xA2, (byte) 0xC3, (byte) 0xC1,
+            (byte) 0x8C, (byte) 0x7B, (byte) 0xE4, (byte) 0xCF, (byte) 0x36, (byte) 0x01, (byte) 0x3A, (byte) 0x91,
+            (byte) 0xF6, (byte) 0xCF, (byte) 0x23, (byte) 0x04, (byte) 0x75, (byte) 0x29, (byte) 0x04, (byte) 0x76,
+            (byte) 0x60, (byte) 0xDE, (byte) 0x14, (byte) 0xA7, (byte) 0x7D, (byte) 0x13, (byte) 0xB7, (byte) 0x4F,
+            (byte) 0xF3, (byte) 0x1D, (byte) 0xF9, (byte) 0x00, (byte) 0x54, (byte) 0x1E, (byte) 0xD3, (byte) 0x7A,
+            (byte) 0x8E, (byte) 0xF8, (byte) 0x93, (byte) 0x40, (byte) 0xC6, (byte) 0x23, (byte) 0x75, (byte) 0x9B
+        });
+
+        /** (<i>q</i>). */
+        private final BigInteger ifdPrimeQ = new BigInteger(1, new byte[] {
+            (byte) 0xEC, (byte) 0x52, (byte) 0x38, (byte) 0x20, (byte) 0x46, (byte) 0xAA, (byte) 0x66, (byte) 0x07,
+            (byte) 0x94, (byte) 0xCC, (byte) 0x1A, (byte) 0x90, (byte) 0x7F, (byte) 0x80, (byte) 0x31, (byte) 0xFD,
+            (byte) 0xE1, (byte) 0xA5, (byte) 0x54, (byte) 0xCD, (byte) 0xE1, (byte) 0x7E, (byte) 0x8A, (byte) 0xA2,
+            (byte) 0x16, (byte) 0xAE, (byte) 0xDC, (byte) 0x92, (byte) 0xDB, (byte) 0x2E, (byte) 0x58, (byte) 0xB0,
+            (byte) 0x52, (byte) 0x9C, (byte) 0x76, (byte) 0xBD, (byte) 0x04, (byte) 0x98, (byte) 0xE0, (byte) 0x0B,
+            (byte) 0xAA, (byte) 0x79, (byte) 0x20, (byte) 0x58, (byte) 0xB2, (byte) 0x76, (byte) 0x6C, (byte) 0x40,
+            (byte) 0xFD, (byte) 0x7A, (byte) 0x9C, (byte) 0xC2, (byte) 0xF6, (byte) 0x78, (byte) 0x29, (byte) 0x42,
+            (byte) 0xD9, (byte) 0x14, (byte) 0x71, (byte) 0x90, (byte) 0x55, (byte) 0x61, (byte) 0x32, (byte) 0x4B
+        });
+
+        /** (<i>d mod (p-1)</i>). */
+        private final BigInteger ifdPrimeExponentP = new BigInteger(1, new byte[] {
+            (byte) 0x89, (byte) 0x93, (byte) 0x24, (byte) 0xE9, (byte) 0xA8, (byte) 0xB7, (byte) 0x0C, (byte) 0xA0,
+            (byte) 0x56, (byte) 0x12, (byte) 0xD8, (byte) 0xBA, (byte) 0xE7, (byte) 0x08, (byte) 0x44, (byte) 0xBB,
+            (byte) 0xF2, (byte) 0x39, (byte) 0xD4, (byte) 0x3E, (byte) 0x2E, (byte) 0x9C, (byte) 0xCA, (byte) 0xDF,
+            (byte) 0xA1, (byte) 0x1E, (byte) 0xBD, (byte) 0x43, (byte) 0xD0, (byte) 0x60, (byte) 0x3F, (byte) 0xE7,
+            (byte) 0x0A, (byte) 0x63, (byte) 0x96, (byte) 0x3F, (byte) 0xE3, (byte) 0xFF, (byte) 0xA3, (byte) 0x85,
+            (byte) 0x50, (byte) 0xB5, (byte) 0xFE, (byte) 0xB3, (byte) 0xDA, (byte) 0x87, (byte) 0x0D, (byte) 0x26,
+            (byte) 0x77, (byte) 0x92, (byte) 0x7B, (byte) 0x91, (byte) 0x54, (byte) 0x2D, (byte) 0x14, (byte) 0x8F,
+            (byte) 0xA4, (byte) 0xBE, (byte) 0xA6, (byte) 0xDC, (byte) 0xD6, (byte) 0xB2, (byte) 0xFF, (byte) 0x57
+        });
+
+        /** (<i>d mod (q-1)</i>). */
+        private final BigInteger ifdPrimeExponentQ = new BigInteger(1, new byte[] {
+            (byte) 0xE4, (byte) 0x3C, (byte) 0x98, (byte) 0x26, (byte) 0x5B, (byte) 0xF9, (byte) 0x70, (byte) 0x66,
+            (byte) 0xFC, (byte) 0x07, (byte) 0x8F, (byte) 0xD4, (byte) 0x64, (byte) 0xBF, (byte) 0xAC, (byte) 0x08,
+            (byte) 0x96, (byte) 0x28, (byte) 0x76, (byte) 0x5A, (byte) 0x0C, (byte) 0xE1, (byte) 0x89, (byte) 0x04,
+            (byte) 0xF8, (byte) 0xC1, (byte) 0x53, (byte) 0x18, (byte) 0xA6, (byte) 0x85, (byte) 0x01, (byte) 0x74,
+            (byte) 0xF1, (byte) 0xA4, (byte) 0x59, (byte) 0x6D, (byte) 0x3E, (byte) 0x86, (byte) 0x63, (byte) 0x44,
+            (byte) 0x01, (byte) 0x15, (byte) 0xD0, (byte) 0xEE, (byte) 0xB9, (byte) 0x15, (byte) 0x74, (byte) 0x81,
+            (byte) 0xE4, (byte) 0x0D, (byte) 0xCA, (byte) 0x5E, (byte) 0xE5, (byte) 0x69, (byte) 0xB1, (byte) 0xF7,
+            (byte) 0xF4, (byte) 0xEE, (byte) 0x30, (byte) 0xAC, (byte) 0x04, (byte) 0x39, (byte) 0xC6, (byte) 0x37
+        });
+
+        /** (<i>q<sup>-1</sup> mod p</i>). */
+        private final BigInteger ifdCrtCoefficient = new BigInteger(1, new byte[] {
+            (byte) 0x03, (byte) 0x95, (byte) 0xB8, (byte) 0xCF, (byte) 0x32, (byte) 0x40, (byte) 0xC3, (byte) 0x25,
+            (byte) 0xB0, (byte) 0xF5, (byte) 0xF8, (byte) 0x6A, (byte) 0x05, (byte) 0xAB, (byte) 0xCF, (byte) 0x00,
+            (byte) 0x06, (byte) 0x69, (byte) 0x5F, (byte) 0xAB, (byte) 0x92, (byte) 0x35, (byte) 0x58, (byte) 0x9A,
+            (byte) 0x56, (byte) 0x75, (byte) 0x9E, (byte) 0xCB, (byte) 0xF2, (byte) 0xCD, (byte) 0x3D, (byte) 0x3D,
+            (byte) 0xFD, (byte) 0xE0, (byte) 0xD6, (byte) 0xF1, (byte) 0x6F, (byte) 0x0B, (byte) 0xE5, (byte) 0xC7,
+            (byte) 0x0C, (byte) 0xEF, (byte) 0x22, (byte) 0x34, (byte) 0x8D, (byte) 0x2D, (byte) 0x09, (byte) 0xFA,
+            (byte) 0x09, (byte) 0x3C, (byte) 0x01, (byte) 0xD9, (byte) 0x09, (byte) 0xD2, (byte) 0x5B, (byte) 0xC1,
+            (byte) 0xDB, (byte) 0x11, (byte) 0xDF, (byte) 0x8A, (byte) 0x4F, (byte) 0x0C, (byte) 0xE5, (byte) 0x52
+        });
+
         private final byte[] encoded = {
             (byte) 0x30, (byte) 0x82, (byte) 0x01, (byte) 0x36, (byte) 0x02, (byte) 0x01, (byte) 0x00, (byte) 0x30, (byte) 0x0D, (byte) 0x06,
             (byte) 0x09, (byte) 0x2A, (byte) 0x86, (byte) 0x48, (byte) 0x86, (byte) 0xF7, (byte) 0x0D, (byte) 0x01, (byte) 0x01, (byte) 0x01,
@@ -245,6 +309,36 @@ final class DnieCwa14890Constants implements Cwa14890PublicConstants, Cwa14890Pr
         public BigInteger getPrivateExponent() {
             return ifdPrivateExponent;
         }
+
+        @Override
+        public BigInteger getPublicExponent() {
+            return ifdPublicExponent;
+        }
+
+        @Override
+        public BigInteger getPrimeP() {
+            return ifdPrimeP;
+        }
+
+        @Override
+        public BigInteger getPrimeQ() {
+            return ifdPrimeQ;
+        }
+
+        @Override
+        public BigInteger getPrimeExponentP() {
+            return ifdPrimeExponentP;
+        }
+
+        @Override
+        public BigInteger getPrimeExponentQ() {
+            return ifdPrimeExponentQ;
+        }
+
+        @Override
+        public BigInteger getCrtCoefficient() {
+            return ifdCrtCoefficient;
+        }
     };
 
     /** Clave p&uacute;blica del certificado de componente de la tarjeta.
@@ -13,6 +13,7 @@ import es.gob.jmulticard.card.icao.IcaoException;
 import es.gob.jmulticard.card.icao.IcaoMrtdWithPace;
 import es.gob.jmulticard.card.icao.InvalidCanOrMrzException;
 import es.gob.jmulticard.card.icao.MrtdLds1;
+import es.gob.jmulticard.card.icao.WirelessInitializer;
 import es.gob.jmulticard.connection.ApduConnection;
 import es.gob.jmulticard.connection.ApduConnectionException;
 import es.gob.jmulticard.connection.CardNotPresentException;
@@ -96,13 +97,35 @@ public final class DnieFactory {
 			                         final CallbackHandler ch) throws InvalidCardException,
 											                          BurnedDnieCardException,
 											                          ApduConnectionException {
+		return getDnieNfc(conn, cryptoHelper, ch, null);
+	}
+
+	/** Obtiene un DNIe por NFC con un CAN o una MRZ ya conocidos.
+	 * No se comparte estado entre llamadas, por lo que se pueden abrir a la vez canales PACE
+	 * con DNIe en distintos lectores sin contacto.
+	 * @param conn Conexi&oacute;n con el lector de tarjetas NFC.
+	 * @param cryptoHelper Clase de apoyo para operaciones criptogr&aacute;ficas.
+	 * @param ch Gestor de <i>callbacks</i> para la obtenci&oacute;n de datos adicionales por parte
+	 *           del titular del DNIe (como el PIN, y el CAN si no se proporciona <code>paceInit</code>).
+	 * @param paceInit Inicializador (CAN o MRZ) del canal PACE, o <code>null</code> para
+	 *                 pedirlo mediante <code>ch</code>.
+	 * @return Clase de DNIe por NFC.
+	 * @throws InvalidCardException Si se ha detectado al menos una tarjeta, pero no es un DNIe.
+	 * @throws BurnedDnieCardException Si se ha detectado un DNIe con su memoria vol&aacute;til borrada.
+	 * @throws ApduConnectionException Si no se puede conectar con el lector de tarjetas NFC. */
+	public static DnieNfc getDnieNfc(final ApduConnection conn,
+			                         final CryptoHelper cryptoHelper,
+			                         final CallbackHandler ch,
+			                         final WirelessInitializer paceInit) throws InvalidCardException,
+											                                    BurnedDnieCardException,
+											                                    ApduConnectionException {
 		if (conn == null) {
 			throw new IllegalArgumentException("La conexion no puede ser nula"); //$NON-NLS-1$
 		}
 		if (cryptoHelper == null) {
 			throw new IllegalArgumentException("El CryptoHelper no puede ser nulo"); //$NON-NLS-1$
 		}
-		if (ch == null) {
+		if (ch == null && paceInit == null) {
 			throw new IllegalArgumentException("El CallbackHandler no puede ser nulo"); //$NON-NLS-1$
 		}
 
@@ -135,7 +158,14 @@ public final class DnieFactory {
 						"getDnieNfc", //$NON-NLS-1$
 						"Detectado DNIe 3.0 o 4.0 por NFC: " + new DnieAtr(actualAtr) //$NON-NLS-1$
 					);
-					return new DnieNfc(conn, null, cryptoHelper, ch);
+					return new DnieNfc(
+						conn,
+						null,
+						cryptoHelper,
+						ch,
+						paceInit != null ? paceInit : DnieNfc.getWirelessInitializer(ch, cryptoHelper),
+						responseAtr
+					);
 				}
 				catch (final InvalidCanOrMrzException e) {
 					throw new InvalidAccessCodeException("El CAN indicado del DNIe no es correcto", e); //$NON-NLS-1$
@@ -174,6 +204,28 @@ public final class DnieFactory {
 	public static MrtdLds1 getEmrtdNfc(final ApduConnection conn,
 			                           final CryptoHelper cryptoHelper,
 			                           final CallbackHandler ch) throws ApduConnectionException {
+		return getEmrtdNfc(conn, cryptoHelper, ch, null);
+	}
+
+	/** Obtiene un eMRTD por NFC con un CAN o una MRZ ya conocidos.
+	 * @param conn Conexi&oacute;n con el lector de tarjetas NFC.
+	 * @param cryptoHelper Clase de apoyo para operaciones criptogr&aacute;ficas.
+	 * @param paceInit Inicializador (CAN o MRZ) del canal PACE.
+	 * @return Clase de eMRTD por NFC.
+	 * @throws ApduConnectionException Si no se puede conectar con el lector de tarjetas NFC. */
+	public static MrtdLds1 getEmrtdNfc(final ApduConnection conn,
+			                           final CryptoHelper cryptoHelper,
+			                           final WirelessInitializer paceInit) throws ApduConnectionException {
+		if (paceInit == null) {
+			throw new IllegalArgumentException("El inicializador PACE no puede ser nulo"); //$NON-NLS-1$
+		}
+		return getEmrtdNfc(conn, cryptoHelper, null, paceInit);
+	}
+
+	private static MrtdLds1 getEmrtdNfc(final ApduConnection conn,
+			                            final CryptoHelper cryptoHelper,
+			                            final CallbackHandler ch,
+			                            final WirelessInitializer paceInit) throws ApduConnectionException {
 		if (conn == null) {
 			throw new IllegalArgumentException("La conexion no puede ser nula"); //$NON-NLS-1$
 		}
@@ -198,7 +250,12 @@ public final class DnieFactory {
 			if(ATR_NFC.equals(actualAtr) || ATR_NFC2.equals(actualAtr)) {
 				try {
 					JmcLogger.info(DnieFactory.class.getName(), "getEmrtdNfc", "Detectado eMRTD con ATR: " + new DnieAtr(actualAtr)); //$NON-NLS-1$ //$NON-NLS-2$
-					return new IcaoMrtdWithPace(conn, cryptoHelper, ch);
+					return new IcaoMrtdWithPace(
+						conn,
+						cryptoHelper,
+						paceInit != null ? paceInit : DnieNfc.getWirelessInitializer(ch, cryptoHelper),
+						responseAtr
+					);
 				}
 				catch (final InvalidCanOrMrzException e) {
 					throw new InvalidAccessCodeException("El MRZ del documento de viaje no es correcto", e); //$NON-NLS-1$
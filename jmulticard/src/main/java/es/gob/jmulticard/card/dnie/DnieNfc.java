@@ -9,7 +9,6 @@ import javax.security.auth.callback.PasswordCallback;
 
 import es.gob.jmulticard.CryptoHelper;
 import es.gob.jmulticard.CryptoHelper.PaceChannelHelper;
-import es.gob.jmulticard.DigestAlgorithm;
 import es.gob.jmulticard.JmcLogger;
 import es.gob.jmulticard.apdu.iso7816four.pace.MseSetPaceAlgorithmApduCommand.PacePasswordType;
 import es.gob.jmulticard.asn1.icao.CardAccess;
@@ -17,7 +16,6 @@ import es.gob.jmulticard.callback.CustomTextInputCallback;
 import es.gob.jmulticard.card.CardMessages;
 import es.gob.jmulticard.card.CryptoCardException;
 import es.gob.jmulticard.card.PinException;
-import es.gob.jmulticard.card.PrivateKeyReference;
 import es.gob.jmulticard.card.icao.IcaoException;
 import es.gob.jmulticard.card.icao.InvalidCanOrMrzException;
 import es.gob.jmulticard.card.icao.WirelessInitializer;
@@ -36,10 +34,14 @@ import es.gob.jmulticard.connection.pace.SecureMessaging;
  * @author Ignacio Mar&iacute;n. */
 public class DnieNfc extends Dnie3 {
 
-	// Se guarda el codigo CAN o MRZ para establecer un canal PACE
-	// cada vez que se quiere realizar una operacion de firma
-	private static PacePasswordType paceInitType;
-	private static String paceInitValue;
+	/** Inicializador (CAN o MRZ) con el que se establece el canal PACE cada vez que se
+	 * quiere realizar una operaci&oacute;n de firma. Es propio de cada tarjeta, de forma que
+	 * se pueden abrir a la vez canales PACE con varios lectores sin contacto. */
+	private final WirelessInitializer paceInitializer;
+
+	/** Algoritmo PACE de la tarjeta, negociado al establecer el primer canal y reutilizado
+	 * en los siguientes sin volver a leer el EF&#46;CardAccess. */
+	private final PaceAlgorithmNegotiator paceNegotiator;
 
 	/** Construte un DNIe 3 accedido mediante PACE por NFC.
 	 * @param conn Conexi&oacute;n NFC.
@@ -53,7 +55,57 @@ public class DnieNfc extends Dnie3 {
 			       final CryptoHelper cryptoHlpr,
 			       final CallbackHandler ch) throws IcaoException,
 	                                                ApduConnectionException {
-		super(getPaceConnection(conn, ch, cryptoHlpr), pwc, cryptoHlpr, ch);
+		this(conn, pwc, cryptoHlpr, ch, getWirelessInitializer(ch, cryptoHlpr));
+	}
+
+	/** Construte un DNIe 3 accedido mediante PACE por NFC con un CAN o una MRZ ya conocidos.
+	 * @param conn Conexi&oacute;n NFC.
+	 * @param pwc <code>PasswordCallback</code> para obtener el PIN.
+	 * @param cryptoHlpr Clase de utiildades criptogr&aacute;ficas.
+	 * @param ch <code>CallbackHandler</code> para obtener el PIN.
+	 * @param paceInit Inicializador (CAN o MRZ) del canal PACE.
+	 * @throws IcaoException Si no se puede establecer en canal PACE.
+	 * @throws ApduConnectionException Si hay problemas en el env&iacute;o de las APDU. */
+	public DnieNfc(final ApduConnection conn,
+			       final PasswordCallback pwc,
+			       final CryptoHelper cryptoHlpr,
+			       final CallbackHandler ch,
+			       final WirelessInitializer paceInit) throws IcaoException,
+	                                                          ApduConnectionException {
+		this(conn, pwc, cryptoHlpr, ch, paceInit, (byte[]) null);
+	}
+
+	/** Construte un DNIe 3 accedido mediante PACE por NFC con un CAN o una MRZ ya conocidos.
+	 * El algoritmo PACE se negocia con los <code>PACEInfo</code> del EF&#46;CardAccess y se
+	 * guarda por ATR, de forma que las siguientes sesiones con el mismo ATR no lo leen.
+	 * @param conn Conexi&oacute;n NFC.
+	 * @param pwc <code>PasswordCallback</code> para obtener el PIN.
+	 * @param cryptoHlpr Clase de utiildades criptogr&aacute;ficas.
+	 * @param ch <code>CallbackHandler</code> para obtener el PIN.
+	 * @param paceInit Inicializador (CAN o MRZ) del canal PACE.
+	 * @param atr ATR de la tarjeta, o <code>null</code> si no se conoce.
+	 * @throws IcaoException Si no se puede establecer en canal PACE.
+	 * @throws ApduConnectionException Si hay problemas en el env&iacute;o de las APDU. */
+	public DnieNfc(final ApduConnection conn,
+			       final PasswordCallback pwc,
+			       final CryptoHelper cryptoHlpr,
+			       final CallbackHandler ch,
+			       final WirelessInitializer paceInit,
+			       final byte[] atr) throws IcaoException,
+	                                        ApduConnectionException {
+		this(conn, pwc, cryptoHlpr, ch, paceInit, new PaceAlgorithmNegotiator(atr));
+	}
+
+	private DnieNfc(final ApduConnection conn,
+			        final PasswordCallback pwc,
+			        final CryptoHelper cryptoHlpr,
+			        final CallbackHandler ch,
+			        final WirelessInitializer paceInit,
+			        final PaceAlgorithmNegotiator negotiator) throws IcaoException,
+	                                                                 ApduConnectionException {
+		super(getPaceConnection(conn, paceInit, cryptoHlpr, negotiator), pwc, cryptoHlpr, ch);
+		paceInitializer = paceInit;
+		paceNegotiator = negotiator;
 	}
 
 	@Override
@@ -61,10 +113,17 @@ public class DnieNfc extends Dnie3 {
         return "DNIe 3.0/4.0 accedido de forma inalambrica"; //$NON-NLS-1$
     }
 
-	private static ApduConnection getPaceConnection(final ApduConnection con,
-			                                        final CallbackHandler ch,
-			                                        final CryptoHelper cryptoHelper) throws ApduConnectionException,
-	                                                                                        IcaoException {
+	/** Obtiene el inicializador PACE (CAN o MRZ) pidi&eacute;ndoselo al usuario.
+	 * @param ch <code>CallbackHandler</code> para obtener el CAN o la MRZ.
+	 * @param cryptoHelper Clase de utiildades criptogr&aacute;ficas.
+	 * @return Inicializador PACE.
+	 * @throws IcaoException Si no se obtiene un CAN o una MRZ v&aacute;lidos. */
+	static WirelessInitializer getWirelessInitializer(final CallbackHandler ch,
+			                                                  final CryptoHelper cryptoHelper) throws IcaoException {
+		if (ch == null) {
+			throw new IllegalArgumentException("El CallbackHandler no puede ser nulo"); //$NON-NLS-1$
+		}
+
 		// Primero obtenemos el CAN/MRZ
 		final String prompt = CardMessages.getString("DnieNFC.0"); //$NON-NLS-1$
 
@@ -85,17 +144,13 @@ public class DnieNfc extends Dnie3 {
 				    SecurityException e) {
 			JmcLogger.info(
 				DnieNfc.class.getName(),
-				"getPaceConnection", //$NON-NLS-1$
+				"getWirelessInitializer", //$NON-NLS-1$
 				"No se ha encontrado la clase 'javax.security.auth.callback.TextInputCallback', se usara 'es.gob.jmulticard.callback.CustomTextInputCallback': " + e //$NON-NLS-1$
 			);
 			textInputCallback = new CustomTextInputCallback(prompt);
 			m = null;
 		}
 
-		// Reiniciamos valor del CAN/MRZ
-		paceInitValue = null;
-		paceInitType = null;
-
 		// Pide el codigo CAN/MRZ
 		try {
 			ch.handle(new Callback[] { textInputCallback });
@@ -104,6 +159,7 @@ public class DnieNfc extends Dnie3 {
 			throw new PaceException("Error obteniendo el CAN", e); //$NON-NLS-1$
 		}
 
+		final String paceInitValue;
 		if (textInputCallback instanceof CustomTextInputCallback) {
 			paceInitValue = ((CustomTextInputCallback)textInputCallback).getText();
 		}
@@ -129,71 +185,64 @@ public class DnieNfc extends Dnie3 {
 			throw new IllegalStateException("El TextInputCallback no tiene un metodo 'getText'"); //$NON-NLS-1$
 		}
 
-		//Se obtiene el tipo de inicializador analizando el valor introducido.
-		paceInitType = getPasswordType(paceInitValue);
-
 		if (paceInitValue == null || paceInitValue.isEmpty())  {
 			throw new InvalidCanOrMrzException("El CAN/MRZ no puede ser nulo ni vacio"); //$NON-NLS-1$
 		}
 
-		try {
-			final WirelessInitializer paceInitializer;
-			switch (paceInitType) {
-				case MRZ:
-					paceInitializer = WirelessInitializerMrz.deriveMrz(paceInitValue, cryptoHelper);
-					break;
-				case CAN:
-					paceInitializer = new WirelessInitializerCan(paceInitValue);
-					break;
-				default:
-					throw new UnsupportedOperationException("Tipo de inicializador PACE no soportado: " + paceInitType); //$NON-NLS-1$
-			}
-
-
-			final PaceChannelHelper channelHelper = cryptoHelper.getPaceChannelHelper(
-					new CardAccess(
-						CardAccess.PaceAlgorithm.PACE_ECDH_GM_AES_CBC_CMAC_128,
-						CardAccess.PaceAlgorithmParam.BRAINPOOL_256_R1,
-						DigestAlgorithm.SHA1
-					),
-					null // No hay PACE CHAT
-				);
-			final SecureMessaging sm = channelHelper.openPaceChannel((byte)0x00, paceInitializer, con);
-
-			return new PaceConnection(con, cryptoHelper, sm);
-		}
-		catch(final InvalidCanOrMrzException e) {
-
-			// En cualquier caso, si da esta excepcion, no guardamos el CAN/MRZ
-			paceInitValue = null;
-			paceInitType = null;
-
-			// Relanzamos la excepcion
-			throw e;
-		}
-	}
-
-	private ApduConnection getPaceConnection(final ApduConnection con,
-                                             final PaceChannelHelper pch) throws ApduConnectionException,
-	                                                                             IcaoException {
-		final WirelessInitializer paceInitializer;
+		//Se obtiene el tipo de inicializador analizando el valor introducido.
+		final PacePasswordType paceInitType = getPasswordType(paceInitValue);
 		switch (paceInitType) {
 			case MRZ:
-				paceInitializer = WirelessInitializerMrz.deriveMrz(paceInitValue, getCryptoHelper());
-				break;
+				return WirelessInitializerMrz.deriveMrz(paceInitValue, cryptoHelper);
 			case CAN:
-				paceInitializer = new WirelessInitializerCan(paceInitValue);
-				break;
+				return new WirelessInitializerCan(paceInitValue);
 			default:
-				throw new UnsupportedOperationException(
-					"No se soporta el codigo de inicializacion de PACE: " + paceInitType //$NON-NLS-1$
-				);
+				throw new UnsupportedOperationException("Tipo de inicializador PACE no soportado: " + paceInitType); //$NON-NLS-1$
 		}
+	}
 
-		final SecureMessaging sm = pch.openPaceChannel((byte) 0x00, paceInitializer, con);
+	private static ApduConnection getPaceConnection(final ApduConnection con,
+			                                        final WirelessInitializer paceInit,
+			                                        final CryptoHelper cryptoHelper,
+			                                        final PaceAlgorithmNegotiator negotiator) throws ApduConnectionException,
+	                                                                                              IcaoException {
+		if (paceInit == null) {
+			throw new InvalidCanOrMrzException("El CAN/MRZ no puede ser nulo"); //$NON-NLS-1$
+		}
+		// Algoritmo anunciado en el EF.CardAccess (o el del DNIe 3.0 si no se puede leer)
+		try {
+			return getPaceConnection(con, paceInit, cryptoHelper, negotiator.getCardAccess(con));
+		}
+		catch (final InvalidCanOrMrzException e) {
+			// El algoritmo es valido, lo que falla es el CAN o la MRZ
+			throw e;
+		}
+		catch (final IcaoException e) {
+			// El algoritmo puede venir de otra tarjeta con el mismo ATR, se vuelve a
+			// leer el EF.CardAccess y se reintenta una unica vez
+			if (!negotiator.invalidate()) {
+				throw e;
+			}
+			JmcLogger.warning(
+				"No se ha podido establecer el canal PACE con el algoritmo guardado, se vuelve a leer el EF.CardAccess: " + e //$NON-NLS-1$
+			);
+		}
+		return getPaceConnection(con, paceInit, cryptoHelper, negotiator.getCardAccess(con));
+	}
+
+	private static ApduConnection getPaceConnection(final ApduConnection con,
+			                                        final WirelessInitializer paceInit,
+			                                        final CryptoHelper cryptoHelper,
+			                                        final CardAccess cardAccess) throws ApduConnectionException,
+	                                                                                    IcaoException {
+		final PaceChannelHelper channelHelper = cryptoHelper.getPaceChannelHelper(
+			cardAccess,
+			null // No hay PACE CHAT
+		);
+		final SecureMessaging sm = channelHelper.openPaceChannel((byte) 0x00, paceInit, con);
 
         // Establecemos el canal PACE
-    	return new PaceConnection(con, getCryptoHelper(), sm);
+		return new PaceConnection(con, cryptoHelper, sm);
 	}
 
 	@Override
@@ -207,17 +256,7 @@ public class DnieNfc extends Dnie3 {
 															                    PinException {
 		if(!(getConnection() instanceof Cwa14890Connection)) {
 			try {
-				this.rawConnection = getPaceConnection(
-					getConnection(),
-					getCryptoHelper().getPaceChannelHelper(
-						new CardAccess(
-							CardAccess.PaceAlgorithm.PACE_ECDH_GM_AES_CBC_CMAC_128,
-							CardAccess.PaceAlgorithmParam.BRAINPOOL_256_R1,
-							DigestAlgorithm.SHA1
-						),
-						null // No hay PACE CHAT
-					)
-				);
+				this.rawConnection = getPaceConnection(getConnection(), paceInitializer, getCryptoHelper(), paceNegotiator);
 			}
 			catch (final ApduConnectionException e) {
 				throw new CryptoCardException("Error en la transmision de la APDU", e); //$NON-NLS-1$
@@ -232,17 +271,14 @@ public class DnieNfc extends Dnie3 {
 	        catch (final ApduConnectionException e) {
 	        	throw new CryptoCardException("Error al abrir el canal PACE", e); //$NON-NLS-1$
 			}
+	        secureChannelEstablished();
 		}
 
 		super.openSecureChannelIfNotAlreadyOpened(doChv);
 	}
 
     @Override
-    public byte[] sign(final byte[] data,
-    		           final String signAlgorithm,
-    		           final PrivateKeyReference privateKeyReference) throws CryptoCardException,
-    		                                                                 PinException {
-    	final byte[] ret = signInternal(data, signAlgorithm, privateKeyReference);
+    protected void closeSecureChannelAfterSign() {
     	try {
     		//Define el canal sin cifrar para resetearlo tras cada firma
     		setConnection(getConnection().getSubConnection());
@@ -252,7 +288,6 @@ public class DnieNfc extends Dnie3 {
     	catch (final ApduConnectionException e) {
     		JmcLogger.warning("Fallo en el reinicio del canal seguro: " + e); //$NON-NLS-1$
 		}
-    	return ret;
     }
 
 	private void resetCard() {
@@ -0,0 +1,161 @@
+package es.gob.jmulticard.card.dnie;
+
+import es.gob.jmulticard.JmcLogger;
+import es.gob.jmulticard.card.CryptoCardException;
+import es.gob.jmulticard.card.PinException;
+import es.gob.jmulticard.card.PrivateKeyReference;
+
+/** Sesi&oacute;n de firma con un DNIe (o tarjeta derivada).
+ * Mientras la sesi&oacute;n est&aacute; abierta, el canal seguro CWA-14890 y la
+ * verificaci&oacute;n de PIN se mantienen entre firmas consecutivas, evitando
+ * repetir el establecimiento completo del canal en cada una de ellas.
+ * La sesi&oacute;n se cierra de forma expl&iacute;cita, al superarse el tiempo
+ * m&aacute;ximo de inactividad (que se comprueba en el siguiente uso) o al
+ * perderse el canal seguro.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+public final class DnieSession implements AutoCloseable {
+
+	/** Tarjeta sobre la que se ha abierto la sesi&oacute;n. */
+	private final Dnie card;
+
+	/** Tiempo m&aacute;ximo de inactividad, en milisegundos (cero o negativo si no caduca). */
+	private final long idleTimeout;
+
+	/** Instante del &uacute;ltimo uso de la sesi&oacute;n. */
+	private long lastUse;
+
+	/** Indica si la sesi&oacute;n est&aacute; abierta. */
+	private boolean open = true;
+
+	/** N&uacute;mero de firmas realizadas dentro de la sesi&oacute;n. */
+	private int signatureCount = 0;
+
+	/** N&uacute;mero de establecimientos de canal seguro evitados gracias a la sesi&oacute;n. */
+	private int handshakesAvoided = 0;
+
+	/** N&uacute;mero de canales seguros establecidos con la tarjeta al abrir la sesi&oacute;n. */
+	private final int handshakesAtOpen;
+
+	/** Crea una sesi&oacute;n de firma.
+	 * @param dnie Tarjeta sobre la que se abre la sesi&oacute;n.
+	 * @param idleTimeoutMillis Tiempo m&aacute;ximo de inactividad en milisegundos
+	 *                          (cero o negativo para no establecer l&iacute;mite). */
+	DnieSession(final Dnie dnie, final long idleTimeoutMillis) {
+		if (dnie == null) {
+			throw new IllegalArgumentException("La tarjeta de la sesion no puede ser nula"); //$NON-NLS-1$
+		}
+		card = dnie;
+		idleTimeout = idleTimeoutMillis;
+		lastUse = System.currentTimeMillis();
+		handshakesAtOpen = dnie.getHandshakeCount();
+	}
+
+	/** Realiza una firma electr&oacute;nica dentro de la sesi&oacute;n.
+	 * Es equivalente a llamar a <code>sign()</code> sobre la tarjeta.
+	 * @param data Datos a firmar.
+	 * @param signAlgorithm Algoritmo de firma.
+	 * @param privateKeyReference Referencia a la clave privada de firma.
+	 * @return Datos firmados.
+	 * @throws CryptoCardException Si ocurre alg&uacute;n problema durante la firma.
+	 * @throws PinException Si el PIN proporcionado es incorrecto o no es posible obtenerlo. */
+	public byte[] sign(final byte[] data,
+			           final String signAlgorithm,
+			           final PrivateKeyReference privateKeyReference) throws CryptoCardException,
+	                                                                         PinException {
+		return card.sign(data, signAlgorithm, privateKeyReference);
+	}
+
+	/** Indica si la sesi&oacute;n sigue abierta.
+	 * @return <code>true</code> si la sesi&oacute;n est&aacute; abierta y no ha caducado,
+	 *         <code>false</code> en caso contrario. */
+	public synchronized boolean isOpen() {
+		return open && !isExpired();
+	}
+
+	/** Obtiene el n&uacute;mero de firmas realizadas dentro de la sesi&oacute;n.
+	 * @return N&uacute;mero de firmas realizadas dentro de la sesi&oacute;n. */
+	public synchronized int getSignatureCount() {
+		return signatureCount;
+	}
+
+	/** Obtiene el n&uacute;mero de establecimientos de canal seguro (con su
+	 * verificaci&oacute;n de PIN) que se han evitado gracias a la sesi&oacute;n.
+	 * @return N&uacute;mero de establecimientos de canal seguro evitados. */
+	public synchronized int getHandshakesAvoided() {
+		return handshakesAvoided;
+	}
+
+	/** Obtiene el n&uacute;mero de canales seguros que se han establecido con la tarjeta
+	 * desde la apertura de la sesi&oacute;n. Tras la primera firma, las siguientes no
+	 * deber&iacute;an establecer ninguno.
+	 * @return N&uacute;mero de canales seguros establecidos durante la sesi&oacute;n. */
+	public int getHandshakeCount() {
+		return card.getHandshakeCount() - handshakesAtOpen;
+	}
+
+	/** Cierra la sesi&oacute;n y el canal seguro asociado. */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (!open) {
+				return;
+			}
+			open = false;
+		}
+		card.closeSession(this);
+	}
+
+	/** Indica si se ha superado el tiempo m&aacute;ximo de inactividad.
+	 * @return <code>true</code> si la sesi&oacute;n ha caducado, <code>false</code> en caso contrario. */
+	private boolean isExpired() {
+		return idleTimeout > 0 && System.currentTimeMillis() - lastUse > idleTimeout;
+	}
+
+	/** Comprueba si la sesi&oacute;n puede usarse para una nueva firma, cerr&aacute;ndola si
+	 * ha caducado por inactividad.
+	 * @return <code>true</code> si la sesi&oacute;n sigue abierta, <code>false</code> en caso contrario. */
+	boolean checkActive() {
+		synchronized (this) {
+			if (!open) {
+				return false;
+			}
+			if (!isExpired()) {
+				return true;
+			}
+		}
+		JmcLogger.info(
+			DnieSession.class.getName(),
+			"checkActive", //$NON-NLS-1$
+			"Sesion de firma caducada por inactividad tras " + signatureCount + " firmas" //$NON-NLS-1$ //$NON-NLS-2$
+		);
+		close();
+		return false;
+	}
+
+	/** Registra una firma realizada dentro de la sesi&oacute;n.
+	 * @param channelReused <code>true</code> si la firma se ha hecho sobre un canal seguro
+	 *                      ya establecido, <code>false</code> si ha sido necesario establecerlo. */
+	synchronized void signatureDone(final boolean channelReused) {
+		signatureCount++;
+		if (channelReused) {
+			handshakesAvoided++;
+		}
+		lastUse = System.currentTimeMillis();
+	}
+
+	/** Invalida la sesi&oacute;n tras una p&eacute;rdida del canal seguro. El canal ya se
+	 * ha cerrado, por lo que no se vuelve a cerrar. */
+	synchronized void channelLost() {
+		if (open) {
+			JmcLogger.warning("Se ha perdido el canal seguro, se cierra la sesion de firma"); //$NON-NLS-1$
+		}
+		open = false;
+	}
+
+	@Override
+	public String toString() {
+		return "Sesion de firma " + (open ? "abierta" : "cerrada") + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			" con " + signatureCount + " firmas, " + getHandshakeCount() + " establecimientos de canal realizados y " + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				handshakesAvoided + " evitados"; //$NON-NLS-1$
+	}
+}
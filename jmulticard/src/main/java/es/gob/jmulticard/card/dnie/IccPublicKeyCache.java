@@ -0,0 +1,60 @@
+package es.gob.jmulticard.card.dnie;
+
+import java.security.interfaces.RSAPublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import es.gob.jmulticard.HexUtils;
+
+/** Cach&eacute; en memoria de las claves p&uacute;blicas de los certificados de componente
+ * (ICC) de las tarjetas, indexada por el n&uacute;mero de serie del chip.
+ * El certificado de componente de un chip no cambia a lo largo de su vida, por lo que
+ * una vez le&iacute;do no es necesario volver a seleccionarlo y leerlo en las siguientes
+ * aperturas del canal seguro CWA-14890.
+ * La cach&eacute; es segura frente a hilos y tiene un tama&ntilde;o m&aacute;ximo, descart&aacute;ndose
+ * la entrada usada hace m&aacute;s tiempo cuando se supera.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class IccPublicKeyCache {
+
+	/** N&uacute;mero m&aacute;ximo de claves almacenadas. */
+	private static final int MAX_ENTRIES = 16;
+
+	/** Claves p&uacute;blicas de componente por n&uacute;mero de serie (en hexadecimal). */
+	private static final Map<String, RSAPublicKey> KEYS = new LinkedHashMap<String, RSAPublicKey>(MAX_ENTRIES, 0.75f, true) {
+
+		private static final long serialVersionUID = -2411326392183950547L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, RSAPublicKey> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private IccPublicKeyCache() {
+		// No instanciable
+	}
+
+	/** Obtiene la clave p&uacute;blica de componente almacenada para un n&uacute;mero de serie.
+	 * @param serial N&uacute;mero de serie del chip.
+	 * @return Clave p&uacute;blica de componente o <code>null</code> si no est&aacute; en cach&eacute;. */
+	static RSAPublicKey get(final byte[] serial) {
+		if (serial == null || serial.length == 0) {
+			return null;
+		}
+		synchronized (KEYS) {
+			return KEYS.get(HexUtils.hexify(serial, false));
+		}
+	}
+
+	/** Almacena la clave p&uacute;blica de componente de un chip.
+	 * @param serial N&uacute;mero de serie del chip.
+	 * @param key Clave p&uacute;blica de componente. */
+	static void put(final byte[] serial, final RSAPublicKey key) {
+		if (serial == null || serial.length == 0 || key == null) {
+			return;
+		}
+		synchronized (KEYS) {
+			KEYS.put(HexUtils.hexify(serial, false), key);
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package es.gob.jmulticard.card.dnie;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import es.gob.jmulticard.DigestAlgorithm;
+import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.JmcLogger;
+import es.gob.jmulticard.apdu.CommandApdu;
+import es.gob.jmulticard.apdu.ResponseApdu;
+import es.gob.jmulticard.apdu.StatusWord;
+import es.gob.jmulticard.apdu.iso7816four.ReadBinaryApduCommand;
+import es.gob.jmulticard.apdu.iso7816four.SelectFileByIdApduCommand;
+import es.gob.jmulticard.asn1.TlvException;
+import es.gob.jmulticard.asn1.icao.CardAccess;
+import es.gob.jmulticard.connection.ApduConnection;
+import es.gob.jmulticard.connection.ApduConnectionException;
+
+/** Selecci&oacute;n del algoritmo PACE de una tarjeta a partir de los <code>PACEInfo</code> de
+ * su EF&#46;CardAccess.
+ * El EF&#46;CardAccess se lee en claro antes de establecer el primer canal y el algoritmo
+ * elegido se conserva para los siguientes canales con la misma tarjeta. Adem&aacute;s se
+ * guarda por ATR, de forma que las siguientes sesiones con el mismo modelo de tarjeta no
+ * vuelven a leerlo. Como varios modelos pueden compartir ATR (por ejemplo, los pseudo-ATR
+ * de NFC), si el algoritmo guardado no sirve para una tarjeta se descarta y se vuelve a
+ * leer su EF&#46;CardAccess.
+ * Si no se puede leer o no anuncia ning&uacute;n algoritmo soportado se usa el del DNIe 3&#46;0
+ * (<i>Generic Mapping</i> ECDH con AES-128 sobre <i>brainpoolP256r1</i>).
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class PaceAlgorithmNegotiator {
+
+	/** Algoritmo PACE del DNIe 3&#46;0, que se usa si no se puede negociar otro. */
+	static final CardAccess DEFAULT_CARD_ACCESS = new CardAccess(
+		CardAccess.PaceAlgorithm.PACE_ECDH_GM_AES_CBC_CMAC_128,
+		CardAccess.PaceAlgorithmParam.BRAINPOOL_256_R1,
+		DigestAlgorithm.SHA1
+	);
+
+	/** Identificador del EF&#46;CardAccess. */
+	private static final byte[] CARD_ACCESS_ID = { (byte) 0x01, (byte) 0x1C };
+
+	/** Tama&ntilde;o de cada lectura del EF&#46;CardAccess (un <i>Le</i> corto de 256 octetos). */
+	private static final int READ_LENGTH = 0x100;
+
+	private static final StatusWord SW_EOF_REACHED = new StatusWord((byte) 0x62, (byte) 0x82);
+
+	/** N&uacute;mero m&aacute;ximo de ATR almacenados. */
+	private static final int MAX_ENTRIES = 16;
+
+	/** Algoritmos negociados por ATR (en hexadecimal). */
+	private static final Map<String, CardAccess> NEGOTIATED = new LinkedHashMap<String, CardAccess>(MAX_ENTRIES, 0.75f, true) {
+
+		private static final long serialVersionUID = 4263147703622218816L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, CardAccess> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/** ATR de la tarjeta en hexadecimal, o <code>null</code> si no se conoce. */
+	private final String atrKey;
+
+	/** Algoritmo PACE de la tarjeta, o <code>null</code> si a&uacute;n no se ha resuelto. */
+	private CardAccess cardAccess = null;
+
+	/** Si el algoritmo se ha obtenido del EF&#46;CardAccess de la propia tarjeta. */
+	private boolean readFromCard = false;
+
+	/** Crea el negociador del algoritmo PACE de una tarjeta.
+	 * @param atr ATR de la tarjeta, o <code>null</code> si no se conoce (en cuyo caso el
+	 *            EF&#46;CardAccess se lee siempre al establecer el primer canal). */
+	PaceAlgorithmNegotiator(final byte[] atr) {
+		atrKey = atr != null ? HexUtils.hexify(atr, false) : null;
+	}
+
+	/** Obtiene el algoritmo PACE de menor coste soportado por la tarjeta. Solo se resuelve
+	 * la primera vez (o tras descartarlo), los siguientes canales usan el mismo.
+	 * @param con Conexi&oacute;n (sin canal seguro) con la tarjeta.
+	 * @return Algoritmo PACE a usar. */
+	synchronized CardAccess getCardAccess(final ApduConnection con) {
+		if (cardAccess != null) {
+			return cardAccess;
+		}
+		if (atrKey != null) {
+			synchronized (NEGOTIATED) {
+				cardAccess = NEGOTIATED.get(atrKey);
+			}
+			if (cardAccess != null) {
+				readFromCard = false;
+				return cardAccess;
+			}
+		}
+
+		final byte[] securityInfos;
+		try {
+			securityInfos = readCardAccess(con);
+		}
+		catch (final ApduConnectionException e) {
+			// No se guarda, puede ser un error puntual de comunicacion
+			JmcLogger.warning("No se ha podido leer el EF.CardAccess, se usara el algoritmo PACE por defecto: " + e); //$NON-NLS-1$
+			readFromCard = false;
+			return DEFAULT_CARD_ACCESS;
+		}
+
+		CardAccess negotiated;
+		try {
+			negotiated = CardAccess.getPreferredCardAccess(securityInfos);
+		}
+		catch (final TlvException e) {
+			JmcLogger.warning("El EF.CardAccess no es valido, se usara el algoritmo PACE por defecto: " + e); //$NON-NLS-1$
+			negotiated = null;
+		}
+		if (negotiated == null) {
+			negotiated = DEFAULT_CARD_ACCESS;
+		}
+		JmcLogger.info(
+			PaceAlgorithmNegotiator.class.getName(),
+			"getCardAccess", //$NON-NLS-1$
+			"Algoritmo PACE seleccionado: " + negotiated.getPaceAlgorithm() + " con " + negotiated.getPaceAlgorithmParam() //$NON-NLS-1$ //$NON-NLS-2$
+		);
+
+		if (atrKey != null) {
+			synchronized (NEGOTIATED) {
+				NEGOTIATED.put(atrKey, negotiated);
+			}
+		}
+		cardAccess = negotiated;
+		readFromCard = true;
+		return cardAccess;
+	}
+
+	/** Descarta el algoritmo PACE tras un fallo al establecer el canal con &eacute;l, si no
+	 * se hab&iacute;a obtenido del EF&#46;CardAccess de la propia tarjeta (por venir de otra
+	 * tarjeta con el mismo ATR o por no haberse podido leer), para que el siguiente canal
+	 * vuelva a leerlo.
+	 * @return <code>true</code> si se ha descartado el algoritmo y merece la pena reintentar
+	 *         el establecimiento del canal, <code>false</code> si el algoritmo ya era el
+	 *         anunciado por la tarjeta. */
+	synchronized boolean invalidate() {
+		if (readFromCard) {
+			return false;
+		}
+		if (cardAccess != null && atrKey != null) {
+			synchronized (NEGOTIATED) {
+				NEGOTIATED.remove(atrKey, cardAccess);
+			}
+		}
+		cardAccess = null;
+		return true;
+	}
+
+	/** Lee en claro el EF&#46;CardAccess, normalmente con una &uacute;nica lectura.
+	 * @param con Conexi&oacute;n con la tarjeta.
+	 * @return Contenido del EF&#46;CardAccess.
+	 * @throws ApduConnectionException Si no se puede seleccionar o leer el fichero. */
+	private static byte[] readCardAccess(final ApduConnection con) throws ApduConnectionException {
+		CommandApdu comm = new SelectFileByIdApduCommand((byte) 0x00, CARD_ACCESS_ID);
+		ResponseApdu res = con.transmit(comm);
+		if (!res.isOk()) {
+			throw new ApduConnectionException("No se ha podido seleccionar el EF.CardAccess: " + res.getStatusWord()); //$NON-NLS-1$
+		}
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		int offset = 0;
+		do {
+			comm = new ReadBinaryApduCommand(
+				(byte) 0x00,
+				(byte) (offset >> 8),
+				(byte) (offset & 0xFF),
+				0 // Un Le corto de 256 octetos se codifica como 0
+			);
+			res = con.transmit(comm);
+			if (!res.isOk() && !SW_EOF_REACHED.equals(res.getStatusWord())) {
+				throw new ApduConnectionException("No se ha podido leer el EF.CardAccess: " + res.getStatusWord()); //$NON-NLS-1$
+			}
+			final byte[] data = res.getData();
+			baos.write(data, 0, data.length);
+			offset += data.length;
+		} while (res.isOk() && res.getData().length == READ_LENGTH);
+		return baos.toByteArray();
+	}
+}
@@ -114,6 +114,7 @@ public final class CeresSc extends Dnie {
         	catch (final ApduConnectionException e) {
         		throw new CryptoCardException("Error en el establecimiento del canal seguro", e); //$NON-NLS-1$
         	}
+        	secureChannelEstablished();
     	}
 
     	try {
@@ -44,7 +44,9 @@ import java.io.IOException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.security.auth.callback.Callback;
@@ -358,6 +360,59 @@ public final class Ceres extends AbstractIso7816EightCard implements CryptoCard
 		if (data == null) {
 			throw new CryptoCardException("Los datos a firmar no pueden ser nulos"); //$NON-NLS-1$
 		}
+		final CeresPrivateKeyReference ceresPrivateKey = prepareSignatureKey(keyRef);
+		return signData(data, algorithm, ceresPrivateKey);
+	}
+
+	@Override
+	public byte[] signDigest(final byte[] digest,
+			                 final String algorithm,
+			                 final PrivateKeyReference keyRef) throws CryptoCardException,
+	                                                                  PinException {
+		if (digest == null) {
+			throw new CryptoCardException("La huella a firmar no puede ser nula"); //$NON-NLS-1$
+		}
+		final byte[] digestInfo;
+		try {
+			digestInfo = DigestInfo.encodeDigest(algorithm, digest);
+		}
+		catch(final Exception e) {
+			throw new CryptoCardException("Error creando el DigestInfo para la firma con el algoritmo " + algorithm, e); //$NON-NLS-1$
+		}
+		return signDigestInfo(digestInfo, prepareSignatureKey(keyRef));
+	}
+
+	@Override
+	public List<byte[]> signBatch(final List<byte[]> data,
+			                      final String algorithm,
+			                      final PrivateKeyReference keyRef) throws CryptoCardException,
+	                                                                       PinException {
+		if (data == null) {
+			throw new IllegalArgumentException("La lista de datos a firmar no puede ser nula"); //$NON-NLS-1$
+		}
+		for (final byte[] element : data) {
+			if (element == null) {
+				throw new CryptoCardException("Los datos a firmar no pueden ser nulos"); //$NON-NLS-1$
+			}
+		}
+
+		// La clave se comprueba y el PIN se verifica una unica vez para todo el lote
+		final CeresPrivateKeyReference ceresPrivateKey = prepareSignatureKey(keyRef);
+		final List<byte[]> signatures = new ArrayList<>(data.size());
+		for (final byte[] element : data) {
+			signatures.add(signData(element, algorithm, ceresPrivateKey));
+		}
+		return signatures;
+	}
+
+	/** Comprueba la referencia a la clave privada de firma y verifica el PIN si no se
+	 * ha hecho antes.
+	 * @param keyRef Referencia a la clave privada de firma.
+	 * @return Referencia a la clave privada de firma de la CERES.
+	 * @throws CryptoCardException Si hay problemas en la verificaci&oacute;n del PIN.
+	 * @throws PinException Si el PIN proporcionado es incorrecto o no es posible obtenerlo. */
+	private CeresPrivateKeyReference prepareSignatureKey(final PrivateKeyReference keyRef) throws CryptoCardException,
+	                                                                                              PinException {
 		if (keyRef == null) {
 			throw new IllegalArgumentException("La clave privada no puede ser nula"); //$NON-NLS-1$
 		}
@@ -366,7 +421,6 @@ public final class Ceres extends AbstractIso7816EightCard implements CryptoCard
 				"La clave proporcionada debe ser de tipo CeresPrivateKeyReference, pero se ha recibido de tipo " + keyRef.getClass().getName() //$NON-NLS-1$
 			);
 		}
-		final CeresPrivateKeyReference ceresPrivateKey = (CeresPrivateKeyReference) keyRef;
 
 		// Pedimos el PIN si no se ha pedido antes
 		if (!authenticated) {
@@ -378,7 +432,18 @@ public final class Ceres extends AbstractIso7816EightCard implements CryptoCard
 				throw new CryptoCardException("Error en la verificacion de PIN", e1); //$NON-NLS-1$
 			}
 		}
+		return (CeresPrivateKeyReference) keyRef;
+	}
 
+	/** Carga en la tarjeta la huella de unos datos y la firma.
+	 * @param data Datos a firmar.
+	 * @param algorithm Algoritmo de firma.
+	 * @param ceresPrivateKey Referencia a la clave privada de firma.
+	 * @return Firma de los datos.
+	 * @throws CryptoCardException Si ocurre alg&uacute;n problema durante la firma. */
+	private byte[] signData(final byte[] data,
+			                final String algorithm,
+			                final CeresPrivateKeyReference ceresPrivateKey) throws CryptoCardException {
 		final byte[] digestInfo;
 		try {
 			digestInfo = DigestInfo.encode(algorithm, data, cryptoHelper);
@@ -386,7 +451,16 @@ public final class Ceres extends AbstractIso7816EightCard implements CryptoCard
 		catch(final Exception e) {
 			throw new CryptoCardException("Error creando el DigestInfo para la firma con el algoritmo " + algorithm, e); //$NON-NLS-1$
 		}
+		return signDigestInfo(digestInfo, ceresPrivateKey);
+	}
 
+	/** Carga en la tarjeta un <code>DigestInfo</code> ya construido y lo firma.
+	 * @param digestInfo Estructura <code>DigestInfo</code> a firmar.
+	 * @param ceresPrivateKey Referencia a la clave privada de firma.
+	 * @return Firma de los datos.
+	 * @throws CryptoCardException Si ocurre alg&uacute;n problema durante la firma. */
+	private byte[] signDigestInfo(final byte[] digestInfo,
+			                      final CeresPrivateKeyReference ceresPrivateKey) throws CryptoCardException {
 		loadData(ceresPrivateKey.getKeyBitSize(), digestInfo);
 
 		final ResponseApdu res;
@@ -0,0 +1,85 @@
+package es.gob.jmulticard.card.gide.smartcafe;
+
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Cach&eacute; en memoria, compartida entre instancias, de los certificados y n&uacute;meros
+ * de clave de las tarjetas G&amp;D SmartCafe, indexada por el ATR y la huella del CDF.
+ * Evita volver a leer los certificados y los m&oacute;dulos de todas las claves cada vez
+ * que se vuelve a abrir una tarjeta ya le&iacute;da. Como dos tarjetas personalizadas con
+ * la misma plantilla pueden tener el mismo CDF, quien la use debe comprobar con la tarjeta
+ * que una entrada le corresponde antes de darla por buena.
+ * La cach&eacute; es segura frente a hilos y tiene un tama&ntilde;o m&aacute;ximo, descart&aacute;ndose
+ * la entrada usada hace m&aacute;s tiempo cuando se supera.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+final class SmartCafeContentsCache {
+
+	/** N&uacute;mero m&aacute;ximo de tarjetas almacenadas. */
+	private static final int MAX_ENTRIES = 16;
+
+	/** Contenido de las tarjetas por ATR y huella del CDF (en hexadecimal). */
+	private static final Map<String, Contents> CONTENTS = new LinkedHashMap<String, Contents>(MAX_ENTRIES, 0.75f, true) {
+
+		private static final long serialVersionUID = 6937424380474106624L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Contents> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/** Certificados y n&uacute;meros de clave de una tarjeta. */
+	static final class Contents {
+
+		private final Map<String, X509Certificate> certsByAlias;
+		private final Map<String, Integer> keyNoByAlias;
+
+		Contents(final Map<String, X509Certificate> certs, final Map<String, Integer> keyNos) {
+			certsByAlias = Collections.unmodifiableMap(new LinkedHashMap<>(certs));
+			keyNoByAlias = Collections.unmodifiableMap(new LinkedHashMap<>(keyNos));
+		}
+
+		Map<String, X509Certificate> getCertsByAlias() {
+			return certsByAlias;
+		}
+
+		Map<String, Integer> getKeyNoByAlias() {
+			return keyNoByAlias;
+		}
+	}
+
+	private SmartCafeContentsCache() {
+		// No instanciable
+	}
+
+	/** Obtiene el contenido almacenado de una tarjeta.
+	 * @param key Clave de la tarjeta (ATR y huella del CDF).
+	 * @return Contenido de la tarjeta o <code>null</code> si no est&aacute; en cach&eacute;. */
+	static Contents get(final String key) {
+		synchronized (CONTENTS) {
+			return CONTENTS.get(key);
+		}
+	}
+
+	/** Almacena el contenido de una tarjeta.
+	 * @param key Clave de la tarjeta (ATR y huella del CDF).
+	 * @param contents Contenido de la tarjeta. */
+	static void put(final String key, final Contents contents) {
+		if (key == null || contents == null) {
+			return;
+		}
+		synchronized (CONTENTS) {
+			CONTENTS.put(key, contents);
+		}
+	}
+
+	/** Descarta el contenido almacenado de una tarjeta.
+	 * @param key Clave de la tarjeta (ATR y huella del CDF). */
+	static void remove(final String key) {
+		synchronized (CONTENTS) {
+			CONTENTS.remove(key);
+		}
+	}
+}
@@ -1,6 +1,5 @@
 package es.gob.jmulticard.card.gide.smartcafe;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.security.PublicKey;
@@ -16,6 +15,7 @@ import javax.security.auth.callback.PasswordCallback;
 import javax.security.auth.callback.UnsupportedCallbackException;
 
 import es.gob.jmulticard.CryptoHelper;
+import es.gob.jmulticard.DigestAlgorithm;
 import es.gob.jmulticard.HexUtils;
 import es.gob.jmulticard.JmcLogger;
 import es.gob.jmulticard.apdu.CommandApdu;
@@ -100,8 +100,11 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
 
     private static final byte CLA = (byte) 0x00;
 
-    private static final Map<String, X509Certificate> CERTS_BY_ALIAS = new ConcurrentHashMap<>();
-    private static final Map<String, Integer> KEYNO_BY_ALIAS = new ConcurrentHashMap<>();
+    /** Certificados de la tarjeta por alias. */
+    private final Map<String, X509Certificate> certsByAlias = new ConcurrentHashMap<>();
+
+    /** N&uacute;mero (ordinal) de clave privada de la tarjeta por alias del certificado. */
+    private final Map<String, Integer> keyNoByAlias = new ConcurrentHashMap<>();
 
     /** Octeto que identifica una verificaci&oacute;n fallida del PIN. */
     private static final byte ERROR_PIN_SW1 = (byte) 0x63;
@@ -122,6 +125,22 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
      * @throws IOException Si hay errores de entrada / salida. */
     public SmartCafePkcs15Applet(final ApduConnection conn,
     		                     final CryptoHelper cryptoHlpr) throws IOException {
+    	this(conn, cryptoHlpr, false);
+    }
+
+    /** Construye un objeto que representa una tarjeta G&amp;D SmartCafe con el
+     * Applet PKCS#15 de AET.
+     * @param conn Conexi&oacute;n con la tarjeta.
+     * @param cryptoHlpr Funcionalidades criptogr&aacute;ficas de utilidad que
+     *                   pueden variar entre m&aacute;quinas virtuales.
+     * @param useCache Si se indica <code>true</code> se reutilizan, entre instancias, los
+     *                 certificados y n&uacute;meros de clave de una tarjeta ya le&iacute;da
+     *                 (identificada por su ATR y su CDF y comprobada con una de sus claves),
+     *                 evitando volver a leerlos.
+     * @throws IOException Si hay errores de entrada / salida. */
+    public SmartCafePkcs15Applet(final ApduConnection conn,
+    		                     final CryptoHelper cryptoHlpr,
+    		                     final boolean useCache) throws IOException {
         super(CLA, conn);
 
         if (cryptoHlpr == null) {
@@ -130,7 +149,7 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
         cryptoHelper = cryptoHlpr;
 
         // Conectamos
-        conn.reset();
+        final byte[] atr = conn.reset();
         connect(conn);
 
         try {
@@ -142,9 +161,10 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
             );
         }
 
-        // Cargamos los certificados
+        // Leemos el CDF
+        final byte[] cdfBytes;
         try {
-			preloadCertificates();
+        	cdfBytes = readCdf();
 		}
         catch (final Iso7816FourCardException | Asn1Exception | TlvException e) {
             throw new IOException(
@@ -152,6 +172,23 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
     		);
         }
 
+        final String cacheKey = useCache ?
+    		HexUtils.hexify(atr, false) + '-' + HexUtils.hexify(cryptoHelper.digest(DigestAlgorithm.SHA256, cdfBytes), false) :
+				null;
+        if (cacheKey != null && loadFromCache(cacheKey)) {
+        	return;
+        }
+
+        // Cargamos los certificados
+        try {
+			preloadCertificates(cdfBytes);
+		}
+        catch (final Asn1Exception | TlvException e) {
+            throw new IOException(
+        		"No se han podido leer los certificados", e //$NON-NLS-1$
+    		);
+        }
+
         // Miramos cuantas claves hay en la tarjeta
         final int keyCount = getKeyCount(
     		sendArbitraryApdu(
@@ -168,52 +205,30 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
     		"constructor", //$NON-NLS-1$
     		"Se ha" + (keyCount > 1 ? "n" : "") + " encontrado " + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 				keyCount + " clave" + (keyCount > 1 ? "s" : "") + " y " + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-    				CERTS_BY_ALIAS.size() + " certificado" + (CERTS_BY_ALIAS.size() > 1 ? "s" : "") + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    				certsByAlias.size() + " certificado" + (certsByAlias.size() > 1 ? "s" : "") + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
     					" en la tarjeta"); //$NON-NLS-1$
 
         // Buscamos las claves publicas de las claves y guardamos su ordinal comparado
         // con el alias del certificado que tenga la misma clave publica
         for (int i=0;i<keyCount;i++) {
-        	final ResponseApdu res = sendArbitraryApdu(
-    			new CommandApdu(
-					new byte[] {
-						(byte) 0x80,
-						(byte) 0x3A,
-						(byte) i,    // Ordinal de la clave
-						(byte) 0x01, // 02=Exponente, 01=Modulo
-						(byte) 0x00
-					}
-				)
-			);
-        	if (!res.isOk()) {
-        		JmcLogger.severe(
-    				"Error obteniendo el modulo de la clave " + i + ": " + res //$NON-NLS-1$ //$NON-NLS-2$
-				);
-        		continue;
+        	final BigInteger modulus = getKeyModulus(i);
+        	if (modulus != null) {
+	        	// Almacenamos el numero de clave asociado con el alias del certificado
+	        	// correspondiente
+	        	storeKeyOrdinal(i, modulus);
         	}
-
-        	// En Java los BigInteger tienen signo, metemos un 0x00 antes para indicar
-        	// que es positivo
-        	final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        	baos.write((byte)0x00);
-        	baos.write(res.getData());
-        	final BigInteger modulus = new BigInteger(baos.toByteArray());
-
-        	// Almacenamos el numero de clave asociado con el alias del certificado
-        	// correspondiente
-        	storeKeyOrdinal(i, modulus);
         }
 
     	// Limpiamos los certificados sin claves
-        final Set<String> aliases = CERTS_BY_ALIAS.keySet();
+        final Set<String> aliases = certsByAlias.keySet();
         for (final String alias : aliases) {
-        	if (!KEYNO_BY_ALIAS.containsKey(alias)) {
+        	if (!keyNoByAlias.containsKey(alias)) {
         		JmcLogger.info(
     				SmartCafePkcs15Applet.class.getName(),
     				"constructor", //$NON-NLS-1$
     				"El certificado '" + alias + "' se descarta por carecer de clave privada" //$NON-NLS-1$ //$NON-NLS-2$
 				);
-        		CERTS_BY_ALIAS.remove(alias);
+        		certsByAlias.remove(alias);
         	}
         }
 
@@ -222,16 +237,81 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
     			"La tarjeta no contiene claves" //$NON-NLS-1$
 			);
         }
+
+        if (cacheKey != null) {
+        	SmartCafeContentsCache.put(cacheKey, new SmartCafeContentsCache.Contents(certsByAlias, keyNoByAlias));
+        }
+    }
+
+    /** Carga los certificados y n&uacute;meros de clave de la cach&eacute; compartida, comprobando
+     * antes que la primera de las claves de la entrada est&aacute; en la tarjeta.
+     * @param cacheKey Clave de la tarjeta en la cach&eacute;.
+     * @return <code>true</code> si se ha cargado el contenido de la cach&eacute;,
+     *         <code>false</code> si no estaba o no correspond&iacute;a a la tarjeta.
+     * @throws ApduConnectionException Si hay problemas en el env&iacute;o de la APDU. */
+    private boolean loadFromCache(final String cacheKey) throws ApduConnectionException {
+    	final SmartCafeContentsCache.Contents cached = SmartCafeContentsCache.get(cacheKey);
+    	if (cached == null || cached.getKeyNoByAlias().isEmpty()) {
+    		return false;
+    	}
+    	final Map.Entry<String, Integer> probe = cached.getKeyNoByAlias().entrySet().iterator().next();
+    	final PublicKey publicKey = cached.getCertsByAlias().get(probe.getKey()).getPublicKey();
+    	if (
+			!(publicKey instanceof RSAPublicKey) ||
+			!((RSAPublicKey)publicKey).getModulus().equals(getKeyModulus(probe.getValue().intValue()))
+		) {
+    		JmcLogger.info(
+				SmartCafePkcs15Applet.class.getName(),
+				"loadFromCache", //$NON-NLS-1$
+				"El contenido en cache no corresponde a esta tarjeta, se leera de nuevo" //$NON-NLS-1$
+			);
+    		SmartCafeContentsCache.remove(cacheKey);
+    		return false;
+    	}
+    	certsByAlias.putAll(cached.getCertsByAlias());
+    	keyNoByAlias.putAll(cached.getKeyNoByAlias());
+		JmcLogger.info(
+			SmartCafePkcs15Applet.class.getName(),
+			"loadFromCache", //$NON-NLS-1$
+			"Usados los " + certsByAlias.size() + " certificado(s) en cache de la tarjeta" //$NON-NLS-1$ //$NON-NLS-2$
+		);
+    	return true;
     }
 
-    private static void storeKeyOrdinal(final int ordinal, final BigInteger publicKeyModulus) {
-    	final Set<String> aliases = CERTS_BY_ALIAS.keySet();
+    /** Obtiene el m&oacute;dulo de la clave p&uacute;blica de una de las claves de la tarjeta.
+     * @param keyNo Ordinal de la clave.
+     * @return M&oacute;dulo de la clave o <code>null</code> si la tarjeta no lo ha devuelto.
+     * @throws ApduConnectionException Si hay problemas en el env&iacute;o de la APDU. */
+    private BigInteger getKeyModulus(final int keyNo) throws ApduConnectionException {
+    	final ResponseApdu res = sendArbitraryApdu(
+			new CommandApdu(
+				new byte[] {
+					(byte) 0x80,
+					(byte) 0x3A,
+					(byte) keyNo, // Ordinal de la clave
+					(byte) 0x01,  // 02=Exponente, 01=Modulo
+					(byte) 0x00
+				}
+			)
+		);
+    	if (!res.isOk()) {
+    		JmcLogger.severe(
+				"Error obteniendo el modulo de la clave " + keyNo + ": " + res //$NON-NLS-1$ //$NON-NLS-2$
+			);
+    		return null;
+    	}
+    	// En Java los BigInteger tienen signo, indicamos que es positivo
+    	return new BigInteger(1, res.getData());
+    }
+
+    private void storeKeyOrdinal(final int ordinal, final BigInteger publicKeyModulus) {
+    	final Set<String> aliases = certsByAlias.keySet();
     	for (final String alias : aliases) {
-    		final PublicKey publicKey = CERTS_BY_ALIAS.get(alias).getPublicKey();
+    		final PublicKey publicKey = certsByAlias.get(alias).getPublicKey();
     		if (publicKey instanceof RSAPublicKey) {
     			final BigInteger certPublicKeyModulus = ((RSAPublicKey)publicKey).getModulus();
     			if (certPublicKeyModulus.equals(publicKeyModulus)) {
-    				KEYNO_BY_ALIAS.put(alias, Integer.valueOf(ordinal));
+    				keyNoByAlias.put(alias, Integer.valueOf(ordinal));
     			}
     		}
     	}
@@ -284,10 +364,16 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
         checkAtr(conn.reset());
     }
 
-    private void preloadCertificates() throws Iso7816FourCardException,
-                                              IOException,
-                                              Asn1Exception,
-                                              TlvException {
+    /** Lee el CDF de la tarjeta a partir de la ruta indicada en el ODF.
+     * @return Codificaci&oacute;n DER del CDF.
+     * @throws Iso7816FourCardException Si falla la selecci&oacute;n del ODF.
+     * @throws IOException Si hay errores de entrada / salida.
+     * @throws Asn1Exception Si el ODF no es v&aacute;lido.
+     * @throws TlvException Si el ODF no es un TLV v&aacute;lido. */
+    private byte[] readCdf() throws Iso7816FourCardException,
+                                    IOException,
+                                    Asn1Exception,
+                                    TlvException {
         selectMasterFile();
 
         // Seleccionamos el ODF, no nos devuelve FCI ni nada
@@ -302,17 +388,21 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
         final Path cdfPath = odf.getCdfPath();
 
         // Leemos el CDF
-        final Cdf cdf = new Cdf();
         try {
             selectMasterFile();
-            final byte[] cdfBytes = selectFileByIdAndRead(cdfPath.getPathBytes());
-            cdf.setDerValue(cdfBytes);
+            return selectFileByIdAndRead(cdfPath.getPathBytes());
         }
         catch (final Exception e) {
             throw new ApduConnectionException(
                 "No se ha podido cargar el CDF de la tarjeta", e //$NON-NLS-1$
             );
         }
+    }
+
+    private void preloadCertificates(final byte[] cdfBytes) throws Asn1Exception,
+                                                                  TlvException {
+        final Cdf cdf = new Cdf();
+        cdf.setDerValue(cdfBytes);
 
         if (cdf.getCertificateCount() < 1) {
         	JmcLogger.warning("La tarjeta no contiene ningun certificado"); //$NON-NLS-1$
@@ -349,7 +439,7 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
             }
 			certBytes = readBinaryComplete(fileLength);
 
-            CERTS_BY_ALIAS.put(
+            certsByAlias.put(
         		certificateAlias,
                 CryptoHelper.generateCertificate(certBytes)
             );
@@ -367,12 +457,12 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
 
     @Override
     public String[] getAliases() {
-        return CERTS_BY_ALIAS.keySet().toArray(new String[0]);
+        return certsByAlias.keySet().toArray(new String[0]);
     }
 
     @Override
     public X509Certificate getCertificate(final String alias) {
-        return CERTS_BY_ALIAS.get(alias);
+        return certsByAlias.get(alias);
     }
 
     @Override
@@ -384,7 +474,7 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
     public String toString() {
         final StringBuilder sb = new StringBuilder(getCardName())
             .append("\n Tarjeta con ") //$NON-NLS-1$
-            	.append(CERTS_BY_ALIAS.size())
+            	.append(certsByAlias.size())
             		.append(" certificado(s):\n"); //$NON-NLS-1$
         final String[] aliases = getAliases();
         for (int i = 0; i < aliases.length; i++) {
@@ -403,6 +493,7 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
      * @throws Iso7816FourCardException Si falla la selecci&oacute;n de fichero. */
     @Override
     public int selectFileById(final byte[] id) throws ApduConnectionException, Iso7816FourCardException {
+    	invalidateSelectedFile();
         final CommandApdu selectCommand = new SelectFileByIdApduCommand(getCla(), id);
         final ResponseApdu res = getConnection().transmit(selectCommand);
         if (HexUtils.arrayEquals(res.getBytes(), new byte[] { (byte) 0x6a, (byte) 0x82 })) {
@@ -457,10 +548,10 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
 
     @Override
     public PrivateKeyReference getPrivateKey(final String alias) {
-    	if (!KEYNO_BY_ALIAS.containsKey(alias)) {
+    	if (!keyNoByAlias.containsKey(alias)) {
     		return null;
     	}
-    	return new SmartCafePrivateKeyReference(KEYNO_BY_ALIAS.get(alias));
+    	return new SmartCafePrivateKeyReference(keyNoByAlias.get(alias));
     }
 
     @Override
@@ -471,6 +562,45 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
 		if (data == null) {
 			throw new CryptoCardException("Los datos a firmar no pueden ser nulos"); //$NON-NLS-1$
 		}
+
+		// Creamos el DigestInfo
+        final byte[] digestInfo;
+        try {
+            digestInfo = DigestInfo.encode(algorithm, data, cryptoHelper);
+        }
+        catch (final IOException e) {
+            throw new CryptoCardException("Error en el calculo de la huella para firmar", e); //$NON-NLS-1$
+        }
+        return signDigestInfo(digestInfo, keyRef);
+    }
+
+    @Override
+    public byte[] signDigest(final byte[] digest,
+    		                 final String algorithm,
+    		                 final PrivateKeyReference keyRef) throws CryptoCardException,
+                                                                      PinException {
+		if (digest == null) {
+			throw new CryptoCardException("La huella a firmar no puede ser nula"); //$NON-NLS-1$
+		}
+        final byte[] digestInfo;
+        try {
+            digestInfo = DigestInfo.encodeDigest(algorithm, digest);
+        }
+        catch (final IOException e) {
+            throw new CryptoCardException("Error en la codificacion de la huella para firmar", e); //$NON-NLS-1$
+        }
+        return signDigestInfo(digestInfo, keyRef);
+    }
+
+    /** Firma un <code>DigestInfo</code> ya construido.
+     * @param digestInfo Estructura <code>DigestInfo</code> a firmar.
+     * @param keyRef Referencia a la clave privada de firma.
+     * @return Firma de los datos.
+     * @throws CryptoCardException Si ocurre alg&uacute;n problema durante la firma.
+     * @throws PinException Si el PIN proporcionado es incorrecto o no es posible obtenerlo. */
+    private byte[] signDigestInfo(final byte[] digestInfo,
+    		                      final PrivateKeyReference keyRef) throws CryptoCardException,
+                                                                           PinException {
 		if (keyRef == null) {
 			throw new IllegalArgumentException("La clave privada no puede ser nula"); //$NON-NLS-1$
 		}
@@ -518,16 +648,7 @@ public final class SmartCafePkcs15Applet extends AbstractIso7816FourCard impleme
 			);
 		}
 
-		// Creamos el DigestInfo
-        final byte[] digestInfo;
-        try {
-            digestInfo = DigestInfo.encode(algorithm, data, cryptoHelper);
-        }
-        catch (final IOException e) {
-            throw new CryptoCardException("Error en el calculo de la huella para firmar", e); //$NON-NLS-1$
-        }
-
-        // Y lo enviamos a firmar
+        // Y enviamos el DigestInfo a firmar
         try {
 			res = sendArbitraryApdu(new PsoSignHashApduCommand((byte) 0x01, digestInfo));
 		}
@@ -2,6 +2,7 @@ package es.gob.jmulticard.card.icao;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.List;
 
 import javax.security.auth.callback.CallbackHandler;
 
@@ -45,6 +46,50 @@ public final class IcaoMrtdWithPace extends DnieNfc {
 		);
 	}
 
+	/** Construye una clase que representa un MRTD accedido de forma
+	 * inal&aacute;mbrica mediante PACE con un CAN o una MRZ ya conocidos.
+	 * @param conn Conexi&oacute;n con el lector NFC.
+	 * @param cryptoHlpr Clase de utilidad de funciones criptogr&aacute;ficas.
+	 * @param paceInit Inicializador (CAN o MRZ) del canal PACE.
+	 * @throws IcaoException Si no se puede establecer el canal PACE.
+	 * @throws ApduConnectionException Si no se puede establecer la conexi&oacute;n NFC. */
+	public IcaoMrtdWithPace(final ApduConnection conn,
+			                final CryptoHelper cryptoHlpr,
+			                final WirelessInitializer paceInit) throws IcaoException,
+	                                                                   ApduConnectionException {
+		super(
+			conn,
+			null,          // No hay PIN
+			cryptoHlpr,
+			null,          // No hace falta CallbackHandler
+			paceInit
+		);
+	}
+
+	/** Construye una clase que representa un MRTD accedido de forma
+	 * inal&aacute;mbrica mediante PACE con un CAN o una MRZ ya conocidos, guardando
+	 * por ATR el algoritmo PACE negociado.
+	 * @param conn Conexi&oacute;n con el lector NFC.
+	 * @param cryptoHlpr Clase de utilidad de funciones criptogr&aacute;ficas.
+	 * @param paceInit Inicializador (CAN o MRZ) del canal PACE.
+	 * @param atr ATR del MRTD, o <code>null</code> si no se conoce.
+	 * @throws IcaoException Si no se puede establecer el canal PACE.
+	 * @throws ApduConnectionException Si no se puede establecer la conexi&oacute;n NFC. */
+	public IcaoMrtdWithPace(final ApduConnection conn,
+			                final CryptoHelper cryptoHlpr,
+			                final WirelessInitializer paceInit,
+			                final byte[] atr) throws IcaoException,
+	                                                 ApduConnectionException {
+		super(
+			conn,
+			null,          // No hay PIN
+			cryptoHlpr,
+			null,          // No hace falta CallbackHandler
+			paceInit,
+			atr
+		);
+	}
+
 	@Override
     public String getCardName() {
         return "MRTD accedido de forma inalambrica mediante PACE"; //$NON-NLS-1$
@@ -73,6 +118,24 @@ public final class IcaoMrtdWithPace extends DnieNfc {
 		);
     }
 
+    @Override
+    public byte[] signDigest(final byte[] digest,
+    		                 final String signAlgorithm,
+    		                 final PrivateKeyReference privateKeyRef) {
+    	throw new UnsupportedOperationException(
+			"No se permite firmar con MRTD" //$NON-NLS-1$
+		);
+    }
+
+    @Override
+    public List<byte[]> signBatch(final List<byte[]> data,
+    		                      final String signAlgorithm,
+    		                      final PrivateKeyReference privateKeyRef) {
+    	throw new UnsupportedOperationException(
+			"No se permite firmar con MRTD" //$NON-NLS-1$
+		);
+    }
+
 	@Override
 	public String toString() {
 		return getCardName();
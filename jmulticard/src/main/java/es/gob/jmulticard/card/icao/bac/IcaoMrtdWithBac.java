@@ -1,5 +1,7 @@
 package es.gob.jmulticard.card.icao.bac;
 
+import java.util.List;
+
 import es.gob.jmulticard.CryptoHelper;
 import es.gob.jmulticard.card.PrivateKeyReference;
 import es.gob.jmulticard.card.dnie.Dnie3;
@@ -50,4 +52,22 @@ public final class IcaoMrtdWithBac extends Dnie3 {
 			"No se permite firmar con un MRTD" //$NON-NLS-1$
 		);
     }
+
+    @Override
+    public byte[] signDigest(final byte[] digest,
+    		                 final String signAlgorithm,
+    		                 final PrivateKeyReference privateKeyReference) {
+    	throw new UnsupportedOperationException(
+			"No se permite firmar con un MRTD" //$NON-NLS-1$
+		);
+    }
+
+    @Override
+    public List<byte[]> signBatch(final List<byte[]> data,
+    		                      final String signAlgorithm,
+    		                      final PrivateKeyReference privateKeyReference) {
+    	throw new UnsupportedOperationException(
+			"No se permite firmar con un MRTD" //$NON-NLS-1$
+		);
+    }
 }
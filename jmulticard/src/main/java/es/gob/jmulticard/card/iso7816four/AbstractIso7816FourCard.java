@@ -42,6 +42,7 @@ package es.gob.jmulticard.card.iso7816four;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.security.auth.callback.PasswordCallback;
@@ -61,9 +62,12 @@ import es.gob.jmulticard.card.AbstractSmartCard;
 import es.gob.jmulticard.card.Location;
 import es.gob.jmulticard.card.PasswordCallbackNotFoundException;
 import es.gob.jmulticard.card.PinException;
+import es.gob.jmulticard.connection.AbstractApduConnectionIso7816;
 import es.gob.jmulticard.connection.ApduConnection;
 import es.gob.jmulticard.connection.ApduConnectionException;
+import es.gob.jmulticard.connection.cwa14890.Cwa14890OneV2Connection;
 import es.gob.jmulticard.connection.cwa14890.SecureChannelException;
+import es.gob.jmulticard.connection.pace.PaceConnection;
 
 /** Tarjeta compatible ISO-7816-4.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s.
@@ -82,8 +86,60 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
     /** El <i>offset</i> sobrepasa el l&iacute;mite de tama&ntilde;o del EF. */
     private static final StatusWord SW_OFFSET_OUTSIDE_EF = new StatusWord((byte) 0x6B, (byte) 0x00);
 
-    /** Tama&ntilde;o m&aacute;ximo de datos que se puede leer en una &uacute;nica APDU. */
-    private static final int MAX_READ_CHUNK = 0xDE;
+    /** Longitud incorrecta (sin indicaci&oacute;n de la longitud correcta). */
+    private static final StatusWord SW_WRONG_LENGTH = new StatusWord((byte) 0x67, (byte) 0x00);
+
+    /** Octeto m&aacute;s significativo de la palabra de estado que indica una longitud
+     * esperada incorrecta. El menos significativo indica la longitud disponible. */
+    private static final byte MSB_WRONG_LE = (byte) 0x6C;
+
+    /** Tama&ntilde;o de datos que se puede leer en una &uacute;nica APDU de forma segura con
+     * cualquier conexi&oacute;n, con o sin canal seguro. */
+    private static final int DEFAULT_READ_CHUNK = 0xDE;
+
+    /** Tama&ntilde;o m&aacute;ximo de APDU de comando (cabecera, Lc, datos y Le) en forma corta. */
+    private static final int MAX_SHORT_COMMAND_LENGTH = 4 + 1 + 0xFF + 1;
+
+    /** Tama&ntilde;o m&aacute;ximo de respuesta (datos y palabra de estado) con un Le corto. */
+    private static final int MAX_SHORT_RESPONSE_LENGTH = 0x100 + 2;
+
+    /** Tama&ntilde;o m&aacute;ximo de datos que se puede leer en una &uacute;nica APDU con un Le extendido. */
+    private static final int MAX_EXTENDED_READ_CHUNK = 0x10000;
+
+    /** Sobrecarga de la mensajer&iacute;a segura en una respuesta: DO99 (4 octetos), DO8E (10 octetos),
+     * cabecera del DO87 (hasta 4 octetos), indicador de relleno (1 octeto) y palabra de estado (2 octetos). */
+    private static final int SECURE_MESSAGING_OVERHEAD = 4 + 10 + 4 + 1 + 2;
+
+    /** Tama&ntilde;o de bloque del cifrado AES de la mensajer&iacute;a segura (CWA-14890 v2 y PACE). */
+    private static final int AES_BLOCK_SIZE = 16;
+
+    /** Tama&ntilde;o de bloque del cifrado 3DES de la mensajer&iacute;a segura (CWA-14890 v1). */
+    private static final int DES_BLOCK_SIZE = 8;
+
+    /** Tama&ntilde;o m&aacute;ximo de respuesta (datos y palabra de estado) declarado por la tarjeta
+     * en su informaci&oacute;n de longitud extendida, o <code>0</code> si no se conoce. */
+    private int maxResponseLength = 0;
+
+    /** Tama&ntilde;o m&aacute;ximo de APDU de comando declarado por la tarjeta en su
+     * informaci&oacute;n de longitud extendida, o <code>0</code> si no se conoce. */
+    private int maxCommandLength = 0;
+
+    /** Tama&ntilde;o de datos a leer en cada APDU de lectura de binario, o <code>0</code> si
+     * a&uacute;n no se ha calculado para la conexi&oacute;n actual. */
+    private int readChunk = 0;
+
+    /** Ruta (desde el MF) del DF actualmente seleccionado mediante <code>selectFileByLocation()</code>,
+     * o <code>null</code> si no se conoce la selecci&oacute;n actual de la tarjeta. */
+    private List<byte[]> selectedDfPath = null;
+
+    /** Identificador del EF actualmente seleccionado dentro de <code>selectedDfPath</code>. */
+    private byte[] selectedEfId = null;
+
+    /** Tama&ntilde;o del EF actualmente seleccionado. */
+    private int selectedEfLength = 0;
+
+    /** Conexi&oacute;n sobre la que se hizo la selecci&oacute;n registrada. */
+    private ApduConnection selectionConnection = null;
 
     /** Construye una tarjeta compatible ISO 7816-4.
      * @param c Octeto de clase (CLA) de las APDU.
@@ -92,11 +148,183 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
         super(c, conn);
     }
 
+    /** Olvida la selecci&oacute;n de ficheros registrada, de forma que la siguiente
+     * selecci&oacute;n por ruta vuelva a partir del MF.
+     * Debe llamarse siempre que se seleccione un fichero o se reinicie la tarjeta sin pasar
+     * por los m&eacute;todos de selecci&oacute;n de esta clase. */
+    protected final void invalidateSelectedFile() {
+    	selectedDfPath = null;
+    	selectedEfId = null;
+    	selectedEfLength = 0;
+    	selectionConnection = null;
+    }
+
+    @Override
+    protected void connectionChanged() {
+    	invalidateSelectedFile();
+    	readChunk = 0;
+    	notifyExtendedLength();
+    }
+
+    /** Establece el tama&ntilde;o m&aacute;ximo de APDU de comando que admite la tarjeta,
+     * normalmente obtenido de su informaci&oacute;n de longitud extendida (ver
+     * <code>getMaxCommandLength()</code>), y se lo indica a las conexiones con la tarjeta.
+     * @param length Tama&ntilde;o m&aacute;ximo de APDU de comando en octetos, o <code>0</code>
+     *               si la tarjeta no lo declara. */
+    protected final void setMaxCommandLength(final int length) {
+    	if (length < 0) {
+    		throw new IllegalArgumentException(
+				"El tamano maximo de comando no puede ser negativo: " + length //$NON-NLS-1$
+			);
+    	}
+    	maxCommandLength = length;
+    	notifyExtendedLength();
+    }
+
+    /** Indica a las conexiones con la tarjeta, desde la actual hasta la de m&aacute;s bajo
+     * nivel, el tama&ntilde;o m&aacute;ximo de APDU de comando que admite la tarjeta y, a los
+     * canales PACE, si admite APDU extendidas. */
+    private void notifyExtendedLength() {
+    	final boolean extendedLength = maxCommandLength > MAX_SHORT_COMMAND_LENGTH ||
+			maxResponseLength > MAX_SHORT_RESPONSE_LENGTH;
+    	ApduConnection conn = getConnection();
+    	while (conn != null) {
+    		if (conn instanceof AbstractApduConnectionIso7816) {
+    			((AbstractApduConnectionIso7816) conn).setCardMaxApduSize(maxCommandLength);
+    		}
+    		else if (conn instanceof PaceConnection) {
+    			((PaceConnection) conn).setExtendedLength(extendedLength);
+    		}
+    		conn = conn.getSubConnection();
+    	}
+    }
+
+    /** Establece el tama&ntilde;o m&aacute;ximo de respuesta que admite la tarjeta, normalmente
+     * obtenido de su informaci&oacute;n de longitud extendida (ver <code>getMaxResponseLength()</code>).
+     * Solo se usar&aacute;n lecturas con Le extendido si adem&aacute;s la conexi&oacute;n de m&aacute;s
+     * bajo nivel admite APDU extendidas.
+     * @param length Tama&ntilde;o m&aacute;ximo de respuesta (datos y palabra de estado) en octetos,
+     *               o <code>0</code> para usar &uacute;nicamente Le cortos. */
+    protected final void setMaxResponseLength(final int length) {
+    	if (length < 0) {
+    		throw new IllegalArgumentException(
+				"El tamano maximo de respuesta no puede ser negativo: " + length //$NON-NLS-1$
+			);
+    	}
+    	maxResponseLength = length;
+    	readChunk = 0;
+    	notifyExtendedLength();
+    }
+
+    /** Obtiene el tama&ntilde;o m&aacute;ximo de respuesta del objeto de informaci&oacute;n de
+     * longitud extendida (etiqueta <code>7F66</code>) de un EF&#46;ATR/INFO, seg&uacute;n ISO 7816-4.
+     * @param atrInfo Contenido del EF&#46;ATR/INFO.
+     * @return Tama&ntilde;o m&aacute;ximo de respuesta declarado, o <code>0</code> si el fichero
+     *         no contiene informaci&oacute;n de longitud extendida. */
+    protected static int getMaxResponseLength(final byte[] atrInfo) {
+    	return getExtendedLengthInfo(atrInfo, 1);
+    }
+
+    /** Obtiene el tama&ntilde;o m&aacute;ximo de APDU de comando del objeto de informaci&oacute;n de
+     * longitud extendida (etiqueta <code>7F66</code>) de un EF&#46;ATR/INFO, seg&uacute;n ISO 7816-4.
+     * @param atrInfo Contenido del EF&#46;ATR/INFO.
+     * @return Tama&ntilde;o m&aacute;ximo de comando declarado, o <code>0</code> si el fichero
+     *         no contiene informaci&oacute;n de longitud extendida. */
+    protected static int getMaxCommandLength(final byte[] atrInfo) {
+    	return getExtendedLengthInfo(atrInfo, 0);
+    }
+
+    /** Obtiene uno de los enteros del objeto de informaci&oacute;n de longitud extendida
+     * (etiqueta <code>7F66</code>) de un EF&#46;ATR/INFO.
+     * @param atrInfo Contenido del EF&#46;ATR/INFO.
+     * @param index &Iacute;ndice del entero: <code>0</code> para el tama&ntilde;o m&aacute;ximo
+     *              de comando y <code>1</code> para el de respuesta.
+     * @return Valor del entero, o <code>0</code> si el fichero no contiene informaci&oacute;n
+     *         de longitud extendida. */
+    private static int getExtendedLengthInfo(final byte[] atrInfo, final int index) {
+    	if (atrInfo == null) {
+    		return 0;
+    	}
+    	for (int i = 0; i < atrInfo.length - 2; i++) {
+    		if (atrInfo[i] != (byte) 0x7F || atrInfo[i + 1] != (byte) 0x66) {
+    			continue;
+    		}
+    		int pos = i + 2;
+    		int len = atrInfo[pos++] & 0xFF;
+    		if (len == 0x81 && pos < atrInfo.length) {
+    			len = atrInfo[pos++] & 0xFF;
+    		}
+    		final int end = Math.min(pos + len, atrInfo.length);
+    		// Contiene dos enteros: tamano maximo de comando y tamano maximo de respuesta
+    		int value = 0;
+    		for (int n = 0; n <= index; n++) {
+    			if (pos + 2 > end || atrInfo[pos] != (byte) 0x02) {
+    				return 0;
+    			}
+    			final int intLen = atrInfo[pos + 1] & 0xFF;
+    			pos += 2;
+    			if (intLen > 3 || pos + intLen > end) {
+    				return 0;
+    			}
+    			value = 0;
+    			for (int k = 0; k < intLen; k++) {
+    				value = value << 8 | atrInfo[pos++] & 0xFF;
+    			}
+    		}
+    		return value;
+    	}
+    	return 0;
+    }
+
+    /** Calcula el tama&ntilde;o de datos a leer en cada APDU de lectura de binario a partir del
+     * tama&ntilde;o m&aacute;ximo de respuesta de la tarjeta, de la capacidad de la conexi&oacute;n de
+     * m&aacute;s bajo nivel y de la sobrecarga del canal seguro, si lo hay.
+     * Si la tarjeta no declara su tama&ntilde;o m&aacute;ximo de respuesta, o el que declara no deja
+     * sitio para datos, se usa siempre <code>DEFAULT_READ_CHUNK</code>. Si lo declara, nunca se
+     * pide m&aacute;s de lo que admite, aunque sea menos que <code>DEFAULT_READ_CHUNK</code>.
+     * Sobre un canal CWA-14890 las lecturas son siempre cortas, ya que su cifrado de APDU solo
+     * admite un Le de un octeto; &uacute;nicamente el canal PACE admite Le extendidos.
+     * @return Tama&ntilde;o de datos a leer en cada APDU. */
+    private int computeReadChunk() {
+    	if (maxResponseLength == 0) {
+    		return DEFAULT_READ_CHUNK;
+    	}
+    	final ApduConnection conn = getConnection();
+    	ApduConnection lowest = conn;
+    	while (lowest.getSubConnection() != null) {
+    		lowest = lowest.getSubConnection();
+    	}
+    	final int connectionLength = lowest instanceof AbstractApduConnectionIso7816 ?
+			((AbstractApduConnectionIso7816) lowest).getMaxApduSize() :
+				0xFF;
+    	final boolean secure = conn.getSubConnection() != null;
+    	final boolean extendedAllowed = !secure || conn instanceof PaceConnection;
+    	final int responseLength = Math.min(
+			maxResponseLength,
+			extendedAllowed && connectionLength > 0xFF ? connectionLength : MAX_SHORT_RESPONSE_LENGTH
+		);
+
+    	final int chunk;
+    	if (secure) {
+    		// Con canal seguro los datos van cifrados y rellenos hasta el tamano de bloque
+    		final int blockSize = conn instanceof Cwa14890OneV2Connection ? AES_BLOCK_SIZE : DES_BLOCK_SIZE;
+    		final int cryptogram = (responseLength - SECURE_MESSAGING_OVERHEAD) / blockSize * blockSize;
+    		chunk = cryptogram - 1;
+    	}
+    	else {
+    		chunk = responseLength - 2;
+    	}
+    	if (chunk <= 0) {
+    		return DEFAULT_READ_CHUNK;
+    	}
+    	return Math.min(chunk, MAX_EXTENDED_READ_CHUNK);
+    }
+
     /** Lee un contenido binario del fichero actualmente seleccionado.
-     * @param msbOffset Octeto m&aacute;s significativo del desplazamiento (<i>offset</i>)
-     *                  hasta el punto de inicio de la lectura desde el comienzo del fichero.
-     * @param lsbOffset Octeto menos significativo del desplazamiento (<i>offset</i>) hasta
-     *                  el punto de inicio de la lectura desde el comienzo del fichero.
+     * Las respuestas de longitud incorrecta (<code>6700</code> y <code>6Cxx</code>) se devuelven
+     * sin lanzar excepci&oacute;n para que se pueda reintentar la lectura con otro tama&ntilde;o.
+     * @param offset Desplazamiento (<i>offset</i>) hasta el punto de inicio de la lectura
+     *               desde el comienzo del fichero.
      * @param readLength Longitud de los datos a leer (en octetos).
      * @return APDU de respuesta.
      * @throws ApduConnectionException Si hay problemas en el env&iacute;o de la APDU.
@@ -104,13 +332,16 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
      *                        de una condici&oacute;n de seguridad y esta no se ha satisfecho.
      * @throws OffsetOutsideEfException Si el desplazamiento indicado o el tama&ntilde;o indicados
      *                                  para la lectura caen fuera de los l&iacute;mites del fichero. */
-    private ResponseApdu readBinary(final byte msbOffset,
-    		                        final byte lsbOffset,
-    		                        final byte readLength) throws ApduConnectionException,
-                                                                  RequiredSecurityStateNotSatisfiedException,
-                                                                  OffsetOutsideEfException {
+    private ResponseApdu readBinary(final int offset,
+    		                        final int readLength) throws ApduConnectionException,
+                                                                 RequiredSecurityStateNotSatisfiedException,
+                                                                 OffsetOutsideEfException {
     	final CommandApdu apdu = new ReadBinaryApduCommand(
-			getCla(), msbOffset, lsbOffset, readLength
+			getCla(),
+			(byte) (offset >> 8),
+			(byte) (offset & 0xFF),
+			// Un Le corto de 256 octetos se codifica como 0
+			readLength == 0x100 ? 0 : readLength
 		);
     	final ResponseApdu res = getConnection().transmit(
 			apdu
@@ -128,6 +359,9 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
         	JmcLogger.warning("Se ha alcanzado el final de fichero antes de poder leer los octetos indicados"); //$NON-NLS-1$
         	return res;
         }
+        if (SW_WRONG_LENGTH.equals(res.getStatusWord()) || res.getStatusWord().getMsb() == MSB_WRONG_LE) {
+        	return res;
+        }
         throw new ApduConnectionException("Respuesta invalida en la lectura de binario con el codigo: " + res.getStatusWord()); //$NON-NLS-1$
     }
 
@@ -154,28 +388,29 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
     }
 
     /** Lee por completo el contenido binario del fichero actualmente seleccionado.
+     * Se lee en bloques de <code>DEFAULT_READ_CHUNK</code> octetos o, si la tarjeta declara
+     * su tama&ntilde;o m&aacute;ximo de respuesta, del mayor tama&ntilde;o que admiten la
+     * tarjeta y la conexi&oacute;n, reduci&eacute;ndolo (y recordando la reducci&oacute;n) si la
+     * tarjeta indica una longitud incorrecta.
      * @param len Longitud del fichero a leer.
      * @return APDU de respuesta.
      * @throws ApduConnectionException Si hay problemas en el env&iacute;o de la APDU.
      * @throws IOException Si hay problemas en el <i>buffer</i> de lectura. */
     public byte[] readBinaryComplete(final int len) throws IOException {
 
+        if (readChunk == 0) {
+        	readChunk = computeReadChunk();
+        }
+
         int off = 0;
         ResponseApdu readedResponse;
-        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(len);
 
-        // Leemos en iteraciones de MAX_READ_CHUNK bytes
+        // Leemos en iteraciones de readChunk bytes
         while (off < len) {
-            final byte msbOffset = (byte)(off >> 8);
-            final byte lsbOffset = (byte)(off & 0xFF);
-            final int left = len - off;
+        	final int toRead = Math.min(len - off, readChunk);
             try {
-	            if (left < MAX_READ_CHUNK) { // Si es menor que el maximo que podemos leer por iteracion
-	                readedResponse = readBinary(msbOffset, lsbOffset, (byte) left);
-	            }
-	            else {
-	                readedResponse = readBinary(msbOffset, lsbOffset, (byte) MAX_READ_CHUNK);
-	            }
+            	readedResponse = readBinary(off, toRead);
             }
             catch(final OffsetOutsideEfException e) {
             	JmcLogger.warning(
@@ -187,7 +422,35 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
 				throw new IOException("Condicion de seguridad no satisfecha", e); //$NON-NLS-1$
 			}
 
-            final boolean eofReached = SW_EOF_REACHED.equals(readedResponse.getStatusWord());
+            final StatusWord sw = readedResponse.getStatusWord();
+
+            // Si la tarjeta no admite la longitud pedida, reintentamos con una menor
+            final int retryLength;
+            if (sw.getMsb() == MSB_WRONG_LE) {
+            	retryLength = sw.getLsb() == 0 ? 0x100 : sw.getLsb() & 0xFF;
+            }
+            else if (SW_WRONG_LENGTH.equals(sw)) {
+            	// Sin indicacion de la longitud admitida, bajamos a DEFAULT_READ_CHUNK o,
+            	// si ya no pedimos mas que eso, a la mitad
+            	retryLength = toRead > DEFAULT_READ_CHUNK ? DEFAULT_READ_CHUNK : toRead / 2;
+            }
+            else {
+            	retryLength = -1;
+            }
+            if (retryLength != -1) {
+            	if (retryLength == 0 || retryLength >= toRead) {
+                    throw new IOException(
+                		"Error leyendo el binario (" + sw + ")" //$NON-NLS-1$ //$NON-NLS-2$
+            		);
+            	}
+            	JmcLogger.warning(
+        			"La tarjeta no admite lecturas de " + toRead + " octetos, se reintentara con " + retryLength //$NON-NLS-1$ //$NON-NLS-2$
+    			);
+            	readChunk = retryLength;
+            	continue;
+            }
+
+            final boolean eofReached = SW_EOF_REACHED.equals(sw);
 
             if (!readedResponse.isOk() && !eofReached) {
                 throw new IOException(
@@ -195,12 +458,13 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
         		);
             }
 
-            out.write(readedResponse.getData());
+            final byte[] data = readedResponse.getData();
+            out.write(data);
 
-            off += MAX_READ_CHUNK;
+            off += data.length;
 
-            // Si hemos llegado al final no seguimos leyendo
-            if (eofReached) {
+            // Si hemos llegado al final (o la tarjeta no devuelve mas datos) no seguimos leyendo
+            if (eofReached || data.length == 0) {
             	break;
             }
         }
@@ -226,6 +490,7 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
 	 * @throws Iso7816FourCardException Si el fichero no se puede seleccionar por cualquier otra causa */
     public int selectFileByName(final byte[] name) throws ApduConnectionException,
                                                           Iso7816FourCardException {
+    	invalidateSelectedFile();
     	final CommandApdu selectCommand = new SelectDfByNameApduCommand(getCla(), name);
     	final ResponseApdu response = sendArbitraryApdu(selectCommand);
     	if (response.isOk()) {
@@ -245,6 +510,7 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
      * @throws Iso7816FourCardException Si falla la selecci&oacute;n de fichero. */
     public int selectFileById(final byte[] id) throws ApduConnectionException,
                                                       Iso7816FourCardException {
+    	invalidateSelectedFile();
     	final CommandApdu selectCommand = new SelectFileByIdApduCommand(getCla(), id);
 		final ResponseApdu res = getConnection().transmit(selectCommand);
 		if (SW_FILE_NOT_FOUND.equals(res.getStatusWord())) {
@@ -277,23 +543,85 @@ public abstract class AbstractIso7816FourCard extends AbstractSmartCard {
     }
 
     /** Selecciona un fichero (DF o EF).
+     * Se recuerda la ruta del &uacute;ltimo fichero seleccionado, de forma que si el nuevo
+     * fichero est&aacute; en el mismo DF (o en uno descendiente) solo se seleccionan los
+     * elementos de la ruta que difieren, y si es el mismo fichero no se vuelve a seleccionar.
      * @param location Ruta absoluta donde se encuentra el fichero a leer.
      * @return Tama&ntilde;o del fichero seleccionado.
      * @throws ApduConnectionException Si hay problemas en el env&iacute;o de la APDU.
      * @throws Iso7816FourCardException Si falla la selecci&oacute;n de fichero. */
     private int selectFileByLocation(final Location location) throws ApduConnectionException,
                                                                     Iso7816FourCardException {
-        int fileLength = 0;
+        final List<byte[]> path = new ArrayList<>();
         Location loc = location;
-        selectMasterFile();
         while (loc != null) {
-            final byte[] id = loc.getFile();
-            fileLength = selectFileById(id);
+            path.add(loc.getFile());
             loc = loc.getChild();
         }
+        final List<byte[]> dfPath = path.subList(0, path.size() - 1);
+        final byte[] efId = path.get(path.size() - 1);
+
+        final List<byte[]> currentDfPath = selectedDfPath;
+        if (currentDfPath != null && selectionConnection == getConnection() && isPrefix(currentDfPath, dfPath)) {
+        	if (currentDfPath.size() == dfPath.size() && Arrays.equals(efId, selectedEfId)) {
+        		return selectedEfLength;
+        	}
+        	try {
+        		return selectPath(path, currentDfPath.size(), dfPath, efId);
+        	}
+        	catch (final Iso7816FourCardException e) {
+        		// La seleccion registrada no era la real, repetimos desde el MF
+        		JmcLogger.warning(
+    				"No se ha podido seleccionar " + location + " desde el DF actual, se reintenta desde el MF: " + e //$NON-NLS-1$ //$NON-NLS-2$
+				);
+        	}
+        }
+        selectMasterFile();
+        return selectPath(path, 0, dfPath, efId);
+    }
+
+    /** Selecciona los elementos de una ruta a partir de una posici&oacute;n dada y registra la
+     * selecci&oacute;n resultante.
+     * @param path Ruta completa del fichero.
+     * @param from Posici&oacute;n del primer elemento de la ruta a seleccionar.
+     * @param dfPath Ruta del DF que contiene al fichero.
+     * @param efId Identificador del fichero.
+     * @return Tama&ntilde;o del fichero seleccionado.
+     * @throws ApduConnectionException Si hay problemas en el env&iacute;o de la APDU.
+     * @throws Iso7816FourCardException Si falla la selecci&oacute;n de fichero. */
+    private int selectPath(final List<byte[]> path,
+    		               final int from,
+    		               final List<byte[]> dfPath,
+    		               final byte[] efId) throws ApduConnectionException,
+                                                 Iso7816FourCardException {
+        int fileLength = 0;
+        for (int i = from; i < path.size(); i++) {
+            fileLength = selectFileById(path.get(i));
+        }
+        selectedDfPath = new ArrayList<>(dfPath);
+        selectedEfId = efId;
+        selectedEfLength = fileLength;
+        selectionConnection = getConnection();
         return fileLength;
     }
 
+    /** Indica si una ruta es prefijo de otra.
+     * @param prefix Ruta que puede ser prefijo.
+     * @param path Ruta completa.
+     * @return <code>true</code> si <code>prefix</code> es prefijo de <code>path</code>,
+     *         <code>false</code> en caso contrario. */
+    private static boolean isPrefix(final List<byte[]> prefix, final List<byte[]> path) {
+    	if (prefix.size() > path.size()) {
+    		return false;
+    	}
+    	for (int i = 0; i < prefix.size(); i++) {
+    		if (!Arrays.equals(prefix.get(i), path.get(i))) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
     /** Selecciona un fichero y lo lee por completo.
      * @param location Ruta absoluta del fichero a leer.
      * @return Contenido del fichero apuntado por la ruta <code>location</code>.
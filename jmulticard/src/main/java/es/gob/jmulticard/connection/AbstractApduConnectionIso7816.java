@@ -27,6 +27,16 @@ public abstract class AbstractApduConnectionIso7816 implements ApduConnection {
 	 *         puede enviar sin necesidad de hacer una envoltura. */
 	public abstract int getMaxApduSize();
 
+	/** Indica el tama&ntilde;o m&aacute;ximo de APDU de comando que declara admitir la tarjeta
+	 * en su informaci&oacute;n de longitud extendida.
+	 * Por defecto no se tiene en cuenta; solo lo usan las conexiones cuyo tama&ntilde;o
+	 * m&aacute;ximo de APDU depende tanto del lector como de la tarjeta.
+	 * @param length Tama&ntilde;o m&aacute;ximo (en octetos) de APDU de comando de la tarjeta,
+	 *               o <code>0</code> si la tarjeta no lo declara. */
+	public void setCardMaxApduSize(final int length) {
+		// Vacio por defecto
+	}
+
 	/** Transmite una APDU.
 	 * @param apdu Comando APDU a transmitir.
 	 * @return APDU de respuesta.
@@ -22,6 +22,7 @@ import es.gob.jmulticard.asn1.Tlv;
 
 /** <i>Payload</i> de respuesta.
  * <code>| 0x97 | L | Longitud (L octetos) |</code>
+ * La longitud ocupa un octeto para un Le corto y dos para un Le extendido.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s
  * @author Tobias Senger (tobias@t-senger.de). */
 final class DO97 {
@@ -30,7 +31,12 @@ final class DO97 {
     private final Tlv tlv;
 
 	DO97(final int le) {
-		tlv = new Tlv(TAG, new byte[] { (byte) le });
+		if (le > SecureMessaging.MAX_SHORT_LE) {
+			tlv = new Tlv(TAG, new byte[] { (byte) (le >> 8), (byte) le });
+		}
+		else {
+			tlv = new Tlv(TAG, new byte[] { (byte) le });
+		}
 	}
 
 	byte[] getEncoded() {
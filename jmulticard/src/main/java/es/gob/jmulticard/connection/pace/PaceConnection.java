@@ -38,6 +38,13 @@ public final class PaceConnection extends Cwa14890OneV2Connection {
 		subConnection = connection;
 	}
 
+	/** Indica si la tarjeta admite APDU con Lc y Le extendidos, para que el canal las use
+	 * cuando un comando protegido no quepa en una APDU corta.
+	 * @param supported <code>true</code> si la tarjeta admite APDU extendidas. */
+	public void setExtendedLength(final boolean supported) {
+		sm.setExtendedLength(supported);
+	}
+
 	@Override
 	public String toString() {
     	return "Conexion de tipo PACE " + //$NON-NLS-1$
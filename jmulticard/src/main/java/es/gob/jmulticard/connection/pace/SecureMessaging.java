@@ -46,6 +46,9 @@ public final class SecureMessaging {
 	private final byte[] ssc;
 	private final CryptoHelper cryptoHelper;
 
+	/** Indica si la tarjeta admite APDU con Lc y Le extendidos. */
+	private boolean extendedLength = false;
+
 	/** Constructor.
 	 * @param ksenc Clave de sesi&oacute;n para encriptar.
 	 * @param ksmac Clave de sesi&oacute;n para el <i>checksum</i>.
@@ -61,13 +64,24 @@ public final class SecureMessaging {
 		ssc = initialSSC.clone();
 	}
 
+	/** Indica si la tarjeta admite APDU con Lc y Le extendidos, seg&uacute;n su
+	 * informaci&oacute;n de longitud extendida. Por defecto se supone que no.
+	 * @param supported <code>true</code> si la tarjeta admite APDU extendidas. */
+	public void setExtendedLength(final boolean supported) {
+		extendedLength = supported;
+	}
+
 	/** Transforma un Comando APDU en claro a Comando APDU protegido.
+	 * Si el comando en claro tiene un Le extendido o el comando protegido no cabe en
+	 * una APDU corta, y la tarjeta admite APDU extendidas, el comando protegido se construye
+	 * con Lc y Le extendidos, pidiendo como Le la longitud de la respuesta protegida al Le
+	 * en claro.
 	 * @param capdu APDU en claro.
 	 * @return CommandApdu APDU protegida.
-	 * @throws SecureMessagingException En cualquier error. */
+	 * @throws SecureMessagingException Si el comando necesita una APDU extendida y la
+	 *                                  tarjeta no las admite, o en cualquier otro error. */
 	public CommandApdu wrap(final CommandApdu capdu) throws SecureMessagingException {
 
-		byte lc = 0;
 		DO97 do97 = null;
 		DO87 do87 = null;
 
@@ -83,26 +97,23 @@ public final class SecureMessaging {
 		header[0] = (byte) (header[0] | (byte) 0x0C);
 
 		// Construye el DO87 (parametros de comando)
-		if (getAPDUStructure(capdu) == 3 || getAPDUStructure(capdu) == 4) {
-			do87 = buildDO87(capdu.getData().clone());
-			lc += do87.getEncoded().length;
+		final byte[] data = capdu.getData();
+		if (data != null && data.length > 0) {
+			do87 = buildDO87(data);
 		}
 
 		// Construye el DO97 (payload de respuesta esperado)
-		if (getAPDUStructure(capdu) == 2 || getAPDUStructure(capdu) == 4) {
-			do97 = buildDO97(capdu.getLe().intValue());
-			lc += do97.getEncoded().length;
+		final Integer le = capdu.getLe();
+		if (le != null) {
+			do97 = buildDO97(le.intValue());
 		}
 
 		// Construye el DO8E (checksum (MAC))
 		final DO8E do8E = buildDO8E(header, do87, do97);
-		lc += do8E.getEncoded().length;
 
 		// Construye y devuelve la APDU protegida
 		final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
 		try {
-			bOut.write(header);
-			bOut.write(lc);
 			if (do87 != null) {
 				bOut.write(do87.getEncoded());
 			}
@@ -110,13 +121,47 @@ public final class SecureMessaging {
 				bOut.write(do97.getEncoded());
 			}
 			bOut.write(do8E.getEncoded());
-			bOut.write(0);
 		}
 		catch (final IOException e) {
 			throw new SecureMessagingException(e);
 		}
 
-		return new CommandApdu(bOut.toByteArray());
+		// En forma corta la respuesta protegida se pide siempre completa (Le = 0), y en forma
+		// extendida (si el Le en claro o el cuerpo protegido no caben en una APDU corta) se
+		// pide la longitud de la respuesta protegida al Le en claro
+		final byte[] body = bOut.toByteArray();
+		final boolean extended = le != null && le.intValue() > MAX_SHORT_LE || body.length > MAX_SHORT_LC;
+		if (extended && !extendedLength) {
+			throw new SecureMessagingException(
+				"El comando protegido necesita una APDU extendida y la tarjeta no las admite (Le=" + //$NON-NLS-1$
+					le + ", cuerpo de " + body.length + " octetos)" //$NON-NLS-1$ //$NON-NLS-2$
+			);
+		}
+		return new CommandApdu(
+			header[0],
+			header[1],
+			header[2],
+			header[3],
+			body,
+			Integer.valueOf(extended ? getProtectedResponseLength(le) : 0)
+		);
+	}
+
+	/** Calcula la longitud de la respuesta protegida a un comando: DO87 con los datos
+	 * cifrados (y su indicador de relleno) si se esperan datos, DO99 y DO8E.
+	 * @param le Le en claro del comando, o <code>null</code> si no se esperan datos.
+	 * @return Longitud de la respuesta protegida, como m&aacute;ximo
+	 *         <code>MAX_EXTENDED_LE</code>. */
+	private static int getProtectedResponseLength(final Integer le) {
+		int length = DO99_LENGTH + DO8E_LENGTH;
+		if (le != null) {
+			// Un Le en claro de cero pide tantos datos como una APDU corta
+			final int dataLength = le.intValue() == 0 ? MAX_SHORT_LE : le.intValue();
+			final int do87Value = 1 + (dataLength / BLOCK_SIZE + 1) * BLOCK_SIZE;
+			final int do87LengthBytes = do87Value < 0x80 ? 1 : do87Value < 0x100 ? 2 : 3;
+			length += 1 + do87LengthBytes + do87Value;
+		}
+		return Math.min(length, MAX_EXTENDED_LE);
 	}
 
 	/** Obtiene la APDU de respuesta en claro a partir de una APDU protegida.
@@ -324,38 +369,6 @@ public final class SecureMessaging {
 		return new DO97(le);
 	}
 
-	/** Determina el equivalente a la APDU (ISO/IEC 7816-3 Cap&iacute;tulo 12&#46;1).
-	 * @param capdu Comando APDU.
-	 * @return Tipo de estructura (1 = CASE1, etc.). */
-	private static byte getAPDUStructure(final CommandApdu capdu) {
-		final byte[] cardcmd = capdu.getBytes();
-
-		if (cardcmd.length == 4) {
-			return 1;
-		}
-		if (cardcmd.length == 5) {
-			return 2;
-		}
-		if (cardcmd.length == 5 + (cardcmd[4]&0xff) && cardcmd[4] != 0) {
-			return 3;
-		}
-		if (cardcmd.length == 6 + (cardcmd[4]&0xff) && cardcmd[4] != 0) {
-			return 4;
-		}
-		if (cardcmd.length == 7 && cardcmd[4] == 0) {
-			return 5;
-		}
-		if (cardcmd.length == 7 + (cardcmd[5]&0xff) * 256 + (cardcmd[6]&0xff)
-				&& cardcmd[4] == 0 && (cardcmd[5] != 0 || cardcmd[6] != 0)) {
-			return 6;
-		}
-		if (cardcmd.length == 9 + (cardcmd[5]&0xff) * 256 + (cardcmd[6]&0xff)
-				&& cardcmd[4] == 0 && (cardcmd[5] != 0 || cardcmd[6] != 0)) {
-			return 7;
-		}
-		return 0;
-	}
-
 	private static void incrementAtIndex(final byte[] array) {
 		final byte[] result = new BigInteger(1, array).add(BigInteger.ONE).toByteArray();
 		if (result.length > array.length) {
@@ -392,6 +405,21 @@ public final class SecureMessaging {
 	/** Tama&ntilde;o de bloque de cifrado AES. */
 	private static final int BLOCK_SIZE = 16;
 
+	/** Le m&aacute;ximo de una APDU corta. */
+	static final int MAX_SHORT_LE = 0x100;
+
+	/** Lc m&aacute;ximo de una APDU corta. */
+	private static final int MAX_SHORT_LC = 0xFF;
+
+	/** Le m&aacute;ximo de una APDU extendida (se codifica como <code>0000</code>). */
+	private static final int MAX_EXTENDED_LE = 0x10000;
+
+	/** Longitud del DO99 (palabra de estado) de una respuesta protegida. */
+	private static final int DO99_LENGTH = 4;
+
+	/** Longitud del DO8E (MAC) de una respuesta protegida. */
+	private static final int DO8E_LENGTH = 10;
+
 	/** A&ntilde;ade un relleno ISO9797-1 (m&eacute;todo 2) / ISO7816d4-Padding
 	 * a los datos proporcionados.
 	 * @param data Datos a rellenar.
@@ -0,0 +1,250 @@
+package es.gob.jmulticard.connection.trace;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Traza de una sesi&oacute;n APDU con una tarjeta: secuencia de reinicios (con su ATR)
+ * y de comandos enviados (con su respuesta), junto con sus tiempos.
+ * <p>La codificaci&oacute;n binaria es compacta: una cabecera <code>JMCT</code> con la
+ * versi&oacute;n del formato y el tama&ntilde;o m&aacute;ximo de APDU de la conexi&oacute;n
+ * grabada (como entero de longitud variable), seguida de un registro por entrada con su tipo, el
+ * desplazamiento de su inicio respecto a la entrada anterior, su duraci&oacute;n (ambos
+ * en nanosegundos y como enteros de longitud variable) y los octetos de comando y
+ * respuesta precedidos de su longitud. Un tipo <code>0</code> marca el final.</p>
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+public final class ApduTrace {
+
+	private static final byte[] MAGIC = { 'J', 'M', 'C', 'T' };
+
+	private static final int VERSION = 2;
+
+	/** Versi&oacute;n del formato sin tama&ntilde;o m&aacute;ximo de APDU. */
+	private static final int VERSION_WITHOUT_MAX_APDU_SIZE = 1;
+
+	/** Tama&ntilde;o m&aacute;ximo de APDU de las conexiones que no lo declaran. */
+	static final int DEFAULT_MAX_APDU_SIZE = 0xFF;
+
+	private static final int END_OF_TRACE = 0;
+
+	/** Tipo de entrada de la traza. */
+	public enum EntryType {
+
+		/** Reinicio de la conexi&oacute;n (la respuesta es el ATR). */
+		RESET(1),
+
+		/** Env&iacute;o de una APDU. */
+		TRANSMIT(2);
+
+		private final int code;
+
+		EntryType(final int c) {
+			code = c;
+		}
+
+		static EntryType getEntryType(final int c) throws IOException {
+			for (final EntryType t : values()) {
+				if (t.code == c) {
+					return t;
+				}
+			}
+			throw new IOException("Tipo de entrada de traza APDU desconocido: " + c); //$NON-NLS-1$
+		}
+	}
+
+	/** Entrada de la traza. */
+	public static final class Entry {
+
+		private final EntryType type;
+		private final byte[] command;
+		private final byte[] response;
+		private final long startNanos;
+		private final long durationNanos;
+
+		Entry(final EntryType t,
+			  final byte[] cmd,
+			  final byte[] res,
+			  final long start,
+			  final long duration) {
+			type = t;
+			command = cmd != null ? cmd.clone() : null;
+			response = res != null ? res.clone() : new byte[0];
+			startNanos = start;
+			durationNanos = duration;
+		}
+
+		/** Obtiene el tipo de la entrada.
+		 * @return Tipo de la entrada. */
+		public EntryType getType() {
+			return type;
+		}
+
+		/** Obtiene los octetos del comando enviado.
+		 * @return Octetos del comando, o <code>null</code> si la entrada es un reinicio. */
+		public byte[] getCommand() {
+			return command != null ? command.clone() : null;
+		}
+
+		/** Obtiene los octetos de la respuesta de la tarjeta.
+		 * @return Respuesta APDU completa (con palabra de estado) o ATR si la entrada es un reinicio. */
+		public byte[] getResponse() {
+			return response.clone();
+		}
+
+		/** Obtiene el instante de inicio de la entrada.
+		 * @return Nanosegundos transcurridos desde el inicio de la grabaci&oacute;n. */
+		public long getStartNanos() {
+			return startNanos;
+		}
+
+		/** Obtiene lo que tard&oacute; la tarjeta (y el lector) en responder.
+		 * @return Duraci&oacute;n en nanosegundos. */
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		boolean matches(final EntryType t, final byte[] cmd) {
+			return type == t && Arrays.equals(command, cmd);
+		}
+	}
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	private int maxApduSize = DEFAULT_MAX_APDU_SIZE;
+
+	/** Crea una traza vac&iacute;a. */
+	public ApduTrace() {
+		// Vacio
+	}
+
+	/** Obtiene el tama&ntilde;o m&aacute;ximo de APDU de la conexi&oacute;n grabada.
+	 * @return Tama&ntilde;o m&aacute;ximo (en octetos) de APDU. */
+	public synchronized int getMaxApduSize() {
+		return maxApduSize;
+	}
+
+	synchronized void setMaxApduSize(final int size) {
+		maxApduSize = size;
+	}
+
+	synchronized void add(final Entry entry) {
+		entries.add(entry);
+	}
+
+	/** Obtiene las entradas de la traza, en el orden en el que ocurrieron.
+	 * @return Copia de las entradas de la traza. */
+	public synchronized List<Entry> getEntries() {
+		return Collections.unmodifiableList(new ArrayList<>(entries));
+	}
+
+	/** Obtiene el n&uacute;mero de entradas de la traza.
+	 * @return N&uacute;mero de entradas. */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/** Escribe la codificaci&oacute;n binaria de la traza.
+	 * @param os Flujo de salida. No se cierra.
+	 * @throws IOException Si no se puede escribir en el flujo. */
+	public void write(final OutputStream os) throws IOException {
+		final DataOutputStream dos = new DataOutputStream(os);
+		dos.write(MAGIC);
+		dos.writeByte(VERSION);
+		writeVarLong(dos, getMaxApduSize());
+		long previousStart = 0;
+		for (final Entry e : getEntries()) {
+			dos.writeByte(e.type.code);
+			writeVarLong(dos, Math.max(0, e.startNanos - previousStart));
+			writeVarLong(dos, Math.max(0, e.durationNanos));
+			if (e.type == EntryType.TRANSMIT) {
+				writeBytes(dos, e.command);
+			}
+			writeBytes(dos, e.response);
+			previousStart = Math.max(previousStart, e.startNanos);
+		}
+		dos.writeByte(END_OF_TRACE);
+		dos.flush();
+	}
+
+	/** Lee una traza a partir de su codificaci&oacute;n binaria.
+	 * @param is Flujo de entrada. No se cierra.
+	 * @return Traza le&iacute;da.
+	 * @throws IOException Si no se puede leer del flujo o los datos no son una traza v&aacute;lida. */
+	public static ApduTrace read(final InputStream is) throws IOException {
+		final DataInputStream dis = new DataInputStream(is);
+		final byte[] magic = new byte[MAGIC.length];
+		dis.readFully(magic);
+		if (!Arrays.equals(MAGIC, magic)) {
+			throw new IOException("Los datos no son una traza APDU"); //$NON-NLS-1$
+		}
+		final int version = dis.readUnsignedByte();
+		if (version != VERSION && version != VERSION_WITHOUT_MAX_APDU_SIZE) {
+			throw new IOException("Version de traza APDU no soportada: " + version); //$NON-NLS-1$
+		}
+		final ApduTrace trace = new ApduTrace();
+		if (version == VERSION) {
+			final long size = readVarLong(dis);
+			if (size <= 0 || size > Integer.MAX_VALUE) {
+				throw new IOException("Tamano maximo de APDU no valido en la traza: " + size); //$NON-NLS-1$
+			}
+			trace.maxApduSize = (int) size;
+		}
+		long start = 0;
+		int code;
+		while ((code = dis.readUnsignedByte()) != END_OF_TRACE) {
+			final EntryType type = EntryType.getEntryType(code);
+			start += readVarLong(dis);
+			final long duration = readVarLong(dis);
+			final byte[] command = type == EntryType.TRANSMIT ? readBytes(dis) : null;
+			trace.entries.add(new Entry(type, command, readBytes(dis), start, duration));
+		}
+		return trace;
+	}
+
+	private static void writeBytes(final DataOutputStream dos, final byte[] data) throws IOException {
+		writeVarLong(dos, data.length);
+		dos.write(data);
+	}
+
+	private static byte[] readBytes(final DataInputStream dis) throws IOException {
+		final long len = readVarLong(dis);
+		if (len > Integer.MAX_VALUE) {
+			throw new IOException("Longitud de APDU no valida en la traza: " + len); //$NON-NLS-1$
+		}
+		final byte[] data = new byte[(int) len];
+		dis.readFully(data);
+		return data;
+	}
+
+	/** Escribe un entero no negativo en grupos de 7 bits, con el bit alto como indicador de continuaci&oacute;n.
+	 * @param dos Flujo de salida.
+	 * @param value Valor a escribir.
+	 * @throws IOException Si no se puede escribir en el flujo. */
+	private static void writeVarLong(final DataOutputStream dos, final long value) throws IOException {
+		long v = value;
+		while ((v & ~0x7FL) != 0) {
+			dos.writeByte((int) (v & 0x7F | 0x80));
+			v >>>= 7;
+		}
+		dos.writeByte((int) v);
+	}
+
+	private static long readVarLong(final DataInputStream dis) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = dis.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new EOFException("Entero de longitud variable mal formado en la traza"); //$NON-NLS-1$
+	}
+}
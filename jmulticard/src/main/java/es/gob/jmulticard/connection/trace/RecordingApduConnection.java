@@ -0,0 +1,132 @@
+package es.gob.jmulticard.connection.trace;
+
+import es.gob.jmulticard.apdu.CommandApdu;
+import es.gob.jmulticard.apdu.ResponseApdu;
+import es.gob.jmulticard.connection.AbstractApduConnectionIso7816;
+import es.gob.jmulticard.connection.ApduConnection;
+import es.gob.jmulticard.connection.ApduConnectionException;
+import es.gob.jmulticard.connection.ApduConnectionProtocol;
+
+/** Conexi&oacute;n que delega en otra y graba en una {@link ApduTrace} cada reinicio y
+ * cada APDU enviada junto con su respuesta y sus tiempos.
+ * <p>Debe colocarse directamente sobre la conexi&oacute;n con el lector (por debajo de
+ * cualquier canal seguro), de forma que se graben las APDU tal y como viajan a la tarjeta.
+ * Se presenta como conexi&oacute;n de m&aacute;s bajo nivel, as&iacute; que las tarjetas
+ * no la confunden con un canal seguro, y con el mismo tama&ntilde;o m&aacute;ximo de APDU
+ * que la conexi&oacute;n grabada, que se guarda en la traza.</p>
+ * <p>Las APDU que fallan en la conexi&oacute;n subyacente no se graban.</p>
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+public final class RecordingApduConnection extends AbstractApduConnectionIso7816 {
+
+	private final ApduConnection conn;
+	private final ApduTrace trace = new ApduTrace();
+	private final long origin = System.nanoTime();
+
+	/** Construye una conexi&oacute;n que graba lo que se env&iacute;a a otra.
+	 * @param connection Conexi&oacute;n con la tarjeta. */
+	public RecordingApduConnection(final ApduConnection connection) {
+		if (connection == null) {
+			throw new IllegalArgumentException("La conexion a grabar no puede ser nula"); //$NON-NLS-1$
+		}
+		conn = connection;
+		trace.setMaxApduSize(
+			connection instanceof AbstractApduConnectionIso7816 ?
+				((AbstractApduConnectionIso7816) connection).getMaxApduSize() :
+					ApduTrace.DEFAULT_MAX_APDU_SIZE
+		);
+	}
+
+	/** Obtiene la traza grabada hasta el momento.
+	 * @return Traza de la sesi&oacute;n. */
+	public ApduTrace getTrace() {
+		return trace;
+	}
+
+	@Override
+	public int getMaxApduSize() {
+		return trace.getMaxApduSize();
+	}
+
+	/** {@inheritDoc}
+	 * Se traslada a la conexi&oacute;n grabada y se guarda en la traza su nuevo tama&ntilde;o
+	 * m&aacute;ximo de APDU. */
+	@Override
+	public void setCardMaxApduSize(final int length) {
+		if (conn instanceof AbstractApduConnectionIso7816) {
+			((AbstractApduConnectionIso7816) conn).setCardMaxApduSize(length);
+			trace.setMaxApduSize(((AbstractApduConnectionIso7816) conn).getMaxApduSize());
+		}
+	}
+
+	@Override
+	protected ResponseApdu internalTransmit(final byte[] apdu) throws ApduConnectionException {
+		final long start = System.nanoTime();
+		final ResponseApdu response = conn.transmit(new CommandApdu(apdu));
+		final long end = System.nanoTime();
+		trace.add(
+			new ApduTrace.Entry(
+				ApduTrace.EntryType.TRANSMIT,
+				apdu.clone(),
+				response.getBytes(),
+				start - origin,
+				end - start
+			)
+		);
+		return response;
+	}
+
+	@Override
+	public byte[] reset() throws ApduConnectionException {
+		final long start = System.nanoTime();
+		final byte[] atr = conn.reset();
+		final long end = System.nanoTime();
+		trace.add(new ApduTrace.Entry(ApduTrace.EntryType.RESET, null, atr, start - origin, end - start));
+		return atr;
+	}
+
+	@Override
+	public void setProtocol(final ApduConnectionProtocol p) {
+		conn.setProtocol(p);
+	}
+
+	@Override
+	public void open() throws ApduConnectionException {
+		conn.open();
+	}
+
+	@Override
+	public void close() throws ApduConnectionException {
+		conn.close();
+	}
+
+	@Override
+	public long[] getTerminals(final boolean onlyWithCardPresent) throws ApduConnectionException {
+		return conn.getTerminals(onlyWithCardPresent);
+	}
+
+	@Override
+	public String getTerminalInfo(final int terminal) throws ApduConnectionException {
+		return conn.getTerminalInfo(terminal);
+	}
+
+	@Override
+	public void setTerminal(final int t) throws ApduConnectionException {
+		conn.setTerminal(t);
+	}
+
+	@Override
+	public boolean isOpen() {
+		return conn.isOpen();
+	}
+
+	@Override
+	public ApduConnection getSubConnection() {
+		// Es transparente: las tarjetas tratan una subconexion como indicio de canal seguro
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "Grabacion de " + conn; //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,157 @@
+package es.gob.jmulticard.connection.trace;
+
+import java.util.List;
+
+import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.apdu.ResponseApdu;
+import es.gob.jmulticard.connection.AbstractApduConnectionIso7816;
+import es.gob.jmulticard.connection.ApduConnection;
+import es.gob.jmulticard.connection.ApduConnectionException;
+import es.gob.jmulticard.connection.ApduConnectionProtocol;
+
+/** Conexi&oacute;n que sirve una sesi&oacute;n grabada con {@link RecordingApduConnection}
+ * en lugar de comunicarse con una tarjeta.
+ * <p>Cada APDU enviada debe coincidir exactamente con la siguiente de la traza, o se
+ * lanza una <code>ApduConnectionException</code>. Si la sesi&oacute;n usa canal seguro,
+ * los retos y claves ef&iacute;meras del terminal tienen que repetirse, por lo que hay que
+ * usar en la grabaci&oacute;n y en la reproducci&oacute;n un <code>CryptoHelper</code>
+ * con la misma fuente fija de aleatorios. La conexi&oacute;n declara el tama&ntilde;o
+ * m&aacute;ximo de APDU de la grabaci&oacute;n, para que las lecturas se troceen igual. Del mismo modo, las cach&eacute;s del
+ * terminal (como la de claves de certificados de componente) deben estar en el mismo
+ * estado, ya que evitan APDU.</p>
+ * <p>La reproducci&oacute;n puede ser inmediata o simular la latencia grabada de la
+ * tarjeta, escalada por un factor. El tiempo de proceso del propio terminal entre APDU
+ * no se simula.</p>
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+public final class ReplayApduConnection extends AbstractApduConnectionIso7816 {
+
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+
+	private final List<ApduTrace.Entry> entries;
+	private final int maxApduSize;
+	private final double latencyScale;
+
+	private int position = 0;
+	private boolean open = false;
+
+	/** Construye una conexi&oacute;n que reproduce una traza sin esperas.
+	 * @param trace Traza a reproducir. */
+	public ReplayApduConnection(final ApduTrace trace) {
+		this(trace, 0);
+	}
+
+	/** Construye una conexi&oacute;n que reproduce una traza simulando la latencia grabada.
+	 * @param trace Traza a reproducir.
+	 * @param scale Factor por el que se multiplica la duraci&oacute;n grabada de cada
+	 *              APDU (<code>1</code> para la latencia original, <code>0</code> para
+	 *              responder de inmediato). */
+	public ReplayApduConnection(final ApduTrace trace, final double scale) {
+		if (trace == null) {
+			throw new IllegalArgumentException("La traza a reproducir no puede ser nula"); //$NON-NLS-1$
+		}
+		if (scale < 0 || Double.isNaN(scale) || Double.isInfinite(scale)) {
+			throw new IllegalArgumentException("Factor de latencia no valido: " + scale); //$NON-NLS-1$
+		}
+		entries = trace.getEntries();
+		maxApduSize = trace.getMaxApduSize();
+		latencyScale = scale;
+	}
+
+	/** Indica si se han reproducido todas las entradas de la traza.
+	 * @return <code>true</code> si no quedan entradas por reproducir. */
+	public synchronized boolean isFinished() {
+		return position >= entries.size();
+	}
+
+	@Override
+	public int getMaxApduSize() {
+		return maxApduSize;
+	}
+
+	@Override
+	protected synchronized ResponseApdu internalTransmit(final byte[] apdu) throws ApduConnectionException {
+		return new ResponseApdu(next(ApduTrace.EntryType.TRANSMIT, apdu, HexUtils.hexify(apdu, false)));
+	}
+
+	@Override
+	public synchronized byte[] reset() throws ApduConnectionException {
+		open = true;
+		return next(ApduTrace.EntryType.RESET, null, "reset"); //$NON-NLS-1$
+	}
+
+	private byte[] next(final ApduTrace.EntryType type,
+			            final byte[] cmd,
+			            final String description) throws ApduConnectionException {
+		if (position >= entries.size()) {
+			throw new ApduConnectionException(
+				"La traza no contiene mas entradas y se ha pedido: " + description //$NON-NLS-1$
+			);
+		}
+		final ApduTrace.Entry entry = entries.get(position);
+		if (!entry.matches(type, cmd)) {
+			final byte[] expected = entry.getCommand();
+			throw new ApduConnectionException(
+				"La entrada " + position + " de la traza no coincide. Se esperaba " + //$NON-NLS-1$ //$NON-NLS-2$
+					(expected != null ? HexUtils.hexify(expected, false) : "reset") + //$NON-NLS-1$
+						" y se ha pedido " + description //$NON-NLS-1$
+			);
+		}
+		position++;
+		simulateLatency(entry.getDurationNanos());
+		return entry.getResponse();
+	}
+
+	private void simulateLatency(final long durationNanos) throws ApduConnectionException {
+		final long nanos = (long) (durationNanos * latencyScale);
+		if (nanos <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(nanos / NANOS_PER_MILLI, (int) (nanos % NANOS_PER_MILLI));
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ApduConnectionException("Interrumpida la reproduccion de la traza", e); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public void setProtocol(final ApduConnectionProtocol p) {
+		// Indiferente
+	}
+
+	@Override
+	public synchronized void open() {
+		open = true;
+	}
+
+	@Override
+	public synchronized void close() {
+		open = false;
+	}
+
+	@Override
+	public long[] getTerminals(final boolean onlyWithCardPresent) {
+		return new long[] { 0 };
+	}
+
+	@Override
+	public String getTerminalInfo(final int terminal) {
+		return "Reproduccion de traza APDU"; //$NON-NLS-1$
+	}
+
+	@Override
+	public void setTerminal(final int t) {
+		// Solo hay un lector
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public ApduConnection getSubConnection() {
+		return null;
+	}
+}
@@ -0,0 +1,4 @@
+/** Grabaci&oacute;n y reproducci&oacute;n de las sesiones APDU con una tarjeta, para
+ * depuraci&oacute;n y para pruebas sin lector ni tarjeta.
+ * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s. */
+package es.gob.jmulticard.connection.trace;
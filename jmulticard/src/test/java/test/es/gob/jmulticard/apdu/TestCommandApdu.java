@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 
 import es.gob.jmulticard.apdu.CommandApdu;
 import es.gob.jmulticard.apdu.dnie.GetChipInfoApduCommand;
+import es.gob.jmulticard.apdu.iso7816four.ReadBinaryApduCommand;
 
 /** Prueba de {@linkplain es.gob.jmulticard.apdu.CommandApdu#setLe(int)} de
  * la clase {@linkplain es.gob.jmulticard.apdu.CommandApdu}
@@ -19,4 +20,37 @@ class TestCommandApdu {
         command.setLe(0);
         Assertions.assertNotNull(command);
     }
+
+    /** Codificaci&oacute;n de Le cortos y extendidos en la lectura de binario. */
+	@SuppressWarnings("static-method")
+	@Test
+    final void testExtendedLe() {
+        Assertions.assertArrayEquals(
+    		new byte[] { 0x00, (byte) 0xB0, 0x01, 0x02, (byte) 0xDE },
+    		new ReadBinaryApduCommand((byte) 0x00, (byte) 0x01, (byte) 0x02, 0xDE).getBytes()
+		);
+        Assertions.assertArrayEquals(
+    		new byte[] { 0x00, (byte) 0xB0, 0x01, 0x02, 0x00, 0x04, 0x00 },
+    		new ReadBinaryApduCommand((byte) 0x00, (byte) 0x01, (byte) 0x02, 0x400).getBytes()
+		);
+    }
+
+    /** An&aacute;lisis de APDU extendidas en binario. */
+	@SuppressWarnings("static-method")
+	@Test
+    final void testParseExtended() {
+        final byte[] data = new byte[300];
+        data[299] = 0x55;
+        final CommandApdu apdu = new CommandApdu(
+    		(byte) 0x0C, (byte) 0xB0, (byte) 0x00, (byte) 0x00, data, Integer.valueOf(0x10000)
+		);
+        final CommandApdu parsed = new CommandApdu(apdu.getBytes());
+        Assertions.assertArrayEquals(data, parsed.getData());
+        Assertions.assertEquals(0x10000, parsed.getLe().intValue());
+        Assertions.assertArrayEquals(apdu.getBytes(), parsed.getBytes());
+
+        final CommandApdu le = new CommandApdu(new byte[] { 0x00, (byte) 0xB0, 0x00, 0x00, 0x00, 0x04, 0x00 });
+        Assertions.assertNull(le.getData());
+        Assertions.assertEquals(0x400, le.getLe().intValue());
+    }
 }
\ No newline at end of file
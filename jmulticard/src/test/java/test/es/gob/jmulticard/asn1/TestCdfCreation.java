@@ -6,7 +6,10 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import es.gob.jmulticard.HexUtils;
+import es.gob.jmulticard.asn1.Asn1Exception;
 import es.gob.jmulticard.asn1.der.pkcs15.Cdf;
+import es.gob.jmulticard.asn1.der.pkcs15.CertificateObject;
+import es.gob.jmulticard.asn1.der.pkcs15.CommonObjectAttributes;
 
 /** Prueba de creaci&oacute;n de CDF PKCS#15.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s */
@@ -83,4 +86,20 @@ final class TestCdfCreation {
             System.out.println("\n" + cdf.toString()); //$NON-NLS-1$
         }
     }
-}
\ No newline at end of file
+
+    /** Los errores de an&aacute;lisis indican el tipo del elemento que falla aunque los
+     * elementos se creen con referencias a constructores. */
+    @SuppressWarnings("static-method")
+	@Test
+    void testErrorNamesElementType() {
+    	// Se espera un CommonObjectAttributes (SEQUENCE) y llega un OCTET STRING
+    	final Asn1Exception e = Assertions.assertThrows(
+			Asn1Exception.class,
+			() -> new CertificateObject().setDerValue(new byte[] { 0x30, 0x02, 0x04, 0x00 })
+		);
+    	Assertions.assertTrue(
+			e.getMessage().contains(CommonObjectAttributes.class.getName()),
+			e.getMessage()
+		);
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 
 import es.gob.jmulticard.HexUtils;
 import es.gob.jmulticard.asn1.Tlv;
+import es.gob.jmulticard.asn1.TlvException;
 
 /** Prueba de creaci&oacute;n de TLV.
  * @author Tom&aacute;s Garc&iacute;a-Mer&aacute;s */
@@ -51,4 +52,41 @@ final class TestTlvCreation {
             System.out.println(HexUtils.hexify(tlv.getValue(), true));
         }
     }
+
+    /** Prueba el an&aacute;lisis sin copia de TLV anidados.
+     * @throws Exception en caso de cualquier tipo de error */
+	@SuppressWarnings("static-method")
+	@Test
+	void testTlvChildren() throws Exception {
+		final byte[] longValue = new byte[300];
+		for (int i = 0; i < longValue.length; i++) {
+			longValue[i] = (byte) i;
+		}
+		final Tlv first = new Tlv((byte) 0x02, new byte[] { (byte) 0x01 });
+		final Tlv second = new Tlv((byte) 0x04, longValue);
+		Assertions.assertArrayEquals(longValue, second.getValue());
+
+		final Tlv parent = new Tlv(
+			(byte) 0x30,
+			HexUtils.concatenateByteArrays(first.getBytes(), second.getBytes())
+		);
+
+		final Tlv child1 = parent.getChild(0);
+		Assertions.assertEquals(first.getTotalLength(), child1.getTotalLength());
+		Assertions.assertArrayEquals(first.getBytes(), child1.getBytes());
+
+		final Tlv child2 = parent.getChild(child1.getTotalLength());
+		Assertions.assertEquals((byte) 0x04, child2.getTag());
+		Assertions.assertArrayEquals(longValue, child2.getValue());
+		Assertions.assertArrayEquals(second.getBytes(), child2.getBytes());
+
+		Assertions.assertThrows(
+			TlvException.class,
+			() -> parent.getChild(child1.getTotalLength() + child2.getTotalLength())
+		);
+
+		// Un TLV anidado cuya longitud excede la del contenedor
+		final Tlv truncated = new Tlv((byte) 0x30, new byte[] { (byte) 0x04, (byte) 0x05, (byte) 0x00 });
+		Assertions.assertThrows(TlvException.class, () -> truncated.getChild(0));
+	}
 }
\ No newline at end of file